@@ -0,0 +1,263 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import solutions.trsoftware.commons.server.util.Clock;
+import solutions.trsoftware.commons.shared.cache.AbstractCachingFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe alternative to {@link AbstractCachingFactory} that computes the missing values on an {@link Executor},
+ * instead of the caller's thread.
+ * <p>
+ * {@link #computeAsync(Object)} returns a {@link CompletableFuture} for the result, so the callers that don't want to
+ * block on an expensive computation don't have to.  The results are cached in a {@link ConcurrentLruCache} as
+ * futures, which means that concurrent requests for the same key are coalesced into a single invocation of
+ * {@link #_compute(Object)}.  If the computation fails, its future is removed from the cache (so that the next request
+ * will try again).
+ * <p>
+ * If a {@code refreshAfterWrite} interval is given, a request for a value that was computed more than that many
+ * millis ago (according to {@link Clock#currentTimeMillis()}) will trigger a recomputation in the background,
+ * while the old value continues to be served until the new one is ready.  If the refresh fails, the old value is kept
+ * (and the refresh will be attempted again after another {@code refreshAfterWrite} interval).
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of computed values
+ * @author Alex
+ * @since 10/17/2026
+ */
+public abstract class AsyncCachingFactory<K, V> {
+
+  /** A cache of past results */
+  private final ConcurrentLruCache<K, Entry<V>> cache;
+  private final Executor executor;
+  /** The age (in millis) after which a result will be recomputed in the background; {@code 0} to disable refreshing */
+  private final long refreshAfterWrite;
+
+  // fields for stats gathering
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder refreshes = new LongAdder();
+  private final LongAdder computeCount = new LongAdder();
+  private final LongAdder computeNanos = new LongAdder();
+
+  /**
+   * Creates an instance that computes the values in the {@linkplain ForkJoinPool#commonPool() common pool}
+   * and never refreshes them.
+   * @param sizeLimit the max number of results to cache
+   */
+  protected AsyncCachingFactory(int sizeLimit) {
+    this(sizeLimit, ForkJoinPool.commonPool(), 0);
+  }
+
+  /**
+   * @param sizeLimit the max number of results to cache
+   * @param executor will be used to compute the values
+   * @param refreshAfterWrite the age (in millis) after which a cached result will be recomputed in the background
+   * (when it's requested); {@code 0} to disable refreshing
+   */
+  protected AsyncCachingFactory(int sizeLimit, Executor executor, long refreshAfterWrite) {
+    if (refreshAfterWrite < 0)
+      throw new IllegalArgumentException("refreshAfterWrite must not be negative: " + refreshAfterWrite);
+    cache = new ConcurrentLruCache<>(sizeLimit);
+    this.executor = executor;
+    this.refreshAfterWrite = refreshAfterWrite;
+  }
+
+  /**
+   * Waits for the result of {@link #computeAsync(Object)}.
+   * @throws RuntimeException the exception thrown by {@link #_compute(Object)}, if any
+   */
+  public V compute(K key) {
+    try {
+      return computeAsync(key).get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException)cause;
+      if (cause instanceof Error)
+        throw (Error)cause;
+      throw new UncheckedExecutionException(cause);
+    }
+  }
+
+  /**
+   * @return the cached result for the given key (which might still be in progress), or a future for a new computation
+   * of the result, if it's not in the cache.
+   */
+  public CompletableFuture<V> computeAsync(K key) {
+    Entry<V> entry = cache.get(key);
+    if (entry == null) {
+      Entry<V> newEntry = new Entry<>(new CompletableFuture<>());
+      entry = cache.putIfAbsent(key, newEntry);
+      if (entry == null) {
+        misses.increment();
+        try {
+          executor.execute(() -> load(key, newEntry));
+        }
+        catch (RejectedExecutionException ex) {
+          cache.remove(key, newEntry);
+          newEntry.future.completeExceptionally(ex);
+        }
+        return newEntry.future;
+      }
+    }
+    hits.increment();
+    if (refreshAfterWrite > 0 && entry.needsRefresh(refreshAfterWrite))
+      refresh(key, entry);
+    return entry.future;
+  }
+
+  private void load(K key, Entry<V> entry) {
+    try {
+      V value = timedCompute(key);
+      entry.loadTime = Clock.currentTimeMillis();
+      entry.future.complete(value);
+    }
+    catch (Throwable ex) {
+      cache.remove(key, entry);
+      entry.future.completeExceptionally(ex);
+    }
+  }
+
+  /**
+   * Recomputes the value of the given entry in the background, replacing the entry after the new value is ready.
+   */
+  private void refresh(K key, Entry<V> entry) {
+    if (!entry.refreshing.compareAndSet(false, true))
+      return;  // already being refreshed by another thread
+    Runnable task = () -> {
+      try {
+        Entry<V> newEntry = new Entry<>(CompletableFuture.completedFuture(timedCompute(key)));
+        newEntry.loadTime = Clock.currentTimeMillis();
+        if (cache.replace(key, entry, newEntry))
+          refreshes.increment();
+      }
+      catch (Throwable ex) {
+        // keep serving the old value, and try again after another refresh interval
+        entry.loadTime = Clock.currentTimeMillis();
+        entry.refreshing.set(false);
+      }
+    };
+    try {
+      executor.execute(task);
+    }
+    catch (RejectedExecutionException ex) {
+      entry.refreshing.set(false);
+    }
+  }
+
+  private V timedCompute(K key) {
+    long start = System.nanoTime();
+    try {
+      return _compute(key);
+    }
+    finally {
+      computeNanos.add(System.nanoTime() - start);
+      computeCount.increment();
+    }
+  }
+
+  /**
+   * Computes the value for the given key.  Might be invoked concurrently for different keys.
+   */
+  protected abstract V _compute(K key);
+
+  public String printStats() {
+    long n = getAccessCount();
+    return " access count: " + n + "\n"
+        + " hit rate: " + ((double)getHits()/n) + "\n"
+        + " mean computation duration: " + getMeanComputeMillis() + " ms" + "\n"
+        + " refreshes: " + getRefreshes();
+  }
+
+  /**
+   * @return the number of requests for a key that was already cached, including those that were coalesced with
+   * a computation still in progress
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of requests that started a new computation
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getAccessCount() {
+    return getHits() + getMisses();
+  }
+
+  /**
+   * @return the number of values that were replaced by a background refresh
+   */
+  public long getRefreshes() {
+    return refreshes.sum();
+  }
+
+  /**
+   * @return the mean time (in milliseconds) taken by {@link #_compute(Object)}, including the background refreshes
+   */
+  public double getMeanComputeMillis() {
+    long n = computeCount.sum();
+    return n == 0 ? 0 : computeNanos.sum() / 1e6 / n;
+  }
+
+  public int getCacheSize() {
+    return cache.size();
+  }
+
+  public int getSizeLimit() {
+    return cache.getSizeLimit();
+  }
+
+  public long getRefreshAfterWrite() {
+    return refreshAfterWrite;
+  }
+
+  /**
+   * A cached result.
+   */
+  private static class Entry<V> {
+    private final CompletableFuture<V> future;
+    /** The time when the value was computed (or when the last failed refresh was attempted) */
+    private volatile long loadTime;
+    /** Prevents starting more than one concurrent refresh */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private Entry(CompletableFuture<V> future) {
+      this.future = future;
+    }
+
+    private boolean needsRefresh(long refreshAfterWrite) {
+      return future.isDone() && !future.isCompletedExceptionally() && !refreshing.get()
+          && Clock.currentTimeMillis() - loadTime >= refreshAfterWrite;
+    }
+  }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import solutions.trsoftware.commons.server.util.Clock;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe alternative to {@link FixedTimeCache}: a map whose entries expire after a certain amount of time
+ * has elapsed since they were put (according to {@link Clock#currentTimeMillis()}), and which doesn't have to
+ * be synchronized externally.
+ * <p>
+ * The entries are stored in a {@link ConcurrentHashMap}, so reading an entry doesn't acquire any locks and
+ * doesn't perform any cleanup: an entry is simply treated as absent once its expiration time has passed.
+ * The expired entries are removed with a
+ * <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/ton97-timing-wheels.pdf">hierarchical timer wheel</a>:
+ * each entry is linked into a bucket of the wheel level whose time span matches its remaining time to live
+ * (about a second, a minute, an hour, a day, and everything beyond that).  As the time advances, the buckets whose
+ * time has passed are emptied, and the unexpired entries from the higher levels cascade down into the lower ones,
+ * which makes both scheduling and expiring an entry an O(1) operation.  The wheel is advanced by the write operations
+ * (while they already hold the lock used to schedule the new entry), by {@link #size()}, and by {@link #cleanUp()},
+ * which can also be invoked periodically by a background thread.
+ * <p>
+ * Each entry can have its own time to live (see {@link #put(Object, Object, long)}).  Unlike {@link FixedTimeCache},
+ * replacing the value of an existing key also resets its expiration time.
+ * <p>
+ * The iterators of the collection views are weakly consistent (like those of {@link ConcurrentHashMap}): they
+ * never throw {@link ConcurrentModificationException}, don't make a copy of the map, and skip the entries that
+ * are expired at the time they're reached.
+ * <p>
+ * Like {@link ConcurrentHashMap}, this class doesn't allow {@code null} keys or values.  Unlike {@link FixedTimeCache},
+ * it doesn't limit the number of entries (see {@link ConcurrentLruCache} for that).
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ConcurrentFixedTimeCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+  /** The number of buckets in each level of the timer wheel */
+  private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+  /**
+   * The time span of a bucket in each level of the timer wheel, as a power of 2:
+   * 1.02 sec, 1.09 min, 1.17 hrs, 1.55 days, 6.21 days (the span of each level is the total span of the previous one)
+   */
+  private static final int[] SHIFT = {10, 16, 22, 27, 29};
+
+  private final long maxAge;
+
+  private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+  /** Guards the timer wheel */
+  private final ReentrantLock lock = new ReentrantLock();
+  /** The sentinels of the circular doubly-linked lists of nodes in each bucket of each level of the timer wheel */
+  private final Node<K, V>[][] wheel;
+  /** The time up to which the timer wheel has been advanced */
+  private long wheelTime;
+
+  /**
+   * @param maxAge (millis) the default time to live of the entries: they will expire after this amount of time
+   * has elapsed since they were put
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentFixedTimeCache(long maxAge) {
+    if (maxAge < 0)
+      throw new IllegalArgumentException("maxAge must not be negative: " + maxAge);
+    this.maxAge = maxAge;
+    wheel = new Node[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; i++) {
+      wheel[i] = new Node[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; j++)
+        wheel[i][j] = Node.sentinel();
+    }
+    wheelTime = Clock.currentTimeMillis();
+  }
+
+  public long getMaxAge() {
+    return maxAge;
+  }
+
+  @Override
+  public V get(Object key) {
+    return unwrap(getWithExpirationTime(key));
+  }
+
+  /**
+   * @return an object that contains both the value and the time when the key will expire,
+   * or {@code null} if the key wasn't found.
+   */
+  public FixedTimeCacheValue<V> getWithExpirationTime(Object key) {
+    Node<K, V> node = map.get(key);
+    if (node == null || node.isExpired(Clock.currentTimeMillis()))
+      return null;
+    return node;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return getWithExpirationTime(key) != null;
+  }
+
+  /**
+   * Associates the value with the key, which will expire after {@link #getMaxAge()} millis.
+   */
+  @Override
+  public V put(K key, V value) {
+    return put(key, value, maxAge);
+  }
+
+  /**
+   * Associates the value with the key, which will expire after the given number of millis.
+   * @return the previous value associated with the key, or {@code null} if it was absent or expired.
+   */
+  public V put(K key, V value, long timeToLive) {
+    long now = Clock.currentTimeMillis();
+    Node<K, V> node = newNode(key, value, timeToLive, now);
+    Node<K, V> oldNode = map.put(key, node);
+    schedule(node, oldNode, now);
+    return oldNode == null || oldNode.isExpired(now) ? null : oldNode.getValue();
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    long now = Clock.currentTimeMillis();
+    Node<K, V> node = newNode(key, value, maxAge, now);
+    while (true) {
+      Node<K, V> oldNode = map.putIfAbsent(key, node);
+      if (oldNode == null) {
+        schedule(node, null, now);
+        return null;
+      }
+      if (!oldNode.isExpired(now))
+        return oldNode.getValue();
+      // the existing entry is expired, so we can replace it
+      if (map.replace(key, oldNode, node)) {
+        schedule(node, oldNode, now);
+        return null;
+      }
+    }
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    long now = Clock.currentTimeMillis();
+    Node<K, V> node = newNode(key, value, maxAge, now);
+    while (true) {
+      Node<K, V> oldNode = map.get(key);
+      if (oldNode == null || oldNode.isExpired(now))
+        return null;
+      if (map.replace(key, oldNode, node)) {
+        schedule(node, oldNode, now);
+        return oldNode.getValue();
+      }
+    }
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    Objects.requireNonNull(oldValue);
+    long now = Clock.currentTimeMillis();
+    Node<K, V> node = newNode(key, newValue, maxAge, now);
+    Node<K, V> oldNode = map.get(key);
+    if (oldNode == null || oldNode.isExpired(now) || !oldValue.equals(oldNode.getValue())
+        || !map.replace(key, oldNode, node))
+      return false;
+    schedule(node, oldNode, now);
+    return true;
+  }
+
+  @Override
+  public V remove(Object key) {
+    Node<K, V> node = map.remove(key);
+    if (node == null)
+      return null;
+    unschedule(node);
+    return node.isExpired(Clock.currentTimeMillis()) ? null : node.getValue();
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    Node<K, V> node = map.get(key);
+    if (node == null || value == null || node.isExpired(Clock.currentTimeMillis()) || !value.equals(node.getValue()))
+      return false;
+    return removeNode(node);
+  }
+
+  private boolean removeNode(Node<K, V> node) {
+    if (map.remove(node.key, node)) {
+      unschedule(node);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes all the expired entries.  This method doesn't have to be called explicitly, because the expired entries
+   * are also removed by the operations that modify the cache, but it could be invoked periodically by a background
+   * thread for a cache that's rarely modified.
+   */
+  public void cleanUp() {
+    lock.lock();
+    try {
+      long now = Clock.currentTimeMillis();
+      advance(now);
+      // the current bucket of the lowest level can contain some entries that expired since the start of its time span
+      Node<K, V>[] buckets = wheel[0];
+      Node<K, V> sentinel = buckets[(int)(wheelTime >>> SHIFT[0]) & (buckets.length - 1)];
+      for (Node<K, V> node = sentinel.next, next; node != sentinel; node = next) {
+        next = node.next;
+        if (node.isExpired(now)) {
+          unlink(node);
+          map.remove(node.key, node);
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all the expired entries and returns the number of remaining entries.
+   */
+  @Override
+  public int size() {
+    cleanUp();
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      map.clear();
+      for (Node<K, V>[] buckets : wheel) {
+        for (Node<K, V> sentinel : buckets) {
+          for (Node<K, V> node = sentinel.next, next; node != sentinel; node = next) {
+            next = node.next;
+            node.prev = node.next = null;
+          }
+          sentinel.prev = sentinel.next = sentinel;
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return a weakly consistent view of the unexpired entries (iterating it doesn't copy the map)
+   */
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return ConcurrentFixedTimeCache.this.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        if (!(o instanceof Entry))
+          return false;
+        Entry<?, ?> entry = (Entry<?, ?>)o;
+        V value = get(entry.getKey());
+        return value != null && value.equals(entry.getValue());
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        return o instanceof Entry && ConcurrentFixedTimeCache.this.remove(((Entry<?, ?>)o).getKey(), ((Entry<?, ?>)o).getValue());
+      }
+
+      @Override
+      public void clear() {
+        ConcurrentFixedTimeCache.this.clear();
+      }
+    };
+  }
+
+  private class EntryIterator implements Iterator<Entry<K, V>> {
+    private final Iterator<Node<K, V>> it = map.values().iterator();
+    private Node<K, V> next;
+    private Node<K, V> last;
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && it.hasNext()) {
+        Node<K, V> node = it.next();
+        if (!node.isExpired(Clock.currentTimeMillis()))
+          next = node;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      last = next;
+      next = null;
+      return new SimpleImmutableEntry<>(last.key, last.getValue());
+    }
+
+    @Override
+    public void remove() {
+      if (last == null)
+        throw new IllegalStateException();
+      removeNode(last);
+      last = null;
+    }
+  }
+
+  private static <V> V unwrap(FixedTimeCacheValue<V> value) {
+    if (value == null)
+      return null;
+    return value.getValue();
+  }
+
+  private static <K, V> Node<K, V> newNode(K key, V value, long timeToLive, long now) {
+    if (key == null || value == null)
+      throw new NullPointerException("ConcurrentFixedTimeCache doesn't support null keys or values");
+    if (timeToLive < 0)
+      throw new IllegalArgumentException("timeToLive must not be negative: " + timeToLive);
+    long expirationTime = timeToLive > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeToLive;
+    return new Node<>(key, value, expirationTime);
+  }
+
+  // timer wheel operations
+
+  /**
+   * Links a node that was just put into the map into the timer wheel (replacing the given old node) and advances
+   * the wheel to the given time.
+   */
+  private void schedule(Node<K, V> node, Node<K, V> oldNode, long now) {
+    lock.lock();
+    try {
+      if (oldNode != null)
+        unlink(oldNode);
+      advance(now);
+      // the node could have been replaced or removed by another thread before we acquired the lock
+      if (map.get(node.key) == node)
+        link(node);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private void unschedule(Node<K, V> node) {
+    lock.lock();
+    try {
+      unlink(node);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Expires the nodes in the buckets whose time spans have passed since the last time the wheel was advanced,
+   * and moves the unexpired nodes from the higher levels to the lower ones.
+   */
+  private void advance(long now) {
+    long previousTime = wheelTime;
+    if (now <= previousTime)
+      return;
+    wheelTime = now;
+    for (int i = 0; i < BUCKETS.length; i++) {
+      long previousTicks = previousTime >>> SHIFT[i];
+      long currentTicks = now >>> SHIFT[i];
+      long delta = currentTicks - previousTicks;
+      if (delta <= 0)
+        break;  // the higher levels haven't ticked either
+      // the buckets of the lowest level are expired after their time span has passed, whereas the buckets of the
+      // higher levels are emptied as soon as their time span starts, to move their nodes down to the lower levels
+      long firstTick = i == 0 ? previousTicks : previousTicks + 1;
+      Node<K, V>[] buckets = wheel[i];
+      for (long j = 0, n = Math.min(delta, buckets.length); j < n; j++)
+        expire(buckets[(int)((firstTick + j) & (buckets.length - 1))], now);
+    }
+  }
+
+  /**
+   * Removes the expired nodes of the given bucket, and reschedules the others.
+   */
+  private void expire(Node<K, V> sentinel, long now) {
+    Node<K, V> node = sentinel.next;
+    sentinel.prev = sentinel.next = sentinel;
+    while (node != sentinel) {
+      Node<K, V> next = node.next;
+      node.prev = node.next = null;
+      if (node.isExpired(now))
+        map.remove(node.key, node);
+      else
+        link(node);
+      node = next;
+    }
+  }
+
+  /**
+   * Adds the node to the bucket of the level whose time span matches its remaining time to live.
+   */
+  private void link(Node<K, V> node) {
+    long time = Math.max(node.getExpirationTime(), wheelTime);
+    long duration = time - wheelTime;
+    Node<K, V> sentinel = null;
+    for (int i = 0; i < BUCKETS.length - 1; i++) {
+      if (duration < (1L << SHIFT[i + 1])) {
+        sentinel = wheel[i][(int)(time >>> SHIFT[i]) & (BUCKETS[i] - 1)];
+        break;
+      }
+    }
+    if (sentinel == null)
+      sentinel = wheel[BUCKETS.length - 1][0];
+    node.next = sentinel;
+    node.prev = sentinel.prev;
+    sentinel.prev.next = node;
+    sentinel.prev = node;
+  }
+
+  private void unlink(Node<K, V> node) {
+    if (node.next != null) {
+      node.prev.next = node.next;
+      node.next.prev = node.prev;
+      node.prev = node.next = null;
+    }
+  }
+
+  /**
+   * An entry of the cache, which is also a node of a doubly-linked list in the timer wheel.
+   */
+  private static final class Node<K, V> extends FixedTimeCacheValue<V> {
+    private final K key;
+    /** The links of the list of nodes in a bucket of the timer wheel (guarded by the lock) */
+    private Node<K, V> prev, next;
+
+    private Node(K key, V value, long expirationTime) {
+      super(value, expirationTime);
+      this.key = key;
+    }
+
+    private static <K, V> Node<K, V> sentinel() {
+      Node<K, V> sentinel = new Node<>(null, null, Long.MAX_VALUE);
+      sentinel.prev = sentinel.next = sentinel;
+      return sentinel;
+    }
+
+    private boolean isExpired(long now) {
+      return getExpirationTime() < now;
+    }
+  }
+}
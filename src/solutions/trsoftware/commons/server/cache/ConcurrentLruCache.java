@@ -0,0 +1,420 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import solutions.trsoftware.commons.shared.cache.FixedSizeLruCache;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe alternative to {@link FixedSizeLruCache}: a map that starts evicting entries when its size limit
+ * (in number of entries) is exceeded, and doesn't have to be synchronized externally.
+ * <p>
+ * Unlike {@link FixedSizeLruCache}, which has to move an entry to the end of a linked list on every {@link #get},
+ * reading an entry from this cache doesn't acquire any locks: the entries are stored in a {@link ConcurrentHashMap},
+ * and a read just sets the entry's "referenced" bit.  The entries to evict are chosen with the
+ * <a href="https://en.wikipedia.org/wiki/Page_replacement_algorithm#Clock">CLOCK</a> algorithm (an approximation of LRU):
+ * the entries occupy the slots of a circular buffer, and when a new entry needs a slot, the "clock hand" sweeps
+ * the buffer, giving each referenced entry a second chance (by clearing its referenced bit) until it finds an
+ * unreferenced entry to evict.  Only the operations that modify the cache acquire a lock.
+ * <p>
+ * The {@link #computeIfAbsent(Object, Function)} method loads the missing values with "single-flight" semantics:
+ * concurrent callers requesting the same missing key will wait for a single invocation of the loading function,
+ * and the lock is not held while loading.
+ * <p>
+ * Like {@link ConcurrentHashMap}, this class doesn't allow {@code null} keys or values.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ConcurrentLruCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+  private final ConcurrentHashMap<K, Node<K, V>> map;
+  /** The values currently being loaded by {@link #computeIfAbsent} */
+  private final ConcurrentHashMap<K, FutureTask<V>> loading = new ConcurrentHashMap<>();
+
+  /** Guards the modifications of the map and the clock */
+  private final Object lock = new Object();
+  /** The clock: each node occupies one slot of this circular buffer (the length of the array is the size limit) */
+  private Node<K, V>[] slots;
+  /** The slots that are not occupied by any node (used as a stack) */
+  private int[] freeSlots;
+  private int freeSlotCount;
+  /** The position of the clock hand */
+  private int hand;
+
+  // fields for stats gathering
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder loadCount = new LongAdder();
+  private final LongAdder loadNanos = new LongAdder();
+
+  /**
+   * @param sizeLimit the max number of entries
+   */
+  public ConcurrentLruCache(int sizeLimit) {
+    if (sizeLimit <= 0)
+      throw new IllegalArgumentException("sizeLimit must be positive: " + sizeLimit);
+    map = new ConcurrentHashMap<>(Math.min(sizeLimit, 1 << 16));
+    initSlots(sizeLimit);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void initSlots(int sizeLimit) {
+    slots = new Node[sizeLimit];
+    freeSlots = new int[sizeLimit];
+    freeSlotCount = 0;
+    for (int i = sizeLimit - 1; i >= 0; i--)
+      freeSlots[freeSlotCount++] = i;
+    hand = 0;
+  }
+
+  public int getSizeLimit() {
+    synchronized (lock) {
+      return slots.length;
+    }
+  }
+
+  /**
+   * Changes the size limit, evicting entries if needed.
+   */
+  public void setSizeLimit(int sizeLimit) {
+    if (sizeLimit <= 0)
+      throw new IllegalArgumentException("sizeLimit must be positive: " + sizeLimit);
+    synchronized (lock) {
+      while (map.size() > sizeLimit)
+        freeSlot(evict());
+      // move the remaining nodes into new slots, starting with the node at the clock hand
+      Node<K, V>[] oldSlots = slots;
+      int oldHand = hand;
+      initSlots(sizeLimit);
+      for (int i = 0; i < oldSlots.length; i++) {
+        Node<K, V> node = oldSlots[(oldHand + i) % oldSlots.length];
+        if (node != null)
+          occupySlot(node, freeSlots[--freeSlotCount]);
+      }
+    }
+  }
+
+  @Override
+  public V get(Object key) {
+    Node<K, V> node = map.get(key);
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    node.referenced = true;
+    return node.value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return put(key, value, false);
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    return put(key, value, true);
+  }
+
+  private V put(K key, V value, boolean onlyIfAbsent) {
+    Objects.requireNonNull(value);
+    synchronized (lock) {
+      Node<K, V> node = map.get(key);
+      if (node != null) {
+        V oldValue = node.value;
+        if (!onlyIfAbsent)
+          node.value = value;
+        node.referenced = true;
+        return oldValue;
+      }
+      node = new Node<>(key, value);
+      occupySlot(node, freeSlotCount > 0 ? freeSlots[--freeSlotCount] : evict());
+      map.put(key, node);
+      return null;
+    }
+  }
+
+  @Override
+  public V remove(Object key) {
+    synchronized (lock) {
+      Node<K, V> node = map.remove(key);
+      if (node == null)
+        return null;
+      freeSlot(node.slot);
+      return node.value;
+    }
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    synchronized (lock) {
+      Node<K, V> node = map.get(key);
+      if (node == null || !node.value.equals(value))
+        return false;
+      map.remove(key);
+      freeSlot(node.slot);
+      return true;
+    }
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    Objects.requireNonNull(newValue);
+    synchronized (lock) {
+      Node<K, V> node = map.get(key);
+      if (node == null || !node.value.equals(oldValue))
+        return false;
+      node.value = newValue;
+      return true;
+    }
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    Objects.requireNonNull(value);
+    synchronized (lock) {
+      Node<K, V> node = map.get(key);
+      if (node == null)
+        return null;
+      V oldValue = node.value;
+      node.value = value;
+      return oldValue;
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (lock) {
+      map.clear();
+      initSlots(slots.length);
+    }
+  }
+
+  /**
+   * Returns the value associated with the given key, or uses the given function to load it if it's not in the cache.
+   * If another thread is already loading the value for the same key, waits for that thread to finish loading it,
+   * instead of calling the function again.
+   *
+   * @param loader will be invoked (without holding any locks) to compute the missing value; if it returns {@code null},
+   * nothing will be cached; if it throws an exception, that exception will be propagated to all the callers
+   * waiting for the value.
+   * @return the current (existing or loaded) value associated with the key, or {@code null} if the loader returned
+   * {@code null}
+   * @throws UncheckedExecutionException if the loader threw a checked exception
+   */
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+    V value = get(key);
+    if (value != null)
+      return value;
+    FutureTask<V> task = new FutureTask<>(() -> loader.apply(key));
+    FutureTask<V> inFlight = loading.putIfAbsent(key, task);
+    if (inFlight != null)
+      return getResult(inFlight);
+    try {
+      // another thread might have finished loading this key after we checked it
+      Node<K, V> node = map.get(key);
+      if (node != null)
+        return node.value;
+      long start = System.nanoTime();
+      task.run();
+      value = getResult(task);
+      loadNanos.add(System.nanoTime() - start);
+      loadCount.increment();
+      if (value != null) {
+        V existing = putIfAbsent(key, value);
+        if (existing != null)
+          return existing;  // a value was put while we were loading
+      }
+      return value;
+    }
+    finally {
+      loading.remove(key, task);
+    }
+  }
+
+  /**
+   * @return the result of the given task (after waiting for it to complete)
+   */
+  private static <V> V getResult(FutureTask<V> task) {
+    try {
+      return task.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException)cause;
+      if (cause instanceof Error)
+        throw (Error)cause;
+      throw new UncheckedExecutionException(cause);
+    }
+  }
+
+  /**
+   * Advances the clock hand to the first unreferenced node, and evicts it.
+   * <p>
+   * <strong>NOTE</strong>: must be called while holding the {@link #lock}.
+   * @return the slot freed by the evicted node
+   */
+  private int evict() {
+    while (true) {
+      Node<K, V> node = slots[hand];
+      int slot = hand;
+      hand = (hand + 1) % slots.length;
+      if (node != null) {
+        if (node.referenced)
+          node.referenced = false;  // give it a second chance
+        else {
+          map.remove(node.key);
+          slots[slot] = null;
+          evictions.increment();
+          return slot;
+        }
+      }
+    }
+  }
+
+  private void occupySlot(Node<K, V> node, int slot) {
+    slots[slot] = node;
+    node.slot = slot;
+  }
+
+  private void freeSlot(int slot) {
+    slots[slot] = null;
+    freeSlots[freeSlotCount++] = slot;
+  }
+
+  /**
+   * @return a view of the entries of this cache; reading the entries doesn't affect the eviction order, and the
+   * entries don't support {@link Entry#setValue(Object)}.
+   */
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        Iterator<Node<K, V>> it = map.values().iterator();
+        return new Iterator<Entry<K, V>>() {
+          private Node<K, V> last;
+
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+
+          @Override
+          public Entry<K, V> next() {
+            last = it.next();
+            return new SimpleImmutableEntry<>(last.key, last.value);
+          }
+
+          @Override
+          public void remove() {
+            if (last == null)
+              throw new IllegalStateException();
+            ConcurrentLruCache.this.remove(last.key, last.value);
+            last = null;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return map.size();
+      }
+    };
+  }
+
+  // stats
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getAccessCount() {
+    return getHits() + getMisses();
+  }
+
+  /**
+   * @return the number of entries that were evicted to make room for new entries
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the mean time (in milliseconds) taken by the loading function passed to {@link #computeIfAbsent}
+   */
+  public double getMeanLoadMillis() {
+    long n = loadCount.sum();
+    return n == 0 ? 0 : loadNanos.sum() / 1e6 / n;
+  }
+
+  /**
+   * @return the same stats as {@link solutions.trsoftware.commons.shared.cache.AbstractCachingFactory#printStats()},
+   * along with the eviction count
+   */
+  public String printStats() {
+    long n = getAccessCount();
+    return " access count: " + n + "\n"
+        + " hit rate: " + ((double)getHits()/n) + "\n"
+        + " mean computation duration: " + getMeanLoadMillis() + " ms" + "\n"
+        + " evictions: " + getEvictions();
+  }
+
+  private static class Node<K, V> {
+    private final K key;
+    private volatile V value;
+    /** Set when the entry is read, and cleared when the clock hand passes over it */
+    private volatile boolean referenced;
+    /** The index of the clock slot occupied by this node (guarded by the {@link ConcurrentLruCache#lock}) */
+    private int slot;
+
+    private Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
@@ -32,7 +32,7 @@ import java.util.*;
  * This class decorates {@link LinkedHashMap} with fixed-time logic.
  * <p>
  * <strong>This class must be synchronized externally.</strong>
- * For a concurrent cache implementation, see {@link com.google.common.cache.CacheBuilder}.
+ * For a concurrent cache implementation, see {@link ConcurrentFixedTimeCache} or {@link com.google.common.cache.CacheBuilder}.
  *
  * @author Alex
  * @see <a href="https://github.com/google/guava/wiki/CachesExplained">Guava Caches</a>
@@ -17,14 +17,17 @@
 package solutions.trsoftware.commons.server.management.monitoring;
 
 import solutions.trsoftware.commons.server.servlet.filters.RequestStatsFilter;
-import solutions.trsoftware.commons.server.stats.HierarchicalCounter;
-import solutions.trsoftware.commons.server.stats.SimpleCounter;
+import solutions.trsoftware.commons.server.stats.HeavyHittersCounter;
 import solutions.trsoftware.commons.server.util.Duration;
 
 import java.util.Date;
 
 /**
  * Will be used by {@link RequestStatsFilter} to count the number of incoming requests by URL.
+ * <p>
+ * The counts are kept by {@link HeavyHittersCounter}, which monitors only the most frequent URIs, so that the memory
+ * used by these stats doesn't grow with the number of distinct URIs (which is unbounded, since a URI can contain
+ * arbitrary path parameters).
  *
  * TODO: start using this class in {@link RequestStatsFilter}
  *
@@ -32,8 +35,25 @@ import java.util.Date;
  */
 public class RequestStats {
 
+  /** The max number of distinct URIs whose request counts will be monitored */
+  public static final int URI_CAPACITY = 1000;
+
   /** The "all-time" request counts, by URI */
-  private HierarchicalCounter requestCounts = new HierarchicalCounter(new SimpleCounter("RequestCounts"), null);
+  private HeavyHittersCounter requestCounts = new HeavyHittersCounter("RequestCounts", URI_CAPACITY);
+
+  /**
+   * Counts a request for the given URI.
+   */
+  public void recordRequest(String uri) {
+    requestCounts.incr(uri);
+  }
+
+  /**
+   * @return the "all-time" request counts, by URI
+   */
+  public HeavyHittersCounter getRequestCounts() {
+    return requestCounts;
+  }
 
   /** Represents stats for a limited time window */
   public static class Sample {
@@ -44,7 +64,7 @@ public class RequestStats {
     /** The length of the window, in millis */
     private long duration;
 
-    private HierarchicalCounter requestCounts;
+    private HeavyHittersCounter requestCounts;
 
     public Sample(long startTime, long duration) {
       this.startTime = startTime;
@@ -52,7 +72,18 @@ public class RequestStats {
       this.endTime = startTime + duration;
       String name = getClass().getSimpleName() + "[" + new Date(startTime).toString()
           + " + " + Duration.formatAsClockTime(duration, false) + "]";
-      requestCounts = new HierarchicalCounter(new SimpleCounter(name + " RequestCounts"), null);
+      requestCounts = new HeavyHittersCounter(name + " RequestCounts", URI_CAPACITY);
+    }
+
+    /**
+     * Counts a request for the given URI.
+     */
+    public void recordRequest(String uri) {
+      requestCounts.incr(uri);
+    }
+
+    public HeavyHittersCounter getRequestCounts() {
+      return requestCounts;
     }
   }
 
@@ -18,6 +18,7 @@ package solutions.trsoftware.commons.server.memquery;
 
 import java.io.PrintStream;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static solutions.trsoftware.commons.server.memquery.PrintFormat.FIXED_WIDTH;
 
@@ -50,6 +51,14 @@ public class BoundQuery {
     return query.eval(inputBindings);
   }
 
+  /**
+   * Runs the encapsulated query over the encapsulated inputs, using the given pool to evaluate it in parallel.
+   * @see MemQuery#evalAsUnsortedStream(ForkJoinPool, Map)
+   */
+  public ResultSet eval(ForkJoinPool pool) {
+    return query.eval(pool, inputBindings);
+  }
+
   /** Evaluates the encapsulated query over the encapsulated inputs.
    * @see MemQuery#evalAsUnsortedStream(Map)
    */
@@ -0,0 +1,511 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.generic.*;
+import solutions.trsoftware.commons.server.util.reflect.ReflectionUtils;
+import solutions.trsoftware.commons.shared.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static solutions.trsoftware.commons.server.util.ServerStringUtils.toJavaIdentifier;
+
+/**
+ * Generates a {@link Row} implementation class for a given {@link RelationSchema} at runtime, like
+ * {@link DynamicRowImplGenerator}, but rather than generating Java source code that has to be compiled, this class
+ * emits the bytecode of the new class directly (using <a href="https://commons.apache.org/proper/commons-bcel/">BCEL</a>)
+ * and defines it in a new {@link ClassLoader}.  This is much faster than compiling the source code, and doesn't require
+ * the Java compiler to be available at runtime.
+ * <p>
+ * The generated class extends {@link AbstractRow} and stores each column in its own field:
+ * <ul>
+ *   <li>primitive and primitive wrapper columns are stored in primitive fields, with their {@code null} values tracked
+ *   by the bits of an {@code int} or {@code long} field (for up to 64 such columns)</li>
+ *   <li>all other columns are stored in {@link Object} fields (which avoids having to reference the column classes,
+ *   which might not be visible to the class loader of the generated class)</li>
+ * </ul>
+ * Like the classes generated by {@link DynamicRowImplGenerator}, the generated class depends only on the col types
+ * of the schema: the {@link Row#getValue(String)} and {@link MutableRow#setValue(String, Object)} methods look up the
+ * index of the given col name in the schema of the row instance, so the same class can be used for any schema with
+ * the same col types.
+ * <p>
+ * In addition to the row class, {@link #generateFactory()} generates a factory class whose
+ * {@link Function#apply(Object)} method simply invokes the row class constructor, which allows {@link RowFactory}
+ * to create the rows without any reflective calls.
+ * <p>
+ * <em>NOTE</em>: the class files are generated in the Java 5 format, which doesn't require {@code StackMapTable}
+ * attributes.
+ *
+ * @see RowFactory
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class BytecodeRowImplGenerator {
+
+  /**
+   * The generated classes will be in this package.
+   */
+  private static final String packageName = Row.class.getPackage().getName() + ".generated";
+  /**
+   * The generated class name will start with this prefix
+   */
+  private static final String classNamePrefix = "DynamicRowImpl";
+  /**
+   * The name of the generated factory class will be the name of the row class followed by this suffix.
+   */
+  private static final String factoryClassNameSuffix = "$Factory";
+
+  private static final String NULL_FLAGS_FIELD = "$nullFlags";
+  private static final ObjectType SCHEMA_TYPE = new ObjectType(RelationSchema.class.getName());
+
+  private final String className;
+  private final List<FieldInfo> fields = new ArrayList<>();
+  /** Type of the {@link #NULL_FLAGS_FIELD} ({@code int}, {@code long}, or {@code null} if not needed) */
+  private BasicType nullFlagsType;
+
+  BytecodeRowImplGenerator(RelationSchema schema) {
+    // the class name is constructed the same way as in DynamicRowImplGenerator, based on the col types
+    StringBuilder classNameBuilder = new StringBuilder(classNamePrefix);
+    for (Class colType : schema.getColTypes()) {
+      String colTypeName = StringUtils.stripPrefix(colType.getName(), "java.lang.");
+      classNameBuilder.append('$').append(toJavaIdentifier(colTypeName));
+    }
+    className = packageName + "." + classNameBuilder;
+    int nullFlagsCount = 0;
+    for (int i = 0; i < schema.size(); i++) {
+      Class fieldType = ReflectionUtils.unwrap(schema.get(i).getType());
+      int nullBitIdx = -1;
+      if (fieldType.isPrimitive() && fieldType != void.class && nullFlagsCount < Long.SIZE)
+        nullBitIdx = nullFlagsCount++;
+      else
+        fieldType = Object.class;  // we support at most 64 primitive fields (to avoid having to use more than 1 null flags field)
+      fields.add(new FieldInfo(i, fieldType, nullBitIdx));
+    }
+    if (nullFlagsCount > 0)
+      nullFlagsType = nullFlagsCount <= Integer.SIZE ? Type.INT : Type.LONG;
+  }
+
+  /**
+   * @return the full name of the generated class
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Generates the bytecode of the class and loads it in a new class loader (a child of the class loader of this class).
+   */
+  @SuppressWarnings("unchecked")
+  public Class<? extends MutableRow> generateClass() {
+    return (Class<? extends MutableRow>)new GeneratedClassLoader(getClass().getClassLoader()).define(className, generateBytecode());
+  }
+
+  /**
+   * Generates the bytecode of the row class along with a factory class for its instances, and loads them in a new
+   * class loader (a child of the class loader of this class).
+   *
+   * @return a function that creates a new instance of the row class for the given schema, by invoking its constructor
+   * directly (i.e. without reflection)
+   */
+  @SuppressWarnings("unchecked")
+  public Function<RelationSchema, MutableRow> generateFactory() {
+    GeneratedClassLoader classLoader = new GeneratedClassLoader(getClass().getClassLoader());
+    classLoader.define(className, generateBytecode());
+    Class<?> factoryClass = classLoader.define(className + factoryClassNameSuffix, generateFactoryBytecode());
+    try {
+      return (Function<RelationSchema, MutableRow>)factoryClass.newInstance();
+    }
+    catch (InstantiationException | IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Used by the {@link Object#toString()} method of the generated classes.
+   * @return a string like {@code "DynamicRowImpl{foo=1, bar=null}"}
+   */
+  public static String toString(Row row) {
+    StringBuilder out = new StringBuilder(classNamePrefix).append('{');
+    List<String> colNames = row.getNames();
+    for (int i = 0; i < colNames.size(); i++) {
+      if (i > 0)
+        out.append(", ");
+      out.append(colNames.get(i)).append('=');
+      Object value = row.getValue(i);
+      if (value != null && value.getClass().isArray()) {
+        String arrayString = Arrays.deepToString(new Object[]{value});
+        out.append(arrayString, 1, arrayString.length() - 1);
+      }
+      else
+        out.append(value);
+    }
+    return out.append('}').toString();
+  }
+
+  /**
+   * @return the bytes of the row class file
+   */
+  byte[] generateBytecode() {
+    ClassGen cg = newClassGen(className, AbstractRow.class.getName(), MutableRow.class.getName());
+    ConstantPoolGen cp = cg.getConstantPool();
+    for (FieldInfo field : fields)
+      cg.addField(new FieldGen(Const.ACC_PRIVATE, field.bcelType, field.fieldName, cp).getField());
+    if (nullFlagsType != null)
+      cg.addField(new FieldGen(Const.ACC_PRIVATE, nullFlagsType, NULL_FLAGS_FIELD, cp).getField());
+    InstructionFactory factory = new InstructionFactory(cg);
+    buildConstructor(cg, factory);
+    build_getValueByIndex(cg, factory);
+    build_setValueByIndex(cg, factory);
+    build_getValueByName(cg, factory);
+    build_setValueByName(cg, factory);
+    build_toString(cg, factory);
+    return cg.getJavaClass().getBytes();
+  }
+
+  /**
+   * <pre>
+   *   public final class DynamicRowImpl$...$Factory implements Function {
+   *     public Object apply(Object schema) {
+   *       return new DynamicRowImpl$...((RelationSchema)schema);
+   *     }
+   *   }
+   * </pre>
+   * @return the bytes of the factory class file
+   */
+  byte[] generateFactoryBytecode() {
+    ClassGen cg = newClassGen(className + factoryClassNameSuffix, Object.class.getName(), Function.class.getName());
+    cg.setAccessFlags(cg.getAccessFlags() | Const.ACC_FINAL);
+    cg.addEmptyConstructor(Const.ACC_PUBLIC);
+    InstructionFactory factory = new InstructionFactory(cg);
+    InstructionList il = new InstructionList();
+    il.append(factory.createNew(className));
+    il.append(InstructionConst.DUP);
+    il.append(InstructionFactory.createLoad(Type.OBJECT, 1));
+    il.append(factory.createCheckCast(SCHEMA_TYPE));
+    il.append(factory.createInvoke(className, "<init>", Type.VOID, new Type[]{SCHEMA_TYPE}, Const.INVOKESPECIAL));
+    il.append(InstructionConst.ARETURN);
+    addMethod(cg, il, Type.OBJECT, new Type[]{Type.OBJECT}, new String[]{"schema"}, "apply");
+    return cg.getJavaClass().getBytes();
+  }
+
+  private static ClassGen newClassGen(String className, String superclassName, String interfaceName) {
+    ClassGen cg = new ClassGen(className, superclassName, "<generated>", Const.ACC_PUBLIC | Const.ACC_SUPER,
+        new String[]{interfaceName});
+    cg.setMajor(Const.MAJOR_1_5);
+    cg.setMinor(Const.MINOR_1_5);
+    return cg;
+  }
+
+  /**
+   * Adds a public method with the given code to the class (computing its max stack size and number of locals).
+   */
+  private static void addMethod(ClassGen cg, InstructionList il, Type returnType, Type[] argTypes, String[] argNames, String name) {
+    MethodGen mg = new MethodGen(Const.ACC_PUBLIC, returnType, argTypes, argNames, name, cg.getClassName(), il, cg.getConstantPool());
+    mg.setMaxStack();
+    mg.setMaxLocals();
+    cg.addMethod(mg.getMethod());
+    il.dispose();
+  }
+
+  /**
+   * <pre>
+   *   public DynamicRowImpl$...(RelationSchema schema) {
+   *     super(schema);
+   *     $nullFlags = -1;
+   *   }
+   * </pre>
+   */
+  private void buildConstructor(ClassGen cg, InstructionFactory factory) {
+    InstructionList il = new InstructionList();
+    il.append(InstructionFactory.createThis());
+    il.append(InstructionFactory.createLoad(SCHEMA_TYPE, 1));
+    il.append(factory.createInvoke(AbstractRow.class.getName(), "<init>", Type.VOID, new Type[]{SCHEMA_TYPE}, Const.INVOKESPECIAL));
+    if (nullFlagsType != null) {
+      // initialize this field to all 1-bits (i.e. all the primitive fields are null)
+      il.append(InstructionFactory.createThis());
+      il.append(nullFlagsType == Type.INT ? new PUSH(cg.getConstantPool(), -1) : new PUSH(cg.getConstantPool(), -1L));
+      il.append(factory.createPutField(className, NULL_FLAGS_FIELD, nullFlagsType));
+    }
+    il.append(InstructionConst.RETURN);
+    addMethod(cg, il, Type.VOID, new Type[]{SCHEMA_TYPE}, new String[]{"schema"}, "<init>");
+  }
+
+  /**
+   * <pre>
+   *   public Object getValue(int colIndex) {
+   *     switch (colIndex) {
+   *       case 0:
+   *         if (($nullFlags & (1 << 0)) != 0)
+   *           return null;
+   *         return Integer.valueOf(_0);
+   *       case 1: return _1;
+   *       // etc...
+   *       default: throw new IllegalArgumentException("colIndex = " + colIndex);
+   *     }
+   *   }
+   * </pre>
+   */
+  private void build_getValueByIndex(ClassGen cg, InstructionFactory factory) {
+    InstructionList il = new InstructionList();
+    InstructionHandle[] caseTargets = new InstructionHandle[fields.size()];
+    for (FieldInfo field : fields) {
+      if (field.isPrimitive()) {
+        caseTargets[field.idx] = appendNullBit(il, factory, field);
+        BranchHandle notNull = il.append(new IFEQ(null));
+        il.append(InstructionConst.ACONST_NULL);
+        il.append(InstructionConst.ARETURN);
+        notNull.setTarget(il.append(InstructionFactory.createThis()));
+        il.append(factory.createGetField(className, field.fieldName, field.bcelType));
+        Class wrapper = ReflectionUtils.wrapperTypeFor(field.type);
+        il.append(factory.createInvoke(wrapper.getName(), "valueOf", Type.getType(wrapper),
+            new Type[]{field.bcelType}, Const.INVOKESTATIC));
+      }
+      else {
+        caseTargets[field.idx] = il.append(InstructionFactory.createThis());
+        il.append(factory.createGetField(className, field.fieldName, field.bcelType));
+      }
+      il.append(InstructionConst.ARETURN);
+    }
+    appendSwitch(il, caseTargets, appendThrowInvalidColIndex(il, factory));
+    addMethod(cg, il, Type.OBJECT, new Type[]{Type.INT}, new String[]{"colIndex"}, "getValue");
+  }
+
+  /**
+   * <pre>
+   *   public void setValue(int colIndex, Object value) {
+   *     switch (colIndex) {
+   *       case 0:
+   *         if (value == null)
+   *           $nullFlags |= (1 << 0);
+   *         else {
+   *           $nullFlags &= ~(1 << 0);
+   *           _0 = ((Integer)value).intValue();
+   *         }
+   *         return;
+   *       case 1: _1 = value; return;
+   *       // etc...
+   *       default: throw new IllegalArgumentException("colIndex = " + colIndex);
+   *     }
+   *   }
+   * </pre>
+   */
+  private void build_setValueByIndex(ClassGen cg, InstructionFactory factory) {
+    InstructionList il = new InstructionList();
+    InstructionHandle[] caseTargets = new InstructionHandle[fields.size()];
+    for (FieldInfo field : fields) {
+      caseTargets[field.idx] = il.append(InstructionFactory.createLoad(Type.OBJECT, 2));
+      if (field.isPrimitive()) {
+        boolean isLong = nullFlagsType == Type.LONG;
+        BranchHandle notNull = il.append(new IFNONNULL(null));
+        // set the null bit for this field, but don't actually assign null to the field (it's primitive)
+        il.append(InstructionFactory.createThis());
+        il.append(InstructionConst.DUP);
+        il.append(factory.createGetField(className, NULL_FLAGS_FIELD, nullFlagsType));
+        appendMask(il, cg.getConstantPool(), field.nullBitIdx, false);
+        il.append(isLong ? InstructionConst.LOR : InstructionConst.IOR);
+        il.append(factory.createPutField(className, NULL_FLAGS_FIELD, nullFlagsType));
+        il.append(InstructionConst.RETURN);
+        // clear the null bit for this field and assign the given value
+        notNull.setTarget(il.append(InstructionFactory.createThis()));
+        il.append(InstructionConst.DUP);
+        il.append(factory.createGetField(className, NULL_FLAGS_FIELD, nullFlagsType));
+        appendMask(il, cg.getConstantPool(), field.nullBitIdx, true);
+        il.append(isLong ? InstructionConst.LAND : InstructionConst.IAND);
+        il.append(factory.createPutField(className, NULL_FLAGS_FIELD, nullFlagsType));
+        Class wrapper = ReflectionUtils.wrapperTypeFor(field.type);
+        il.append(InstructionFactory.createThis());
+        il.append(InstructionFactory.createLoad(Type.OBJECT, 2));
+        il.append(factory.createCheckCast(new ObjectType(wrapper.getName())));
+        il.append(factory.createInvoke(wrapper.getName(), field.type.getName() + "Value", field.bcelType,
+            Type.NO_ARGS, Const.INVOKEVIRTUAL));
+      }
+      else {
+        // the value is already on the stack, so we just have to push the field's owner below it
+        il.append(InstructionFactory.createThis());
+        il.append(InstructionConst.SWAP);
+      }
+      il.append(factory.createPutField(className, field.fieldName, field.bcelType));
+      il.append(InstructionConst.RETURN);
+    }
+    appendSwitch(il, caseTargets, appendThrowInvalidColIndex(il, factory));
+    addMethod(cg, il, Type.VOID, new Type[]{Type.INT, Type.OBJECT}, new String[]{"colIndex", "value"}, "setValue");
+  }
+
+  /**
+   * <pre>
+   *   public Object getValue(String colName) {
+   *     return getValue(getColIndex(colName));
+   *   }
+   * </pre>
+   */
+  private void build_getValueByName(ClassGen cg, InstructionFactory factory) {
+    InstructionList il = new InstructionList();
+    il.append(InstructionFactory.createThis());
+    appendGetColIndex(il, factory);
+    il.append(factory.createInvoke(className, "getValue", Type.OBJECT, new Type[]{Type.INT}, Const.INVOKEVIRTUAL));
+    il.append(InstructionConst.ARETURN);
+    addMethod(cg, il, Type.OBJECT, new Type[]{Type.STRING}, new String[]{"colName"}, "getValue");
+  }
+
+  /**
+   * <pre>
+   *   public void setValue(String colName, Object value) {
+   *     setValue(getColIndex(colName), value);
+   *   }
+   * </pre>
+   */
+  private void build_setValueByName(ClassGen cg, InstructionFactory factory) {
+    InstructionList il = new InstructionList();
+    il.append(InstructionFactory.createThis());
+    appendGetColIndex(il, factory);
+    il.append(InstructionFactory.createLoad(Type.OBJECT, 2));
+    il.append(factory.createInvoke(className, "setValue", Type.VOID, new Type[]{Type.INT, Type.OBJECT}, Const.INVOKEVIRTUAL));
+    il.append(InstructionConst.RETURN);
+    addMethod(cg, il, Type.VOID, new Type[]{Type.STRING, Type.OBJECT}, new String[]{"colName", "value"}, "setValue");
+  }
+
+  /**
+   * <pre>
+   *   public String toString() {
+   *     return BytecodeRowImplGenerator.toString(this);
+   *   }
+   * </pre>
+   */
+  private void build_toString(ClassGen cg, InstructionFactory factory) {
+    InstructionList il = new InstructionList();
+    il.append(InstructionFactory.createThis());
+    il.append(factory.createInvoke(getClass().getName(), "toString", Type.STRING,
+        new Type[]{new ObjectType(Row.class.getName())}, Const.INVOKESTATIC));
+    il.append(InstructionConst.ARETURN);
+    addMethod(cg, il, Type.STRING, Type.NO_ARGS, new String[0], "toString");
+  }
+
+  /**
+   * Emits {@code this.getColIndex(colName)}.
+   */
+  private void appendGetColIndex(InstructionList il, InstructionFactory factory) {
+    il.append(InstructionFactory.createThis());
+    il.append(InstructionFactory.createLoad(Type.STRING, 1));
+    il.append(factory.createInvoke(className, "getColIndex", Type.INT, new Type[]{Type.STRING}, Const.INVOKEVIRTUAL));
+  }
+
+  /**
+   * Inserts a {@code switch (colIndex)} statement at the start of the given method code.
+   *
+   * @param caseTargets the code for each col index
+   * @param defaultTarget the code for any other value
+   */
+  private static void appendSwitch(InstructionList il, InstructionHandle[] caseTargets, InstructionHandle defaultTarget) {
+    if (caseTargets.length > 0) {
+      int[] match = new int[caseTargets.length];
+      for (int i = 0; i < match.length; i++)
+        match[i] = i;
+      il.insert(new TABLESWITCH(match, caseTargets, defaultTarget));
+      il.insert(InstructionFactory.createLoad(Type.INT, 1));
+    }
+  }
+
+  /**
+   * Emits the code to push the value of {@code ($nullFlags & mask)} (as an {@code int}, which is non-zero iff the
+   * field is null).
+   * @return the first instruction
+   */
+  private InstructionHandle appendNullBit(InstructionList il, InstructionFactory factory, FieldInfo field) {
+    InstructionHandle start = il.append(InstructionFactory.createThis());
+    il.append(factory.createGetField(className, NULL_FLAGS_FIELD, nullFlagsType));
+    appendMask(il, factory.getConstantPool(), field.nullBitIdx, false);
+    if (nullFlagsType == Type.LONG) {
+      il.append(InstructionConst.LAND);
+      il.append(InstructionConst.LCONST_0);
+      il.append(InstructionConst.LCMP);
+    }
+    else
+      il.append(InstructionConst.IAND);
+    return start;
+  }
+
+  /**
+   * Emits the code to push the bit mask for the given null flag (or its complement).
+   */
+  private void appendMask(InstructionList il, ConstantPoolGen cp, int bitIdx, boolean complement) {
+    if (nullFlagsType == Type.LONG) {
+      long mask = 1L << bitIdx;
+      il.append(new PUSH(cp, complement ? ~mask : mask));
+    }
+    else {
+      int mask = 1 << bitIdx;
+      il.append(new PUSH(cp, complement ? ~mask : mask));
+    }
+  }
+
+  /**
+   * Emits {@code throw new IllegalArgumentException("colIndex = " + colIndex);}
+   * @return the first instruction
+   */
+  private static InstructionHandle appendThrowInvalidColIndex(InstructionList il, InstructionFactory factory) {
+    String iae = IllegalArgumentException.class.getName();
+    String sb = StringBuilder.class.getName();
+    ObjectType sbType = new ObjectType(sb);
+    InstructionHandle start = il.append(factory.createNew(iae));
+    il.append(InstructionConst.DUP);
+    il.append(factory.createNew(sb));
+    il.append(InstructionConst.DUP);
+    il.append(new PUSH(factory.getConstantPool(), "colIndex = "));
+    il.append(factory.createInvoke(sb, "<init>", Type.VOID, new Type[]{Type.STRING}, Const.INVOKESPECIAL));
+    il.append(InstructionFactory.createLoad(Type.INT, 1));
+    il.append(factory.createInvoke(sb, "append", sbType, new Type[]{Type.INT}, Const.INVOKEVIRTUAL));
+    il.append(factory.createInvoke(sb, "toString", Type.STRING, Type.NO_ARGS, Const.INVOKEVIRTUAL));
+    il.append(factory.createInvoke(iae, "<init>", Type.VOID, new Type[]{Type.STRING}, Const.INVOKESPECIAL));
+    il.append(InstructionConst.ATHROW);
+    return start;
+  }
+
+  private static class FieldInfo {
+    private final int idx;
+    private final Class type;
+    private final String fieldName;
+    private final Type bcelType;
+    /** The index of the bit in the {@link #NULL_FLAGS_FIELD} that is set when this (primitive) field is {@code null} */
+    private final int nullBitIdx;
+
+    private FieldInfo(int idx, Class type, int nullBitIdx) {
+      this.idx = idx;
+      this.type = type;
+      this.fieldName = "_" + idx;
+      this.bcelType = Type.getType(type);
+      this.nullBitIdx = nullBitIdx;
+    }
+
+    private boolean isPrimitive() {
+      return type.isPrimitive();
+    }
+  }
+
+  private static class GeneratedClassLoader extends ClassLoader {
+    private GeneratedClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    private Class<?> define(String name, byte[] bytes) {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.*;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A materialized relation that stores its data by column rather than by row:
+ * <ul>
+ *   <li>the values of {@code int}, {@code long}, {@code float}, and {@code double} columns (and their boxed
+ *   counterparts) are stored in primitive arrays, with the {@code null} values tracked by a {@link BitSet}</li>
+ *   <li>{@link String} columns are dictionary-encoded (each distinct string is stored only once, and each row stores
+ *   just an {@code int} code)</li>
+ *   <li>all other columns are stored in an {@code Object[]}</li>
+ * </ul>
+ * This layout takes a fraction of the memory used by an {@link ArrayListRelation} of {@link RowImpl} instances
+ * (which stores every value as a boxed object) and allows the numeric columns to be scanned without boxing
+ * (see {@link Column#getDouble(int)}).
+ * <p>
+ * The rows of this relation are {@link ColumnarRow} flyweights that just hold a row index, and are created on demand.
+ * Instances of this class are immutable.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ColumnarRelation extends AbstractRelation implements MaterializedRelation {
+
+  private final Column[] columns;
+
+  private final int size;
+
+  /**
+   * Copies the data of the given relation.
+   */
+  public ColumnarRelation(Relation relation) {
+    this(relation.getSchema(), relation.iterator());
+  }
+
+  /**
+   * Copies the data of the given rows.
+   * @param schema the schema of the given rows
+   */
+  public ColumnarRelation(RelationSchema schema, Iterator<Row> rowIter) {
+    super(createSchema(schema));
+    int nCols = this.schema.size();
+    columns = new Column[nCols];
+    for (int i = 0; i < nCols; i++) {
+      columns[i] = createColumn(this.schema.get(i).getType());
+    }
+    int n = 0;
+    while (rowIter.hasNext()) {
+      Row row = rowIter.next();
+      for (int i = 0; i < nCols; i++) {
+        columns[i].add(row.getValue(i));
+      }
+      n++;
+    }
+    for (Column column : columns) {
+      column.trimToSize();
+    }
+    size = n;
+  }
+
+  private ColumnarRelation(RelationSchema schema, Column[] columns, int size) {
+    super(schema);
+    this.columns = columns;
+    this.size = size;
+  }
+
+  /**
+   * Creates a view of this relation with a different schema (e.g. the output schema of a
+   * {@link solutions.trsoftware.commons.server.memquery.algebra.Rename Rename} operation), without copying any data.
+   *
+   * @param newSchema must have the same number of columns as this relation, with each column having the same type
+   * as the corresponding column of this relation.
+   */
+  public ColumnarRelation withSchema(RelationSchema newSchema) {
+    if (newSchema.size() != columns.length)
+      throw new IllegalArgumentException(String.format("Schema %s doesn't match %s", newSchema, schema));
+    return new ColumnarRelation(newSchema, columns, size);
+  }
+
+  /**
+   * The rows of this relation don't support the accessors of the original schema (which may, for example,
+   * read the fields of an ORM object), so we use the equivalent name-based accessors.
+   */
+  private static RelationSchema createSchema(RelationSchema inputSchema) {
+    List<ColSpec> colSpecs = new ArrayList<>();
+    for (ColSpec colSpec : inputSchema) {
+      colSpecs.add(new NameAccessorColSpec(colSpec));
+    }
+    return new RelationSchema(inputSchema.getName(), colSpecs);
+  }
+
+  /**
+   * @return the column implementation best suited for storing values of the given type
+   */
+  static Column createColumn(Class type) {
+    if (type == Integer.class || type == int.class)
+      return new IntColumn();
+    if (type == Long.class || type == long.class)
+      return new LongColumn();
+    if (type == Double.class || type == double.class)
+      return new DoubleColumn();
+    if (type == Float.class || type == float.class)
+      return new FloatColumn();
+    if (type == String.class)
+      return new StringColumn();
+    return new ObjectColumn();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public Column getColumn(int colIndex) {
+    return columns[colIndex];
+  }
+
+  public Column getColumn(String colName) {
+    return columns[schema.getColIndex(colName)];
+  }
+
+  /**
+   * Passes the non-null values of a {@link Column#isNumeric() numeric} column to the given consumer, without boxing them.
+   * This can be used to compute statistics over the column, e.g.:
+   * <pre>
+   *   NumberSampleOnlineDouble sample = new NumberSampleOnlineDouble();
+   *   relation.scanColumn("price", sample::update);
+   * </pre>
+   * @throws UnsupportedOperationException if the column is not numeric
+   */
+  public void scanColumn(String colName, DoubleConsumer consumer) {
+    Column column = getColumn(colName);
+    if (!column.isNumeric())
+      throw new UnsupportedOperationException("Column '" + colName + "' is not numeric");
+    for (int i = 0; i < size; i++) {
+      if (!column.isNull(i))
+        consumer.accept(column.getDouble(i));
+    }
+  }
+
+  /**
+   * @return a random-access list view of the rows (each element is a new {@link ColumnarRow} flyweight)
+   */
+  @Override
+  public List<Row> getRows() {
+    return new RowList();
+  }
+
+  @Override
+  public Iterator<Row> iterator() {
+    return getRows().iterator();
+  }
+
+  private class RowList extends AbstractList<Row> implements RandomAccess {
+    @Override
+    public Row get(int index) {
+      if (index < 0 || index >= size)
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      return new ColumnarRow(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * A read-only view of a row of a {@link ColumnarRelation}.
+   */
+  public class ColumnarRow extends AbstractRow {
+
+    private final int index;
+
+    private ColumnarRow(int index) {
+      super(ColumnarRelation.this.schema);
+      this.index = index;
+    }
+
+    /**
+     * @return the position of this row in the relation
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    @Override
+    public <T> T getValue(int colIndex) {
+      return (T)columns[colIndex].get(index);
+    }
+
+    @Override
+    public <T> T getValue(String colName) {
+      return getValue(getColIndex(colName));
+    }
+
+    @Override
+    public int getColIndex(String colName) {
+      return super.getColIndex(colName);
+    }
+
+    /**
+     * @return {@code true} iff the given column of this row is {@code null}
+     */
+    public boolean isNull(int colIndex) {
+      return columns[colIndex].isNull(index);
+    }
+
+    /**
+     * @return {@code true} iff the given column's values can be read with {@link #getDouble(int)}
+     */
+    public boolean isNumeric(int colIndex) {
+      return columns[colIndex].isNumeric();
+    }
+
+    /**
+     * Reads the value of a numeric column of this row without boxing it.
+     * @see Column#getDouble(int)
+     */
+    public double getDouble(int colIndex) {
+      return columns[colIndex].getDouble(index);
+    }
+
+    @Override
+    public String toString() {
+      Object[] values = new Object[columns.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = getValue(i);
+      }
+      return Arrays.deepToString(values);
+    }
+  }
+
+  // column implementations
+
+  /**
+   * Stores the values of a single column.
+   */
+  public static abstract class Column {
+
+    /** The number of values in this column */
+    protected int size;
+
+    /** Appends a value to this column */
+    abstract void add(Object value);
+
+    /** Trims the underlying array to the number of values */
+    abstract void trimToSize();
+
+    /**
+     * @return the value of the given row (boxed, if it's primitive)
+     */
+    public abstract Object get(int row);
+
+    /**
+     * @return {@code true} iff the value of the given row is {@code null}
+     */
+    public abstract boolean isNull(int row);
+
+    /**
+     * @return {@code true} iff the values of this column can be read with {@link #getDouble(int)}
+     */
+    public boolean isNumeric() {
+      return false;
+    }
+
+    /**
+     * Reads the value of the given row as a {@code double}, without boxing it.
+     * The result is undefined if the value is {@code null}.
+     *
+     * @throws UnsupportedOperationException if this column is not {@link #isNumeric() numeric}
+     */
+    public double getDouble(int row) {
+      throw new UnsupportedOperationException(getClass().getSimpleName() + " is not numeric");
+    }
+
+    /**
+     * @return {@code true} iff the values of this column can be read with {@link #getLongKey(int)}
+     */
+    public boolean hasLongKeys() {
+      return false;
+    }
+
+    /**
+     * Reads a {@code long} that identifies the value of the given row among the distinct values of this column
+     * (e.g. to use it as a hash key without boxing the value).  Two rows have the same key iff their values are equal.
+     * The result is undefined if the value is {@code null}.
+     *
+     * @throws UnsupportedOperationException if this column doesn't {@linkplain #hasLongKeys() have long keys}
+     */
+    public long getLongKey(int row) {
+      throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't have long keys");
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * @return the capacity to use for an array that needs to hold at least one more element than its current length
+     */
+    static int grow(int length) {
+      return Math.max(16, length + (length >> 1));
+    }
+  }
+
+  /**
+   * A column of primitive values, with the {@code null} values tracked by a bitmap.
+   */
+  private static abstract class PrimitiveColumn extends Column {
+    private final BitSet nulls = new BitSet();
+
+    @Override
+    void add(Object value) {
+      if (value == null)
+        nulls.set(size);
+      set(size++, value);
+    }
+
+    /**
+     * Stores the given value at the given position in the underlying array (expanding it if needed).
+     * @param value the value to store, or {@code null} to store a default value
+     */
+    abstract void set(int row, Object value);
+
+    @Override
+    public Object get(int row) {
+      return nulls.get(row) ? null : box(row);
+    }
+
+    abstract Object box(int row);
+
+    @Override
+    public boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    @Override
+    public boolean isNumeric() {
+      return true;
+    }
+
+    @Override
+    public boolean hasLongKeys() {
+      return true;
+    }
+  }
+
+  private static class IntColumn extends PrimitiveColumn {
+    private int[] values = new int[0];
+
+    @Override
+    void set(int row, Object value) {
+      if (row == values.length)
+        values = Arrays.copyOf(values, grow(values.length));
+      if (value != null)
+        values[row] = ((Number)value).intValue();
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object box(int row) {
+      return values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    public int getInt(int row) {
+      return values[row];
+    }
+
+    @Override
+    public long getLongKey(int row) {
+      return values[row];
+    }
+  }
+
+  private static class LongColumn extends PrimitiveColumn {
+    private long[] values = new long[0];
+
+    @Override
+    void set(int row, Object value) {
+      if (row == values.length)
+        values = Arrays.copyOf(values, grow(values.length));
+      if (value != null)
+        values[row] = ((Number)value).longValue();
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object box(int row) {
+      return values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    public long getLong(int row) {
+      return values[row];
+    }
+
+    @Override
+    public long getLongKey(int row) {
+      return values[row];
+    }
+  }
+
+  private static class DoubleColumn extends PrimitiveColumn {
+    private double[] values = new double[0];
+
+    @Override
+    void set(int row, Object value) {
+      if (row == values.length)
+        values = Arrays.copyOf(values, grow(values.length));
+      if (value != null)
+        values[row] = ((Number)value).doubleValue();
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object box(int row) {
+      return values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    @Override
+    public long getLongKey(int row) {
+      return Double.doubleToLongBits(values[row]);  // consistent with Double.equals
+    }
+  }
+
+  private static class FloatColumn extends PrimitiveColumn {
+    private float[] values = new float[0];
+
+    @Override
+    void set(int row, Object value) {
+      if (row == values.length)
+        values = Arrays.copyOf(values, grow(values.length));
+      if (value != null)
+        values[row] = ((Number)value).floatValue();
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    Object box(int row) {
+      return values[row];
+    }
+
+    @Override
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    @Override
+    public long getLongKey(int row) {
+      return Float.floatToIntBits(values[row]);  // consistent with Float.equals
+    }
+  }
+
+  /**
+   * A dictionary-encoded column of strings: each distinct string is stored once, and each row stores the index of
+   * its string in the dictionary (or {@code -1} for {@code null}).
+   */
+  public static class StringColumn extends Column {
+    private int[] codes = new int[0];
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private HashMap<String, Integer> codesByValue = new HashMap<>();
+
+    @Override
+    void add(Object value) {
+      if (size == codes.length)
+        codes = Arrays.copyOf(codes, grow(codes.length));
+      int code = -1;
+      if (value != null) {
+        code = codesByValue.computeIfAbsent((String)value, s -> {
+          dictionary.add(s);
+          return dictionary.size() - 1;
+        });
+      }
+      codes[size++] = code;
+    }
+
+    @Override
+    void trimToSize() {
+      codes = Arrays.copyOf(codes, size);
+      dictionary.trimToSize();
+      codesByValue = null;  // no longer needed
+    }
+
+    @Override
+    public Object get(int row) {
+      int code = codes[row];
+      return code < 0 ? null : dictionary.get(code);
+    }
+
+    @Override
+    public boolean isNull(int row) {
+      return codes[row] < 0;
+    }
+
+    @Override
+    public boolean hasLongKeys() {
+      return true;
+    }
+
+    /**
+     * @return the dictionary code of the value
+     */
+    @Override
+    public long getLongKey(int row) {
+      return codes[row];
+    }
+
+    /**
+     * @return the number of distinct non-null values in this column
+     */
+    public int getDictionarySize() {
+      return dictionary.size();
+    }
+  }
+
+  private static class ObjectColumn extends Column {
+    private Object[] values = new Object[0];
+
+    @Override
+    void add(Object value) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, grow(values.length));
+      values[size++] = value;
+    }
+
+    @Override
+    void trimToSize() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    public boolean isNull(int row) {
+      return values[row] == null;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import com.google.common.collect.AbstractIterator;
+import solutions.trsoftware.commons.server.io.file.FileUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts a sequence of rows that might not fit in memory, using the external merge sort algorithm:
+ * the input is read in chunks of at most {@link #maxRowsInMemory} rows, and each chunk is sorted and written
+ * ("spilled") to a temporary file.  The sorted runs are then merged by a k-way merge as the output is iterated.
+ * <p>
+ * To avoid running out of file descriptors, at most {@link #maxMergeFanIn} run files are opened at the same time:
+ * if there are more runs than that, consecutive groups of runs are merged into longer runs (in as many passes
+ * as necessary) before the final merge.
+ * <p>
+ * The temp files are created in a new directory under the system temp dir (registered with
+ * {@link solutions.trsoftware.commons.server.io.file.TempFileRegistry}), and are deleted as soon as the output
+ * iterator is exhausted.
+ * <p>
+ * The sort is stable: rows that are equal according to the comparator are returned in the same order as the input.
+ * <p>
+ * <em>NOTE</em>: the rows are written to the temp files using Java serialization, so all the column values
+ * must be {@link Serializable}.
+ *
+ * @see MemQuery#SYS_PROP_SORT_BUFFER_SIZE
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ExternalRowSorter {
+
+  /** The number of rows after which the serialization stream's handle table will be reset to save memory */
+  private static final int RESET_INTERVAL = 1024;
+
+  private final RelationSchema schema;
+  private final Comparator<Row> comparator;
+  private final int maxRowsInMemory;
+  /** The max number of run files that will be merged (and therefore opened) at the same time */
+  private final int maxMergeFanIn;
+
+  /** The number of run files that are currently open */
+  private int openRunFiles;
+  /** The max value of {@link #openRunFiles} so far (exposed with package visibility for unit testing) */
+  int maxOpenRunFiles;
+
+  /** The default value of {@link #maxMergeFanIn} */
+  public static final int DEFAULT_MAX_MERGE_FAN_IN = 100;
+
+  /**
+   * @param schema the schema of the rows being sorted
+   * @param comparator the sort order
+   * @param maxRowsInMemory the max number of rows to buffer in memory before spilling them to a temp file
+   */
+  public ExternalRowSorter(RelationSchema schema, Comparator<Row> comparator, int maxRowsInMemory) {
+    this(schema, comparator, maxRowsInMemory, DEFAULT_MAX_MERGE_FAN_IN);
+  }
+
+  /**
+   * @param schema the schema of the rows being sorted
+   * @param comparator the sort order
+   * @param maxRowsInMemory the max number of rows to buffer in memory before spilling them to a temp file
+   * @param maxMergeFanIn the max number of run files to merge in a single pass (must be at least 2)
+   */
+  public ExternalRowSorter(RelationSchema schema, Comparator<Row> comparator, int maxRowsInMemory, int maxMergeFanIn) {
+    if (maxRowsInMemory < 1)
+      throw new IllegalArgumentException("maxRowsInMemory must be positive");
+    if (maxMergeFanIn < 2)
+      throw new IllegalArgumentException("maxMergeFanIn must be at least 2");
+    this.schema = schema;
+    this.comparator = comparator;
+    this.maxRowsInMemory = maxRowsInMemory;
+    this.maxMergeFanIn = maxMergeFanIn;
+  }
+
+  /**
+   * Sorts the given rows.  If the input fits in memory, they will be sorted in memory (without creating any files).
+   *
+   * @return the sorted rows
+   * @throws IOException if unable to write the temp files
+   */
+  public Iterator<Row> sort(Iterator<Row> rows) throws IOException {
+    ArrayList<Row> buffer = new ArrayList<>();
+    Path tempDir = null;
+    List<Path> runFiles = new ArrayList<>();
+    while (rows.hasNext()) {
+      buffer.add(rows.next());
+      if (buffer.size() >= maxRowsInMemory && rows.hasNext()) {
+        if (tempDir == null)
+          tempDir = FileUtils.deleteOnExit(Files.createTempDirectory(getClass().getSimpleName()));
+        buffer.sort(comparator);
+        runFiles.add(writeRun(buffer.iterator(), tempDir.resolve("run" + runFiles.size())));
+        buffer = new ArrayList<>();
+      }
+    }
+    buffer.sort(comparator);
+    if (runFiles.isEmpty())
+      return buffer.iterator();
+    try {
+      runFiles = reduceRuns(runFiles, tempDir);
+    }
+    catch (IOException | RuntimeException e) {
+      try {
+        FileUtils.deleteFileTree(tempDir);
+      }
+      catch (IOException ex) {
+        e.addSuppressed(ex);
+      }
+      throw e;
+    }
+    // the last run doesn't have to be written to disk
+    return new MergingIterator(runFiles, buffer, tempDir);
+  }
+
+  /**
+   * Merges consecutive groups of the given runs (which preserves the stability of the sort) until there are
+   * no more than {@link #maxMergeFanIn} runs left.
+   *
+   * @return the remaining run files
+   */
+  private List<Path> reduceRuns(List<Path> runFiles, Path tempDir) throws IOException {
+    for (int pass = 1; runFiles.size() > maxMergeFanIn; pass++) {
+      List<Path> mergedRunFiles = new ArrayList<>();
+      for (int start = 0; start < runFiles.size(); start += maxMergeFanIn) {
+        List<Path> group = runFiles.subList(start, Math.min(start + maxMergeFanIn, runFiles.size()));
+        if (group.size() == 1) {
+          mergedRunFiles.add(group.get(0));  // nothing to merge
+          continue;
+        }
+        // the input files will be deleted as soon as they're merged
+        MergingIterator merged = new MergingIterator(group, Collections.emptyList(), null);
+        try {
+          mergedRunFiles.add(writeRun(merged, tempDir.resolve("pass" + pass + "_run" + mergedRunFiles.size())));
+        }
+        catch (UncheckedIOException e) {
+          throw e.getCause();
+        }
+        finally {
+          merged.cleanUp();
+        }
+      }
+      runFiles = mergedRunFiles;
+    }
+    return runFiles;
+  }
+
+  /**
+   * Writes the given (already sorted) rows to the given file.
+   * @return the given file
+   */
+  private Path writeRun(Iterator<Row> rows, Path file) throws IOException {
+    int nCols = schema.size();
+    try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      for (int i = 0; rows.hasNext(); i++) {
+        Row row = rows.next();
+        out.writeBoolean(true);  // marks the presence of another row
+        for (int j = 0; j < nCols; j++) {
+          out.writeObject(row.getValue(j));
+        }
+        if (i % RESET_INTERVAL == RESET_INTERVAL - 1)
+          out.reset();
+      }
+      out.writeBoolean(false);
+    }
+    return file;
+  }
+
+  /**
+   * Reads the rows of a sorted run, one at a time.
+   */
+  private abstract static class Run {
+    /** The position of this run in the input sequence (used to make the merge stable) */
+    private final int index;
+    /** The next row in this run */
+    protected Row head;
+
+    Run(int index) {
+      this.index = index;
+    }
+
+    /**
+     * Replaces the {@link #head} with the next row.
+     * @return {@code false} if there are no more rows in this run
+     */
+    abstract boolean advance() throws IOException;
+
+    void close() throws IOException {}
+  }
+
+  /**
+   * A run stored in a temp file, which will be deleted when the run is closed.
+   */
+  private class FileRun extends Run {
+    private final Path file;
+    private final ObjectInputStream in;
+
+    FileRun(int index, Path file) throws IOException {
+      super(index);
+      this.file = file;
+      in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)));
+      maxOpenRunFiles = Math.max(maxOpenRunFiles, ++openRunFiles);
+    }
+
+    @Override
+    boolean advance() throws IOException {
+      if (!in.readBoolean()) {
+        head = null;
+        return false;
+      }
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      int nCols = schema.size();
+      try {
+        for (int j = 0; j < nCols; j++) {
+          row.setValue(j, in.readObject());
+        }
+      }
+      catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+      head = row;
+      return true;
+    }
+
+    @Override
+    void close() throws IOException {
+      openRunFiles--;
+      in.close();
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * A run kept in memory.
+   */
+  private static class InMemoryRun extends Run {
+    private final Iterator<Row> it;
+
+    InMemoryRun(int index, List<Row> rows) {
+      super(index);
+      it = rows.iterator();
+    }
+
+    @Override
+    boolean advance() {
+      head = it.hasNext() ? it.next() : null;
+      return head != null;
+    }
+  }
+
+  /**
+   * Merges the sorted runs.
+   */
+  private class MergingIterator extends AbstractIterator<Row> {
+    private final PriorityQueue<Run> queue;
+    private final List<Run> runs = new ArrayList<>();
+    /** Will be deleted after the merge, unless {@code null} */
+    private final Path tempDir;
+
+    MergingIterator(List<Path> runFiles, List<Row> lastRun, Path tempDir) throws IOException {
+      this.tempDir = tempDir;
+      queue = new PriorityQueue<>(runFiles.size() + 1, (a, b) -> {
+        int cmp = comparator.compare(a.head, b.head);
+        return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+      });
+      try {
+        for (Path file : runFiles) {
+          runs.add(new FileRun(runs.size(), file));
+        }
+        runs.add(new InMemoryRun(runs.size(), lastRun));
+        for (Run run : runs) {
+          if (run.advance())
+            queue.add(run);
+        }
+      }
+      catch (IOException e) {
+        cleanUp();
+        throw e;
+      }
+    }
+
+    @Override
+    protected Row computeNext() {
+      try {
+        Run run = queue.poll();
+        if (run == null) {
+          cleanUp();
+          return endOfData();
+        }
+        Row next = run.head;
+        if (run.advance())
+          queue.add(run);
+        return next;
+      }
+      catch (IOException e) {
+        try {
+          cleanUp();
+        }
+        catch (IOException ex) {
+          e.addSuppressed(ex);
+        }
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Closes all the input streams and deletes the temp files.  Has no effect if already called.
+     */
+    private void cleanUp() throws IOException {
+      for (Run run : runs) {
+        run.close();
+      }
+      runs.clear();
+      queue.clear();
+      if (tempDir != null && Files.exists(tempDir))
+        FileUtils.deleteFileTree(tempDir);
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A relation materialized as an {@link ArrayList} of rows, which can maintain secondary indexes on some of its columns.
+ * <p>
+ * An index maps the values of a column to the positions of the rows that have those values, and is updated whenever
+ * rows are {@linkplain #add(Row) added} or {@linkplain #removeIf(Predicate) removed} via the methods of this class
+ * (which makes this class suitable for relations that are queried much more often than they're modified).
+ * There are two kinds of indexes:
+ * <ul>
+ *   <li>a {@linkplain #createHashIndex(String) hash index} supports equality lookups</li>
+ *   <li>a {@linkplain #createSortedIndex(String) sorted index} also supports range lookups, but the column values
+ *   must be {@link Comparable}, with a natural ordering that's consistent with {@link Object#equals(Object)}</li>
+ * </ul>
+ * The evaluators will use these indexes to evaluate the selections of equality, range, and {@code IN} predicates
+ * over the indexed columns (see {@link solutions.trsoftware.commons.server.memquery.eval.IndexedSelectionEvaluator}),
+ * and to look up the matching rows when this relation is the inner input of an equi-join
+ * (see {@link solutions.trsoftware.commons.server.memquery.eval.HashJoinEvaluator}).
+ * <p>
+ * <strong>NOTE</strong>: this class is not thread-safe: a relation that's modified while it's being queried
+ * must be guarded by an external lock (e.g. a {@link java.util.concurrent.locks.ReadWriteLock}).  Also, the list
+ * returned by {@link #getRows()} must not be modified directly, since that wouldn't update the indexes.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class IndexedRelation extends ArrayListRelation {
+
+  /** The index of each column (or {@code null} if the column is not indexed) */
+  private final Index[] indexes;
+
+  public IndexedRelation(RelationSchema schema, Iterator<Row> rowIter) {
+    super(schema, rowIter);
+    indexes = new Index[schema.size()];
+  }
+
+  public IndexedRelation(Relation relation) {
+    this(relation.getSchema(), relation.iterator());
+  }
+
+  /**
+   * Creates (or replaces) the index of the given column with an index that supports equality lookups.
+   * @return the new index
+   */
+  public Index createHashIndex(String colName) {
+    return createIndex(new HashIndex(schema.getColIndex(colName)));
+  }
+
+  /**
+   * Creates (or replaces) the index of the given column with an index that supports both equality and range lookups.
+   * @return the new index
+   */
+  public Index createSortedIndex(String colName) {
+    return createIndex(new SortedIndex(schema.getColIndex(colName)));
+  }
+
+  private Index createIndex(Index index) {
+    indexes[index.colIndex] = index;
+    index.build(rows);
+    return index;
+  }
+
+  /**
+   * @return the index of the given column, or {@code null} if the column is not indexed (or is not in this relation)
+   */
+  public Index getIndex(String colName) {
+    return schema.contains(colName) ? indexes[schema.getColIndex(colName)] : null;
+  }
+
+  /**
+   * Removes the index of the given column (if any).
+   */
+  public void dropIndex(String colName) {
+    indexes[schema.getColIndex(colName)] = null;
+  }
+
+  /**
+   * Appends a row to this relation, and updates the indexes.
+   */
+  public void add(Row row) {
+    int position = rows.size();
+    rows.add(row);
+    for (Index index : indexes) {
+      if (index != null)
+        index.add(row.getValue(index.colIndex), position);
+    }
+  }
+
+  /**
+   * Removes all the rows that satisfy the given predicate from this relation, and rebuilds the indexes
+   * (since the positions of the remaining rows might have changed).
+   *
+   * @return {@code true} if any rows were removed
+   */
+  public boolean removeIf(Predicate<Row> filter) {
+    if (rows.removeIf(filter)) {
+      for (Index index : indexes) {
+        if (index != null)
+          index.build(rows);
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param positions the positions of the rows (e.g. the result of an index lookup)
+   * @return the rows at the given positions, in the same order as in this relation
+   */
+  public List<Row> getRows(BitSet positions) {
+    List<Row> ret = new ArrayList<>(positions.cardinality());
+    for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1))
+      ret.add(rows.get(i));
+    return ret;
+  }
+
+  /**
+   * Maps the values of a column to the positions of the rows that have those values.  {@code null} values
+   * are also indexed.
+   */
+  public static abstract class Index {
+    /** The position of the indexed column in the schema */
+    private final int colIndex;
+    /** The positions of the rows whose value is {@code null} */
+    private final Positions nulls = new Positions();
+
+    private Index(int colIndex) {
+      this.colIndex = colIndex;
+    }
+
+    public int getColIndex() {
+      return colIndex;
+    }
+
+    /**
+     * @return {@code true} iff this index supports {@link #findRange}
+     */
+    public boolean isSorted() {
+      return false;
+    }
+
+    /**
+     * @return {@code true} iff any of the indexed values are {@code null}
+     */
+    public boolean hasNulls() {
+      return nulls.size > 0;
+    }
+
+    /**
+     * Adds the positions of the rows whose value is equal to the given value to the given set.
+     * @param value the value to look up; can be {@code null}
+     */
+    public void findEqual(Object value, BitSet result) {
+      Positions positions = value == null ? nulls : get(value);
+      if (positions != null)
+        positions.addTo(result);
+    }
+
+    /**
+     * Adds the positions of the rows whose values are within the given range to the given set.
+     * The rows whose value is {@code null} are never included.
+     *
+     * @param lower the lower bound of the range, or {@code null} if the range is not bounded below
+     * @param upper the upper bound of the range, or {@code null} if the range is not bounded above
+     * @throws UnsupportedOperationException if this index is not {@linkplain #isSorted() sorted}
+     */
+    public void findRange(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive, BitSet result) {
+      throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support range lookups");
+    }
+
+    /**
+     * @return the positions of the rows whose value is equal to the given non-null value, or {@code null} if none
+     */
+    abstract Positions get(Object value);
+
+    /**
+     * @return the positions associated with the given non-null value (created if needed)
+     */
+    abstract Positions getOrCreate(Object value);
+
+    abstract void clear();
+
+    void add(Object value, int position) {
+      (value == null ? nulls : getOrCreate(value)).add(position);
+    }
+
+    /**
+     * Re-indexes the given rows.
+     */
+    void build(List<Row> rows) {
+      clear();
+      nulls.size = 0;
+      for (int i = 0; i < rows.size(); i++)
+        add(rows.get(i).getValue(colIndex), i);
+    }
+  }
+
+  private static class HashIndex extends Index {
+    private final HashMap<Object, Positions> map = new HashMap<>();
+
+    private HashIndex(int colIndex) {
+      super(colIndex);
+    }
+
+    @Override
+    Positions get(Object value) {
+      return map.get(value);
+    }
+
+    @Override
+    Positions getOrCreate(Object value) {
+      return map.computeIfAbsent(value, k -> new Positions());
+    }
+
+    @Override
+    void clear() {
+      map.clear();
+    }
+  }
+
+  private static class SortedIndex extends Index {
+    private final TreeMap<Object, Positions> map = new TreeMap<>();
+
+    private SortedIndex(int colIndex) {
+      super(colIndex);
+    }
+
+    @Override
+    public boolean isSorted() {
+      return true;
+    }
+
+    @Override
+    Positions get(Object value) {
+      // the value might not be comparable with the keys (e.g. an Integer can't be compared with a Long), but then
+      // it can't be equal to any of them
+      if (map.isEmpty() || map.firstKey().getClass() != value.getClass())
+        return null;
+      Map.Entry<Object, Positions> entry = map.ceilingEntry(value);
+      return entry != null && entry.getKey().equals(value) ? entry.getValue() : null;
+    }
+
+    @Override
+    Positions getOrCreate(Object value) {
+      return map.computeIfAbsent(value, k -> new Positions());
+    }
+
+    @Override
+    void clear() {
+      map.clear();
+    }
+
+    @Override
+    public void findRange(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive, BitSet result) {
+      if (map.isEmpty())
+        return;
+      NavigableMap<Object, Positions> range = map;
+      if (lower != null)
+        range = range.tailMap(lower, lowerInclusive);
+      if (upper != null)
+        range = range.headMap(upper, upperInclusive);
+      for (Positions positions : range.values())
+        positions.addTo(result);
+    }
+  }
+
+  /**
+   * A growable array of row positions.
+   */
+  static class Positions {
+    private int[] values = new int[1];
+    private int size;
+
+    void add(int position) {
+      if (size == values.length)
+        values = Arrays.copyOf(values, size * 2);
+      values[size++] = position;
+    }
+
+    void addTo(BitSet result) {
+      for (int i = 0; i < size; i++)
+        result.set(values[i]);
+    }
+  }
+}
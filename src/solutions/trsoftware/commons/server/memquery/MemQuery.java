@@ -16,17 +16,23 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
+import solutions.trsoftware.commons.server.memquery.algebra.QueryOptimizer;
 import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpression;
 import solutions.trsoftware.commons.server.memquery.eval.EvalPipelineBuilder;
 import solutions.trsoftware.commons.server.memquery.eval.RelationalEvaluator;
 import solutions.trsoftware.commons.server.memquery.output.FixedWidthPrinter;
 import solutions.trsoftware.commons.server.memquery.output.HtmlTablePrinter;
 import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.util.SortUtils;
 import solutions.trsoftware.commons.shared.util.compare.CompositeComparator;
 import solutions.trsoftware.commons.shared.util.iterators.CountingIterator;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static java.util.Arrays.asList;
 import static solutions.trsoftware.commons.server.memquery.PrintFormat.FIXED_WIDTH;
@@ -53,10 +59,19 @@ import static solutions.trsoftware.commons.server.memquery.util.NameUtils.mapByN
  */
 public class MemQuery {
 
+  /**
+   * System property that limits the number of rows that will be sorted in memory by a query that doesn't have
+   * a {@link #limit}.  A larger result set will be sorted with {@link ExternalRowSorter} (which spills the sorted
+   * chunks to temp files).  If not set, all sorting will be done in memory.
+   */
+  public static final String SYS_PROP_SORT_BUFFER_SIZE = "memquery.sortBufferSize";
+
   // configuration fields
 
-  /** The relational algebra expression representing this query */
+  /** The relational algebra expression representing this query (as rewritten by the {@link QueryOptimizer}) */
   private final RelationalExpression expr;
+  /** The relational algebra expression that was given to the constructor */
+  private final RelationalExpression unoptimizedExpr;
   /** The max number of results to return */
   private final int limit;
   /** Describes what this query does for human consumption */
@@ -71,8 +86,8 @@ public class MemQuery {
     this.limit = limit;
     this.description = description;
     this.sortOrders = sortOrders;
-    // TODO: optimize the expression
-    this.expr = queryExpression;
+    this.unoptimizedExpr = queryExpression;
+    this.expr = new QueryOptimizer().optimize(queryExpression);
   }
 
   public static CompositeComparator<Row> makeComparator(List<SortOrder> sortOrders, RelationSchema schema) {
@@ -130,10 +145,35 @@ public class MemQuery {
     return limit;
   }
 
+  /**
+   * @return the relational algebra expression that will be evaluated by this query (i.e. the optimized version
+   * of the expression given to the constructor)
+   * @see #getUnoptimizedExpression()
+   */
+  public RelationalExpression getExpression() {
+    return expr;
+  }
+
+  /**
+   * @return the relational algebra expression that was given to the constructor (before it was optimized)
+   * @see #getExpression()
+   */
+  public RelationalExpression getUnoptimizedExpression() {
+    return unoptimizedExpr;
+  }
+
   public boolean hasSortOrders() {
     return sortOrders != null && !sortOrders.isEmpty();
   }
 
+  /**
+   * @return the max number of rows to be sorted in memory
+   * @see #SYS_PROP_SORT_BUFFER_SIZE
+   */
+  public static int getSortBufferSize() {
+    return Integer.getInteger(SYS_PROP_SORT_BUFFER_SIZE, Integer.MAX_VALUE);
+  }
+
   /**
    * Executes the query over the given input relations, resolved by their schema names.
    * @return the evaluated result set (which will be sorted iff {@link #hasSortOrders()} is {@code true}
@@ -150,6 +190,26 @@ public class MemQuery {
     return new SortedResultSet(evalAsUnsortedStream(inputs));
   }
 
+  /**
+   * Executes the query over the given input relations (resolved by their schema names), using the given pool
+   * to evaluate the parts of the query pipeline in parallel.
+   * @return the evaluated result set (which will be sorted iff {@link #hasSortOrders()} is {@code true}
+   * @see #evalAsUnsortedStream(ForkJoinPool, Map)
+   */
+  public SortedResultSet eval(ForkJoinPool pool, Relation... inputs) {
+    return new SortedResultSet(evalAsUnsortedStream(pool, mapByName(asList(inputs))));
+  }
+
+  /**
+   * Executes the query over the given input relations (resolved by the keys of the given map), using the given pool
+   * to evaluate the parts of the query pipeline in parallel.
+   * @return the evaluated result set (which will be sorted iff {@link #hasSortOrders()} is {@code true}
+   * @see #evalAsUnsortedStream(ForkJoinPool, Map)
+   */
+  public SortedResultSet eval(ForkJoinPool pool, Map<String, Relation> inputs) {
+    return new SortedResultSet(evalAsUnsortedStream(pool, inputs));
+  }
+
   /**
    * Evaluates the query over the given input relations, resolved by their schema names.
    * @see #evalAsUnsortedStream(Map)
@@ -167,14 +227,33 @@ public class MemQuery {
    * </p>
    */
   public Relation evalAsUnsortedStream(Map<String, Relation> inputs) {
+    return evalAsUnsortedStream(null, inputs);
+  }
+
+  /**
+   * Evaluates the query over the given input relations, resolved by the keys of the given map, using the given
+   * pool to evaluate the independent subtrees of the query pipeline concurrently, and to split the work of
+   * the row-by-row operations (e.g. selections and projections) and aggregations over large materialized relations
+   * into parallel tasks.
+   * <p>
+   * <strong>NOTE:</strong> the query's expressions (e.g. the predicates and the computed columns) might be invoked
+   * concurrently from multiple threads, so they should not have any side effects.
+   *
+   * @param pool the pool to use for parallel evaluation (if {@code null}, the query will be evaluated entirely
+   * on the calling thread)
+   * @see #evalAsUnsortedStream(Map)
+   */
+  public Relation evalAsUnsortedStream(ForkJoinPool pool, Map<String, Relation> inputs) {
     // create the evaluator pipeline tree
-    RelationalEvaluator<Relation> evaluator = new EvalPipelineBuilder(this, inputs).visit(expr);
+    RelationalEvaluator<Relation> evaluator = new EvalPipelineBuilder(this, inputs, pool).visit(expr);
 
     // now run the pipeline
-    // TODO: use a thread pool to run the pipeline (pass the pool to each evaluator so it may schedule itself
     Relation evaluationResult;
     try {
-      evaluationResult = evaluator.call();
+      if (pool != null)
+        evaluationResult = pool.invoke(ForkJoinTask.adapt(evaluator));
+      else
+        evaluationResult = evaluator.call();
     }
     catch (Exception e) {
       throw new RuntimeException("Unable to evaluate MemQuery " + this, e);
@@ -183,7 +262,13 @@ public class MemQuery {
   }
 
 
-  /* Represents an iterable of this query's results. The constructor performs the sorting and limiting. */
+  /**
+   * Represents an iterable of this query's results. The constructor performs the sorting and limiting.
+   * <p>
+   * If the query has a {@link #limit} that's smaller than the number of rows to be sorted, only the top rows
+   * are selected (using {@link SortUtils#topK}), instead of sorting all the rows.  Otherwise, if the number of rows
+   * exceeds {@link #getSortBufferSize()}, they are sorted with {@link ExternalRowSorter}.
+   */
   public class SortedResultSet implements ResultSet {
 
     // TODO: try to extend SortedArrayListRelation here (and use a different subclass for result sets that don't need sorting)
@@ -194,7 +279,26 @@ public class MemQuery {
       Iterable<Row> rows = evaluatedRelation;
       if (sortOrders != null && !sortOrders.isEmpty()) {
         // we need to sort the results first
-        rows = new SortedArrayListRelation(evaluatedRelation, sortOrders);
+        Integer inputSize = evaluatedRelation instanceof MaterializedRelation ? ((MaterializedRelation)evaluatedRelation).size() : null;
+        int sortBufferSize = getSortBufferSize();
+        if (limit >= 0 && limit != Integer.MAX_VALUE && (inputSize == null || limit < inputSize)) {
+          // select the top rows with a bounded heap
+          rows = SortUtils.topK(evaluatedRelation.iterator(), makeComparator(sortOrders, evaluatedRelation.getSchema()), limit);
+        }
+        else if (sortBufferSize != Integer.MAX_VALUE && (inputSize == null || inputSize > sortBufferSize)) {
+          // the input might be too large to sort in memory
+          ExternalRowSorter sorter = new ExternalRowSorter(evaluatedRelation.getSchema(),
+              makeComparator(sortOrders, evaluatedRelation.getSchema()), sortBufferSize);
+          try {
+            Iterator<Row> sortedRows = sorter.sort(evaluatedRelation.iterator());
+            rows = () -> sortedRows;
+          }
+          catch (IOException e) {
+            throw new UncheckedIOException("Unable to sort the results of MemQuery " + MemQuery.this, e);
+          }
+        }
+        else
+          rows = new SortedArrayListRelation(evaluatedRelation, sortOrders);
       }
       results = new ArrayListRelation(evaluatedRelation.getSchema(), new CountingIterator<Row>(rows.iterator(), limit));
     }
@@ -16,23 +16,34 @@
 
 package solutions.trsoftware.commons.server.memquery;
 
+import com.google.common.base.Throwables;
 import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Creates new instances of {@link MutableRow} on demand.  If the system property {@value #SYS_PROP_USE_DYNAMIC_CLASSES}
- * is set to {@code "true"}, will use a new instance of a class generated with {@link DynamicRowImplGenerator}, which
- * might offer some memory savings compared with {@link RowImpl}.
+ * is set to {@code "true"}, will use a new instance of a class generated at runtime for the row's schema, which
+ * might offer some memory savings compared with {@link RowImpl}.  By default, the bytecode of these classes is
+ * generated directly with {@link BytecodeRowImplGenerator}; if the system property {@value #SYS_PROP_GENERATE_SOURCE}
+ * (or {@value #SYS_PROP_DEBUG}) is also set, their Java source code will be generated with {@link DynamicRowImplGenerator}
+ * and compiled at runtime instead.
  * <p>
  * The memory savings offered by using {@link DynamicRowImplGenerator} come at the expense of runtime compilation of
- * the required dynamic classes, hence the choice depends on the structure and quantity of data being processed.
+ * the required dynamic classes, hence the choice depends on the structure and quantity of data being processed
+ * (this overhead is negligible with {@link BytecodeRowImplGenerator}).
+ * In either case, the rows are created without reflection: the instances of the classes generated by
+ * {@link BytecodeRowImplGenerator} are created by a factory class generated along with them, and those generated by
+ * {@link DynamicRowImplGenerator} are created with a {@link MethodHandle} for their constructor.
  * A simple experiment produced the following results:
  * <ol>
  * <li>Using classes dynamically generated with {@link DynamicRowImplGenerator}:
@@ -66,6 +77,10 @@ public class RowFactory {
    * System property used to set the value of {@link #debug}
    */
   public static final String SYS_PROP_DEBUG = "memquery.debug";
+  /**
+   * System property used to set the value of {@link #generateSource}
+   */
+  public static final String SYS_PROP_GENERATE_SOURCE = "memquery.generateSource";
 
   private static RowFactory instance;
 
@@ -73,7 +88,9 @@ public class RowFactory {
     if (instance == null) {
       synchronized (RowFactory.class) {
         if (instance == null) {
-          instance = new RowFactory(Boolean.getBoolean(SYS_PROP_USE_DYNAMIC_CLASSES), Boolean.getBoolean(SYS_PROP_DEBUG));
+          boolean debug = Boolean.getBoolean(SYS_PROP_DEBUG);
+          instance = new RowFactory(Boolean.getBoolean(SYS_PROP_USE_DYNAMIC_CLASSES),
+              Boolean.getBoolean(SYS_PROP_GENERATE_SOURCE) || debug, debug);
         }
       }
     }
@@ -89,11 +106,17 @@ public class RowFactory {
 
   /**
    * If {@code true}, {@link #newRow(RelationSchema)} will create an instance of a class dynamically generated
-   * with {@link DynamicRowImplGenerator} (specially tailored to the given schema to avoid storing wrappers for primitives);
-   * otherwise will create an instance of {@link RowImpl}
+   * with {@link DynamicRowImplGenerator} or {@link BytecodeRowImplGenerator} (specially tailored to the given schema
+   * to avoid storing wrappers for primitives); otherwise will create an instance of {@link RowImpl}
    */
   private final boolean useDynamicClasses;
 
+  /**
+   * If {@code true}, the dynamic classes will be generated as Java source code with {@link DynamicRowImplGenerator}
+   * and compiled at runtime; otherwise their bytecode will be generated directly with {@link BytecodeRowImplGenerator}.
+   */
+  private final boolean generateSource;
+
   /**
    * If {@code true}, dynamically generated classes will be written to {@link #outputDir} prior to being compiled.
    */
@@ -105,10 +128,11 @@ public class RowFactory {
   private Path outputDir;
 
   /**
-   * Caches the generated classes; the keys of this map are results of {@link RelationSchema#getColTypes()},
-   * and its values are results of {@link DynamicRowImplGenerator#generateClass()} for that schema.
+   * Caches the factories of the generated classes; the keys of this map are results of {@link RelationSchema#getColTypes()},
+   * and its values are the results of {@link BytecodeRowImplGenerator#generateFactory()} or functions that invoke
+   * the constructor of the result of {@link DynamicRowImplGenerator#generateClass()} for that schema.
    */
-  private Map<List<Class>, Class<? extends MutableRow>> generatedClasses;
+  private Map<List<Class>, Function<RelationSchema, MutableRow>> generatedClasses;
 
   /**
    * Exposed for unit testing.
@@ -118,7 +142,21 @@ public class RowFactory {
    *   a temp directory prior to being compiled.
    */
   RowFactory(boolean useDynamicClasses, boolean debug) {
+    this(useDynamicClasses, true, debug);
+  }
+
+  /**
+   * Exposed for unit testing.
+   * @param useDynamicClasses if {@code true}, {@link #newRow(RelationSchema)} will create an instance of a class
+   *   dynamically generated for the row's schema, otherwise will create a new instance of {@link RowImpl}
+   * @param generateSource if {@code true}, the dynamic classes will be generated with {@link DynamicRowImplGenerator},
+   *   otherwise with {@link BytecodeRowImplGenerator}
+   * @param debug if {@code true}, the source code of dynamically generated implementations will be written to
+   *   a temp directory prior to being compiled (only applies when {@code generateSource} is {@code true}).
+   */
+  RowFactory(boolean useDynamicClasses, boolean generateSource, boolean debug) {
     this.useDynamicClasses = useDynamicClasses;
+    this.generateSource = generateSource;
     this.debug = debug;
     if (useDynamicClasses)
       generatedClasses = new ConcurrentHashMap<>();
@@ -136,6 +174,10 @@ public class RowFactory {
     return useDynamicClasses;
   }
 
+  public boolean isGenerateSource() {
+    return generateSource;
+  }
+
   public boolean isDebug() {
     return debug;
   }
@@ -147,25 +189,45 @@ public class RowFactory {
    * @return a new instance of a {@link MutableRow} class dynamically generated from the given schema if
    * {@link #useDynamicClasses} is set, otherwise a new instance of {@link RowImpl}.
    *
-   * @throws RuntimeException if {@link DynamicRowImplGenerator#generateClass()} or {@link Class#newInstance()} threw an exception
+   * @throws RuntimeException if {@link DynamicRowImplGenerator#generateClass()} or the constructor of the generated
+   * class threw an exception
    */
   public MutableRow newRow(RelationSchema schema) throws RuntimeException {
     if (useDynamicClasses) {
-      List<Class> colTypes = schema.getColTypes();
-      Class<? extends MutableRow> cls = generatedClasses.computeIfAbsent(colTypes, k ->
-          new DynamicRowImplGenerator(schema, outputDir).generateClass());
-      try {
-        return cls.getConstructor(RelationSchema.class).newInstance(schema);
-      }
-      catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-        throw new RuntimeException(e);
-      }
+      Function<RelationSchema, MutableRow> factory = generatedClasses.computeIfAbsent(schema.getColTypes(), k -> generateSource
+          ? constructorFactory(new DynamicRowImplGenerator(schema, outputDir).generateClass())
+          : new BytecodeRowImplGenerator(schema).generateFactory());
+      return factory.apply(schema);
     }
     else {
       return new RowImpl(schema);
     }
   }
 
+  /**
+   * @return a function that invokes the {@code (RelationSchema)} constructor of the given class
+   * using a {@link MethodHandle}
+   */
+  private static Function<RelationSchema, MutableRow> constructorFactory(Class<? extends MutableRow> cls) {
+    MethodHandle constructor;
+    try {
+      constructor = MethodHandles.publicLookup().findConstructor(cls, MethodType.methodType(void.class, RelationSchema.class))
+          .asType(MethodType.methodType(MutableRow.class, RelationSchema.class));
+    }
+    catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    return schema -> {
+      try {
+        return (MutableRow)constructor.invokeExact(schema);
+      }
+      catch (Throwable e) {
+        Throwables.throwIfUnchecked(e);
+        throw new RuntimeException(e);
+      }
+    };
+  }
+
   /**
    * Factory method for creating a new row instance representing the given row transformed by the given schema.
    */
@@ -22,6 +22,9 @@ import solutions.trsoftware.commons.shared.util.stats.Updatable;
 /**
  * Marker interface for all aggregation functions, which encapsulate their state for all input values processed
  * so far, and can be updated with additional input values.
+ * <p>
+ * Implementations that also implement {@link solutions.trsoftware.commons.shared.util.stats.Mergeable} allow
+ * the aggregation to be computed in parallel over partitions of the input.
  *
  * @author Alex, 1/8/14
  */
@@ -17,11 +17,12 @@
 package solutions.trsoftware.commons.server.memquery.aggregations;
 
 import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
 
 /**
 * @author Alex, 1/9/14
 */
-public class Count extends RowAggregation<Integer> {
+public class Count extends RowAggregation<Integer> implements Mergeable<Count> {
 
   private int count;
 
@@ -34,4 +35,9 @@ public class Count extends RowAggregation<Integer> {
   public void update(Row x) {
     count++;
   }
+
+  @Override
+  public void merge(Count other) {
+    count += other.count;
+  }
 }
@@ -17,11 +17,12 @@
 package solutions.trsoftware.commons.server.memquery.aggregations;
 
 import solutions.trsoftware.commons.shared.util.stats.MaxComparable;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
 
 /**
  * @author Alex, 1/9/14
  */
-public class MaxInteger extends ColAggregation<Integer, Integer> {
+public class MaxInteger extends ColAggregation<Integer, Integer> implements Mergeable<MaxInteger> {
 
   private MaxComparable<Integer> delegate = new MaxComparable<>();
 
@@ -34,4 +35,9 @@ public class MaxInteger extends ColAggregation<Integer, Integer> {
   public void update(Integer x) {
     delegate.update(x);
   }
+
+  @Override
+  public void merge(MaxInteger other) {
+    delegate.merge(other.delegate);
+  }
 }
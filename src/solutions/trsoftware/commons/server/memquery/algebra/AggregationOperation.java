@@ -96,6 +96,11 @@ public class AggregationOperation extends UnaryOperation<AggregationOperation.Pa
     public Map<String, AggregationSpec> getAggregationsByName() {
       return aggregationsByName;
     }
+
+    @Override
+    public String toString() {
+      return "GROUP BY " + groupingAttrs + " " + aggregationsByName.keySet();
+    }
   }
 
 }
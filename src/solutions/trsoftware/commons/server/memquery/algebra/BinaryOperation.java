@@ -52,11 +52,15 @@ public abstract class BinaryOperation<P> extends RelationalOperation<P> {
     return rhs;
   }
 
+  /**
+   * Visits both input expressions before visiting this operation (same as {@link UnaryOperation#accept}),
+   * which allows a visitor to process the expression tree bottom-up.
+   */
   @Override
   public void accept(RelationalExpressionVisitor visitor) {
     getLHS().accept(visitor);
-    visitor.visit(this);
     getRHS().accept(visitor);
+    visitor.visit(this);
   }
 
   public RelationSchema getInputSchema(String name) {
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.algebra;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+
+import java.util.*;
+
+/**
+ * A rule-based optimizer for relational algebra expressions.  Rewrites an expression tree into an equivalent tree
+ * that can be evaluated more efficiently, by applying the following rules:
+ * <ol>
+ *   <li>A selection is pushed below renames and joins, so that the rows are filtered as early as possible
+ *   (in particular, before they're joined).  The selection predicate is split into its conjuncts, and each conjunct
+ *   is pushed as far down as it can go.</li>
+ *   <li>A selection over a {@link CrossJoin} is turned into an {@link EquiJoin} if its predicate contains
+ *   {@link ColValuesEqual equality conditions} between a column of the LHS and a column of the RHS.</li>
+ *   <li>Adjacent selections, projections, and renames are merged.</li>
+ * </ol>
+ * A selection predicate can only be moved if we know which columns it references, which is the case for
+ * {@link ColValuePredicate}, {@link ColValuesEqual}, and the {@link CompoundRowPredicate}s made up of those
+ * (but not for arbitrary expressions).  A conjunct is never pushed into the null-supplying side of an outer join,
+ * and never below a rename that changes the name of a column referenced by the conjunct.
+ * <p>
+ * The tree is rewritten bottom-up (with each operation being rebuilt after its inputs have been optimized),
+ * and operations of any types other than the ones defined in this package (including their subclasses) are left as-is.
+ * <p>
+ * <em>NOTE</em>: the optimized expression produces the same columns as the original, but when a cross join is
+ * replaced with an equi-join, the default name of its output relation (see {@link BinaryOperation#createOutputName()})
+ * will be different.
+ * <p>
+ * This class is not thread-safe, but an instance can be reused to optimize multiple expressions.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryOptimizer implements RelationalExpressionVisitor {
+
+  /**
+   * The optimized versions of the visited expressions whose parent operations haven't been visited yet.
+   */
+  private final Deque<RelationalExpression> results = new ArrayDeque<>();
+
+  /**
+   * @return an expression equivalent to the given expression that can be evaluated more efficiently
+   * (or the same expression, if it can't be optimized)
+   */
+  public RelationalExpression optimize(RelationalExpression expr) {
+    results.clear();
+    expr.accept(this);
+    assert results.size() == 1;
+    return results.pop();
+  }
+
+  @Override
+  public void visit(RelationalValue expr) {
+    results.push(expr);
+  }
+
+  @Override
+  public void visit(BinaryOperation op) {
+    RelationalExpression rhs = results.pop();
+    RelationalExpression lhs = results.pop();
+    results.push(withInputs(op, lhs, rhs));
+  }
+
+  @Override
+  public void visit(UnaryOperation op) {
+    RelationalExpression input = results.pop();
+    Class<? extends UnaryOperation> cls = op.getClass();
+    RelationalExpression result;
+    if (cls == Selection.class)
+      result = select(getConjuncts(((Selection)op).getParams()), input);
+    else if (cls == Projection.class || cls == ExtendedProjection.class)
+      result = mergeProjections(op, input);
+    else if (cls == Rename.class)
+      result = mergeRenames((Rename)op, input);
+    else
+      result = withInput(op, input);
+    results.push(result);
+  }
+
+  // selection rules
+
+  /**
+   * @return an expression equivalent to a selection of the given conjuncts over the given input, with as many of the
+   * conjuncts as possible pushed below the input
+   */
+  private RelationalExpression select(List<Expression<Row, Boolean>> conjuncts, RelationalExpression input) {
+    if (conjuncts.isEmpty())
+      return input;
+    Class<? extends RelationalExpression> cls = input.getClass();
+    if (cls == Selection.class) {
+      // merge the adjacent selections
+      Selection inner = (Selection)input;
+      List<Expression<Row, Boolean>> merged = getConjuncts(inner.getParams());
+      merged.addAll(conjuncts);
+      return select(merged, inner.getInput());
+    }
+    else if (cls == Rename.class) {
+      Rename rename = (Rename)input;
+      List<Expression<Row, Boolean>> pushed = new ArrayList<>();
+      List<Expression<Row, Boolean>> rest = new ArrayList<>();
+      for (Expression<Row, Boolean> conjunct : conjuncts) {
+        if (isUnaffectedByRename(conjunct, rename.getParams()))
+          pushed.add(conjunct);
+        else
+          rest.add(conjunct);
+      }
+      if (!pushed.isEmpty())
+        return selection(rest, withInput(rename, select(pushed, rename.getInput())));
+    }
+    else if (cls == CrossJoin.class || cls == EquiJoin.class || cls == NaturalJoin.class) {
+      return selectJoin(conjuncts, (Join)input);
+    }
+    return selection(conjuncts, input);
+  }
+
+  /**
+   * @return an expression equivalent to a selection of the given conjuncts over the given join, with as many of the
+   * conjuncts as possible pushed below the join, and the join itself possibly replaced with an {@link EquiJoin}
+   */
+  private RelationalExpression selectJoin(List<Expression<Row, Boolean>> conjuncts, Join<?> join) {
+    RelationSchema lhSchema = join.getLHSchema();
+    RelationSchema rhSchema = join.getRHSchema();
+    Join.Type type = join.getParams().getType();
+    boolean isCrossJoin = join.getClass() == CrossJoin.class;
+    BiMap<String, String> equiJoinCols = HashBiMap.create();
+    List<Expression<Row, Boolean>> lhsConjuncts = new ArrayList<>();
+    List<Expression<Row, Boolean>> rhsConjuncts = new ArrayList<>();
+    List<Expression<Row, Boolean>> rest = new ArrayList<>();
+    for (Expression<Row, Boolean> conjunct : conjuncts) {
+      if (isCrossJoin && conjunct.getClass() == ColValuesEqual.class) {
+        // check if this conjunct can be used as a condition of an equi-join
+        ColValuesEqual colValuesEqual = (ColValuesEqual)conjunct;
+        String col1 = colValuesEqual.getColName1();
+        String col2 = colValuesEqual.getColName2();
+        // it can be an equi-join key only if it links a column of the LHS to a column of the RHS (otherwise,
+        // e.g. if both columns come from the same side, it's just a filter on that side)
+        Boolean col1FromLhs = getSourceSide(col1, lhSchema, rhSchema, type);
+        Boolean col2FromLhs = getSourceSide(col2, lhSchema, rhSchema, type);
+        if (col1FromLhs != null && col2FromLhs != null && !col1FromLhs.equals(col2FromLhs)) {
+          String lhsCol = col1FromLhs ? col1 : col2;
+          String rhsCol = col1FromLhs ? col2 : col1;
+          if (!equiJoinCols.containsKey(lhsCol) && !equiJoinCols.containsValue(rhsCol)) {
+            equiJoinCols.put(lhsCol, rhsCol);
+            continue;
+          }
+        }
+      }
+      Boolean fromLhs = getSourceSide(conjunct, lhSchema, rhSchema, type);
+      if (fromLhs == Boolean.TRUE && (type == Join.Type.INNER || type == Join.Type.LEFT_OUTER))
+        lhsConjuncts.add(conjunct);
+      else if (fromLhs == Boolean.FALSE && (type == Join.Type.INNER || type == Join.Type.RIGHT_OUTER))
+        rhsConjuncts.add(conjunct);
+      else
+        rest.add(conjunct);
+    }
+    if (lhsConjuncts.isEmpty() && rhsConjuncts.isEmpty() && equiJoinCols.isEmpty())
+      return selection(conjuncts, join);  // nothing to push down
+    RelationalExpression lhs = select(lhsConjuncts, join.getLHS());
+    RelationalExpression rhs = select(rhsConjuncts, join.getRHS());
+    RelationalExpression newJoin;
+    if (!equiJoinCols.isEmpty())
+      newJoin = new EquiJoin(lhs, rhs, new EquiJoin.Params(Join.Type.INNER, ImmutableBiMap.copyOf(equiJoinCols)));
+    else
+      newJoin = withInputs(join, lhs, rhs);
+    return selection(rest, newJoin);
+  }
+
+  /**
+   * Determines which input of a join provides the values of the columns referenced by the given predicate
+   * (using the same logic as {@link Join#createColSpec(String)}).
+   *
+   * @return {@link Boolean#TRUE} if all the referenced columns come from the LHS, {@link Boolean#FALSE} if they all
+   * come from the RHS, or {@code null} if the predicate references columns from both sides (or we don't know which
+   * columns it references).
+   */
+  private static Boolean getSourceSide(Expression<Row, Boolean> predicate, RelationSchema lhSchema, RelationSchema rhSchema, Join.Type type) {
+    Set<String> colNames = getReferencedColNames(predicate);
+    if (colNames == null || colNames.isEmpty())
+      return null;
+    Boolean ret = null;
+    for (String name : colNames) {
+      Boolean fromLhs = getSourceSide(name, lhSchema, rhSchema, type);
+      if (fromLhs == null)
+        return null;
+      if (ret == null)
+        ret = fromLhs;
+      else if (!ret.equals(fromLhs))
+        return null;
+    }
+    return ret;
+  }
+
+  /**
+   * Determines which input of a join provides the values of the given column
+   * (using the same logic as {@link Join#createColSpec(String)}).
+   *
+   * @return {@link Boolean#TRUE} if the column comes from the LHS, {@link Boolean#FALSE} if it comes from the RHS,
+   * or {@code null} if neither input has such a column.
+   */
+  private static Boolean getSourceSide(String colName, RelationSchema lhSchema, RelationSchema rhSchema, Join.Type type) {
+    if (lhSchema.contains(colName) && (type != Join.Type.RIGHT_OUTER || !rhSchema.contains(colName)))
+      return true;
+    else if (rhSchema.contains(colName))
+      return false;
+    return null;
+  }
+
+  /**
+   * @return {@code true} iff the given predicate can be evaluated on the input of the given rename operation
+   * (i.e. the rename doesn't change the name of any column referenced by the predicate)
+   */
+  private static boolean isUnaffectedByRename(Expression<Row, Boolean> predicate, Rename.Params renameParams) {
+    Set<String> colNames = getReferencedColNames(predicate);
+    if (colNames == null)
+      return false;
+    for (String name : colNames) {
+      if (!name.equals(renameParams.getOldAttributeName(name)))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return the names of all the columns referenced by the given predicate, or {@code null} if the predicate is
+   * not one of the types that we know how to analyze.
+   */
+  static Set<String> getReferencedColNames(Expression<Row, Boolean> predicate) {
+    if (predicate instanceof ColValuePredicate)
+      return Collections.singleton(((ColValuePredicate)predicate).getColName());
+    Class<? extends Expression> cls = predicate.getClass();
+    if (cls == ColValuesEqual.class) {
+      ColValuesEqual colValuesEqual = (ColValuesEqual)predicate;
+      return new LinkedHashSet<>(Arrays.asList(colValuesEqual.getColName1(), colValuesEqual.getColName2()));
+    }
+    if (cls == CompoundRowPredicate.class || cls == And.class || cls == Or.class) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)predicate;
+      Set<String> lhsNames = getReferencedColNames(compound.getLhs());
+      Set<String> rhsNames = getReferencedColNames(compound.getRhs());
+      if (lhsNames == null || rhsNames == null)
+        return null;
+      Set<String> ret = new LinkedHashSet<>(lhsNames);
+      ret.addAll(rhsNames);
+      return ret;
+    }
+    return null;
+  }
+
+  /**
+   * Splits the given predicate into the conjuncts of its {@code AND} operators.
+   */
+  static List<Expression<Row, Boolean>> getConjuncts(Expression<Row, Boolean> predicate) {
+    List<Expression<Row, Boolean>> ret = new ArrayList<>();
+    addConjuncts(predicate, ret);
+    return ret;
+  }
+
+  private static void addConjuncts(Expression<Row, Boolean> predicate, List<Expression<Row, Boolean>> conjuncts) {
+    Class<? extends Expression> cls = predicate.getClass();
+    if ((cls == CompoundRowPredicate.class || cls == And.class)
+        && ((CompoundRowPredicate)predicate).getOp() == BooleanBinaryOperator.AND) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)predicate;
+      addConjuncts(compound.getLhs(), conjuncts);
+      addConjuncts(compound.getRhs(), conjuncts);
+    }
+    else
+      conjuncts.add(predicate);
+  }
+
+  /**
+   * Creates a selection over the given input using the conjunction of the given predicates.
+   * The {@link RowPredicate}s are combined with {@link And} into a single selection, and each predicate of any other
+   * type is evaluated by a separate selection on top of that.
+   *
+   * @return the new selection, or the given input if there are no predicates
+   */
+  private static RelationalExpression selection(List<Expression<Row, Boolean>> conjuncts, RelationalExpression input) {
+    RowPredicate rowPredicate = null;
+    List<Expression<Row, Boolean>> others = new ArrayList<>();
+    for (Expression<Row, Boolean> conjunct : conjuncts) {
+      if (conjunct instanceof RowPredicate)
+        rowPredicate = rowPredicate == null ? (RowPredicate)conjunct : new And(rowPredicate, (RowPredicate)conjunct);
+      else
+        others.add(conjunct);
+    }
+    RelationalExpression ret = input;
+    if (rowPredicate != null)
+      ret = new Selection(ret, rowPredicate);
+    for (Expression<Row, Boolean> other : others) {
+      ret = new Selection(ret, other);
+    }
+    return ret;
+  }
+
+  // projection and rename rules
+
+  /**
+   * A simple projection, or an extended projection that doesn't compute any new values.
+   */
+  private static boolean isPassThroughProjection(RelationalExpression expr) {
+    if (expr.getClass() == Projection.class)
+      return true;
+    if (expr.getClass() == ExtendedProjection.class) {
+      for (Expression<Row, ?> colExpr : ((ExtendedProjection)expr).getParams().values()) {
+        if (colExpr != null)
+          return false;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param outer a {@link Projection} or {@link ExtendedProjection}
+   * @param input the optimized input of the {@code outer} projection
+   * @return a single projection equivalent to the given projection over the given input, if the input is also
+   * a projection that can be merged with it.
+   */
+  private RelationalExpression mergeProjections(UnaryOperation<?> outer, RelationalExpression input) {
+    Class<? extends RelationalExpression> inputCls = input.getClass();
+    if (inputCls != Projection.class && inputCls != ExtendedProjection.class)
+      return withInput(outer, input);
+    UnaryOperation<?> inner = (UnaryOperation<?>)input;
+    List<String> outputColNames = outer.getOutputSchema().getColNames();
+    if (isPassThroughProjection(outer)) {
+      // the outer projection just selects a subset of the columns produced by the inner projection
+      if (inputCls == Projection.class)
+        return new Projection(inner.getInput(), new ArrayList<>(outputColNames));
+      return new ExtendedProjection(inner.getInput(), getExpressions((ExtendedProjection)inner, outputColNames));
+    }
+    if (isPassThroughProjection(inner)) {
+      // the inner projection just selects a subset of the columns of its input, so the outer expressions can be evaluated on its input
+      return new ExtendedProjection(inner.getInput(), getExpressions((ExtendedProjection)outer, outputColNames));
+    }
+    return withInput(outer, input);
+  }
+
+  private static Map<String, Expression<Row, ?>> getExpressions(ExtendedProjection projection, List<String> colNames) {
+    LinkedHashMap<String, Expression<Row, ?>> ret = new LinkedHashMap<>();
+    for (String name : colNames) {
+      ret.put(name, projection.getExpression(name));
+    }
+    return ret;
+  }
+
+  /**
+   * @param input the optimized input of the {@code outer} rename operation
+   * @return a single rename operation equivalent to the given rename over the given input, if the input is also
+   * a rename operation.
+   */
+  private RelationalExpression mergeRenames(Rename outer, RelationalExpression input) {
+    if (input.getClass() != Rename.class)
+      return withInput(outer, input);
+    Rename inner = (Rename)input;
+    Rename.Params innerParams = inner.getParams();
+    Rename.Params outerParams = outer.getParams();
+    Map<String, String> oldToNewAttrMap = new LinkedHashMap<>();
+    for (String name : inner.getInputSchema().getColNames()) {
+      String newName = outerParams.getNewAttributeName(innerParams.getNewAttributeName(name));
+      if (!newName.equals(name))
+        oldToNewAttrMap.put(name, newName);
+    }
+    String newRelationName = outerParams.getNewRelationName();
+    if (newRelationName == null)
+      newRelationName = innerParams.getNewRelationName();
+    return new Rename(inner.getInput(), newRelationName, oldToNewAttrMap);
+  }
+
+  // helper methods for rebuilding the tree
+
+  /**
+   * @return a copy of the given operation with the given input, or the same operation if the input hasn't changed
+   * or we don't know how to copy an operation of this type.
+   */
+  private static RelationalExpression withInput(UnaryOperation<?> op, RelationalExpression input) {
+    if (input == op.getInput())
+      return op;
+    Class<? extends UnaryOperation> cls = op.getClass();
+    if (cls == Selection.class)
+      return new Selection(input, ((Selection)op).getParams());
+    if (cls == Projection.class)
+      return new Projection(input, ((Projection)op).getParams());
+    if (cls == ExtendedProjection.class)
+      return new ExtendedProjection(input, ((ExtendedProjection)op).getParams());
+    if (cls == Rename.class) {
+      Rename.Params params = ((Rename)op).getParams();
+      return new Rename(input, params.getNewRelationName(), params.getOldToNewAttrMap());
+    }
+    if (cls == AggregationOperation.class)
+      return new AggregationOperation(input, ((AggregationOperation)op).getParams());
+    return op;
+  }
+
+  /**
+   * @return a copy of the given operation with the given inputs, or the same operation if the inputs haven't changed
+   * or we don't know how to copy an operation of this type.
+   */
+  private static RelationalExpression withInputs(BinaryOperation<?> op, RelationalExpression lhs, RelationalExpression rhs) {
+    if (lhs == op.getLHS() && rhs == op.getRHS())
+      return op;
+    Class<? extends BinaryOperation> cls = op.getClass();
+    if (cls == CrossJoin.class)
+      return new CrossJoin(lhs, rhs);
+    if (cls == NaturalJoin.class)
+      return new NaturalJoin(lhs, rhs, ((NaturalJoin)op).getParams().getType());
+    if (cls == EquiJoin.class)
+      return new EquiJoin(lhs, rhs, ((EquiJoin)op).getParams());
+    return op;
+  }
+
+}
@@ -102,6 +102,14 @@ public class Rename extends StreamableUnaryOperation<Rename.Params> {
       this.newRelationName = newRelationName;
     }
 
+    /**
+     * @return the mapping of original attribute names to their new names (excluding the attributes that are not
+     * being renamed)
+     */
+    public BiMap<String, String> getOldToNewAttrMap() {
+      return oldToNewAttrMap;
+    }
+
     /**
      * @return the renamed version of the original attribute name.
      */
@@ -122,5 +130,13 @@ public class Rename extends StreamableUnaryOperation<Rename.Params> {
       return name;
     }
 
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder();
+      if (newRelationName != null)
+        sb.append(newRelationName).append(' ');
+      return sb.append(oldToNewAttrMap).toString();
+    }
+
   }
 }
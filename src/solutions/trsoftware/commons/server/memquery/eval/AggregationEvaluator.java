@@ -17,17 +17,21 @@
 package solutions.trsoftware.commons.server.memquery.eval;
 
 import solutions.trsoftware.commons.server.memquery.*;
-import solutions.trsoftware.commons.server.memquery.aggregations.Aggregation;
-import solutions.trsoftware.commons.server.memquery.aggregations.RowAggregation;
 import solutions.trsoftware.commons.server.memquery.algebra.AggregationOperation;
 import solutions.trsoftware.commons.server.util.Duration;
-import solutions.trsoftware.commons.shared.util.iterators.MapEntryTransformingIterator;
-
-import java.util.*;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
 
 /**
  * An evaluator for the aggregation operation.  Needs to process the entire input relation prior to emitting
  * any rows of the output relation.
+ * <p>
+ * If a {@link #pool} was provided and the input is a large {@link MaterializedRelation}, the input will be
+ * partitioned into chunks whose partial aggregates are computed in parallel and then merged (as long as all
+ * the aggregations implement {@link Mergeable}).
+ * <p>
+ * The rows are grouped with a {@link GroupingTable}, which stores the grouping keys and the state of the built-in
+ * aggregations in flat arrays indexed by group id, and reads the columns of a {@link ColumnarRelation} without
+ * boxing their values.
  *
  * @author Alex, 1/15/14
  */
@@ -41,14 +45,32 @@ public class AggregationEvaluator extends UnaryOperationEvaluator<AggregationOpe
   @Override
   public StreamingRelation call(Relation input) {
     // 1) process the input rows, grouping and aggregating accordingly
-    List<String> groupingAttrs = new ArrayList<String>(op.getParams().getGroupingAttrs());
-    GroupingMap groups = new GroupingMap();
+    GroupingTable groups;
+    if (shouldSplit(input) && isMergeable()) {
+      // compute partial aggregates for each chunk of the input in parallel, and then merge them
+      // (merging the chunks from left to right preserves the order of the groups)
+      groups = invoke(new RowChunkTask<>(((MaterializedRelation)input).getRows(), minChunkSize,
+          chunk -> aggregate(input, chunk), AggregationEvaluator::mergeGroups));
+    }
+    else
+      groups = aggregate(input, input);
+    // 2) produce the output relation
+    return new StreamingRelation(op.getOutputSchema(), groups.outputRows(op.getOutputSchema()));
+  }
+
+  /**
+   * Groups the given rows and computes the aggregations for each group.
+   * @param input the input relation
+   * @param rows the rows of the input relation (or a subset of them) to be aggregated
+   */
+  private GroupingTable aggregate(Relation input, Iterable<Row> rows) {
+    GroupingTable groups = new GroupingTable(op, input);
 
     // TODO: extract these two variables to superclass (where the "verbose" variable resides)
     int rowCount = 0;
     Duration processingDuration = null;
 
-    for (Row inputRow : input) {
+    for (Row inputRow : rows) {
       if (verbose) {
         if (processingDuration == null)
           processingDuration = new Duration(getClass().getSimpleName(), "");
@@ -57,50 +79,29 @@ public class AggregationEvaluator extends UnaryOperationEvaluator<AggregationOpe
           System.out.printf("      %s: %,d LHS rows processed, time elapsed: %s %n",
               getClass().getSimpleName(), rowCount, processingDuration.formatAsClockTime(false));
       }
-      List<Object> groupingKey;
-      if (groupingAttrs.size() == 1) {
-        // memory optimization - use the more compact SingletonList if possible
-        groupingKey = Collections.singletonList(inputRow.getValue(groupingAttrs.get(0)));
-      }
-      else {
-        groupingKey = inputRow.getValues(groupingAttrs);
-      }
-      Map<AggregationSpec, Aggregation> aggs = groups.get(groupingKey);  // TODO: optimization: it might be faster to group via sorting instead of hashing lists
-      if (aggs == null) {
-        // instantiate the aggregations for a new group
-        aggs = op.createAggregations();
-        groups.put(groupingKey, aggs);
-      }
-      for (Map.Entry<AggregationSpec, Aggregation> ae : aggs.entrySet()) {
-        Aggregation agg = ae.getValue();
-        if (agg instanceof RowAggregation)
-          agg.update(inputRow);
-        else
-          agg.update(inputRow.getValue(ae.getKey().getInputAttrName()));
-      }
+      groups.update(inputRow);
     }
-    // 2) produce the output relation
-    final RelationSchema outputSchema = op.getOutputSchema();
-    return new StreamingRelation(outputSchema,
-        new MapEntryTransformingIterator<List<Object>, Map<AggregationSpec, Aggregation>, Row>(groups) {
-          @Override
-          public Row transformEntry(List<Object> key, Map<AggregationSpec, Aggregation> value) {
-            MutableRow ret = RowFactory.getInstance().newRow(outputSchema);
-            int i = 0;
-            for (Object val : key)
-              ret.setValue(i++, val);
-            for (Map.Entry<AggregationSpec, Aggregation> ae : value.entrySet())
-              ret.setValue(i++, ae.getValue().get());
-            return ret;
-          }
-        }
-    );
+    return groups;
   }
 
-  private static class GroupingMap extends LinkedHashMap<List<Object>, Map<AggregationSpec, Aggregation>> {
-    // this class is just syntactic sugar to avoid writing out the type args every time
-    // TODO: can do the same for its key and value types
+  /**
+   * @return {@code true} iff all the aggregations computed by this operation implement {@link Mergeable}, which allows
+   * computing them in parallel.
+   */
+  private boolean isMergeable() {
+    for (AggregationSpec aggSpec : op.getParams().getAggregationsByName().values()) {
+      if (!Mergeable.class.isAssignableFrom(aggSpec.getType()))
+        return false;
+    }
+    return true;
   }
 
-
+  /**
+   * Merges the partial aggregates computed for two adjacent chunks of the input.
+   * @return the first arg, after merging the second arg into it
+   */
+  private static GroupingTable mergeGroups(GroupingTable left, GroupingTable right) {
+    left.merge(right);
+    return left;
+  }
 }
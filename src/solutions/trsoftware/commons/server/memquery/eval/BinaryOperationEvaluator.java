@@ -20,6 +20,8 @@ import solutions.trsoftware.commons.server.memquery.Relation;
 import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpression;
 import solutions.trsoftware.commons.shared.util.callables.Function2;
 
+import java.util.concurrent.ForkJoinTask;
+
 /**
  * Evaluates a single relational algebra operation on two input relations to produce an output relation.
  *
@@ -42,8 +44,17 @@ public abstract class BinaryOperationEvaluator<O extends RelationalExpression, L
     this.rhsEvaluator = rhsEvaluator;
   }
 
+  /**
+   * Evaluates both inputs and then applies the operation to them.  If a {@link #pool} was provided, the RHS
+   * input is evaluated in a separate task, concurrently with the LHS.
+   */
   @Override
   public T call() throws Exception {
+    if (pool != null) {
+      ForkJoinTask<R> rhsTask = fork(ForkJoinTask.adapt(rhsEvaluator));
+      L lhs = lhsEvaluator.call();
+      return call(lhs, rhsTask.join());
+    }
     return call(lhsEvaluator.call(), rhsEvaluator.call());
   }
 
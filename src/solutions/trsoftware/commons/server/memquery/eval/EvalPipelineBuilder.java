@@ -16,11 +16,13 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
+import solutions.trsoftware.commons.server.memquery.IndexedRelation;
 import solutions.trsoftware.commons.server.memquery.MemQuery;
 import solutions.trsoftware.commons.server.memquery.Relation;
 import solutions.trsoftware.commons.server.memquery.algebra.*;
 
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
 * @author Alex, 10/10/2016
@@ -28,27 +30,55 @@ import java.util.Map;
 public class EvalPipelineBuilder {  // TODO: rewrite using a proper Visitor pattern
   private MemQuery query;
   private final Map<String, Relation> inputRelations;
+  /** If not {@code null}, the evaluators will use this pool to do their work in parallel */
+  private final ForkJoinPool pool;
 
   public EvalPipelineBuilder(MemQuery query, Map<String, Relation> inputRelations) {
+    this(query, inputRelations, null);
+  }
+
+  /**
+   * Creates a builder for a pipeline that will be evaluated in parallel: the inputs of each binary operation will be
+   * evaluated concurrently, and the row-by-row operations (e.g. selections and projections) and aggregations over large
+   * materialized relations will split their input into chunks that are processed by separate tasks.
+   *
+   * @param pool the pool that will run the parallel tasks; if {@code null}, the pipeline will be evaluated entirely
+   * on the calling thread.
+   */
+  public EvalPipelineBuilder(MemQuery query, Map<String, Relation> inputRelations, ForkJoinPool pool) {
     this.query = query;
     this.inputRelations = inputRelations;
+    this.pool = pool;
   }
 
   public RelationalEvaluator visit(RelationalExpression expr) {
+    RelationalEvaluator evaluator = createEvaluator(expr);
+    if (evaluator instanceof OperationEvaluator)
+      ((OperationEvaluator)evaluator).setPool(pool);
+    return evaluator;
+  }
+
+  private RelationalEvaluator createEvaluator(RelationalExpression expr) {
     if (expr instanceof RelationalOperation) {
       RelationalOperation op = (RelationalOperation)expr;
       if (expr instanceof UnaryOperation) {
         UnaryOperation unOp = (UnaryOperation)expr;
         RelationalEvaluator inputEvaluator = visit(unOp.getInput());
-        if (op instanceof Selection)
-          return new StreamingSelectionEvaluator(((Selection)op), inputEvaluator);
-        else if (op instanceof StreamableUnaryOperation) {
+        if (op instanceof StreamableUnaryOperation) {
           if (op instanceof Rename) {
             // make sure the output schema always has a name
             Rename.Params renameParams = ((Rename)op).getParams();
             if (renameParams.getNewRelationName() == null)
               renameParams.setNewRelationName(String.format("ResultSetOf{%s}", query));
           }
+          if (op instanceof Selection && isIndexed(unOp.getInput()))
+            return new IndexedSelectionEvaluator(((Selection)op), inputEvaluator);
+          if (pool != null)
+            return new ParallelUnaryEvaluator(((StreamableUnaryOperation)op), inputEvaluator);
+          else if (op instanceof Rename)
+            return new RenameEvaluator(((Rename)op), inputEvaluator);
+          else if (op instanceof Selection)
+            return new StreamingSelectionEvaluator(((Selection)op), inputEvaluator);
           return new StreamingUnaryEvaluator(((StreamableUnaryOperation)op), inputEvaluator);
         }
         else
@@ -56,6 +86,8 @@ public class EvalPipelineBuilder {  // TODO: rewrite using a proper Visitor patt
       }
       else {
         BinaryOperation binExpr = (BinaryOperation)expr;
+        if (op instanceof EquiJoin)
+          return new HashJoinEvaluator((EquiJoin)op, visit(binExpr.getLHS()), visit(binExpr.getRHS()));
         return new StreamingJoinEvaluator((Join)op, visit(binExpr.getLHS()), visit(binExpr.getRHS()));
       }
     }
@@ -63,4 +95,12 @@ public class EvalPipelineBuilder {  // TODO: rewrite using a proper Visitor patt
       return new ValueEvaluator(inputRelations.get(expr.getOutputSchema().getName()));
     }
   }
+
+  /**
+   * @return {@code true} iff the given expression is an input relation that has secondary indexes
+   */
+  private boolean isIndexed(RelationalExpression expr) {
+    return expr instanceof RelationalValue
+        && inputRelations.get(expr.getOutputSchema().getName()) instanceof IndexedRelation;
+  }
 }
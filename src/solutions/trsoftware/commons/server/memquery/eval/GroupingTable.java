@@ -0,0 +1,566 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.*;
+import solutions.trsoftware.commons.server.memquery.algebra.AggregationOperation;
+import solutions.trsoftware.commons.server.util.reflect.ReflectionUtils;
+import solutions.trsoftware.commons.shared.util.stats.Mergeable;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * An open-addressing hash table that groups the rows of a relation by the values of the grouping attributes
+ * of an {@link AggregationOperation}, and computes the aggregations for each group.
+ * <p>
+ * Each group is identified by a sequential int id (assigned in the order that the groups were first encountered),
+ * and both the grouping keys and the state of the aggregations are stored in flat arrays indexed by group id.
+ * Therefore, unlike a {@code Map<List<Object>, Map<AggregationSpec, Aggregation>>}, this table doesn't allocate
+ * any objects for rows that belong to an existing group:
+ * <ul>
+ *   <li>the key columns of a {@link ColumnarRelation} are compared by their {@linkplain ColumnarRelation.Column#getLongKey(int) long keys}
+ *   (e.g. dictionary codes for strings), and other key values are compared with {@link Object#equals(Object)}</li>
+ *   <li>{@link Count} and the built-in {@link ColStats} subclasses are computed directly in primitive arrays, while any other
+ *   aggregations are instantiated once per group</li>
+ * </ul>
+ * <p>
+ * Instances of this class are not thread-safe, but a relation can be aggregated in parallel by computing a separate
+ * table for each partition of its rows, and then {@linkplain #merge(GroupingTable) merging} the results.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+class GroupingTable implements Mergeable<GroupingTable> {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final KeyColumn[] keys;
+  private final AggregateColumn[] aggregates;
+  /** The hash table: contains group id + 1 for each occupied slot, and 0 for the empty slots */
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+  /** The hash code of each group's key */
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  /** The number of groups */
+  private int size;
+  /** The allocated length of the per-group arrays */
+  private int capacity = INITIAL_CAPACITY;
+
+  /** The index of the {@link ColumnarRelation} row whose key is being probed, or -1 if it's not a columnar row */
+  private int probeRowIndex = -1;
+
+  /**
+   * @param op the aggregation
+   * @param input the input relation of the aggregation; if it's a {@link ColumnarRelation}, this table should only be
+   * updated with its rows
+   */
+  GroupingTable(AggregationOperation op, Relation input) {
+    RelationSchema schema = input.getSchema();
+    ColumnarRelation columnarInput = input instanceof ColumnarRelation ? (ColumnarRelation)input : null;
+    List<String> groupingAttrs = new ArrayList<>(op.getParams().getGroupingAttrs());
+    keys = new KeyColumn[groupingAttrs.size()];
+    for (int i = 0; i < keys.length; i++) {
+      int colIndex = schema.getColIndex(groupingAttrs.get(i));
+      ColumnarRelation.Column column = columnarInput != null ? columnarInput.getColumn(colIndex) : null;
+      keys[i] = new KeyColumn(colIndex, column != null && column.hasLongKeys() ? column : null);
+    }
+    Collection<AggregationSpec> aggSpecs = op.getParams().getAggregationsByName().values();
+    aggregates = new AggregateColumn[aggSpecs.size()];
+    int i = 0;
+    for (AggregationSpec aggSpec : aggSpecs) {
+      aggregates[i++] = AggregateColumn.create(aggSpec, schema, columnarInput);
+    }
+    for (AggregateColumn agg : aggregates) {
+      agg.ensureCapacity(capacity);
+    }
+  }
+
+  /**
+   * @return the number of groups
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Adds the given row to its group (creating the group if needed) and updates the group's aggregations.
+   */
+  void update(Row row) {
+    int group = findOrAddGroup(row);
+    for (AggregateColumn agg : aggregates) {
+      agg.update(group, row);
+    }
+  }
+
+  /**
+   * @return the id of the group of the given row
+   */
+  int findOrAddGroup(Row row) {
+    probeRowIndex = row instanceof ColumnarRelation.ColumnarRow ? ((ColumnarRelation.ColumnarRow)row).getIndex() : -1;
+    int hash = 0;
+    for (KeyColumn key : keys) {
+      hash = 31 * hash + key.probe(row, probeRowIndex);
+    }
+    return findOrAddGroup(spread(hash));
+  }
+
+  /**
+   * Merges the groups of the given table into this one.  The groups that don't exist in this table are added
+   * after the existing groups, in the same order as in the other table.
+   * <p>
+   * <strong>NOTE</strong>: both tables must have been created for the same operation and input relation.
+   */
+  @Override
+  public void merge(GroupingTable other) {
+    probeRowIndex = -1;
+    for (int otherGroup = 0; otherGroup < other.size; otherGroup++) {
+      for (int k = 0; k < keys.length; k++) {
+        keys[k].probe(other.keys[k], otherGroup);
+      }
+      int oldSize = size;
+      int group = findOrAddGroup(other.hashes[otherGroup]);
+      boolean added = size > oldSize;
+      for (int a = 0; a < aggregates.length; a++) {
+        if (added)
+          aggregates[a].copy(group, other.aggregates[a], otherGroup);
+        else
+          aggregates[a].merge(group, other.aggregates[a], otherGroup);
+      }
+    }
+  }
+
+  /**
+   * @return the rows of the output relation: for each group, the values of the grouping attributes followed by the
+   * values of the aggregations
+   */
+  Iterator<Row> outputRows(RelationSchema outputSchema) {
+    return IntStream.range(0, size).mapToObj(group -> {
+      MutableRow ret = RowFactory.getInstance().newRow(outputSchema);
+      int i = 0;
+      for (KeyColumn key : keys)
+        ret.setValue(i++, key.values[group]);
+      for (AggregateColumn agg : aggregates)
+        ret.setValue(i++, agg.get(group));
+      return (Row)ret;
+    }).iterator();
+  }
+
+  /**
+   * Looks up the key that was {@linkplain KeyColumn#probe loaded} into the key columns, and adds a new group for it
+   * if it's not found.
+   * @return the id of the group
+   */
+  private int findOrAddGroup(int hash) {
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int group = slots[slot] - 1;
+      if (group < 0) {
+        group = addGroup(hash);
+        slots[slot] = group + 1;
+        if (size * 2 > slots.length)
+          rehash();
+        return group;
+      }
+      if (hashes[group] == hash && probeEquals(group))
+        return group;
+    }
+  }
+
+  private boolean probeEquals(int group) {
+    for (KeyColumn key : keys) {
+      if (!key.probeEquals(group))
+        return false;
+    }
+    return true;
+  }
+
+  private int addGroup(int hash) {
+    if (size == capacity) {
+      capacity *= 2;
+      hashes = Arrays.copyOf(hashes, capacity);
+      for (KeyColumn key : keys)
+        key.ensureCapacity(capacity);
+      for (AggregateColumn agg : aggregates)
+        agg.ensureCapacity(capacity);
+    }
+    int group = size++;
+    hashes[group] = hash;
+    for (KeyColumn key : keys) {
+      key.store(group, probeRowIndex);
+    }
+    return group;
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    int mask = slots.length - 1;
+    for (int group = 0; group < size; group++) {
+      int slot = hashes[group] & mask;
+      while (slots[slot] != 0)
+        slot = (slot + 1) & mask;
+      slots[slot] = group + 1;
+    }
+  }
+
+  /**
+   * Applies a supplemental hash function to the given hash code, which defends against poor quality hash functions
+   * (since the slot is chosen by the lower bits of the hash code).
+   */
+  private static int spread(int h) {
+    // the finalization step of MurmurHash3
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * Stores the values of a grouping attribute, and the value of the key being probed.
+   */
+  private static class KeyColumn {
+    private final int colIndex;
+    /**
+     * If not {@code null}, the keys will be compared by their {@link ColumnarRelation.Column#getLongKey(int) long keys}
+     * (which doesn't require boxing the values)
+     */
+    private final ColumnarRelation.Column column;
+    /** The value of each group (used for the output, and to compare the keys when {@link #column} is {@code null}) */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    /** The long key of each group (used only when {@link #column} is not {@code null}) */
+    private long[] longKeys;
+
+    // the key being probed:
+    private boolean probeNull;
+    private long probeLongKey;
+    private Object probeValue;
+
+    private KeyColumn(int colIndex, ColumnarRelation.Column column) {
+      this.colIndex = colIndex;
+      this.column = column;
+      if (column != null)
+        longKeys = new long[INITIAL_CAPACITY];
+    }
+
+    private void ensureCapacity(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+      if (longKeys != null)
+        longKeys = Arrays.copyOf(longKeys, capacity);
+    }
+
+    /**
+     * Loads the value of this column from the given row as the key to be probed.
+     * @param rowIndex the index of the row in the {@link ColumnarRelation}, or -1 if it's not a columnar row
+     * @return the hash code of the value
+     */
+    private int probe(Row row, int rowIndex) {
+      if (column != null) {
+        if (rowIndex < 0)
+          throw new IllegalArgumentException("Row " + row + " is not from the input relation");
+        probeNull = column.isNull(rowIndex);
+        probeLongKey = probeNull ? 0 : column.getLongKey(rowIndex);
+        probeValue = null;  // will be read only if a new group is added
+        return probeNull ? 0 : Long.hashCode(probeLongKey);
+      }
+      probeValue = row.getValue(colIndex);
+      probeNull = probeValue == null;
+      return Objects.hashCode(probeValue);
+    }
+
+    /**
+     * Loads the value of the given group from the corresponding column of another table as the key to be probed.
+     */
+    private void probe(KeyColumn other, int group) {
+      probeValue = other.values[group];
+      probeNull = probeValue == null;
+      if (longKeys != null)
+        probeLongKey = other.longKeys[group];
+    }
+
+    private boolean probeEquals(int group) {
+      if (longKeys != null)
+        return probeNull ? values[group] == null : values[group] != null && longKeys[group] == probeLongKey;
+      return Objects.equals(values[group], probeValue);
+    }
+
+    /**
+     * Stores the value that was probed for a new group.
+     * @param rowIndex the index of the probed {@link ColumnarRelation} row, or -1 if the value was probed some other way
+     */
+    private void store(int group, int rowIndex) {
+      if (longKeys != null) {
+        longKeys[group] = probeLongKey;
+        if (rowIndex >= 0 && !probeNull)
+          probeValue = column.get(rowIndex);
+      }
+      values[group] = probeValue;
+    }
+  }
+
+  /**
+   * Stores the state of an aggregation for all groups.
+   */
+  private static abstract class AggregateColumn<C extends AggregateColumn<C>> {
+    /** The index of the input attribute of the aggregation, or -1 if it's a {@link RowAggregation} */
+    final int colIndex;
+
+    AggregateColumn(int colIndex) {
+      this.colIndex = colIndex;
+    }
+
+    abstract void ensureCapacity(int capacity);
+
+    abstract void update(int group, Row row);
+
+    /**
+     * Merges the given group of another table into the given group of this table.
+     */
+    abstract void merge(int group, C other, int otherGroup);
+
+    /**
+     * Initializes the given (new) group of this table with the state of the given group of another table.
+     */
+    abstract void copy(int group, C other, int otherGroup);
+
+    abstract Object get(int group);
+
+    static AggregateColumn create(AggregationSpec aggSpec, RelationSchema schema, ColumnarRelation columnarInput) {
+      Class<? extends Aggregation> type = aggSpec.getType();
+      if (type == Count.class)
+        return new CountColumn();
+      int colIndex = RowAggregation.class.isAssignableFrom(type) ? -1 : schema.getColIndex(aggSpec.getInputAttrName());
+      ColStatsColumn.Stat stat = ColStatsColumn.Stat.forType(type);
+      if (stat != null) {
+        ColumnarRelation.Column column = columnarInput != null ? columnarInput.getColumn(colIndex) : null;
+        return new ColStatsColumn(colIndex, stat, column != null && column.isNumeric() ? column : null);
+      }
+      return new GenericColumn(aggSpec, colIndex);
+    }
+  }
+
+  /**
+   * Computes {@link Count}.
+   */
+  private static class CountColumn extends AggregateColumn<CountColumn> {
+    private int[] counts = new int[0];
+
+    CountColumn() {
+      super(-1);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      counts = Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    void update(int group, Row row) {
+      counts[group]++;
+    }
+
+    @Override
+    void merge(int group, CountColumn other, int otherGroup) {
+      counts[group] += other.counts[otherGroup];
+    }
+
+    @Override
+    void copy(int group, CountColumn other, int otherGroup) {
+      counts[group] = other.counts[otherGroup];
+    }
+
+    @Override
+    Object get(int group) {
+      return counts[group];
+    }
+  }
+
+  /**
+   * Computes the built-in {@link ColStats} subclasses using the same algorithm as
+   * {@link solutions.trsoftware.commons.shared.util.stats.NumberSampleOnlineDouble}, but with its state stored in
+   * primitive arrays.
+   */
+  private static class ColStatsColumn extends AggregateColumn<ColStatsColumn> {
+
+    private enum Stat {
+      AVG(Avg.class), SUM(Sum.class), MIN(Min.class), MAX(Max.class), VARIANCE(Variance.class), STDEV(StDev.class);
+
+      private final Class<? extends ColStats> type;
+
+      Stat(Class<? extends ColStats> type) {
+        this.type = type;
+      }
+
+      /**
+       * @return the stat computed by the given aggregation type, or {@code null} if it's not one of the built-in types
+       */
+      static Stat forType(Class<? extends Aggregation> type) {
+        for (Stat stat : values()) {
+          if (stat.type == type)
+            return stat;
+        }
+        return null;
+      }
+    }
+
+    private final Stat stat;
+    /** If not {@code null}, the input values will be read from this column without boxing them */
+    private final ColumnarRelation.Column column;
+    private int[] n = new int[0];
+    private double[] mean = new double[0];
+    private double[] m2 = new double[0];
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+
+    ColStatsColumn(int colIndex, Stat stat, ColumnarRelation.Column column) {
+      super(colIndex);
+      this.stat = stat;
+      this.column = column;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      int oldCapacity = n.length;
+      n = Arrays.copyOf(n, capacity);
+      mean = Arrays.copyOf(mean, capacity);
+      m2 = Arrays.copyOf(m2, capacity);
+      min = Arrays.copyOf(min, capacity);
+      max = Arrays.copyOf(max, capacity);
+      Arrays.fill(min, oldCapacity, capacity, Double.POSITIVE_INFINITY);
+      Arrays.fill(max, oldCapacity, capacity, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    void update(int group, Row row) {
+      double x;
+      if (column != null && row instanceof ColumnarRelation.ColumnarRow
+          && !column.isNull(((ColumnarRelation.ColumnarRow)row).getIndex()))
+        x = column.getDouble(((ColumnarRelation.ColumnarRow)row).getIndex());
+      else
+        x = row.<Number>getValue(colIndex).doubleValue();
+      if (Double.isFinite(x)) {
+        // allow only finite values, otherwise a single bad input can destroy what we have (e.g. make everything NaN)
+        int newN = ++n[group];
+        double delta = x - mean[group];
+        mean[group] += delta / newN;
+        m2[group] += delta * (x - mean[group]);
+        min[group] = Math.min(min[group], x);
+        max[group] = Math.max(max[group], x);
+      }
+      else {
+        System.err.println("WARNING: " + stat.type.getSimpleName() + " ignoring bad input: " + x);
+      }
+    }
+
+    @Override
+    void merge(int group, ColStatsColumn other, int otherGroup) {
+      int n1 = n[group], n2 = other.n[otherGroup];
+      if (n2 == 0)
+        return;  // the other group doesn't have any values (otherwise the new mean would be 0/0)
+      if (n1 == 0) {
+        copy(group, other, otherGroup);
+        return;
+      }
+      double mean1 = mean[group], mean2 = other.mean[otherGroup];
+      int newN = n1 + n2;
+      double newMean = (mean1 * n1 + mean2 * n2) / newN;
+      // same as MeanAndVariance.merge
+      m2[group] = (m2[group] + other.m2[otherGroup] + n1*Math.pow(mean1-newMean,2) + n2*Math.pow(mean2-newMean,2));
+      mean[group] = newMean;
+      n[group] = newN;
+      min[group] = Math.min(min[group], other.min[otherGroup]);
+      max[group] = Math.max(max[group], other.max[otherGroup]);
+    }
+
+    @Override
+    void copy(int group, ColStatsColumn other, int otherGroup) {
+      n[group] = other.n[otherGroup];
+      mean[group] = other.mean[otherGroup];
+      m2[group] = other.m2[otherGroup];
+      min[group] = other.min[otherGroup];
+      max[group] = other.max[otherGroup];
+    }
+
+    @Override
+    Object get(int group) {
+      switch (stat) {
+        case AVG:
+          return mean[group];
+        case SUM:
+          return mean[group] * n[group];
+        case MIN:
+          return min[group];
+        case MAX:
+          return max[group];
+        case VARIANCE:
+          return m2[group] / n[group];
+        case STDEV:
+          return Math.sqrt(m2[group] / n[group]);
+        default:
+          throw new IllegalStateException(String.valueOf(stat));
+      }
+    }
+  }
+
+  /**
+   * Computes any other aggregation by instantiating it for each group.
+   */
+  private static class GenericColumn extends AggregateColumn<GenericColumn> {
+    private final AggregationSpec aggSpec;
+    private Aggregation[] aggs = new Aggregation[0];
+
+    GenericColumn(AggregationSpec aggSpec, int colIndex) {
+      super(colIndex);
+      this.aggSpec = aggSpec;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      aggs = Arrays.copyOf(aggs, capacity);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void update(int group, Row row) {
+      Aggregation agg = aggs[group];
+      if (agg == null)
+        aggs[group] = agg = ReflectionUtils.newInstanceUnchecked(aggSpec.getType());
+      if (agg instanceof RowAggregation)
+        agg.update(row);
+      else
+        agg.update(row.getValue(colIndex));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void merge(int group, GenericColumn other, int otherGroup) {
+      ((Mergeable)aggs[group]).merge(other.aggs[otherGroup]);
+    }
+
+    @Override
+    void copy(int group, GenericColumn other, int otherGroup) {
+      aggs[group] = other.aggs[otherGroup];
+    }
+
+    @Override
+    Object get(int group) {
+      return aggs[group].get();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.BiMap;
+import solutions.trsoftware.commons.server.memquery.IndexedRelation;
+import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.StreamingRelation;
+import solutions.trsoftware.commons.server.memquery.algebra.EquiJoin;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+
+import java.util.Collection;
+
+/**
+ * Evaluates an equi-join (including a natural join) in O(n+m) time using the hash join algorithm
+ * (see {@link HashJoinIterator}).  This is the default evaluator for equi-joins chosen by {@link EvalPipelineBuilder}.
+ * <p>
+ * The RHS is used as the build side (and the LHS is streamed as the probe side, which means that the output rows
+ * are emitted in the same order as the LHS rows), unless the sizes of both inputs are known and the LHS is smaller.
+ * In that case, the hash table is built on the LHS instead, as long as that doesn't require keeping track of the unmatched
+ * LHS rows (i.e. for {@link Join.Type#INNER inner} and {@link Join.Type#RIGHT_OUTER right outer} joins).
+ * <p>
+ * However, an input that's an {@link IndexedRelation} with an index on one of the join columns is preferred as the build
+ * side, since its index can be used instead of building a hash table.
+ *
+ * @see StreamingJoinEvaluator
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class HashJoinEvaluator<J extends EquiJoin> extends BinaryOperationEvaluator<J, Relation, Relation, StreamingRelation> {
+
+  public HashJoinEvaluator(J op, RelationalEvaluator<Relation> lhsEvaluator, RelationalEvaluator<Relation> rhsEvaluator) {
+    super(op, lhsEvaluator, rhsEvaluator);
+  }
+
+  @Override
+  public StreamingRelation call(Relation leftInputRelation, Relation rightInputRelation) {
+    boolean buildLeft = shouldBuildLeft(op, leftInputRelation, rightInputRelation);
+    return new StreamingRelation(op.getOutputSchema(),
+        new HashJoinIterator<J>(op, leftInputRelation, rightInputRelation, buildLeft));
+  }
+
+  /**
+   * Decides which input relation should be used as the build side of the hash join, preferring an input that
+   * has an index on one of the join columns.
+   *
+   * @return {@code true} if the hash table should be built on the LHS (and the RHS streamed as the probe side);
+   * {@code false} if the hash table should be built on the RHS.
+   */
+  static boolean shouldBuildLeft(EquiJoin op, Relation leftInputRelation, Relation rightInputRelation) {
+    Join.Type joinType = op.getParams().getType();
+    BiMap<String, String> colNames = op.getParams().getColNameCorrespondence();
+    if (isIndexed(rightInputRelation, colNames.values()))
+      return false;
+    if (isIndexed(leftInputRelation, colNames.keySet()) && joinType != Join.Type.LEFT_OUTER && joinType != Join.Type.FULL_OUTER)
+      return true;
+    return shouldBuildLeft(joinType, leftInputRelation, rightInputRelation);
+  }
+
+  /**
+   * @return {@code true} iff the given relation is an {@link IndexedRelation} with an index on any of the given columns
+   */
+  private static boolean isIndexed(Relation relation, Collection<String> colNames) {
+    return relation instanceof IndexedRelation
+        && HashJoinIterator.findIndexedCol((IndexedRelation)relation, colNames.toArray(new String[0])) >= 0;
+  }
+
+  /**
+   * Decides which input relation should be used as the build side of the hash join.
+   *
+   * @return {@code true} if the hash table should be built on the LHS (and the RHS streamed as the probe side);
+   * {@code false} if the hash table should be built on the RHS.
+   */
+  static boolean shouldBuildLeft(Join.Type joinType, Relation leftInputRelation, Relation rightInputRelation) {
+    if (joinType == Join.Type.LEFT_OUTER || joinType == Join.Type.FULL_OUTER)
+      return false;  // stream the LHS, to avoid having to keep track of which LHS rows were matched
+    if (leftInputRelation instanceof MaterializedRelation && rightInputRelation instanceof MaterializedRelation)
+      return ((MaterializedRelation)leftInputRelation).size() < ((MaterializedRelation)rightInputRelation).size();
+    return false;
+  }
+}
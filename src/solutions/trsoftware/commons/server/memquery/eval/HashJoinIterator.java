@@ -0,0 +1,270 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.BiMap;
+import solutions.trsoftware.commons.server.memquery.IndexedRelation;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.memquery.RowFactory;
+import solutions.trsoftware.commons.server.memquery.algebra.EquiJoin;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.server.util.Duration;
+
+import java.util.*;
+
+/**
+ * Evaluates an equi-join using the <em>hash join</em> algorithm: the rows of one input relation (the <em>build</em> side)
+ * are loaded into a hash table keyed by the values of their join columns, and then the rows of the other input relation
+ * (the <em>probe</em> side) are streamed, looking up the matches for each row in the hash table.
+ * This takes O(n+m) time, instead of the O(n*m) of the nested loop algorithm.
+ * <p>
+ * The output rows are emitted in the order of the probe side, as soon as they're available.  The build side is
+ * iterated only once, so neither input has to be materialized beforehand.
+ * <p>
+ * If the build side is an {@link IndexedRelation} that has an index on one of the join columns, the matches are looked up
+ * in that index (and checked against the remaining join columns) instead of building a hash table.
+ * <p>
+ * Like {@link EquiJoin#match(Row, Row)}, this implementation considers {@code null} values to be equal to each other.
+ *
+ * @see HashJoinEvaluator
+ * @see <a href="https://en.wikipedia.org/wiki/Hash_join">Hash join (Wikipedia)</a>
+ * @author Alex
+ * @since 10/16/2026
+ */
+class HashJoinIterator<J extends EquiJoin> extends AbstractIterator<Row> {
+
+  private final J joinOp;
+  /**
+   * {@code true} if the LHS relation is used as the build side (and the RHS is streamed as the probe side).
+   */
+  private final boolean buildLeft;
+  private final Iterator<Row> probeIter;
+  /** The names of the join columns in the build relation */
+  private final String[] buildCols;
+  /** The names of the join columns in the probe relation (in the same order as {@link #buildCols}) */
+  private final String[] probeCols;
+  private final RelationSchema buildSchema;
+  private final RelationSchema probeSchema;
+  /** The build-side rows, grouped by the values of their join columns */
+  private final HashMap<Object, List<Row>> table = new HashMap<>();
+  /**
+   * If the build side is an {@link IndexedRelation} with an index on one of the join columns, the matches will
+   * be looked up in this index instead of the {@link #table}.
+   */
+  private IndexedRelation.Index buildIndex;
+  private IndexedRelation indexedBuildRelation;
+  /** The position (in {@link #buildCols} and {@link #probeCols}) of the join column indexed by {@link #buildIndex} */
+  private int buildIndexCol;
+  /**
+   * All the build-side rows, in their original order.  This will be {@code null} unless the join type requires
+   * emitting the build-side rows that didn't match any probe-side rows.
+   */
+  private ArrayList<Row> buildRows;
+  /**
+   * The build-side rows that have been matched by at least one probe-side row.
+   * This will be {@code null} unless the join type requires emitting the unmatched build-side rows.
+   */
+  private Set<Row> matchedBuildRows;
+  /** Whether a probe-side row without any matches should be emitted (padded with nulls) */
+  private final boolean emitUnmatchedProbeRows;
+
+  private Row nextProbe;
+  private Iterator<Row> matchesIter;
+  private Iterator<Row> unmatchedBuildIter;
+  /** Lazy init: a row of nulls used to pad the output for unmatched probe-side rows */
+  private Row nullBuildRow;
+  /** Lazy init: a row of nulls used to pad the output for unmatched build-side rows */
+  private Row nullProbeRow;
+
+  /**
+   * If {@code true}, the progress will be printed to {@link System#out} after every 100,000 probe rows
+   * (disabled by default, since this is the default evaluator for equi-joins).
+   */
+  protected boolean verbose;
+  protected Duration processingDuration;
+  protected int rowCount;
+
+  /**
+   * Consumes the build side input relation and creates the hash table.
+   *
+   * @param buildLeft {@code true} to use the LHS relation as the build side, {@code false} to use the RHS
+   */
+  HashJoinIterator(J joinOp, Relation leftInputRelation, Relation rightInputRelation, boolean buildLeft) {
+    this.joinOp = joinOp;
+    this.buildLeft = buildLeft;
+    Relation buildRelation = buildLeft ? leftInputRelation : rightInputRelation;
+    Relation probeRelation = buildLeft ? rightInputRelation : leftInputRelation;
+    buildSchema = buildRelation.getSchema();
+    probeSchema = probeRelation.getSchema();
+    probeIter = probeRelation.iterator();
+
+    BiMap<String, String> colNames = joinOp.getParams().getColNameCorrespondence();
+    String[] leftCols = colNames.keySet().toArray(new String[colNames.size()]);
+    String[] rightCols = new String[leftCols.length];
+    for (int i = 0; i < leftCols.length; i++) {
+      rightCols[i] = colNames.get(leftCols[i]);
+    }
+    buildCols = buildLeft ? leftCols : rightCols;
+    probeCols = buildLeft ? rightCols : leftCols;
+
+    Join.Type joinType = joinOp.getParams().getType();
+    boolean preserveLeft = joinType == Join.Type.LEFT_OUTER || joinType == Join.Type.FULL_OUTER;
+    boolean preserveRight = joinType == Join.Type.RIGHT_OUTER || joinType == Join.Type.FULL_OUTER;
+    emitUnmatchedProbeRows = buildLeft ? preserveRight : preserveLeft;
+    if (buildLeft ? preserveLeft : preserveRight) {
+      buildRows = new ArrayList<>();
+      // NOTE: Row doesn't implement equals/hashCode, so we only care about identity equality here
+      matchedBuildRows = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    if (buildRelation instanceof IndexedRelation) {
+      indexedBuildRelation = (IndexedRelation)buildRelation;
+      buildIndexCol = findIndexedCol(indexedBuildRelation, buildCols);
+      if (buildIndexCol >= 0) {
+        buildIndex = indexedBuildRelation.getIndex(buildCols[buildIndexCol]);
+        if (buildRows != null)
+          buildRows.addAll(indexedBuildRelation.getRows());
+        return;
+      }
+    }
+    // build the hash table
+    for (Row row : buildRelation) {
+      table.computeIfAbsent(getKey(row, buildCols), k -> new ArrayList<>(1)).add(row);
+      if (buildRows != null)
+        buildRows.add(row);
+    }
+  }
+
+  /**
+   * @return the position of the first column of the given relation that has an index, or -1 if none of them are indexed
+   */
+  static int findIndexedCol(IndexedRelation relation, String[] cols) {
+    for (int i = 0; i < cols.length; i++) {
+      if (relation.getIndex(cols[i]) != null)
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * @return the build-side rows that match the given probe-side row, or {@code null} if there aren't any
+   */
+  private List<Row> findMatches(Row probeRow) {
+    if (buildIndex == null)
+      return table.get(getKey(probeRow, probeCols));
+    BitSet positions = new BitSet();
+    buildIndex.findEqual(probeRow.getValue(probeCols[buildIndexCol]), positions);
+    if (positions.isEmpty())
+      return null;
+    List<Row> matches = indexedBuildRelation.getRows(positions);
+    if (buildCols.length > 1) {
+      // check the remaining join columns
+      matches.removeIf(buildRow -> {
+        for (int i = 0; i < buildCols.length; i++) {
+          if (i != buildIndexCol && !Objects.equals(buildRow.getValue(buildCols[i]), probeRow.getValue(probeCols[i])))
+            return true;
+        }
+        return false;
+      });
+    }
+    return matches.isEmpty() ? null : matches;
+  }
+
+  /**
+   * @return the hash table key for the given row: either the value of the only join column,
+   * or a list of the join column values if there are multiple join columns.
+   */
+  private static Object getKey(Row row, String[] cols) {
+    if (cols.length == 1)
+      return row.getValue(cols[0]);
+    Object[] values = new Object[cols.length];
+    for (int i = 0; i < cols.length; i++) {
+      values[i] = row.getValue(cols[i]);
+    }
+    return Arrays.asList(values);
+  }
+
+  @Override
+  protected Row computeNext() {
+    while (true) {
+      if (matchesIter != null) {
+        if (matchesIter.hasNext()) {
+          Row buildRow = matchesIter.next();
+          if (matchedBuildRows != null)
+            matchedBuildRows.add(buildRow);
+          return join(nextProbe, buildRow);
+        }
+        matchesIter = null;
+      }
+      if (probeIter.hasNext()) {
+        nextProbe = probeIter.next();
+        if (verbose) {
+          if (processingDuration == null)
+            processingDuration = new Duration(getClass().getSimpleName(), "");
+          rowCount++;
+          if (rowCount % 100000 == 0)
+            System.out.printf("      %s: %,d probe rows processed, time elapsed: %s %n",
+                getClass().getSimpleName(), rowCount, processingDuration.formatAsClockTime(false));
+        }
+        List<Row> matches = findMatches(nextProbe);
+        if (matches != null)
+          matchesIter = matches.iterator();
+        else if (emitUnmatchedProbeRows)
+          return join(nextProbe, getNullBuildRow());
+      }
+      else if (buildRows != null) {
+        // we have finished streaming the probe side, and now we just have to emit all the unmatched build-side rows
+        if (unmatchedBuildIter == null)
+          unmatchedBuildIter = buildRows.iterator();
+        while (unmatchedBuildIter.hasNext()) {
+          Row buildRow = unmatchedBuildIter.next();
+          if (!matchedBuildRows.contains(buildRow))
+            return join(getNullProbeRow(), buildRow);
+        }
+        return endOfData();
+      }
+      else
+        return endOfData();
+    }
+  }
+
+  /**
+   * @return the output row obtained by joining the given rows.
+   */
+  private Row join(Row probeRow, Row buildRow) {
+    if (buildLeft)
+      return joinOp.call(buildRow, probeRow);
+    else
+      return joinOp.call(probeRow, buildRow);
+  }
+
+  private Row getNullBuildRow() {
+    if (nullBuildRow == null)
+      nullBuildRow = RowFactory.getInstance().newRow(buildSchema);
+    return nullBuildRow;
+  }
+
+  private Row getNullProbeRow() {
+    if (nullProbeRow == null)
+      nullProbeRow = RowFactory.getInstance().newRow(probeSchema);
+    return nullProbeRow;
+  }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.Selection;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.*;
+
+import static solutions.trsoftware.commons.server.util.reflect.ReflectionUtils.unwrap;
+
+/**
+ * Evaluates a selection over an {@link IndexedRelation} by looking up the candidate rows in the indexes of the
+ * relation, instead of scanning all of its rows.  The following conjuncts of the selection predicate can be evaluated
+ * with an index on their column:
+ * <ul>
+ *   <li>{@link ColValueComparison}: {@code ==} with any index, and {@code <}, {@code <=}, {@code >}, {@code >=}
+ *   with a sorted index (as long as the operand has the same type as the column)</li>
+ *   <li>{@link ColValueIn} and {@link IsNull}</li>
+ *   <li>{@link Or} (and {@link And}) of the above</li>
+ * </ul>
+ * The candidate rows are then filtered with the entire predicate (just like {@link StreamingSelectionEvaluator}), which
+ * takes care of any conjuncts that couldn't be evaluated with an index.  Since a comparison with a {@code null} value
+ * throws an exception, a comparison is evaluated with an index only if the column doesn't contain any {@code null}
+ * values, or is preceded by an {@link IsNotNull} conjunct on the same column.
+ * <p>
+ * Likewise, the rows are pruned only with the conjuncts that precede the first conjunct whose evaluation might throw an
+ * exception (e.g. a comparison with a column that contains {@code null} values, or an arbitrary expression): the scan
+ * evaluates the conjuncts in order, so pruning a row with a later conjunct would suppress the exception that the scan
+ * throws for that row.  The same applies to the operands of an {@link And} nested inside an {@link Or}.
+ * <p>
+ * If the input is not an {@link IndexedRelation}, or none of the conjuncts can be evaluated with an index, the
+ * selection is evaluated by scanning the input.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class IndexedSelectionEvaluator extends StreamingSelectionEvaluator {
+
+  public IndexedSelectionEvaluator(Selection op, RelationalEvaluator<Relation> inputEvaluator) {
+    super(op, inputEvaluator);
+  }
+
+  @Override
+  public StreamingRelation call(Relation input) {
+    if (input instanceof IndexedRelation) {
+      BitSet positions = lookup((IndexedRelation)input, op.getParams());
+      if (positions != null) {
+        List<Row> candidates = ((IndexedRelation)input).getRows(positions);
+        return super.call(new StreamingRelation(input.getSchema(), candidates.iterator()));
+      }
+    }
+    return super.call(input);
+  }
+
+  /**
+   * @return the positions of the rows that might satisfy the given predicate, or {@code null} if none of its
+   * conjuncts can be evaluated with an index
+   */
+  static BitSet lookup(IndexedRelation relation, Expression<Row, Boolean> predicate) {
+    List<Expression<Row, Boolean>> conjuncts = new ArrayList<>();
+    flatten(predicate, BooleanBinaryOperator.AND, conjuncts);
+    Set<String> notNullCols = new HashSet<>();
+    BitSet ret = null;
+    for (Expression<Row, Boolean> conjunct : conjuncts) {
+      BitSet positions = lookupConjunct(relation, conjunct, notNullCols);
+      if (positions != null) {
+        if (ret == null)
+          ret = positions;
+        else
+          ret.and(positions);
+      }
+      if (!canEvalWithoutException(relation, conjunct, notNullCols))
+        break;  // the scan would evaluate this conjunct before any of the following ones
+      if (conjunct instanceof IsNotNull)
+        notNullCols.add(((IsNotNull)conjunct).getColName());
+    }
+    return ret;
+  }
+
+  /**
+   * @param notNullCols the columns that are known to not be {@code null} in any row that will be evaluated
+   * with the given predicate
+   * @return the positions of the rows that satisfy the given predicate, or {@code null} if it can't be evaluated
+   * with an index
+   */
+  private static BitSet lookupConjunct(IndexedRelation relation, Expression<Row, Boolean> predicate, Set<String> notNullCols) {
+    if (predicate instanceof CompoundRowPredicate) {
+      BooleanBinaryOperator op = ((CompoundRowPredicate)predicate).getOp();
+      List<Expression<Row, Boolean>> operands = new ArrayList<>();
+      flatten(predicate, op, operands);
+      BitSet ret = null;
+      for (Expression<Row, Boolean> operand : operands) {
+        BitSet positions = lookupConjunct(relation, operand, notNullCols);
+        if (positions == null) {
+          if (op == BooleanBinaryOperator.OR)
+            return null;  // every row could satisfy this operand
+        }
+        else if (ret == null)
+          ret = positions;
+        else if (op == BooleanBinaryOperator.OR)
+          ret.or(positions);
+        else
+          ret.and(positions);
+        if (op == BooleanBinaryOperator.AND && !canEvalWithoutException(relation, operand, notNullCols))
+          break;  // the following operands can't be used to prune the rows (see lookup)
+      }
+      return ret;
+    }
+    if (!(predicate instanceof ColValuePredicate))
+      return null;
+    String colName = ((ColValuePredicate)predicate).getColName();
+    IndexedRelation.Index index = relation.getIndex(colName);
+    if (index == null)
+      return null;
+    BitSet ret = new BitSet();
+    if (predicate instanceof IsNull)
+      index.findEqual(null, ret);
+    else if (predicate instanceof ColValueIn) {
+      for (Object choice : ((ColValueIn<?>)predicate).getChoices())
+        index.findEqual(choice, ret);
+    }
+    else if (predicate instanceof ColValueComparison) {
+      ColValueComparison<?> cmp = (ColValueComparison<?>)predicate;
+      Object operand = cmp.getOperand();
+      if (operand == null || (index.hasNulls() && !notNullCols.contains(colName))
+          || unwrap(relation.getSchema().get(colName).getType()) != unwrap(operand.getClass()))
+        return null;
+      ComparisonOperator op = cmp.getOp();
+      if (op == ComparisonOperator.EQ)
+        index.findEqual(operand, ret);
+      else if (op == ComparisonOperator.NE || !index.isSorted())
+        return null;
+      else if (op == ComparisonOperator.GT || op == ComparisonOperator.GE)
+        index.findRange(operand, op == ComparisonOperator.GE, null, false, ret);
+      else
+        index.findRange(null, false, operand, op == ComparisonOperator.LE, ret);
+    }
+    else
+      return null;
+    return ret;
+  }
+
+  /**
+   * @param notNullCols the columns that are known to not be {@code null} in any row that will be evaluated
+   * with the given predicate
+   * @return {@code true} iff evaluating the given predicate on any row of the given relation can't throw an exception
+   */
+  private static boolean canEvalWithoutException(IndexedRelation relation, Expression<Row, Boolean> predicate, Set<String> notNullCols) {
+    if (predicate instanceof CompoundRowPredicate) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)predicate;
+      return canEvalWithoutException(relation, compound.getLhs(), notNullCols)
+          && canEvalWithoutException(relation, compound.getRhs(), notNullCols);
+    }
+    if (!(predicate instanceof ColValuePredicate))
+      return false;
+    String colName = ((ColValuePredicate)predicate).getColName();
+    if (!relation.getSchema().contains(colName))
+      return false;
+    if (predicate instanceof IsNull || predicate instanceof IsNotNull || predicate instanceof ColValueIn)
+      return true;
+    if (predicate instanceof ColValueComparison) {
+      // the comparison throws an exception if the value is null or isn't comparable to the operand
+      Object operand = ((ColValueComparison<?>)predicate).getOperand();
+      IndexedRelation.Index index = relation.getIndex(colName);
+      return operand != null
+          && (notNullCols.contains(colName) || (index != null && !index.hasNulls()))
+          && unwrap(relation.getSchema().get(colName).getType()) == unwrap(operand.getClass());
+    }
+    return false;
+  }
+
+  /**
+   * Adds the operands of a tree of compound predicates with the given operator to the given list.
+   */
+  private static void flatten(Expression<Row, Boolean> expr, BooleanBinaryOperator op, List<Expression<Row, Boolean>> operands) {
+    if (expr instanceof CompoundRowPredicate && ((CompoundRowPredicate)expr).getOp() == op) {
+      flatten(((CompoundRowPredicate)expr).getLhs(), op, operands);
+      flatten(((CompoundRowPredicate)expr).getRhs(), op, operands);
+    }
+    else
+      operands.add(expr);
+  }
+}
@@ -17,9 +17,14 @@
 package solutions.trsoftware.commons.server.memquery.eval;
 
 import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
+import solutions.trsoftware.commons.server.memquery.MemQuery;
 import solutions.trsoftware.commons.server.memquery.Relation;
 import solutions.trsoftware.commons.server.memquery.algebra.RelationalExpression;
 
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 /**
  * @author Alex, 1/15/14
  */
@@ -29,6 +34,20 @@ public abstract class OperationEvaluator<O extends RelationalExpression, R exten
 
   protected boolean verbose = true;  // TODO: use this in all nontrivial evaluators and provide a way to set its value
 
+  /**
+   * Materialized inputs with fewer than this many rows per chunk are not worth splitting into parallel tasks.
+   */
+  public static final int DEFAULT_MIN_CHUNK_SIZE = 8192;
+
+  /**
+   * If not {@code null}, this evaluator may use this pool to do its work in parallel.
+   * @see EvalPipelineBuilder#EvalPipelineBuilder(MemQuery, Map, ForkJoinPool)
+   */
+  protected ForkJoinPool pool;
+
+  /** The min number of input rows to be processed by a single parallel task */
+  protected int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+
   protected OperationEvaluator(O op) {
     this.op = op;
   }
@@ -37,6 +56,56 @@ public abstract class OperationEvaluator<O extends RelationalExpression, R exten
     return op;
   }
 
+  public ForkJoinPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Allows this evaluator to use the given pool to do its work in parallel.
+   * @param pool the pool to use, or {@code null} to evaluate everything on the calling thread (which is the default)
+   * @return this instance, for call chaining
+   */
+  public OperationEvaluator<O, R> setPool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  public int getMinChunkSize() {
+    return minChunkSize;
+  }
+
+  public OperationEvaluator<O, R> setMinChunkSize(int minChunkSize) {
+    this.minChunkSize = minChunkSize;
+    return this;
+  }
+
+  /**
+   * @return {@code true} iff a {@link #pool} was provided and the given input relation is large enough to be
+   * split into at least two chunks of {@link #minChunkSize} rows.
+   */
+  protected boolean shouldSplit(Relation input) {
+    return pool != null && input instanceof MaterializedRelation
+        && ((MaterializedRelation)input).size() >= 2 * minChunkSize;
+  }
+
+  /**
+   * Starts executing the given task asynchronously in the {@link #pool}.
+   */
+  protected <T> ForkJoinTask<T> fork(ForkJoinTask<T> task) {
+    if (ForkJoinTask.getPool() == pool)
+      return task.fork();  // we're already running in a worker thread of this pool
+    return pool.submit(task);
+  }
+
+  /**
+   * Executes the given task in the {@link #pool} and waits for its result.
+   */
+  protected <T> T invoke(ForkJoinTask<T> task) {
+    if (ForkJoinTask.getPool() == pool)
+      return task.invoke();  // we're already running in a worker thread of this pool
+    return pool.invoke(task);
+  }
+
   /**
    * Produces a materialized view from a streaming input relation.
    */
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.ArrayListRelation;
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation;
+import solutions.trsoftware.commons.server.memquery.MaterializedRelation;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.memquery.algebra.Rename;
+import solutions.trsoftware.commons.server.memquery.algebra.Selection;
+import solutions.trsoftware.commons.server.memquery.algebra.StreamableUnaryOperation;
+import solutions.trsoftware.commons.server.memquery.expressions.CompiledPredicate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Evaluates a {@link StreamableUnaryOperation} (e.g. a {@link Selection} or an
+ * {@link solutions.trsoftware.commons.server.memquery.algebra.ExtendedProjection}) over a large materialized
+ * input relation by splitting the input into chunks that are processed in parallel by the {@link #pool}.
+ * The output is materialized (with the rows in the same order as the input), which allows the next operation
+ * in the pipeline to be parallelized as well.
+ * <p>
+ * If the input is not materialized (or it's too small to be worth splitting), the operation is evaluated
+ * in a streaming fashion, just like {@link StreamingSelectionEvaluator} or {@link StreamingUnaryEvaluator}
+ * (and a {@link ColumnarRelation} input is renamed without copying, see {@link RenameEvaluator}).
+ * <p>
+ * <em>NOTE</em>: the expressions used by the operation will be invoked concurrently from multiple threads,
+ * so they should not have any side effects.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ParallelUnaryEvaluator extends UnaryOperationEvaluator<StreamableUnaryOperation, Relation, Relation> {
+
+  /** Evaluates the operation on the calling thread when the input can't be split */
+  private final UnaryOperationEvaluator<? extends StreamableUnaryOperation, Relation, ? extends Relation> sequentialEvaluator;
+
+  public ParallelUnaryEvaluator(StreamableUnaryOperation op, RelationalEvaluator<Relation> inputEvaluator) {
+    super(op, inputEvaluator);
+    if (op instanceof Selection)
+      sequentialEvaluator = new StreamingSelectionEvaluator((Selection)op, inputEvaluator);
+    else if (op instanceof Rename)
+      sequentialEvaluator = new RenameEvaluator((Rename)op, inputEvaluator);
+    else
+      sequentialEvaluator = new StreamingUnaryEvaluator(op, inputEvaluator);
+  }
+
+  @Override
+  public Relation call(Relation input) {
+    if (!shouldSplit(input) || sequentialEvaluator instanceof RenameEvaluator && input instanceof ColumnarRelation)
+      return sequentialEvaluator.call(input);
+    // make sure the output schema is initialized before it's accessed from multiple threads
+    op.getOutputSchema();
+    CompiledPredicate predicate = op instanceof Selection
+        ? CompiledPredicate.compile(((Selection)op).getParams(), input.getSchema()) : null;
+    List<Row> outputRows = invoke(new RowChunkTask<>(((MaterializedRelation)input).getRows(), minChunkSize,
+        chunk -> processChunk(chunk, predicate),
+        (left, right) -> {
+          left.addAll(right);
+          return left;
+        }));
+    return new ArrayListRelation(op.getOutputSchema(), outputRows.iterator());
+  }
+
+  /**
+   * @param predicate the compiled selection predicate, or {@code null} if the operation is not a selection
+   */
+  private List<Row> processChunk(List<Row> inputRows, CompiledPredicate predicate) {
+    List<Row> ret = new ArrayList<>(inputRows.size());
+    if (predicate != null) {
+      BitSet selection = new BitSet(inputRows.size());
+      selection.set(0, inputRows.size());
+      predicate.filter(inputRows, selection);
+      for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1))
+        ret.add(op.call(inputRows.get(i)));
+    }
+    else {
+      for (Row inputRow : inputRows)
+        ret.add(op.call(inputRow));
+    }
+    return ret;
+  }
+}
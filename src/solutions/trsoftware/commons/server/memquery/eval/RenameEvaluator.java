@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.algebra.Rename;
+
+/**
+ * Evaluates a {@link Rename} operation.  Since a rename doesn't modify the values of the rows, a {@link ColumnarRelation}
+ * input is simply given the new schema (without copying its rows), which also allows the subsequent operations to keep
+ * using the columnar layout (e.g. an {@link AggregationEvaluator} can read the numeric columns without boxing).
+ * All other inputs are renamed in a streaming fashion by a {@link StreamingUnaryEvaluator}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class RenameEvaluator extends UnaryOperationEvaluator<Rename, Relation, Relation> {
+
+  private final StreamingUnaryEvaluator streamingEvaluator;
+
+  public RenameEvaluator(Rename op, RelationalEvaluator<Relation> inputEvaluator) {
+    super(op, inputEvaluator);
+    streamingEvaluator = new StreamingUnaryEvaluator(op, inputEvaluator);
+  }
+
+  @Override
+  public Relation call(Relation input) {
+    if (input instanceof ColumnarRelation)
+      return ((ColumnarRelation)input).withSchema(op.getOutputSchema());
+    return streamingEvaluator.call(input);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import solutions.trsoftware.commons.server.memquery.Row;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Processes a range of rows of a materialized relation by recursively splitting it in half until the chunks
+ * are no larger than a given size, processing each chunk independently, and then combining the results of the adjacent
+ * chunks (left to right, so that the order of the rows is preserved).
+ *
+ * @param <T> the result type
+ * @author Alex
+ * @since 10/16/2026
+ */
+class RowChunkTask<T> extends RecursiveTask<T> {
+
+  private final List<Row> rows;
+  private final int from;
+  private final int to;
+  private final int chunkSize;
+  private final Function<List<Row>, T> chunkProcessor;
+  private final BinaryOperator<T> combiner;
+
+  /**
+   * @param rows the rows to process (must support fast random access)
+   * @param chunkSize the max number of rows in a chunk
+   * @param chunkProcessor computes the result for a single chunk
+   * @param combiner combines the results of two adjacent chunks (the first arg is the result of the chunk that comes first)
+   */
+  RowChunkTask(List<Row> rows, int chunkSize, Function<List<Row>, T> chunkProcessor, BinaryOperator<T> combiner) {
+    this(rows, 0, rows.size(), chunkSize, chunkProcessor, combiner);
+  }
+
+  private RowChunkTask(List<Row> rows, int from, int to, int chunkSize, Function<List<Row>, T> chunkProcessor, BinaryOperator<T> combiner) {
+    this.rows = rows;
+    this.from = from;
+    this.to = to;
+    this.chunkSize = chunkSize;
+    this.chunkProcessor = chunkProcessor;
+    this.combiner = combiner;
+  }
+
+  @Override
+  protected T compute() {
+    if (to - from <= chunkSize)
+      return chunkProcessor.apply(rows.subList(from, to));
+    int mid = (from + to) >>> 1;
+    RowChunkTask<T> left = new RowChunkTask<>(rows, from, mid, chunkSize, chunkProcessor, combiner);
+    RowChunkTask<T> right = new RowChunkTask<>(rows, mid, to, chunkSize, chunkProcessor, combiner);
+    right.fork();
+    T leftResult = left.compute();
+    return combiner.apply(leftResult, right.join());
+  }
+}
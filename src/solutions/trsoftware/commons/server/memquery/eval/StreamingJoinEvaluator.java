@@ -38,6 +38,9 @@ import solutions.trsoftware.commons.server.memquery.algebra.Join;
  *    <li> Could make it multi-threaded by partitioning the LHS into T segments, with T threads merging them in parallel.</li>
  *  </ul>
  * TODO: implement these optimizations
+ * <p>
+ * <em>NOTE</em>: {@link EvalPipelineBuilder} uses {@link HashJoinEvaluator} for equi-joins, which leaves
+ * this class to handle the joins that have an arbitrary predicate.
  *
  * @author Alex, 1/15/14
  */
@@ -16,36 +16,44 @@
 
 package solutions.trsoftware.commons.server.memquery.eval;
 
-import com.google.common.base.Predicate;
 import solutions.trsoftware.commons.server.memquery.Relation;
 import solutions.trsoftware.commons.server.memquery.Row;
 import solutions.trsoftware.commons.server.memquery.StreamingRelation;
 import solutions.trsoftware.commons.server.memquery.algebra.Selection;
-import solutions.trsoftware.commons.shared.util.iterators.PredicatedIterator;
+import solutions.trsoftware.commons.server.memquery.expressions.CompiledPredicate;
+import solutions.trsoftware.commons.shared.util.iterators.DelegatingAbstractIterator;
 import solutions.trsoftware.commons.shared.util.iterators.TransformingIterator;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * An evaluator that can be used in a pipeline that doesn't produce any intermediate materialized relations.
+ * <p>
+ * The selection predicate is {@linkplain CompiledPredicate#compile compiled} for the input schema, and applied to
+ * blocks of up to {@value #BLOCK_SIZE} input rows at a time (see {@link CompiledPredicate#filter}).
  *
  * @author Alex, 1/15/14
  */
 public class StreamingSelectionEvaluator extends
     UnaryOperationEvaluator<Selection, Relation, StreamingRelation> {
 
+  /**
+   * The max number of input rows that will be read ahead and filtered together.
+   */
+  public static final int BLOCK_SIZE = 1024;
+
   public StreamingSelectionEvaluator(Selection op, RelationalEvaluator<Relation> inputEvaluator) {
     super(op, inputEvaluator);
   }
 
   @Override
   public StreamingRelation call(Relation input) {
+    CompiledPredicate predicate = CompiledPredicate.compile(op.getParams(), input.getSchema());
     return new StreamingRelation(op.getOutputSchema(),
-        new TransformingIterator<Row, Row>(
-            new PredicatedIterator<Row>(input.iterator(), new Predicate<Row>() {
-              @Override
-              public boolean apply(Row item) {
-                return op.getParams().apply(item);
-              }}) {
-            }) {
+        new TransformingIterator<Row, Row>(new BlockFilteringIterator(input.iterator(), predicate)) {
           @Override
           protected Row transform(Row inputRow) {
             return op.call(inputRow);
@@ -53,4 +61,48 @@ public class StreamingSelectionEvaluator extends
         }
     );
   }
+
+  /**
+   * Reads the input rows in blocks of {@value #BLOCK_SIZE}, and emits the ones that satisfy the predicate.
+   */
+  private static class BlockFilteringIterator extends DelegatingAbstractIterator<Row> {
+    private final CompiledPredicate predicate;
+    private final List<Row> block = new ArrayList<>();
+    private final BitSet selection = new BitSet(BLOCK_SIZE);
+    /** The index of the next row in the current block that could be emitted */
+    private int nextIndex;
+
+    private BlockFilteringIterator(Iterator<Row> delegate, CompiledPredicate predicate) {
+      super(delegate);
+      this.predicate = predicate;
+    }
+
+    @Override
+    protected Row computeNext() {
+      int i = selection.nextSetBit(nextIndex);
+      while (i < 0) {
+        if (!readBlock())
+          return endOfData();
+        i = selection.nextSetBit(0);
+      }
+      nextIndex = i + 1;
+      return block.get(i);
+    }
+
+    /**
+     * Reads and filters the next block of input rows.
+     * @return {@code false} iff there are no more input rows
+     */
+    private boolean readBlock() {
+      block.clear();
+      while (block.size() < BLOCK_SIZE && delegate.hasNext())
+        block.add(delegate.next());
+      if (block.isEmpty())
+        return false;
+      selection.clear();
+      selection.set(0, block.size());
+      predicate.filter(block, selection);
+      return true;
+    }
+  }
 }
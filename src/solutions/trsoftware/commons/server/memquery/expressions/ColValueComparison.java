@@ -32,6 +32,14 @@ public class ColValueComparison<T extends Comparable> extends ColValuePredicate<
     this.operand = operand;
   }
 
+  public ComparisonOperator getOp() {
+    return op;
+  }
+
+  public T getOperand() {
+    return operand;
+  }
+
   @Override
   public boolean eval(T value) {
     return op.compare(value, operand);
@@ -17,6 +17,7 @@
 package solutions.trsoftware.commons.server.memquery.expressions;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -34,6 +35,10 @@ public class ColValueIn<T extends Comparable> extends ColValuePredicate<T> {
     this.choices = new LinkedHashSet<T>(choices);
   }
 
+  public Set<T> getChoices() {
+    return Collections.unmodifiableSet(choices);
+  }
+
   @Override
   public boolean eval(T value) {
     return choices.contains(value);
@@ -29,6 +29,10 @@ public abstract class ColValuePredicate<T> extends RowPredicate {
     this.colName = colName;
   }
 
+  public String getColName() {
+    return colName;
+  }
+
   @Override
   public final Boolean apply(Row arg) {
     return eval((T)arg.getValue(colName));
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.expressions;
+
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.shared.util.LogicUtils;
+
+/**
+ * Evaluates to true if the given columns have equal values.  Like {@link solutions.trsoftware.commons.server.memquery.algebra.EquiJoin},
+ * this predicate considers two {@code null} values to be equal.
+ * <p>
+ * When used as the filter of a selection over a cross join of two relations (one column from each relation),
+ * the optimizer can replace it with an equi-join.
+ *
+ * @see solutions.trsoftware.commons.server.memquery.algebra.QueryOptimizer
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ColValuesEqual extends RowPredicate {
+
+  private final String colName1;
+  private final String colName2;
+
+  public ColValuesEqual(String colName1, String colName2) {
+    this.colName1 = colName1;
+    this.colName2 = colName2;
+  }
+
+  public String getColName1() {
+    return colName1;
+  }
+
+  public String getColName2() {
+    return colName2;
+  }
+
+  @Override
+  public Boolean apply(Row arg) {
+    return LogicUtils.eq(arg.getValue(colName1), arg.getValue(colName2));
+  }
+
+  @Override
+  public String toString() {
+    return colName1 + " = " + colName2;
+  }
+}
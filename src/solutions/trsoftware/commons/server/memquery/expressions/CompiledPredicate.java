@@ -0,0 +1,463 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.expressions;
+
+import solutions.trsoftware.commons.server.memquery.ColumnarRelation;
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.util.reflect.ReflectionUtils;
+import solutions.trsoftware.commons.shared.util.LogicUtils;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A {@code WHERE} clause expression compiled for a specific input schema with {@link #compile(Expression, RelationSchema)}.
+ * <p>
+ * Compared with evaluating the original expression tree:
+ * <ul>
+ *   <li>the column indexes are resolved only once, so the column values are accessed with {@link Row#getValue(int)}
+ *   rather than {@link Row#getValue(String)}</li>
+ *   <li>the comparisons with {@code int}, {@code long}, {@code double}, and {@link String} operands are specialized
+ *   for their type and operator (and read the numeric columns of a {@link ColumnarRelation} without boxing)</li>
+ *   <li>nested {@link And} and {@link Or} predicates are flattened, and their operands are reordered by their
+ *   observed selectivity (the most selective conjuncts and the least selective disjuncts first), as long as
+ *   none of the operands can throw an exception (which might be guarded by the preceding operands, e.g.
+ *   {@code x != NULL AND x > 5})</li>
+ * </ul>
+ * In addition to evaluating a single row with {@link #test(Row)}, a compiled predicate can be applied to a block of
+ * rows with {@link #filter(List, BitSet)}, which evaluates each operand of a compound predicate for all the remaining
+ * rows in the block before moving on to the next operand.
+ * <p>
+ * Instances of this class are thread-safe (they can be shared by the tasks evaluating different chunks of a relation).
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public abstract class CompiledPredicate implements Predicate<Row> {
+
+  /**
+   * Compiles the given expression for rows of the given schema.  The parts of the expression that can't be compiled
+   * (e.g. custom {@link RowPredicate} subclasses) are evaluated as-is.
+   *
+   * @param expr the filter expression (e.g. the parameter of a {@link solutions.trsoftware.commons.server.memquery.algebra.Selection})
+   * @param schema the schema of the rows that will be evaluated
+   */
+  @SuppressWarnings("unchecked")
+  public static CompiledPredicate compile(Expression<Row, Boolean> expr, RelationSchema schema) {
+    if (expr instanceof CompoundRowPredicate) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)expr;
+      BooleanBinaryOperator op = compound.getOp();
+      List<CompiledPredicate> operands = new ArrayList<>();
+      flatten(compound, op, schema, operands);
+      return op == BooleanBinaryOperator.AND ? new Conjunction(compound, operands) : new Disjunction(compound, operands);
+    }
+    if (expr instanceof ColValuePredicate && schema.contains(((ColValuePredicate)expr).getColName())) {
+      ColValuePredicate pred = (ColValuePredicate)expr;
+      int colIndex = schema.getColIndex(pred.getColName());
+      if (pred instanceof IsNull)
+        return new SafeLeaf(expr, row -> row.getValue(colIndex) == null);
+      if (pred instanceof IsNotNull)
+        return new SafeLeaf(expr, row -> row.getValue(colIndex) != null);
+      if (pred instanceof ColValueIn) {
+        Set<Object> choices = ((ColValueIn)pred).getChoices();
+        return new SafeLeaf(expr, row -> choices.contains(row.getValue(colIndex)));
+      }
+      if (pred instanceof ColValueComparison) {
+        CompiledPredicate ret = compileComparison((ColValueComparison)pred, colIndex, schema.get(colIndex).getType());
+        if (ret != null)
+          return ret;
+      }
+      return new Leaf(expr, row -> pred.eval(row.getValue(colIndex)));
+    }
+    if (expr instanceof ColValuesEqual) {
+      ColValuesEqual pred = (ColValuesEqual)expr;
+      if (schema.contains(pred.getColName1()) && schema.contains(pred.getColName2())) {
+        int colIndex1 = schema.getColIndex(pred.getColName1());
+        int colIndex2 = schema.getColIndex(pred.getColName2());
+        return new SafeLeaf(expr, row -> LogicUtils.eq(row.getValue(colIndex1), row.getValue(colIndex2)));
+      }
+    }
+    // the expression will be evaluated as-is
+    return new Leaf(expr, expr::apply);
+  }
+
+  private static void flatten(Expression<Row, Boolean> expr, BooleanBinaryOperator op, RelationSchema schema,
+                              List<CompiledPredicate> operands) {
+    if (expr instanceof CompoundRowPredicate && ((CompoundRowPredicate)expr).getOp() == op) {
+      CompoundRowPredicate compound = (CompoundRowPredicate)expr;
+      flatten(compound.getLhs(), op, schema, operands);
+      flatten(compound.getRhs(), op, schema, operands);
+    }
+    else
+      operands.add(compile(expr, schema));
+  }
+
+  /**
+   * Specializes a comparison of a column with a numeric or string operand.
+   * @return the specialized predicate, or {@code null} if the column's values can't be compared with the operand
+   * without a type conversion
+   */
+  private static CompiledPredicate compileComparison(ColValueComparison pred, int colIndex, Class colType) {
+    Object operand = pred.getOperand();
+    if (operand == null)
+      return null;
+    ComparisonOperator op = pred.getOp();
+    Class operandType = ReflectionUtils.unwrap(operand.getClass());
+    if (ReflectionUtils.unwrap(colType) != operandType)
+      return null;
+    // a column of a primitive type can't contain null values, so the comparison can't throw an exception
+    boolean safe = colType.isPrimitive();
+    if (operandType == int.class) {
+      int rhs = (Integer)operand;
+      IntPredicate test = intComparison(op, rhs);
+      return new NumericLeaf(pred, safe, colIndex) {
+        @Override
+        boolean testValue(Object value) {
+          return test.test((Integer)value);
+        }
+        @Override
+        boolean testDouble(double value) {
+          return test.test((int)value);  // the value of an int column is always exactly representable as a double
+        }
+      };
+    }
+    if (operandType == double.class) {
+      double rhs = (Double)operand;
+      DoublePredicate test = doubleComparison(op, rhs);
+      return new NumericLeaf(pred, safe, colIndex) {
+        @Override
+        boolean testValue(Object value) {
+          return test.test((Double)value);
+        }
+        @Override
+        boolean testDouble(double value) {
+          return test.test(value);
+        }
+      };
+    }
+    if (operandType == long.class) {
+      long rhs = (Long)operand;
+      LongPredicate test = longComparison(op, rhs);
+      return new Leaf(pred, safe, row -> test.test(row.<Long>getValue(colIndex)));
+    }
+    if (operandType == String.class) {
+      String rhs = (String)operand;
+      IntPredicate test = intComparison(op, 0);
+      if (op == ComparisonOperator.EQ)
+        return new Leaf(pred, false, row -> rhs.equals(Objects.requireNonNull(row.getValue(colIndex))));
+      return new Leaf(pred, false, row -> test.test(row.<String>getValue(colIndex).compareTo(rhs)));
+    }
+    return null;
+  }
+
+  /**
+   * NOTE: {@link Double#compare} is used (rather than the primitive operators) to make sure that the specialized
+   * comparisons are consistent with {@link Double#compareTo} (e.g. for {@code NaN} and {@code -0.0})
+   */
+  private static DoublePredicate doubleComparison(ComparisonOperator op, double rhs) {
+    return value -> op.test(Double.compare(value, rhs));
+  }
+
+  private static IntPredicate intComparison(ComparisonOperator op, int rhs) {
+    switch (op) {
+      case GT: return value -> value > rhs;
+      case GE: return value -> value >= rhs;
+      case EQ: return value -> value == rhs;
+      case NE: return value -> value != rhs;
+      case LE: return value -> value <= rhs;
+      case LT: return value -> value < rhs;
+      default: throw new IllegalArgumentException(String.valueOf(op));
+    }
+  }
+
+  private static LongPredicate longComparison(ComparisonOperator op, long rhs) {
+    switch (op) {
+      case GT: return value -> value > rhs;
+      case GE: return value -> value >= rhs;
+      case EQ: return value -> value == rhs;
+      case NE: return value -> value != rhs;
+      case LE: return value -> value <= rhs;
+      case LT: return value -> value < rhs;
+      default: throw new IllegalArgumentException(String.valueOf(op));
+    }
+  }
+
+  // instance methods
+
+  /** The expression that was compiled into this predicate */
+  private final Expression<Row, Boolean> expr;
+
+  CompiledPredicate(Expression<Row, Boolean> expr) {
+    this.expr = expr;
+  }
+
+  /**
+   * @return the expression that was compiled into this predicate
+   */
+  public Expression<Row, Boolean> getExpression() {
+    return expr;
+  }
+
+  /**
+   * @return {@code true} if evaluating this predicate might throw an exception for some rows (e.g. a comparison
+   * with a {@code null} value), which means that it shouldn't be evaluated before the predicates that precede it
+   * in the original expression.
+   */
+  abstract boolean canThrow();
+
+  /**
+   * Evaluates this predicate on a block of rows.
+   *
+   * @param rows the block of rows
+   * @param selection the indices of the rows (in the given list) that should be tested; the bits of the rows that
+   * don't satisfy this predicate will be cleared.
+   */
+  public void filter(List<Row> rows, BitSet selection) {
+    for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+      if (!test(rows.get(i)))
+        selection.clear(i);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(expr);
+  }
+
+  private static class Leaf extends CompiledPredicate {
+    private final boolean canThrow;
+    private final Predicate<Row> predicate;
+
+    private Leaf(Expression<Row, Boolean> expr, Predicate<Row> predicate) {
+      this(expr, false, predicate);
+    }
+
+    private Leaf(Expression<Row, Boolean> expr, boolean safe, Predicate<Row> predicate) {
+      super(expr);
+      this.canThrow = !safe;
+      this.predicate = predicate;
+    }
+
+    @Override
+    boolean canThrow() {
+      return canThrow;
+    }
+
+    @Override
+    public boolean test(Row row) {
+      return predicate.test(row);
+    }
+  }
+
+  /**
+   * A predicate that can't throw an exception.
+   */
+  private static class SafeLeaf extends Leaf {
+    private SafeLeaf(Expression<Row, Boolean> expr, Predicate<Row> predicate) {
+      super(expr, true, predicate);
+    }
+  }
+
+  /**
+   * A comparison of a numeric column that reads the values of a {@link ColumnarRelation.ColumnarRow} without boxing.
+   */
+  private static abstract class NumericLeaf extends CompiledPredicate {
+    private final boolean canThrow;
+    private final int colIndex;
+
+    private NumericLeaf(Expression<Row, Boolean> expr, boolean safe, int colIndex) {
+      super(expr);
+      this.canThrow = !safe;
+      this.colIndex = colIndex;
+    }
+
+    @Override
+    boolean canThrow() {
+      return canThrow;
+    }
+
+    @Override
+    public boolean test(Row row) {
+      if (row instanceof ColumnarRelation.ColumnarRow) {
+        ColumnarRelation.ColumnarRow columnarRow = (ColumnarRelation.ColumnarRow)row;
+        if (columnarRow.isNumeric(colIndex)) {
+          if (columnarRow.isNull(colIndex))
+            throw new NullPointerException();  // consistent with the unboxing of a null value
+          return testDouble(columnarRow.getDouble(colIndex));
+        }
+      }
+      return testValue(row.getValue(colIndex));
+    }
+
+    /**
+     * Tests a value obtained from {@link Row#getValue(int)}
+     */
+    abstract boolean testValue(Object value);
+
+    /**
+     * Tests a value obtained from {@link ColumnarRelation.ColumnarRow#getDouble(int)}
+     */
+    abstract boolean testDouble(double value);
+  }
+
+  /**
+   * Base class for the flattened {@link And} and {@link Or} predicates.
+   */
+  private static abstract class Compound extends CompiledPredicate {
+    /** The current evaluation order of the operands */
+    private volatile CompiledPredicate[] operands;
+    /** Whether the operands may be reordered (i.e. none of them can throw an exception) */
+    private final boolean reorderable;
+    /** The number of rows evaluated by each of the original operands */
+    private final AtomicLongArray testedCounts;
+    /** The number of rows that satisfied each of the original operands */
+    private final AtomicLongArray passedCounts;
+    /** Maps the operands to their original indices */
+    private final Map<CompiledPredicate, Integer> originalIndices = new IdentityHashMap<>();
+
+    private Compound(CompoundRowPredicate expr, List<CompiledPredicate> operands) {
+      super(expr);
+      this.operands = operands.toArray(new CompiledPredicate[0]);
+      boolean canThrow = false;
+      for (int i = 0; i < operands.size(); i++) {
+        CompiledPredicate operand = operands.get(i);
+        originalIndices.put(operand, i);
+        canThrow |= operand.canThrow();
+      }
+      reorderable = !canThrow;
+      testedCounts = new AtomicLongArray(operands.size());
+      passedCounts = new AtomicLongArray(operands.size());
+    }
+
+    @Override
+    boolean canThrow() {
+      return !reorderable;
+    }
+
+    CompiledPredicate[] getOperands() {
+      return operands;
+    }
+
+    /**
+     * Records the number of rows tested and passed by an operand during a call to {@link #filter(List, BitSet)}
+     */
+    void recordStats(CompiledPredicate operand, int tested, int passed) {
+      if (reorderable) {
+        int i = originalIndices.get(operand);
+        testedCounts.addAndGet(i, tested);
+        passedCounts.addAndGet(i, passed);
+      }
+    }
+
+    /**
+     * Sorts the operands by their observed pass rates (after a call to {@link #filter(List, BitSet)})
+     * @param ascending {@code true} to evaluate the operands with the lowest pass rate first
+     */
+    void reorder(boolean ascending) {
+      if (reorderable) {
+        CompiledPredicate[] sorted = operands.clone();
+        double[] passRates = new double[sorted.length];
+        for (int i = 0; i < passRates.length; i++) {
+          long tested = testedCounts.get(i);
+          // the operands that haven't been evaluated yet will be tried first
+          passRates[i] = tested == 0 ? (ascending ? -1 : 2) : (double)passedCounts.get(i) / tested;
+        }
+        Comparator<CompiledPredicate> cmp = Comparator.comparingDouble(p -> passRates[originalIndices.get(p)]);
+        Arrays.sort(sorted, ascending ? cmp : cmp.reversed());  // stable sort
+        operands = sorted;
+      }
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder str = new StringBuilder("(");
+      for (CompiledPredicate operand : operands) {
+        if (str.length() > 1)
+          str.append(' ').append(this instanceof Conjunction ? "AND" : "OR").append(' ');
+        str.append(operand);
+      }
+      return str.append(')').toString();
+    }
+  }
+
+  private static class Conjunction extends Compound {
+    private Conjunction(CompoundRowPredicate expr, List<CompiledPredicate> operands) {
+      super(expr, operands);
+    }
+
+    @Override
+    public boolean test(Row row) {
+      for (CompiledPredicate operand : getOperands()) {
+        if (!operand.test(row))
+          return false;
+      }
+      return true;
+    }
+
+    @Override
+    public void filter(List<Row> rows, BitSet selection) {
+      for (CompiledPredicate operand : getOperands()) {
+        int tested = selection.cardinality();
+        if (tested == 0)
+          break;
+        operand.filter(rows, selection);
+        recordStats(operand, tested, selection.cardinality());
+      }
+      reorder(true);
+    }
+  }
+
+  private static class Disjunction extends Compound {
+    private Disjunction(CompoundRowPredicate expr, List<CompiledPredicate> operands) {
+      super(expr, operands);
+    }
+
+    @Override
+    public boolean test(Row row) {
+      for (CompiledPredicate operand : getOperands()) {
+        if (operand.test(row))
+          return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void filter(List<Row> rows, BitSet selection) {
+      // the rows that haven't satisfied any of the operands yet
+      BitSet remaining = (BitSet)selection.clone();
+      for (CompiledPredicate operand : getOperands()) {
+        int tested = remaining.cardinality();
+        if (tested == 0)
+          break;
+        BitSet failed = (BitSet)remaining.clone();
+        operand.filter(rows, remaining);  // now contains only the rows that satisfied this operand
+        recordStats(operand, tested, remaining.cardinality());
+        failed.andNot(remaining);
+        remaining = failed;
+      }
+      // the rows that didn't satisfy any of the operands are the ones that remain
+      selection.andNot(remaining);
+      reorder(false);
+    }
+  }
+}
@@ -33,6 +33,18 @@ public class CompoundRowPredicate extends RowPredicate {
     this.rhs = rhs;
   }
 
+  public RowPredicate getLhs() {
+    return lhs;
+  }
+
+  public RowPredicate getRhs() {
+    return rhs;
+  }
+
+  public BooleanBinaryOperator getOp() {
+    return op;
+  }
+
   @Override
   public Boolean apply(Row arg) {
     return op.apply(lhs.apply(arg), rhs.apply(arg));
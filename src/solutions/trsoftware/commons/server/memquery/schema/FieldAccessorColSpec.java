@@ -20,6 +20,10 @@ import java.lang.reflect.Field;
 
 /**
  * A fully-specified ColSpec based on a Field of some class.
+ * <p>
+ * Unlike {@link MethodAccessorColSpec}, this class doesn't compile an accessor for the field: on Java 8, the
+ * {@link java.lang.invoke.MethodHandle} getter of a field is slower than {@link Field#get(Object)}
+ * (which reads the field with {@code sun.misc.Unsafe}), unless the handle is a compile-time constant.
  *
  * @author Alex, 1/5/14
  */
@@ -21,6 +21,9 @@ import java.lang.reflect.Method;
 
 /**
  * A fully-specified ColSpec based on a Method of some class.
+ * <p>
+ * The method is invoked by an accessor compiled with {@link #compileMethod(Method)}, which is faster than
+ * {@link Method#invoke}.
  *
  * @author Alex, 1/5/14
  */
@@ -32,6 +35,7 @@ public class MethodAccessorColSpec<T> extends ReflectionAccessorColSpec<T> {
     super(method.getName(), (Class<T>)method.getReturnType());
     method.setAccessible(true);
     this.method = method;
+    setAccessor(compileMethod(method));
   }
 
   public Method getMethod() {
@@ -19,22 +19,51 @@ package solutions.trsoftware.commons.server.memquery.schema;
 import solutions.trsoftware.commons.server.memquery.ObjectRow;
 import solutions.trsoftware.commons.server.memquery.Row;
 
+import java.lang.invoke.*;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.function.Function;
 
 /**
+ * Accesses the value of a field or method of the object wrapped by an {@link ObjectRow}.
+ * <p>
+ * Rather than using reflection to access the value for every row, a subclass can compile an accessor function
+ * (see {@link #compileMethod(Method)} and {@link #compileMethodHandle(MethodHandle)}) when it's constructed.
+ * The reflective implementation is still available via {@link #getValueByReflection(Object)}.
+ *
  * @author Alex, 1/5/14
  */
 public abstract class ReflectionAccessorColSpec<T> extends NamedTypedColSpec<T> {
 
+  private static final MethodType GENERIC_ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  /**
+   * The compiled accessor, which is equivalent to {@link #getValueByReflection(Object)}
+   * (if {@code null}, {@link #getValue(Row)} will use reflection)
+   */
+  private Function<Object, T> accessor;
+
   protected ReflectionAccessorColSpec(String name, Class<T> type) {
     super(name, type);
   }
 
+  /**
+   * Subclasses should call this method from their constructor.
+   * @param accessor the compiled equivalent of {@link #getValueByReflection(Object)}
+   */
+  protected void setAccessor(Function<Object, T> accessor) {
+    this.accessor = accessor;
+  }
+
   @Override
   public T getValue(Row row) {
     ObjectRow objectRow = (ObjectRow)row;
     Object rawData = objectRow.getObject();
     try {
+      if (accessor != null)
+        return accessor.apply(rawData);
       return getValueByReflection(rawData);
     }
     catch (Throwable e) {
@@ -44,4 +73,73 @@ public abstract class ReflectionAccessorColSpec<T> extends NamedTypedColSpec<T>
 
   protected abstract T getValueByReflection(Object instance) throws IllegalAccessException, InvocationTargetException;
 
+  /**
+   * Creates a function that invokes the given no-arg method on its argument.  Uses {@link LambdaMetafactory} to
+   * generate a class that calls the method directly, as long as the method is public and accessible from this class;
+   * otherwise falls back on {@link #compileMethodHandle(MethodHandle)}.
+   *
+   * @param method a no-arg method (if it's static, the argument of the returned function will be ignored)
+   */
+  @SuppressWarnings("unchecked")
+  protected static <T> Function<Object, T> compileMethod(Method method) {
+    try {
+      MethodHandle methodHandle = MethodHandles.lookup().unreflect(method);
+      if (isLambdaCompatible(method)) {
+        Class<?> returnType = MethodType.methodType(method.getReturnType()).wrap().returnType();
+        CallSite callSite = LambdaMetafactory.metafactory(MethodHandles.lookup(),
+            "apply", MethodType.methodType(Function.class), GENERIC_ACCESSOR_TYPE.erase(), methodHandle,
+            MethodType.methodType(returnType, method.getDeclaringClass()));
+        return (Function<Object, T>)callSite.getTarget().invoke();
+      }
+      return compileMethodHandle(methodHandle);
+    }
+    catch (Throwable e) {
+      throw new IllegalArgumentException("Unable to create an accessor for " + method, e);
+    }
+  }
+
+  /**
+   * @return {@code true} iff the lambda class generated by {@link LambdaMetafactory} would be able to call the given
+   * method, i.e. it's a public instance method of a public class that can be loaded by the class loader of this class
+   */
+  private static boolean isLambdaCompatible(Method method) {
+    Class<?> declaringClass = method.getDeclaringClass();
+    if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+        || !Modifier.isPublic(declaringClass.getModifiers()))
+      return false;
+    for (Class<?> cls = declaringClass.getEnclosingClass(); cls != null; cls = cls.getEnclosingClass()) {
+      if (!Modifier.isPublic(cls.getModifiers()))
+        return false;
+    }
+    try {
+      return Class.forName(declaringClass.getName(), false, ReflectionAccessorColSpec.class.getClassLoader()) == declaringClass;
+    }
+    catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Creates a function that invokes the given method handle, which must take either no args or a single arg.
+   * The method handle should have been obtained from an accessible {@link java.lang.reflect.Field} or {@link Method}
+   * (e.g. with {@link MethodHandles.Lookup#unreflectGetter} or {@link MethodHandles.Lookup#unreflect}).
+   */
+  @SuppressWarnings("unchecked")
+  protected static <T> Function<Object, T> compileMethodHandle(MethodHandle methodHandle) {
+    if (methodHandle.type().parameterCount() == 0)
+      methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);  // a static field or method
+    MethodHandle genericHandle = methodHandle.asType(GENERIC_ACCESSOR_TYPE);
+    return instance -> {
+      try {
+        return (T)(Object)genericHandle.invokeExact(instance);
+      }
+      catch (RuntimeException | Error e) {
+        throw e;
+      }
+      catch (Throwable e) {
+        throw new UndeclaredThrowableException(e);
+      }
+    };
+  }
+
 }
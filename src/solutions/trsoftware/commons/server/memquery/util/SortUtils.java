@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.util;
+
+import java.util.*;
+
+/**
+ * Sorting algorithms used for evaluating the sort orders of a query.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public abstract class SortUtils {
+
+  /**
+   * Selects the first {@code k} elements (according to the given comparator) produced by the given iterator,
+   * using a bounded heap, which takes {@code O(n*log(k))} time and {@code O(k)} memory (instead of the
+   * {@code O(n*log(n))} time and {@code O(n)} memory required for sorting all the elements).
+   * <p>
+   * Ties are broken by the iteration order, so the result is always the same as the first {@code k} elements
+   * of a stable sort (e.g. {@link List#sort(Comparator)}) of all the elements.
+   *
+   * @return the first {@code k} elements in sorted order (or all the elements, sorted, if there are fewer than {@code k})
+   */
+  public static <T> List<T> topK(Iterator<? extends T> it, Comparator<? super T> comparator, int k) {
+    if (k < 0)
+      throw new IllegalArgumentException("Negative k: " + k);
+    // the order of the entries: by the given comparator, and then by their position in the input
+    Comparator<SequencedEntry<T>> entryComparator = (a, b) -> {
+      int cmp = comparator.compare(a.value, b.value);
+      return cmp != 0 ? cmp : Long.compare(a.seq, b.seq);
+    };
+    // the head of this heap is the "worst" of the best k entries seen so far
+    PriorityQueue<SequencedEntry<T>> heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), entryComparator.reversed());
+    long seq = 0;
+    while (it.hasNext()) {
+      T next = it.next();
+      if (heap.size() < k)
+        heap.add(new SequencedEntry<>(next, seq));
+      else if (k > 0 && comparator.compare(next, heap.peek().value) < 0) {
+        // the new element comes strictly before the worst entry in the heap (it can't win a tie, because it was encountered later)
+        heap.poll();
+        heap.add(new SequencedEntry<>(next, seq));
+      }
+      seq++;
+    }
+    ArrayList<SequencedEntry<T>> entries = new ArrayList<>(heap);
+    entries.sort(entryComparator);
+    ArrayList<T> ret = new ArrayList<>(entries.size());
+    for (SequencedEntry<T> entry : entries) {
+      ret.add(entry.value);
+    }
+    return ret;
+  }
+
+  /**
+   * An element paired with its position in the input sequence.
+   */
+  private static class SequencedEntry<T> {
+    private final T value;
+    private final long seq;
+
+    private SequencedEntry(T value, long seq) {
+      this.value = value;
+      this.seq = seq;
+    }
+  }
+}
@@ -18,7 +18,7 @@ package solutions.trsoftware.commons.server.servlet.filters;
 
 import solutions.trsoftware.commons.server.management.monitoring.RequestStats;
 import solutions.trsoftware.commons.server.stats.HierarchicalCounter;
-import solutions.trsoftware.commons.server.stats.SimpleCounter;
+import solutions.trsoftware.commons.server.stats.StripedCounter;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -44,17 +44,16 @@ import java.io.IOException;
  */
 public class RequestStatsFilter extends HttpFilterAdapter {
 
-  private HierarchicalCounter requestCounts = new HierarchicalCounter(new SimpleCounter("RequestCounts"), null);
+  /**
+   * Every servlet thread updates these counters, so they use {@link StripedCounter striped counters} that are added up
+   * only when {@linkplain HierarchicalCounter#isAggregateOnRead() read}, instead of incrementing the same root counter.
+   */
+  private HierarchicalCounter requestCounts = new HierarchicalCounter(new StripedCounter("RequestCounts"), null, true);
 
   @Override
   public void doHttpFilter(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws IOException, ServletException {
     String name = request.getRequestURI();
-    HierarchicalCounter counter;
-    if (requestCounts.containsChild(name))
-      counter = requestCounts.getChild(name);
-    else
-      counter = new HierarchicalCounter(new SimpleCounter(name), requestCounts); // the HierarchicalCounter constructor will automatically add this child to rootCounter
-    counter.incr();
+    requestCounts.getOrCreateChild(name, StripedCounter::new).incr();
     filterChain.doFilter(request, response);
     // TODO: count the number of errors (i.e. if an exception was thrown from the filter chain)
   }
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import solutions.trsoftware.commons.shared.util.ImmutablePair;
+import solutions.trsoftware.commons.shared.util.JsonBuilder;
+import solutions.trsoftware.commons.shared.util.stats.CollectableStats;
+import solutions.trsoftware.commons.shared.util.stats.HashCounter;
+import solutions.trsoftware.commons.shared.util.stats.HashCounterTable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe alternative to {@link HashCounter}, intended for counting the occurrences of keys
+ * (e.g. word or n-gram frequencies) from many threads at once.
+ * <p>
+ * The counts are stored as {@code long} values in a {@link ConcurrentHashMap} of {@link LongAdder}s, so that
+ * updates never block each other (unlike {@link HashCounter}, which synchronizes every method), and concurrent
+ * increments of the same key (e.g. a very common word) are spread across multiple cells instead of contending on
+ * a single value.  The tradeoff is that {@link #add(Object, long)} can't return the previous count, and that
+ * reading a count (or iterating the entries) while the counter is being updated returns a weakly-consistent result.
+ * <p>
+ * The most frequent keys can be obtained with {@link #topK(int)}, which uses a bounded heap rather than sorting all
+ * the entries.
+ *
+ * @param <K> type of the objects being counted
+ * @author Alex
+ * @since 10/17/2026
+ * @see HashCounter
+ * @see StripedCounter
+ */
+public class ConcurrentHashCounter<K> implements CollectableStats<K, ConcurrentHashCounter<K>> {
+
+  private final ConcurrentHashMap<K, LongAdder> map;
+  private final LongAdder totalSum = new LongAdder();
+
+  public ConcurrentHashCounter() {
+    this(16);
+  }
+
+  /**
+   * @param initialCapacity the expected number of distinct keys
+   */
+  public ConcurrentHashCounter(int initialCapacity) {
+    map = new ConcurrentHashMap<>(initialCapacity);
+  }
+
+  /** Increments the counter for the given key */
+  public void increment(K key) {
+    add(key, 1);
+  }
+
+  /** Adds the given delta to the counter for the given key */
+  public void add(K key, long delta) {
+    LongAdder count = map.get(key);
+    if (count == null)
+      count = map.computeIfAbsent(key, k -> new LongAdder());  // avoids locking the bin if the key is already present
+    count.add(delta);
+    totalSum.add(delta);
+  }
+
+  /** Returns the count for the given key */
+  public long get(K key) {
+    LongAdder count = map.get(key);
+    if (count == null)
+      return 0;
+    return count.sum();
+  }
+
+  /**
+   * @return immutable set of the unique keys
+   */
+  public Set<K> keySet() {
+    return ImmutableSet.copyOf(map.keySet());
+  }
+
+  /**
+   * @return a snapshot of this counter as an immutable map of key-count pairs
+   */
+  public Map<K, Long> asMap() {
+    ImmutableMap.Builder<K, Long> mapBuilder = ImmutableMap.builderWithExpectedSize(map.size());
+    for (Map.Entry<K, LongAdder> entry : map.entrySet()) {
+      mapBuilder.put(entry.getKey(), entry.getValue().sum());
+    }
+    return mapBuilder.build();
+  }
+
+  /**
+   * Finds the {@code n} keys with the highest counts, in O(m log n) time (where m is the number of distinct keys),
+   * by keeping the top entries in a min-heap of size {@code n} instead of sorting all the entries.
+   *
+   * @param n the max number of entries to return
+   * @return the entries with the {@code n} highest counts, sorted by count in descending order
+   * (ties are returned in an unspecified order)
+   */
+  public List<Map.Entry<K, Long>> topK(int n) {
+    if (n < 0)
+      throw new IllegalArgumentException("n must not be negative: " + n);
+    if (n == 0)
+      return Collections.emptyList();
+    Comparator<Map.Entry<K, Long>> valueComparator = Map.Entry.comparingByValue();
+    PriorityQueue<Map.Entry<K, Long>> heap = new PriorityQueue<>(Math.min(n, Math.max(1, map.size())), valueComparator);
+    for (Map.Entry<K, LongAdder> entry : map.entrySet()) {
+      long count = entry.getValue().sum();
+      if (heap.size() < n)
+        heap.add(new ImmutablePair<>(entry.getKey(), count));
+      else if (count > heap.peek().getValue()) {
+        heap.poll();
+        heap.add(new ImmutablePair<>(entry.getKey(), count));
+      }
+    }
+    List<Map.Entry<K, Long>> ret = new ArrayList<>(heap);
+    ret.sort(valueComparator.reversed());
+    return ret;
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public long sumOfAllEntries() {
+    return totalSum.sum();
+  }
+
+  /**
+   * Computes the probability of the given key being selected from a statistical data sample represented by this counter:
+   * <pre>
+   *   P(k) = count(k) / count(*)
+   * </pre>
+   *
+   * @return the probability of the given key being selected from a statistical data sample represented by this counter
+   */
+  public double probabilityOf(K key) {
+    return ((double)get(key)) / sumOfAllEntries();
+  }
+
+  /**
+   * Removes all the keys.  Updates that happen concurrently with this method might not be cleared.
+   */
+  public void clear() {
+    for (K key : map.keySet()) {
+      LongAdder count = map.remove(key);
+      if (count != null)
+        totalSum.add(-count.sum());
+    }
+  }
+
+  @Override
+  public void update(K x) {
+    increment(x);
+  }
+
+  @Override
+  public void merge(ConcurrentHashCounter<K> other) {
+    for (Map.Entry<K, LongAdder> entry : other.map.entrySet()) {
+      add(entry.getKey(), entry.getValue().sum());
+    }
+  }
+
+  /**
+   * Adds the counts from the given {@link HashCounter} (e.g. a row of a {@link HashCounterTable}) to this counter.
+   */
+  public void merge(HashCounter<K> other) {
+    for (Map.Entry<K, Integer> entry : other.asMap().entrySet()) {
+      add(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Adds the counts from this counter to the given row of a {@link HashCounterTable}.  This allows the counts for
+   * each row of a table to be collected concurrently and merged into the table after the fact.
+   *
+   * @param table the table to be updated
+   * @param rowKey the row of the table that will receive the counts in this counter
+   * @throws IllegalArgumentException if any of the counts in this counter, or its sum with the corresponding count in
+   * the table, is too large for a {@link HashCounterTable} (which uses {@code int} counts), in which case the table
+   * will not be modified
+   */
+  public <R> void mergeInto(HashCounterTable<R, K> table, R rowKey) {
+    Map<K, Long> counts = asMap();
+    // the methods of the table are synchronized on its instance, so we hold its lock to check the new counts and update
+    // them atomically
+    synchronized (table) {
+      // check all the new counts before updating the table, to avoid partially merging them
+      Map<K, Integer> deltas = new LinkedHashMap<>();
+      for (Map.Entry<K, Long> entry : counts.entrySet()) {
+        long delta = entry.getValue();
+        Ints.checkedCast(Math.addExact(table.getValue(rowKey, entry.getKey()), delta));
+        deltas.put(entry.getKey(), Ints.checkedCast(delta));
+      }
+      for (Map.Entry<K, Integer> entry : deltas.entrySet()) {
+        table.add(rowKey, entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Creates a new counter from the given row of a {@link HashCounterTable}.
+   *
+   * @return a new counter containing the counts of the given row, which will be empty if the table doesn't
+   * contain that row
+   */
+  public static <R, C> ConcurrentHashCounter<C> fromRow(HashCounterTable<R, C> table, R rowKey) {
+    ConcurrentHashCounter<C> ret = new ConcurrentHashCounter<>();
+    HashCounter<C> row = table.getMap().get(rowKey);
+    if (row != null)
+      ret.merge(row);
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    return JsonBuilder.mapToJson(asMap());
+  }
+
+  @Override
+  public java.util.stream.Collector<K, ?, ConcurrentHashCounter<K>> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link Stream#collect}
+   * to collect the stream elements into an instance of {@link ConcurrentHashCounter}.
+   *
+   * @param <K> the input element type
+   * @see #getInstance()
+   */
+  public static class Collector<K> extends CollectableStats.Collector<K, ConcurrentHashCounter<K>> {
+
+    /**
+     * NOTE: static fields are automatically lazy-init for singletons and safer to use than double-checked locking.
+     * @see <a href="https://en.wikipedia.org/wiki/Initialization-on-demand_holder_idiom">Initialization-on-demand holder idiom</a>
+     */
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @param <K> the input element type
+     * @return the cached instance of this {@link Collector}
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> Collector<K> getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<ConcurrentHashCounter<K>> supplier() {
+      return ConcurrentHashCounter::new;
+    }
+
+    /**
+     * Since {@link ConcurrentHashCounter} is thread-safe, we can include the
+     * {@link java.util.stream.Collector.Characteristics#CONCURRENT CONCURRENT} characteristic.
+     * @see #CH_CONCURRENT_ID
+     */
+    @Override
+    public Set<Characteristics> characteristics() {
+      return CH_CONCURRENT_ID;
+    }
+  }
+}
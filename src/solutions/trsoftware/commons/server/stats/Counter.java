@@ -51,9 +51,17 @@ public abstract class Counter {
   /** @return The value of the counter. */
   public abstract int getCount();
 
+  /**
+   * Subclasses that keep a 64-bit total (e.g. {@link StripedCounter}) should override this method.
+   * @return The value of the counter, as a {@code long}.
+   */
+  public long getLongCount() {
+    return getCount();
+  }
+
   @Override
   public String toString() {
-    return new JsonBuilder().beginObject().key(name).value(getCount()).endObject().toString();
+    return new JsonBuilder().beginObject().key(name).value(getLongCount()).endObject().toString();
   }
 
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import solutions.trsoftware.commons.shared.util.JsonBuilder;
+import solutions.trsoftware.commons.shared.util.stats.SpaceSavingCounter;
+import solutions.trsoftware.commons.shared.util.stats.SpaceSavingCounter.Estimate;
+
+import java.util.List;
+
+/**
+ * A named counter of the most frequent keys (e.g. request URIs, user agents, or IP addresses) in an unbounded stream
+ * of keys, which uses bounded memory.  This is an adapter for {@link SpaceSavingCounter} that's suitable for being
+ * updated by many threads at once (e.g. by every servlet thread, as in
+ * {@link solutions.trsoftware.commons.server.management.monitoring.RequestStats}).
+ * <p>
+ * Similar to {@link StripedCounter}, the keys are counted in several stripes (each thread updates the stripe chosen by
+ * its ID), so that the concurrent updates don't all contend on the same lock; the stripes are
+ * {@linkplain SpaceSavingCounter#merge merged} when the counter is read.  Therefore the guarantees of
+ * {@link SpaceSavingCounter} apply to the result of {@link #snapshot()}: the estimated count of each key
+ * exceeds its true count by at most the {@linkplain SpaceSavingCounter#getMaxError() max error},
+ * which is roughly {@code N / capacity} (where {@code N} is the sum of all the counts).
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class HeavyHittersCounter {
+
+  private final String name;
+  private final int capacity;
+  private final SpaceSavingCounter<String>[] stripes;
+
+  /**
+   * Creates a counter with a number of stripes based on the number of available processors.
+   *
+   * @param capacity the max number of keys monitored by each stripe
+   */
+  public HeavyHittersCounter(String name, int capacity) {
+    this(name, capacity, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+  }
+
+  /**
+   * @param capacity the max number of keys monitored by each stripe
+   * @param nStripes the number of {@link SpaceSavingCounter} instances that will be updated by different threads
+   * (the memory used by this counter is proportional to {@code capacity * nStripes})
+   */
+  @SuppressWarnings("unchecked")
+  public HeavyHittersCounter(String name, int capacity, int nStripes) {
+    if (nStripes < 1)
+      throw new IllegalArgumentException("nStripes must be positive: " + nStripes);
+    this.name = name;
+    this.capacity = capacity;
+    stripes = new SpaceSavingCounter[nStripes];
+    for (int i = 0; i < nStripes; i++) {
+      stripes[i] = new SpaceSavingCounter<>(capacity);
+    }
+  }
+
+  /** @return The name of the counter. */
+  public String getName() {
+    return name;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Increments the counter for the given key */
+  public void incr(String key) {
+    add(key, 1);
+  }
+
+  /**
+   * Adds the given delta to the counter for the given key.
+   * @param delta must be positive
+   */
+  public void add(String key, long delta) {
+    stripes[(int)(Thread.currentThread().getId() % stripes.length)].add(key, delta);
+  }
+
+  /**
+   * @return the sum of all the counts
+   */
+  public long getTotalCount() {
+    long total = 0;
+    for (SpaceSavingCounter<String> stripe : stripes) {
+      total += stripe.sumOfAllEntries();
+    }
+    return total;
+  }
+
+  /**
+   * @return a new {@link SpaceSavingCounter} containing the merged counts from all the stripes, which can be queried
+   * or merged with the counts collected by other servers
+   */
+  public SpaceSavingCounter<String> snapshot() {
+    SpaceSavingCounter<String> ret = new SpaceSavingCounter<>(capacity);
+    for (SpaceSavingCounter<String> stripe : stripes) {
+      ret.merge(stripe);
+    }
+    return ret;
+  }
+
+  /**
+   * @return the estimated counts of the {@code n} most frequent keys, sorted by count in descending order
+   * @see SpaceSavingCounter#topK(int)
+   */
+  public List<Estimate<String>> topK(int n) {
+    return snapshot().topK(n);
+  }
+
+  /**
+   * Adds the counts collected elsewhere (e.g. by another server) to this counter.
+   */
+  public void merge(SpaceSavingCounter<String> other) {
+    stripes[(int)(Thread.currentThread().getId() % stripes.length)].merge(other);
+  }
+
+  @Override
+  public String toString() {
+    JsonBuilder json = new JsonBuilder().beginObject().key(name).beginObject();
+    for (Estimate<String> estimate : topK(capacity)) {
+      json.key(estimate.getKey()).value(estimate.getCount());
+    }
+    return json.endObject().endObject().toString();
+  }
+}
@@ -16,6 +16,7 @@
 
 package solutions.trsoftware.commons.server.stats;
 
+import com.google.common.primitives.Ints;
 import solutions.trsoftware.commons.shared.util.trees.AbstractNode;
 import solutions.trsoftware.commons.shared.util.trees.Node;
 import solutions.trsoftware.commons.shared.util.trees.TraversalStrategy;
@@ -25,12 +26,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 
 import static solutions.trsoftware.commons.shared.util.LogicUtils.firstNonNull;
 
 /**
  * An adapter for a {@link Counter} (i.e. the {@link #delegate}) that allows it to be used in a
  * hierarchy of {@link Counter counters}. All counting ops are delegated to both {@link #delegate} and {@link #parent}.
+ * <p>
+ * Alternatively, a hierarchy can be created in the {@linkplain #isAggregateOnRead() aggregate-on-read mode}, where
+ * the counting ops are delegated only to {@link #delegate}, and the count of each node is computed when it's read,
+ * by adding up the counts of its descendants.  This mode is better suited for hierarchies that are updated much more
+ * frequently than they're read, because the concurrent updates of different nodes won't contend with each other
+ * on the counters of their ancestors (especially when combined with a {@link StripedCounter} delegate).
  *
  * @since Mar 23, 2011
  * @author Alex
@@ -53,10 +61,33 @@ public class HierarchicalCounter extends Counter implements Node<Counter> {
    */
   private final SortedMap<String, HierarchicalCounter> children = new ConcurrentSkipListMap<>();
 
+  /**
+   * If {@code true}, the counting ops are not propagated to {@link #parent}, and the count of this node
+   * is computed by adding up the counts of its descendants when it's read.
+   */
+  private final boolean aggregateOnRead;
+
+  /**
+   * Creates a counter in the same mode as the given parent (or the default mode, which propagates every counting op
+   * to the parent, if this counter is the root of the hierarchy).
+   */
   public HierarchicalCounter(Counter delegate, HierarchicalCounter parent) {
+    this(delegate, parent, parent != null && parent.aggregateOnRead);
+  }
+
+  /**
+   * @param aggregateOnRead if {@code true}, the counting ops will not be propagated to the parent, and the count will
+   * be computed by adding up the counts of the descendants when it's read (every node in a hierarchy must use the
+   * same mode).
+   * @throws IllegalArgumentException if {@code aggregateOnRead} doesn't match the mode of the parent
+   */
+  public HierarchicalCounter(Counter delegate, HierarchicalCounter parent, boolean aggregateOnRead) {
     super(delegate.getName());
+    if (parent != null && parent.aggregateOnRead != aggregateOnRead)
+      throw new IllegalArgumentException("The aggregateOnRead mode must be the same as the parent's");
     this.delegate = delegate;
     this.parent = parent;
+    this.aggregateOnRead = aggregateOnRead;
     if (parent != null) {
       parent.children.put(name, this);
     }
@@ -64,14 +95,34 @@ public class HierarchicalCounter extends Counter implements Node<Counter> {
 
   public void add(int delta) {
     delegate.add(delta);
-    if (parent != null)
+    if (parent != null && !aggregateOnRead)
       parent.add(delta);
   }
 
   public int getCount() {
+    if (aggregateOnRead)
+      return Ints.saturatedCast(getLongCount());
     return delegate.getCount();
   }
 
+  @Override
+  public long getLongCount() {
+    long count = delegate.getLongCount();
+    if (aggregateOnRead) {
+      for (HierarchicalCounter child : children.values())
+        count += child.getLongCount();
+    }
+    return count;
+  }
+
+  /**
+   * @return {@code true} iff the counts of this hierarchy are computed when they're read, rather than propagated
+   * to the ancestors on every counting op.
+   */
+  public boolean isAggregateOnRead() {
+    return aggregateOnRead;
+  }
+
 
   /**
    * @return the number of nested {@link HierarchicalCounter counters}
@@ -94,6 +145,24 @@ public class HierarchicalCounter extends Counter implements Node<Counter> {
   public HierarchicalCounter getChild(String name) {
     return children.get(name);
   }
+
+  /**
+   * @return the nested {@link HierarchicalCounter counter} with the given name, which will be created (in the same
+   * mode as this counter) if it doesn't exist yet.  Unlike calling {@link #containsChild(String)} and then the
+   * constructor, this method is safe to call from multiple threads: it will never replace an existing child
+   * (which would lose its count).
+   */
+  public HierarchicalCounter getOrCreateChild(String name, Function<String, ? extends Counter> delegateFactory) {
+    HierarchicalCounter child = children.get(name);
+    if (child == null) {
+      synchronized (children) {
+        child = children.get(name);
+        if (child == null)
+          child = new HierarchicalCounter(delegateFactory.apply(name), this);
+      }
+    }
+    return child;
+  }
 //
 //  public void accept(Visitor visitor) {
 //    visitor.visit(this);
@@ -118,6 +187,10 @@ public class HierarchicalCounter extends Counter implements Node<Counter> {
     return children.isEmpty();
   }
 
+  /**
+   * @return the delegate counter; in the {@linkplain #isAggregateOnRead() aggregate-on-read mode}, its count
+   * doesn't include the counts of the descendants.
+   */
   @Override
   public Counter getData() {
     return delegate;
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import solutions.trsoftware.commons.server.util.Clock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for events occurring in a moving time window (e.g. past hour), like {@link TimeWindowCounter}, but
+ * backed by a fixed circular array of buckets, each of which holds the count for one {@code granularityMillis}
+ * interval of time: the bucket for time {@code t} is at index {@code (t / granularityMillis) % length}.
+ * <p>
+ * Updates are lock-free (a single CAS in the common case) and don't allocate any objects, which makes this class
+ * suitable for counters that are updated on every request.  Reads are O(T/g), where T is the time window and
+ * g is the granularity.
+ * <p>
+ * A bucket is reused when the time wraps around to the same index, so it stores the "lap" of the time interval
+ * it represents (truncated to 32 bits) along with its count.  In theory, a bucket that wasn't updated for
+ * 2<sup>32</sup> laps of the array (i.e. 2<sup>32</sup> time windows) could be mistaken for a current one.
+ * <p>
+ * Uses O(T/g) memory (8 bytes per bucket) regardless of the number of updates, so the granularity should be chosen
+ * accordingly (the default granularity of 1 millisecond is only suitable for short time windows).
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class SlidingWindowCounter extends Counter {
+  private final long maxAgeMillis;
+  private final long granularityMillis;
+  /**
+   * Each element packs the lap of the bucket (the index of the time interval divided by the length of the array,
+   * truncated to 32 bits) in its high 32 bits, and the count in its low 32 bits.
+   */
+  private final AtomicLongArray buckets;
+  private final int length;
+
+  /**
+   * @param maxAgeMillis The value of the counter, retrieved using the get method
+   * will be representative of the calls to increment and add over the most recent
+   * time window of this size.
+   */
+  public SlidingWindowCounter(long maxAgeMillis) {
+    this(null, maxAgeMillis);
+  }
+
+  /**
+   * @param name Just to facilitate pretty printing, external reporting, and debugging.
+   * @param maxAgeMillis The value of the counter, retrieved using the get method
+   * will be representative of the calls to increment and add over the most recent
+   * time window of this size.
+   */
+  public SlidingWindowCounter(String name, long maxAgeMillis) {
+    this(name, maxAgeMillis, 1);
+  }
+
+  /**
+   * @param name Just to facilitate pretty printing, external reporting, and debugging.
+   * @param maxAgeMillis The value of the counter, retrieved using the get method
+   * will be representative of the calls to increment and add over the most recent
+   * time window of this size.
+   * @param granularityMillis The time window will be measure in blocks of this size.
+   * This value should be smaller than maxAgeMillis and maxAgeMillis should be
+   * divisible by this value.  The tradeoff is: higher granularity => less memory
+   * consumption; lower granularity => better time window accuracy.
+   */
+  public SlidingWindowCounter(String name, long maxAgeMillis, long granularityMillis) {
+    super(name);
+    this.maxAgeMillis = maxAgeMillis;
+    if (granularityMillis < 1 || granularityMillis >= maxAgeMillis || maxAgeMillis % granularityMillis != 0) {
+      throw new IllegalArgumentException("granularityMillis must be in the range [1, maxAgeMillis) and must evenly divide maxAgeMillis.");
+    }
+    this.granularityMillis = granularityMillis;
+    // a bucket remains in the window for maxAgeMillis after the start of its interval, so the window can overlap
+    // maxAgeMillis / granularityMillis + 1 buckets
+    long length = maxAgeMillis / granularityMillis + 1;
+    if (length > Integer.MAX_VALUE - 8)
+      throw new IllegalArgumentException("maxAgeMillis / granularityMillis is too large");
+    this.length = (int)length;
+    buckets = new AtomicLongArray(this.length);
+    // initialize the buckets with a lap that's already expired
+    long stale = pack((int)(currentTick() / length) - 2, 0);
+    for (int i = 0; i < length; i++)
+      buckets.set(i, stale);
+  }
+
+  /** Adds the given value to the counter */
+  @Override
+  public void add(int delta) {
+    long tick = currentTick();
+    int i = (int)(tick % length);
+    int lap = (int)(tick / length);
+    while (true) {
+      long bucket = buckets.get(i);
+      long newBucket = lapOf(bucket) == lap ? pack(lap, countOf(bucket) + delta) : pack(lap, delta);
+      if (buckets.compareAndSet(i, bucket, newBucket))
+        return;
+    }
+  }
+
+  /** @return The value of the counter. */
+  @Override
+  public int getCount() {
+    int sum = 0;
+    long now = Clock.currentTimeMillis();
+    for (long tick = firstTick(now), lastTick = now / granularityMillis; tick <= lastTick; tick++) {
+      long bucket = buckets.get((int)(tick % length));
+      if (lapOf(bucket) == (int)(tick / length))
+        sum += countOf(bucket);
+    }
+    return sum;
+  }
+
+  /**
+   * Exposed for unit testing.
+   * @return number of buckets in the current time window that have been updated.
+   */
+  int size() {
+    int size = 0;
+    long now = Clock.currentTimeMillis();
+    for (long tick = firstTick(now), lastTick = now / granularityMillis; tick <= lastTick; tick++) {
+      if (lapOf(buckets.get((int)(tick % length))) == (int)(tick / length))
+        size++;
+    }
+    return size;
+  }
+
+  /**
+   * @return the earliest interval whose bucket is still in the time window (i.e. that started no more than
+   * {@link #maxAgeMillis} ago)
+   */
+  private long firstTick(long now) {
+    return -Math.floorDiv(maxAgeMillis - now, granularityMillis);  // ceil((now - maxAgeMillis) / granularityMillis)
+  }
+
+  private long currentTick() {
+    return Clock.currentTimeMillis() / granularityMillis;
+  }
+
+  private static long pack(int lap, int count) {
+    return ((long)lap << 32) | (count & 0xFFFFFFFFL);
+  }
+
+  private static int lapOf(long bucket) {
+    return (int)(bucket >>> 32);
+  }
+
+  private static int countOf(long bucket) {
+    return (int)bucket;
+  }
+
+  public long getMaxAgeMillis() {
+    return maxAgeMillis;
+  }
+
+  public long getGranularityMillis() {
+    return granularityMillis;
+  }
+}
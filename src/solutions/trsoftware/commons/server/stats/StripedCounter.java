@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import com.google.common.primitives.Ints;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Uses a {@link LongAdder} to implement {@link Counter}: the count is spread over a set of cells that are
+ * allocated as needed when concurrent updates contend with each other, so that the threads incrementing the counter
+ * don't keep competing for the same cache line (as they would with the single {@link java.util.concurrent.atomic.AtomicInteger}
+ * of {@link SimpleCounter}).  The tradeoff is that reading the count has to sum all the cells, and therefore
+ * this class is better suited for counters that are updated much more frequently than they're read
+ * (e.g. request counts).
+ * <p>
+ * The total is kept as a {@code long} (see {@link #getLongCount()}); {@link #getCount()} saturates at
+ * {@link Integer#MAX_VALUE} / {@link Integer#MIN_VALUE}.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class StripedCounter extends Counter {
+
+  private final LongAdder count = new LongAdder();
+
+  public StripedCounter(String name) {
+    super(name);
+  }
+
+  @Override
+  public void add(int delta) {
+    count.add(delta);
+  }
+
+  @Override
+  public int getCount() {
+    return Ints.saturatedCast(count.sum());
+  }
+
+  @Override
+  public long getLongCount() {
+    return count.sum();
+  }
+}
@@ -16,11 +16,10 @@
 
 package solutions.trsoftware.commons.server.stats;
 
-import solutions.trsoftware.commons.server.cache.FixedTimeCache;
+import solutions.trsoftware.commons.server.cache.ConcurrentFixedTimeCache;
 import solutions.trsoftware.commons.server.util.Clock;
-import solutions.trsoftware.commons.shared.util.MapUtils;
-import solutions.trsoftware.commons.shared.util.callables.Function0;
-import solutions.trsoftware.commons.shared.util.mutable.MutableInteger;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A counter that keeps its entries for a limited amount of time.
@@ -31,23 +30,21 @@ import solutions.trsoftware.commons.shared.util.mutable.MutableInteger;
  * (by default a separate count is stored for every millisecond).
  *
  * Uses O(T/g) memory, where T is the time window and g is the granularity.
- * Updates are O(m), where m is the number of updates performed in the prior (expiring) window.
- * Reads are O(n), where n is the number of updates performed in the recent time window.
- * 
+ * Updates are amortized O(1): an update increments the count for the current block of time, and the expired blocks
+ * are removed by the timer wheel of the underlying {@link ConcurrentFixedTimeCache} (in O(1) time per block).
+ * Reads are O(T/g), since they sum the counts of all the blocks in the time window.
+ * Since the counts are stored in a {@link ConcurrentFixedTimeCache}, neither updates nor reads are serialized by a lock.
+ * <p>
+ * For a counter that's updated frequently, {@link SlidingWindowCounter} is more efficient: its updates don't
+ * allocate any objects, at the cost of using a fixed amount of memory for every bucket in the time window.
  *
  * @author Alex
  */
 public class TimeWindowCounter extends Counter {
-  private final FixedTimeCache<Long,MutableInteger> map;
+  private final ConcurrentFixedTimeCache<Long, AtomicInteger> map;
   private final long maxAgeMillis;
   private final long granularityMillis;
 
-  private final Function0<MutableInteger> newValueFactory = new Function0<MutableInteger>() {
-    public MutableInteger call() {
-      return new MutableInteger(0);
-    }
-  };
-
   /**
    * @param maxAgeMillis The value of the counter, retrieved using the get method
    * will be representative of the calls to increment and add over the most recent
@@ -84,19 +81,13 @@ public class TimeWindowCounter extends Counter {
       throw new IllegalArgumentException("granularityMillis must be in the range [1, maxAgeMillis) and must evenly divide maxAgeMillis.");
     }
     this.granularityMillis = granularityMillis;
-    map = new FixedTimeCache<Long, MutableInteger>(maxAgeMillis);
+    map = new ConcurrentFixedTimeCache<>(maxAgeMillis);
   }
 
   /** Adds the given value to the counter */
   public void add(int delta) {
     Long key = Clock.currentTimeMillis() / granularityMillis;
-    MutableInteger value;
-    synchronized (map) {
-      value = MapUtils.getOrInsert(map, key, newValueFactory);
-    }
-    synchronized (value) {
-      value.getAndAdd(delta);
-    }
+    map.computeIfAbsent(key, k -> new AtomicInteger()).addAndGet(delta);
   }
 
   /** @return The value of the counter. */
@@ -105,13 +96,11 @@ public class TimeWindowCounter extends Counter {
   }
 
   private int sumOfAllEntries() {
-    synchronized (map) {
-      int sum = 0;
-      for (Long time : map.keySet()) {
-        sum += map.get(time).get();
-      }
-      return sum;
+    int sum = 0;
+    for (AtomicInteger value : map.values()) {
+      sum += value.get();
     }
+    return sum;
   }
 
   /**
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.text.markovchain;
+
+import solutions.trsoftware.commons.server.io.ServerIOUtils;
+import solutions.trsoftware.commons.shared.text.markovchain.MarkovChain;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * An immutable, read-optimized form of a trained {@link MarkovChain}, for generating random text on demand.
+ * <p>
+ * Whereas the training-time structures of {@link MarkovChain} consist of many small objects (a map of states, each with
+ * a transition table that becomes a map of boxed counts), this class stores the entire chain in a single
+ * {@link ByteBuffer}, laid out as a few primitive arrays:
+ * <ul>
+ *   <li>the states, in CSR (compressed sparse row) form: for state {@code i}, its context (i.e. the codes of its words)
+ *   is {@code stateTokens[stateOffsets[i]..stateOffsets[i+1]]}, and its transitions are
+ *   {@code [edgeOffsets[i], edgeOffsets[i+1])};</li>
+ *   <li>an open-addressing hash table mapping a context to its state index;</li>
+ *   <li>for each transition: the code of the next word, the cumulative weight of the state's transitions up to and
+ *   including this one, and an entry of the state's alias table (Vose's alias method), which allows choosing a
+ *   transition in O(1) time regardless of the number of transitions;</li>
+ *   <li>the vocabulary, as UTF-8 bytes.</li>
+ * </ul>
+ * This representation can be written to a compact binary file ({@link #writeTo(OutputStream)}), which can later
+ * be either read into memory ({@link #readFrom(InputStream)}) or memory-mapped ({@link #map(File)}), in which case
+ * only the vocabulary is loaded onto the heap.
+ * <p>
+ * Instances are thread-safe, since they're immutable and each call to {@link #generateRandomText(int, Random)}
+ * takes its own {@link Random}.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class FrozenMarkovChain {
+
+  /** The first 4 bytes of the binary format (the ASCII string {@code "FMKC"}) */
+  private static final int MAGIC = 0x464D4B43;
+  private static final int VERSION = 1;
+  /** The number of {@code int} fields at the start of the binary format */
+  private static final int HEADER_INTS = 12;
+
+  private final ByteBuffer buffer;
+
+  private final int order;
+  private final int startState;
+  private final String delimiter;
+  private final String[] vocabulary;
+
+  private final IntBuffer stateOffsets;
+  private final IntBuffer stateTokens;
+  /** Open-addressing hash table containing state indices (or {@code -1} for an empty slot) */
+  private final IntBuffer stateTable;
+  private final int stateTableMask;
+  private final IntBuffer edgeOffsets;
+  private final IntBuffer edgeTokens;
+  private final IntBuffer edgeCumulativeWeights;
+  private final FloatBuffer aliasProbabilities;
+  /** The alias of each column of a state's alias table (as an index relative to the state's first transition) */
+  private final IntBuffer aliasIndices;
+
+  /**
+   * Parses the binary representation of a chain.
+   * @throws IOException if the buffer doesn't contain a valid chain
+   */
+  private FrozenMarkovChain(ByteBuffer buffer) throws IOException {
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC)
+      throw new IOException("Not a frozen Markov chain");
+    if (buffer.getInt(4) != VERSION)
+      throw new IOException("Unsupported frozen Markov chain version: " + buffer.getInt(4));
+    order = buffer.getInt(8);
+    int nTokens = buffer.getInt(12);
+    int nStates = buffer.getInt(16);
+    int nStateTokens = buffer.getInt(20);
+    int nEdges = buffer.getInt(24);
+    startState = buffer.getInt(28);
+    int stateTableSize = buffer.getInt(32);
+    int delimiterLength = buffer.getInt(36);
+    int vocabularyLength = buffer.getInt(40);
+    stateTableMask = stateTableSize - 1;
+    int pos = HEADER_INTS * 4;
+    long expectedLength = pos + 4L * ((nStates + 1) * 2L + nStateTokens + stateTableSize + nEdges * 4L + nTokens + 1)
+        + delimiterLength + vocabularyLength;
+    if (buffer.capacity() != expectedLength)
+      throw new IOException("Frozen Markov chain is corrupted (expected " + expectedLength + " bytes, but got " + buffer.capacity() + ")");
+    stateOffsets = intView(buffer, pos, nStates + 1);
+    stateTokens = intView(buffer, pos += 4 * (nStates + 1), nStateTokens);
+    stateTable = intView(buffer, pos += 4 * nStateTokens, stateTableSize);
+    edgeOffsets = intView(buffer, pos += 4 * stateTableSize, nStates + 1);
+    edgeTokens = intView(buffer, pos += 4 * (nStates + 1), nEdges);
+    edgeCumulativeWeights = intView(buffer, pos += 4 * nEdges, nEdges);
+    aliasProbabilities = slice(buffer, pos += 4 * nEdges, 4 * nEdges).asFloatBuffer();
+    aliasIndices = intView(buffer, pos += 4 * nEdges, nEdges);
+    IntBuffer vocabularyOffsets = intView(buffer, pos += 4 * nEdges, nTokens + 1);
+    pos += 4 * (nTokens + 1);
+    delimiter = decodeUtf8(buffer, pos, delimiterLength);
+    pos += delimiterLength;
+    vocabulary = new String[nTokens];
+    for (int i = 0; i < nTokens; i++) {
+      int start = vocabularyOffsets.get(i);
+      vocabulary[i] = decodeUtf8(buffer, pos + start, vocabularyOffsets.get(i + 1) - start);
+    }
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer dup = buffer.duplicate();
+    dup.limit(offset + length).position(offset);
+    return dup.slice().order(ByteOrder.BIG_ENDIAN);
+  }
+
+  private static IntBuffer intView(ByteBuffer buffer, int offset, int count) {
+    return slice(buffer, offset, 4 * count).asIntBuffer();
+  }
+
+  private static String decodeUtf8(ByteBuffer buffer, int offset, int length) {
+    byte[] bytes = new byte[length];
+    slice(buffer, offset, length).get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Creates a frozen copy of the given chain.  The chain can continue to be trained afterwards, but the changes won't
+   * be reflected in the frozen copy.
+   */
+  public static FrozenMarkovChain freeze(MarkovChain chain) {
+    Builder builder = new Builder();
+    chain.visitTransitions(builder);
+    try {
+      return new FrozenMarkovChain(builder.build(chain.getOrder(), chain.getTokenizer().getDelimiter()));
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);  // should never happen (this would indicate a bug in Builder)
+    }
+  }
+
+  /**
+   * Reads a chain previously written with {@link #writeTo(OutputStream)} into memory.
+   * @throws IOException if the input doesn't contain a valid chain
+   */
+  public static FrozenMarkovChain readFrom(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ServerIOUtils.copyInputToOutput(in, out);
+    return new FrozenMarkovChain(ByteBuffer.wrap(out.toByteArray()));
+  }
+
+  /**
+   * Memory-maps a file previously written with {@link #writeTo(File)}.  Only the vocabulary will be loaded onto
+   * the heap; the rest of the chain will be accessed directly from the OS page cache, so the same file can be shared
+   * by multiple processes.
+   * <p>
+   * <b>NOTE</b>: the file must not be modified while it's mapped, and it can't be larger than 2 GB.
+   * @throws IOException if the file doesn't contain a valid chain
+   */
+  public static FrozenMarkovChain map(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      FileChannel channel = raf.getChannel();
+      return new FrozenMarkovChain(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Writes the binary representation of this chain, which can be loaded with {@link #readFrom(InputStream)}
+   * or {@link #map(File)}.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    if (buffer.hasArray())
+      out.write(buffer.array(), buffer.arrayOffset(), buffer.capacity());
+    else {
+      ByteBuffer dup = buffer.duplicate();
+      dup.clear();
+      byte[] chunk = new byte[(int)Math.min(dup.capacity(), 1 << 16)];
+      while (dup.hasRemaining()) {
+        int n = Math.min(chunk.length, dup.remaining());
+        dup.get(chunk, 0, n);
+        out.write(chunk, 0, n);
+      }
+    }
+  }
+
+  /**
+   * Writes the binary representation of this chain to the given file, which can be loaded with {@link #map(File)}.
+   */
+  public void writeTo(File file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      writeTo(out);
+    }
+  }
+
+  /**
+   * Generates random text using the same algorithm as {@link MarkovChain#generateRandomText(int)}: the next word
+   * is chosen according to the transition weights of the state matching the last {@link #getOrder() order} generated
+   * words, dropping the earliest of those words (as many as needed) if there's no such state.
+   *
+   * @param maxLength the text will be extended one word at a time until its length reaches this value
+   * @param rnd the source of randomness
+   * @return the generated text
+   */
+  public String generateRandomText(int maxLength, Random rnd) {
+    StringBuilder text = new StringBuilder(maxLength + 16);
+    int[] history = new int[order];  // the last (up to) order words
+    int historyLength = 0;
+    int wordCount = 0;
+    while (text.length() < maxLength) {
+      int token = chooseTransition(findState(history, historyLength), rnd);
+      if (wordCount++ > 0)
+        text.append(delimiter);
+      text.append(vocabulary[token]);
+      if (order > 0) {
+        if (historyLength == order)
+          System.arraycopy(history, 1, history, 0, --historyLength);
+        history[historyLength++] = token;
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * @return the state matching the longest suffix of the given context, or the starting state if there's no match
+   */
+  private int findState(int[] context, int length) {
+    for (int start = 0; start < length; start++) {
+      int state = lookupState(context, start, length - start);
+      if (state >= 0)
+        return state;
+    }
+    return startState;
+  }
+
+  /**
+   * @return the index of the state with the given context, or {@code -1} if there's no such state
+   */
+  private int lookupState(int[] context, int start, int length) {
+    for (int slot = hash(context, start, length) & stateTableMask; ; slot = (slot + 1) & stateTableMask) {
+      int state = stateTable.get(slot);
+      if (state < 0 || contextEquals(state, context, start, length))
+        return state;
+    }
+  }
+
+  private boolean contextEquals(int state, int[] context, int start, int length) {
+    int offset = stateOffsets.get(state);
+    if (stateOffsets.get(state + 1) - offset != length)
+      return false;
+    for (int i = 0; i < length; i++) {
+      if (stateTokens.get(offset + i) != context[start + i])
+        return false;
+    }
+    return true;
+  }
+
+  private static int hash(int[] context, int start, int length) {
+    int h = length;
+    for (int i = start; i < start + length; i++) {
+      h = 31 * h + context[i];
+    }
+    h *= 0x9E3779B9;  // spread the bits (Fibonacci hashing)
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Chooses a transition using the state's alias table.
+   * @return the code of the next word
+   */
+  private int chooseTransition(int state, Random rnd) {
+    int first = edgeOffsets.get(state);
+    int n = edgeOffsets.get(state + 1) - first;
+    if (n == 1)
+      return edgeTokens.get(first);
+    double u = rnd.nextDouble() * n;
+    int column = Math.min((int)u, n - 1);
+    int edge = (u - column < aliasProbabilities.get(first + column))
+        ? first + column
+        : first + aliasIndices.get(first + column);
+    return edgeTokens.get(edge);
+  }
+
+  public int getOrder() {
+    return order;
+  }
+
+  public String getDelimiter() {
+    return delimiter;
+  }
+
+  public int countStates() {
+    return edgeOffsets.limit() - 1;
+  }
+
+  public int countTransitions() {
+    return edgeTokens.limit();
+  }
+
+  /** @return the number of distinct words */
+  public int getVocabularySize() {
+    return vocabulary.length;
+  }
+
+  /** @return the size of the binary representation of this chain */
+  public int sizeInBytes() {
+    return buffer.capacity();
+  }
+
+  /**
+   * @param words the words that make up the desired state (no words for the starting state)
+   * @return the index of the state with the given words, or {@code -1} if there's no such state
+   */
+  public int findState(String... words) {
+    if (words.length == 0)
+      return startState;
+    int[] context = new int[words.length];
+    for (int i = 0; i < words.length; i++) {
+      context[i] = Arrays.asList(vocabulary).indexOf(words[i]);
+      if (context[i] < 0)
+        return -1;
+    }
+    return lookupState(context, 0, context.length);
+  }
+
+  /**
+   * @param state a state index (e.g. returned by {@link #findState(String...)})
+   * @return the possible next words from the given state, with their weights (i.e. the number of times
+   * each word followed this state in the training data)
+   */
+  public Map<String, Integer> getTransitions(int state) {
+    Map<String, Integer> ret = new LinkedHashMap<String, Integer>();
+    int prevCumulativeWeight = 0;
+    for (int e = edgeOffsets.get(state); e < edgeOffsets.get(state + 1); e++) {
+      int cumulativeWeight = edgeCumulativeWeights.get(e);
+      ret.put(vocabulary[edgeTokens.get(e)], cumulativeWeight - prevCumulativeWeight);
+      prevCumulativeWeight = cumulativeWeight;
+    }
+    return ret;
+  }
+
+  /**
+   * Collects the transitions of a {@link MarkovChain} and lays them out in the binary format.
+   */
+  private static class Builder implements MarkovChain.TransitionVisitor {
+    private final Map<String, Integer> tokenCodes = new LinkedHashMap<String, Integer>();
+    private final Map<List<String>, Integer> stateIndices = new LinkedHashMap<List<String>, Integer>();
+    /** The transitions of each state, as (token code, count) pairs */
+    private final List<List<int[]>> transitions = new ArrayList<List<int[]>>();
+    private int nEdges;
+
+    @Override
+    public void visit(String[] stateWords, String nextWord, int count) {
+      List<String> key = Arrays.asList(stateWords);
+      Integer state = stateIndices.get(key);
+      if (state == null) {
+        stateIndices.put(key, state = stateIndices.size());
+        transitions.add(new ArrayList<int[]>());
+        for (String word : stateWords)
+          encode(word);
+      }
+      transitions.get(state).add(new int[]{encode(nextWord), count});
+      nEdges++;
+    }
+
+    private int encode(String word) {
+      Integer code = tokenCodes.get(word);
+      if (code == null)
+        tokenCodes.put(word, code = tokenCodes.size());
+      return code;
+    }
+
+    private ByteBuffer build(int order, String delimiter) {
+      Integer startState = stateIndices.get(Collections.<String>emptyList());
+      if (startState == null)
+        throw new IllegalStateException("The chain hasn't been trained");
+      int nStates = stateIndices.size();
+      int nStateTokens = 0;
+      for (List<String> words : stateIndices.keySet())
+        nStateTokens += words.size();
+      int stateTableSize = Integer.highestOneBit(Math.max(2, nStates * 2 - 1)) << 1;  // load factor <= 0.5
+      byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+      List<byte[]> wordBytes = new ArrayList<byte[]>(tokenCodes.size());
+      int vocabularyLength = 0;
+      for (String word : tokenCodes.keySet()) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        wordBytes.add(bytes);
+        vocabularyLength += bytes.length;
+      }
+      int nTokens = tokenCodes.size();
+      long length = HEADER_INTS * 4 + 4L * ((nStates + 1) * 2L + nStateTokens + stateTableSize + nEdges * 4L + nTokens + 1)
+          + delimiterBytes.length + vocabularyLength;
+      if (length > Integer.MAX_VALUE)
+        throw new IllegalStateException("The chain is too large to freeze (" + length + " bytes)");
+      ByteBuffer buf = ByteBuffer.allocate((int)length).order(ByteOrder.BIG_ENDIAN);
+      // 1) header
+      buf.putInt(MAGIC).putInt(VERSION).putInt(order).putInt(nTokens).putInt(nStates).putInt(nStateTokens).putInt(nEdges)
+          .putInt(startState).putInt(stateTableSize).putInt(delimiterBytes.length).putInt(vocabularyLength);
+      buf.putInt(0);  // reserved
+      // 2) state contexts
+      int[][] contexts = new int[nStates][];
+      int offset = 0;
+      for (List<String> words : stateIndices.keySet()) {
+        buf.putInt(offset);
+        offset += words.size();
+      }
+      buf.putInt(offset);
+      int s = 0;
+      for (List<String> words : stateIndices.keySet()) {
+        int[] context = contexts[s++] = new int[words.size()];
+        for (int i = 0; i < context.length; i++) {
+          buf.putInt(context[i] = tokenCodes.get(words.get(i)));
+        }
+      }
+      // 3) hash table of the state contexts (excluding the starting state, which is never looked up by context)
+      int[] table = new int[stateTableSize];
+      Arrays.fill(table, -1);
+      for (s = 0; s < nStates; s++) {
+        if (s == startState)
+          continue;
+        int slot = hash(contexts[s], 0, contexts[s].length) & (stateTableSize - 1);
+        while (table[slot] >= 0)
+          slot = (slot + 1) & (stateTableSize - 1);
+        table[slot] = s;
+      }
+      for (int state : table)
+        buf.putInt(state);
+      // 4) transitions
+      offset = 0;
+      for (List<int[]> stateTransitions : transitions) {
+        buf.putInt(offset);
+        offset += stateTransitions.size();
+      }
+      buf.putInt(offset);
+      for (List<int[]> stateTransitions : transitions)
+        for (int[] transition : stateTransitions)
+          buf.putInt(transition[0]);
+      for (List<int[]> stateTransitions : transitions) {
+        int cumulativeWeight = 0;
+        for (int[] transition : stateTransitions)
+          buf.putInt(cumulativeWeight += transition[1]);
+      }
+      List<int[]> aliases = new ArrayList<int[]>(transitions.size());
+      for (List<int[]> stateTransitions : transitions) {
+        float[] probabilities = new float[stateTransitions.size()];
+        aliases.add(buildAliasTable(stateTransitions, probabilities));
+        for (float p : probabilities)
+          buf.putFloat(p);
+      }
+      for (int[] alias : aliases)
+        for (int a : alias)
+          buf.putInt(a);
+      // 5) vocabulary
+      offset = 0;
+      for (byte[] bytes : wordBytes) {
+        buf.putInt(offset);
+        offset += bytes.length;
+      }
+      buf.putInt(offset);
+      buf.put(delimiterBytes);
+      for (byte[] bytes : wordBytes)
+        buf.put(bytes);
+      assert !buf.hasRemaining();
+      buf.clear();
+      return buf;
+    }
+
+    /**
+     * Builds the alias table for the given weights using Vose's algorithm.
+     *
+     * @param transitions the (token code, weight) pairs
+     * @param probabilities will receive the probability of choosing each column itself rather than its alias
+     * @return the alias of each column
+     * @see <a href="https://www.keithschwarz.com/darts-dice-coins/">Darts, Dice, and Coins: Sampling from a Discrete Distribution</a>
+     */
+    private static int[] buildAliasTable(List<int[]> transitions, float[] probabilities) {
+      int n = transitions.size();
+      long totalWeight = 0;
+      for (int[] transition : transitions)
+        totalWeight += transition[1];
+      double[] scaled = new double[n];
+      int[] alias = new int[n];
+      int[] small = new int[n], large = new int[n];
+      int nSmall = 0, nLarge = 0;
+      for (int i = 0; i < n; i++) {
+        scaled[i] = (double)transitions.get(i)[1] * n / totalWeight;
+        if (scaled[i] < 1)
+          small[nSmall++] = i;
+        else
+          large[nLarge++] = i;
+      }
+      while (nSmall > 0 && nLarge > 0) {
+        int s = small[--nSmall];
+        int l = large[--nLarge];
+        probabilities[s] = (float)scaled[s];
+        alias[s] = l;
+        scaled[l] = (scaled[l] + scaled[s]) - 1;
+        if (scaled[l] < 1)
+          small[nSmall++] = l;
+        else
+          large[nLarge++] = l;
+      }
+      // the remaining columns should have probability 1 (modulo rounding errors)
+      while (nLarge > 0) {
+        int l = large[--nLarge];
+        probabilities[l] = 1;
+        alias[l] = l;
+      }
+      while (nSmall > 0) {
+        int s = small[--nSmall];
+        probabilities[s] = 1;
+        alias[s] = s;
+      }
+      return alias;
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.text.markovchain;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import solutions.trsoftware.commons.shared.text.markovchain.MarkovChain;
+import solutions.trsoftware.commons.shared.text.markovchain.dict.CodingDictionary;
+import solutions.trsoftware.commons.shared.text.markovchain.dict.ShortHashArrayCodingDictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Trains a {@link MarkovChain} on a large corpus using multiple threads.
+ * <p>
+ * The corpus is streamed from a {@link Reader} and split into batches of lines, which are handed off to the worker
+ * threads through a bounded queue.  Each worker thread trains its own long-lived partial chain (with its own
+ * {@link CodingDictionary}) on all the batches that it takes from the queue, except for the first worker, which
+ * trains the target chain directly.  After the whole corpus has been read, the partial chains are
+ * {@link MarkovChain#merge(MarkovChain) merged} in parallel pairs, until only the target chain remains.
+ * Therefore, the amount of merging depends on the number of threads, not on the size of the corpus.
+ * <p>
+ * The result has the same states and transition counts as calling {@link MarkovChain#train(String)} for every line of
+ * the corpus, but (when using more than one thread) its states and transitions might be listed in a different order,
+ * since the order in which the batches are processed by the worker threads is not deterministic.
+ * <p>
+ * Only a bounded number of batches (proportional to the number of threads) are in memory at any given time, so the
+ * corpus can be much larger than the available heap space (as long as the trained chains fit in memory).
+ * However, the corpus is read with {@link BufferedReader#readLine()}, which reads an entire line into memory, so a
+ * corpus with very long lines (or no line breaks at all) will not be streamed.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ParallelMarkovChainTrainer {
+
+  /** The default value of {@link #batchSize} */
+  public static final int DEFAULT_BATCH_SIZE = 1 << 20;
+
+  /**
+   * Signals the end of the corpus to the worker threads (compared by reference).
+   */
+  private static final List<String> END_OF_CORPUS = Collections.unmodifiableList(new ArrayList<String>());
+
+  private final int nThreads;
+
+  /**
+   * Each batch will contain lines of the corpus until their total length reaches this number of chars.
+   */
+  private final int batchSize;
+
+  /** Creates a new dictionary for each partial chain */
+  private final Supplier<CodingDictionary> dictionaryFactory;
+
+  /**
+   * Uses as many threads as there are available processors, and partial chains based on
+   * {@link ShortHashArrayCodingDictionary}.
+   */
+  public ParallelMarkovChainTrainer() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, ShortHashArrayCodingDictionary::new);
+  }
+
+  /**
+   * @param nThreads the number of worker threads
+   * @param batchSize the (approximate) number of chars in each batch of lines handed off to a worker thread
+   * @param dictionaryFactory creates the dictionary for each partial chain (should produce the same type of
+   * dictionary as the one used by the target chain)
+   */
+  public ParallelMarkovChainTrainer(int nThreads, int batchSize, Supplier<CodingDictionary> dictionaryFactory) {
+    if (nThreads < 1)
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    if (batchSize < 1)
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    this.nThreads = nThreads;
+    this.batchSize = batchSize;
+    this.dictionaryFactory = dictionaryFactory;
+  }
+
+  /**
+   * Trains the given chain on every line of the given corpus (as if by calling {@link MarkovChain#train(String)} for
+   * each line).
+   * <p>
+   * The given chain must not be accessed by any other threads until this method returns, and its
+   * {@link MarkovChain#getTokenizer() tokenizer} must be thread-safe, since it will be shared by the worker threads.
+   *
+   * @param chain the chain to be trained
+   * @param corpus will be read until the end, but not closed
+   * @throws IOException if an I/O error occurs while reading the corpus
+   * @throws RuntimeException if a worker thread fails
+   */
+  public void train(MarkovChain chain, Reader corpus) throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(nThreads,
+        new ThreadFactoryBuilder().setNameFormat(getClass().getSimpleName() + "-%d").setDaemon(true).build());
+    try {
+      BufferedReader reader = corpus instanceof BufferedReader ? (BufferedReader)corpus : new BufferedReader(corpus);
+      // to limit the memory usage, the reader blocks when the workers are this many batches behind
+      BlockingQueue<List<String>> queue = new ArrayBlockingQueue<List<String>>(nThreads * 2);
+      List<Future<MarkovChain>> workers = new ArrayList<Future<MarkovChain>>();
+      for (int i = 0; i < nThreads; i++) {
+        // the first worker trains the target chain directly, to avoid having to merge another chain into it at the end
+        MarkovChain workerChain = i == 0 ? chain
+            // the Random won't be used, since this chain will only be merged into another chain
+            : new MarkovChain(chain.getOrder(), chain.getTokenizer(), dictionaryFactory.get(), new Random());
+        workers.add(executor.submit(new Worker(workerChain, queue)));
+      }
+      List<String> batch = new ArrayList<String>();
+      int batchLength = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        batch.add(line);
+        batchLength += line.length();
+        if (batchLength >= batchSize) {
+          put(queue, batch, workers);
+          batch = new ArrayList<String>();
+          batchLength = 0;
+        }
+      }
+      if (!batch.isEmpty())
+        put(queue, batch, workers);
+      for (int i = 0; i < nThreads; i++)
+        put(queue, END_OF_CORPUS, workers);
+      List<MarkovChain> partials = new ArrayList<MarkovChain>();
+      for (Future<MarkovChain> worker : workers)
+        partials.add(getResult(worker));
+      mergePartials(partials, executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Adds the given batch to the queue, waiting for space to become available if needed.
+   * @throws RuntimeException the exception thrown by a worker thread, if any of them fails while waiting
+   */
+  private static void put(BlockingQueue<List<String>> queue, List<String> batch, List<Future<MarkovChain>> workers) {
+    try {
+      while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        // a worker that's done before the end of the corpus must have failed (and the others might have failed too,
+        // in which case the queue would never have enough space)
+        for (Future<MarkovChain> worker : workers) {
+          if (worker.isDone())
+            getResult(worker);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Merges the given chains in parallel pairs, until only the first one remains.
+   */
+  private static void mergePartials(List<MarkovChain> chains, ExecutorService executor) {
+    while (chains.size() > 1) {
+      List<MarkovChain> merged = new ArrayList<MarkovChain>();
+      List<Future<MarkovChain>> merges = new ArrayList<Future<MarkovChain>>();
+      for (int i = 0; i + 1 < chains.size(); i += 2) {
+        MarkovChain target = chains.get(i);
+        MarkovChain other = chains.get(i + 1);
+        merges.add(executor.submit(() -> {
+          target.merge(other);
+          return target;
+        }));
+      }
+      for (Future<MarkovChain> merge : merges)
+        merged.add(getResult(merge));
+      if (chains.size() % 2 != 0)
+        merged.add(chains.get(chains.size() - 1));
+      chains = merged;
+    }
+  }
+
+  /**
+   * Waits for the given task to finish.
+   * @throws RuntimeException the exception thrown by the worker thread, if any
+   */
+  private static MarkovChain getResult(Future<MarkovChain> future) {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException)cause;
+      if (cause instanceof Error)
+        throw (Error)cause;
+      throw new UncheckedExecutionException(cause);
+    }
+  }
+
+  /**
+   * Trains a chain on the batches taken from the queue, until it receives {@link #END_OF_CORPUS}.
+   */
+  private static class Worker implements Callable<MarkovChain> {
+    private final MarkovChain chain;
+    private final BlockingQueue<List<String>> queue;
+
+    private Worker(MarkovChain chain, BlockingQueue<List<String>> queue) {
+      this.chain = chain;
+      this.queue = queue;
+    }
+
+    @Override
+    public MarkovChain call() throws Exception {
+      List<String> batch;
+      while ((batch = queue.take()) != END_OF_CORPUS) {
+        for (String line : batch) {
+          chain.train(line);
+        }
+      }
+      return chain;
+    }
+  }
+}
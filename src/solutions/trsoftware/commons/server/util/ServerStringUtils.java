@@ -23,6 +23,7 @@ import solutions.trsoftware.commons.server.io.ServerIOUtils;
 import solutions.trsoftware.commons.server.servlet.UrlUtils;
 import solutions.trsoftware.commons.shared.util.Levenshtein;
 import solutions.trsoftware.commons.shared.util.StringUtils;
+import solutions.trsoftware.commons.shared.util.text.BKTree;
 
 import javax.lang.model.SourceVersion;
 import javax.xml.transform.OutputKeys;
@@ -255,12 +256,15 @@ public class ServerStringUtils {
   /**
    * Iterates over the given strings and returns those that are within
    * maxEditDistance from the query, sorted by edit distance, in ascending order.
+   * <p>
+   * This method has to compute the (banded) edit distance to every string in the collection,
+   * so a {@link BKTree} should be used instead when searching the same dictionary repeatedly.
    */
   public static List<String> searchByEditDistance(Collection<String> strings, String query, int maxEditDistance) {
     SortedMap<Integer, List<String>> stringsByDistace = new TreeMap<Integer, List<String>>();
     List<String> results = new ArrayList<String>();
     for (String str : strings) {
-      int dist = Levenshtein.editDistance(str, query);
+      int dist = Levenshtein.editDistance(str, query, maxEditDistance);
       if (dist <= maxEditDistance) {
         ServerMapUtils.getOrInsert(stringsByDistace, dist, (Class<? extends List<String>>)results.getClass()).add(str);
       }
@@ -25,6 +25,9 @@ import solutions.trsoftware.commons.shared.util.stats.Mean;
  * The computation is implemented by inheriting classes.
  *
  * TODO: it would probably make sense to replace this class with {@link com.google.common.cache.LoadingCache}
+ * <p>
+ * <strong>This class is not thread-safe.</strong>  For a thread-safe version that computes the values asynchronously,
+ * see {@link solutions.trsoftware.commons.server.cache.AsyncCachingFactory}.
  *
  * Apr 21, 2011
  *
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import com.google.common.collect.Iterators;
+
+import java.util.*;
+
+/**
+ * A fixed-size cache that uses the <a href="https://arxiv.org/abs/1512.00727">W-TinyLFU</a> policy to decide
+ * which entries to keep.  Unlike {@link FixedSizeLruCache}, which evicts strictly by recency, this cache also takes into
+ * account how often each key has been accessed, which makes it resistant to "scans" (bursts of keys that are
+ * accessed only once, which would otherwise flush the frequently-used entries out of an LRU cache).
+ * <p>
+ * The cache is divided into 3 LRU regions:
+ * <ol>
+ *   <li>the <em>window</em> (1% of the capacity), which admits all new entries</li>
+ *   <li>the <em>probation</em> segment of the main region, which holds the entries admitted from the window</li>
+ *   <li>the <em>protected</em> segment of the main region (80% of the main region), which holds the entries that
+ *   were accessed again while on probation</li>
+ * </ol>
+ * When an entry is evicted from the window and the main region is full, it will be admitted into the main region
+ * only if its key has been accessed more frequently than the key of the main region's eviction candidate (i.e.
+ * the LRU entry of the probation segment).  The access frequencies are estimated with a compact
+ * {@link FrequencySketch} (a count-min sketch), whose counters are periodically halved, so that the keys which
+ * used to be popular in the past will eventually lose their advantage.
+ * <p>
+ * The frequency of a key is recorded whenever it's looked up with {@link #get(Object)} (both for hits and misses).
+ * <p>
+ * Like {@link FixedSizeLruCache}, this class <strong>must be synchronized externally.</strong>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Alex
+ * @since 10/17/2026
+ * @see <a href="https://github.com/ben-manes/caffeine/wiki/Efficiency">Caffeine: Efficiency</a>
+ */
+public class WTinyLfuCache<K, V> extends AbstractMap<K, V> {
+
+  private final int sizeLimit;
+  private final int windowCapacity;
+  private final int mainCapacity;
+  private final int protectedCapacity;
+
+  // each region is an access-ordered LinkedHashMap (i.e. the first entry is the least recently used)
+  private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, .75f, true);
+  private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, .75f, true);
+  private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, .75f, true);
+
+  private final FrequencySketch sketch;
+
+  // fields for stats gathering
+  private int hits;
+  private int misses;
+  private int evictions;
+  private int rejections;
+
+  /**
+   * @param sizeLimit the max number of entries
+   */
+  public WTinyLfuCache(int sizeLimit) {
+    if (sizeLimit <= 0)
+      throw new IllegalArgumentException("sizeLimit must be positive: " + sizeLimit);
+    this.sizeLimit = sizeLimit;
+    windowCapacity = Math.max(1, sizeLimit / 100);
+    mainCapacity = sizeLimit - windowCapacity;
+    protectedCapacity = mainCapacity * 4 / 5;
+    sketch = new FrequencySketch(sizeLimit);
+  }
+
+  public int getSizeLimit() {
+    return sizeLimit;
+  }
+
+  @Override
+  public int size() {
+    return window.size() + probation.size() + protectedSegment.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key);
+  }
+
+  @Override
+  public V get(Object key) {
+    sketch.increment(key);
+    // NOTE: the get calls on the regions update their access order
+    if (window.containsKey(key)) {
+      hits++;
+      return window.get(key);
+    }
+    if (protectedSegment.containsKey(key)) {
+      hits++;
+      return protectedSegment.get(key);
+    }
+    if (probation.containsKey(key)) {
+      hits++;
+      return promote(key);
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Moves a key from the probation segment to the protected segment (after it was accessed again), demoting the LRU
+   * entry of the protected segment to the probation segment if needed.
+   * @return the value of the key
+   */
+  private V promote(Object key) {
+    V value = probation.remove(key);
+    @SuppressWarnings("unchecked") K k = (K)key;
+    protectedSegment.put(k, value);
+    if (protectedSegment.size() > protectedCapacity) {
+      Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+      probation.put(demoted.getKey(), demoted.getValue());
+    }
+    return value;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    if (window.containsKey(key))
+      return window.put(key, value);
+    if (protectedSegment.containsKey(key))
+      return protectedSegment.put(key, value);
+    if (probation.containsKey(key)) {
+      V oldValue = promote(key);
+      protectedSegment.put(key, value);
+      return oldValue;
+    }
+    window.put(key, value);
+    if (window.size() > windowCapacity) {
+      Map.Entry<K, V> candidate = removeEldest(window);
+      admit(candidate.getKey(), candidate.getValue());
+    }
+    return null;
+  }
+
+  /**
+   * Decides whether an entry evicted from the window should be admitted into the main region.
+   */
+  private void admit(K key, V value) {
+    if (probation.size() + protectedSegment.size() < mainCapacity) {
+      probation.put(key, value);
+      return;
+    }
+    Map<K, V> victimRegion = !probation.isEmpty() ? probation : protectedSegment;
+    if (!victimRegion.isEmpty()) {
+      K victim = victimRegion.keySet().iterator().next();
+      if (sketch.frequency(key) > sketch.frequency(victim)) {
+        victimRegion.remove(victim);
+        probation.put(key, value);
+        evictions++;
+        return;
+      }
+    }
+    // the candidate is discarded instead of the victim
+    rejections++;
+  }
+
+  private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> map) {
+    Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+    Map.Entry<K, V> eldest = it.next();
+    Map.Entry<K, V> ret = new AbstractMap.SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue());
+    it.remove();
+    return ret;
+  }
+
+  @Override
+  public V remove(Object key) {
+    if (window.containsKey(key))
+      return window.remove(key);
+    if (probation.containsKey(key))
+      return probation.remove(key);
+    return protectedSegment.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    window.clear();
+    probation.clear();
+    protectedSegment.clear();
+    sketch.clear();
+  }
+
+  /**
+   * @return a view of the entries of this cache; iterating the entries doesn't affect the eviction order
+   */
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return Iterators.concat(window.entrySet().iterator(), probation.entrySet().iterator(),
+            protectedSegment.entrySet().iterator());
+      }
+
+      @Override
+      public int size() {
+        return WTinyLfuCache.this.size();
+      }
+    };
+  }
+
+  public int getAccessCount() {
+    return hits + misses;
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of entries that were evicted from the main region of this cache to make room for the entries
+   * admitted from the window
+   * @see #getRejections()
+   */
+  public int getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of entries that were discarded when leaving the window, because the admission filter estimated
+   * that they're accessed less frequently than the entry they would have replaced in the main region
+   * @see #getEvictions()
+   */
+  public int getRejections() {
+    return rejections;
+  }
+
+  /**
+   * A <a href="https://en.wikipedia.org/wiki/Count%E2%80%93min_sketch">count-min sketch</a> that estimates the
+   * access frequencies of keys (up to {@value #MAX_COUNT}).  After the number of increments reaches 10 times
+   * the size of the cache, all the counters are halved.
+   * <p>
+   * The 4-bit counters are packed 8 to an {@code int}, so that each row can have several counters per cache entry
+   * (which reduces the over-estimation caused by hash collisions) while the whole sketch takes up only
+   * 8 bytes per entry.
+   */
+  static class FrequencySketch {
+    static final int MAX_COUNT = 15;
+    private static final int DEPTH = 4;
+    /** The counters of all the rows, 8 counters per element */
+    private final int[] table;
+    /** The number of counters in each row */
+    private final int width;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int sizeLimit) {
+      int width = 64;
+      while (width < 4 * sizeLimit && width < (1 << 24))
+        width <<= 1;
+      this.width = width;
+      table = new int[DEPTH * width / 8];
+      sampleSize = 10 * Math.max(sizeLimit, 16);
+    }
+
+    void increment(Object key) {
+      int h1 = spread(Objects.hashCode(key));
+      int h2 = rehash(h1);
+      boolean added = false;
+      for (int i = 0; i < DEPTH; i++) {
+        int pos = indexOf(i, h1, h2);
+        int shift = (pos & 7) << 2;
+        if (((table[pos >>> 3] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+          table[pos >>> 3] += 1 << shift;
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize)
+        reset();
+    }
+
+    int frequency(Object key) {
+      int h1 = spread(Objects.hashCode(key));
+      int h2 = rehash(h1);
+      int ret = MAX_COUNT;
+      for (int i = 0; i < DEPTH; i++) {
+        int pos = indexOf(i, h1, h2);
+        ret = Math.min(ret, (table[pos >>> 3] >>> ((pos & 7) << 2)) & MAX_COUNT);
+      }
+      return ret;
+    }
+
+    /**
+     * @return the position of the counter for the given row (in the bit-packed table)
+     */
+    private int indexOf(int row, int h1, int h2) {
+      // the double hashing scheme of Kirsch and Mitzenmacher
+      return row * width + ((h1 + row * h2) & (width - 1));
+    }
+
+    /** Halves all the counters */
+    private void reset() {
+      for (int i = 0; i < table.length; i++)
+        table[i] = (table[i] >>> 1) & 0x77777777;  // the mask clears the bits shifted in from the adjacent counters
+      additions >>= 1;
+    }
+
+    void clear() {
+      Arrays.fill(table, 0);
+      additions = 0;
+    }
+
+    // NOTE: these hash functions avoid multiplying two arbitrary ints, because in JavaScript (GWT) the product can
+    // exceed 2^53 and lose its low-order bits before being truncated to 32 bits (the multiplication in indexOf is exact,
+    // since the row index is small)
+
+    private static int spread(int h) {
+      h ^= (h >>> 16);
+      h += (h << 3);
+      h ^= (h >>> 11);
+      h += (h << 15);
+      return h;
+    }
+
+    private static int rehash(int h) {
+      return ((h >>> 16) | (h << 16)) ^ (h >>> 7) | 1;  // an odd number
+    }
+  }
+}
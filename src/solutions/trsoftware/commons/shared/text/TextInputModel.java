@@ -74,6 +74,9 @@ public class TextInputModel {
   /** A full log of each update to the user's input */
   private List<TypingEdit> editLog = new ArrayList<TypingEdit>();
 
+  /** Reusable buffer for computing the edits for each update to the user's input */
+  private final Levenshtein.EditScript editScript = new Levenshtein.EditScript();
+
   /**
    * What the current value in the text box should be (might be updated
    * as a result of a call to update() if some of the correct chars
@@ -146,8 +149,8 @@ public class TextInputModel {
   private TextInputUpdate finishUpdate(String input, int time, int acceptedPrefixLength, int correctCharCount) {
 
     // now update the edit history
-    Levenshtein.EditSequence edits = Levenshtein.editSequence(lastInput, input, true, true);
-    editLog.add(new TypingEdit(charCursor, edits.getOperations(), time));
+    Levenshtein.editScript(lastInput, input, editScript);
+    editLog.add(new TypingEdit(charCursor, editScript.copy(), time));
 
     // what do we want to know after the update:
     // 0) acceptedPrefixLength: have any words been accepted (i.e. are to be cleared)? 
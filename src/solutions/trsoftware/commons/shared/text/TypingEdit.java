@@ -37,12 +37,24 @@ public class TypingEdit {
    * value will always be 0 for those. 
    */
   private int offset;
-  /** The edits to the input made in this quantum of time */
-  private List<Levenshtein.EditOperation> edits;
+  /**
+   * The edits to the input made in this quantum of time.  These are stored in the compact form of an
+   * {@link Levenshtein.EditScript} (rather than as a list of {@link Levenshtein.EditOperation} objects) because
+   * a new instance of this class is created for every change of the input.
+   */
+  private Levenshtein.EditScript edits;
   /** The time since the start of the race when this edit was recorded */
   private int time;
 
   public TypingEdit(int offset, List<Levenshtein.EditOperation> edits, int time) {
+    this(offset, Levenshtein.EditScript.fromOperations(edits), time);
+  }
+
+  /**
+   * @param edits will be retained by this instance, so it must not be modified afterwards (use
+   * {@link Levenshtein.EditScript#copy()} to pass the contents of a reusable buffer)
+   */
+  public TypingEdit(int offset, Levenshtein.EditScript edits, int time) {
     this.offset = offset;
     this.edits = edits;
     this.time = time;
@@ -62,7 +74,18 @@ public class TypingEdit {
     return time;
   }
 
+  /**
+   * @return a new list of the edits (consider using {@link #getEditScript()} instead, to avoid creating
+   * an object for each edit)
+   */
   public List<Levenshtein.EditOperation> getEdits() {
+    return edits.toOperations();
+  }
+
+  /**
+   * @return the edits, in their compact form (this instance must not be modified)
+   */
+  public Levenshtein.EditScript getEditScript() {
     return edits;
   }
 
@@ -74,7 +97,7 @@ public class TypingEdit {
 
     if (time != that.time) return false;
     if (offset != that.offset) return false;
-    if (edits != null ? !edits.equals(that.edits) : that.edits != null)
+    if (!edits.equals(that.edits))
       return false;
 
     return true;
@@ -83,7 +106,7 @@ public class TypingEdit {
   public int hashCode() {
     int result;
     result = offset;
-    result = 31 * result + (edits != null ? edits.hashCode() : 0);
+    result = 31 * result + edits.hashCode();
     result = 31 * result + time;
     return result;
   }
@@ -286,17 +286,23 @@ public class TypingLogFormatV1 {
 
     private void writeTypingEdit(TypingEdit typingEdit, int timeOffset) {
       str.append(typingEdit.getTime() - timeOffset).append(',');
-      for (Levenshtein.EditOperation op : typingEdit.getEdits()) {
-        str.append(op.getPosition());
-        if (op instanceof Levenshtein.Insertion)
-          str.append('+');
-        else if (op instanceof Levenshtein.Deletion)
-          str.append('-');
-        else if (op instanceof Levenshtein.Substitution)
-          str.append('$');
-        else
-          throw new IllegalStateException("Unrecognized EditOperation");
-        str.append(op.getChar());
+      Levenshtein.EditScript edits = typingEdit.getEditScript();
+      for (int i = 0; i < edits.size(); i++) {
+        str.append(edits.getPosition(i));
+        switch (edits.getType(i)) {
+          case Levenshtein.EditScript.INSERTION:
+            str.append('+');
+            break;
+          case Levenshtein.EditScript.DELETION:
+            str.append('-');
+            break;
+          case Levenshtein.EditScript.SUBSTITUTION:
+            str.append('$');
+            break;
+          default:
+            throw new IllegalStateException("Unrecognized EditOperation");
+        }
+        str.append(edits.getChar(i));
       }
     }
   }
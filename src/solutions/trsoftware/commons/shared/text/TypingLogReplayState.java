@@ -50,6 +50,8 @@ public class TypingLogReplayState {
     private SortedSet<Word> wordsWithErrors = new TreeSet<Word>();
   }
   private State state = new State();
+  /** Reusable buffer for the edits computed by {@link #findErrors()} */
+  private final Levenshtein.EditScript diffScript = new Levenshtein.EditScript();
 
   public class Word implements Comparable<Word> {
     private int wordIdx;
@@ -197,27 +199,21 @@ public class TypingLogReplayState {
       return;  // no more edits to step through
     List<TypingEdit> editLog = typingLog.getEditLog();
     TypingEdit typingEdit = editLog.get(state.editCursor);
-    List<Levenshtein.EditOperation> editOps = typingEdit.getEdits();
-    for (Levenshtein.EditOperation op : editOps) {
+    Levenshtein.EditScript editOps = typingEdit.getEditScript();
+    for (int i = 0; i < editOps.size(); i++) {
       state.editOpCount++;
-      int pos = op.getPosition() + typingEdit.getOffset();
-      if (op instanceof Levenshtein.Insertion)
-        state.editBuffer.insert(pos, op.getChar());
-      else if (op instanceof Levenshtein.Substitution)
-        state.editBuffer.replace(pos, pos+1, Character.toString(op.getChar()));
-      else if (op instanceof Levenshtein.Deletion) {
-        assert op.getChar() == state.editBuffer.charAt(pos); // TODO; verify this assertion?
-        state.editBuffer.deleteCharAt(pos);
-      }
+      assert editOps.getType(i) != Levenshtein.EditScript.DELETION
+          || editOps.getChar(i) == state.editBuffer.charAt(editOps.getPosition(i) + typingEdit.getOffset()); // TODO; verify this assertion?
+      editOps.apply(i, state.editBuffer, typingEdit.getOffset());
     }
     int time = typingEdit.getTime();
     advanceCharCursor(time);
     state.time = time;
     state.editCursor++;  // advance to the next edit
-    List<Levenshtein.EditOperation> errors = findErrors();
-    if (!errors.isEmpty()) {
-      for (Levenshtein.EditOperation error : errors) {
-        int pos = error.getPosition();
+    int errorCount = findErrorCount();
+    if (errorCount > 0) {
+      for (int i = 0; i < errorCount; i++) {
+        int pos = diffScript.getPosition(i);
         state.errorPositions.add(pos);
         int wordIdx = getCharCounts().getWordCountAtCharPosition(pos);
         if (wordIdx < words.length)
@@ -243,26 +239,39 @@ public class TypingLogReplayState {
    * @return the edit ops needed to correct the current value {@link #getEditBuffer()} to match the expected text
    */
   public List<Levenshtein.EditOperation> findErrors() {
+    int errorCount = findErrorCount();
+    List<Levenshtein.EditOperation> ret = new ArrayList<Levenshtein.EditOperation>(errorCount);
+    for (int i = 0; i < errorCount; i++) {
+      ret.add(diffScript.getOperation(i));
+    }
+    return ret;
+  }
+
+  /**
+   * Same as {@link #findErrors()}, but leaves the edit ops in {@link #diffScript} (to avoid creating an object for
+   * each of them).
+   * @return the number of leading ops in {@link #diffScript} that are the errors
+   */
+  private int findErrorCount() {
     String textStr = typingLog.getText();
     String typedText = state.editBuffer.toString();
     String expectedText = textStr.substring(0, Math.min(textStr.length(), typedText.length()+5));  // give it 5 chars of lookahead
-    // fill the lookahead buffer with junk chars (that are not in the original text), so that Levenshtein.editSequence(x, y) doesn't put the edits out of place
+    // fill the lookahead buffer with junk chars (that are not in the original text), so that Levenshtein.editScript(x, y) doesn't put the edits out of place
     String filler = StringUtils.repeat('\b', Math.max(0, expectedText.length() - typedText.length()));
-    Levenshtein.EditSequence diffs = Levenshtein.editSequence(typedText + filler, expectedText, true, true);
-    List<Levenshtein.EditOperation> diffOps = diffs.getOperations();
+    Levenshtein.editScript(typedText + filler, expectedText, diffScript);
     StringBuilder editBuffer = new StringBuilder(typedText);
     int i = 0;
-    for (Levenshtein.EditOperation diff : diffOps) {
-      if (diff.getPosition() < editBuffer.length()) {
+    for (int j = 0; j < diffScript.size(); j++) {
+      if (diffScript.getPosition(j) < editBuffer.length()) {
         // does this diff correction make the input match expectation?
-        diff.apply(editBuffer);
+        diffScript.apply(j, editBuffer, 0);
         i++;
         if (expectedText.startsWith(editBuffer.toString())) {
           break;
         }
       }
     }
-    return diffOps.subList(0, i);
+    return i;
   }
 
   public TypingLog getTypingLog() {
@@ -119,12 +119,42 @@ public class MarkovChain implements Serializable {
   }
 
   private void addOrUpdateState(State state, String next) {
-    if (states.containsKey(state))
-      state = states.get(state);  // canonicalize the state
-    else {
-      states.put(state, state);
+    canonicalize(state).addTransition(next, dict);
+  }
+
+  /**
+   * @return the existing instance equal to the given state, or the given state itself (after adding it to the chain)
+   * if it's not already in the chain.
+   */
+  private State canonicalize(State state) {
+    State existing = states.get(state);
+    if (existing != null)
+      return existing;
+    states.put(state, state);
+    return state;
+  }
+
+  /**
+   * Adds the states and transition counts of the given chain to this chain.  The other chain may use a different
+   * {@link CodingDictionary}, since its words are re-coded using this chain's dictionary.
+   * <p>
+   * Merging the chains trained on separate parts of a corpus produces the same states and transition counts
+   * as training a single chain on the whole corpus, with the states listed in the same order if the chains are
+   * merged in the same order as the parts of the corpus.  This makes it possible to train a chain in parallel
+   * (see {@code solutions.trsoftware.commons.server.text.markovchain.ParallelMarkovChainTrainer}).
+   *
+   * @param other a chain of the same order as this one (it won't be modified)
+   * @throws IllegalArgumentException if the other chain has a different order
+   */
+  public void merge(MarkovChain other) {
+    if (other.order != order)
+      throw new IllegalArgumentException("Can't merge a chain of order " + other.order + " into a chain of order " + order);
+    for (State<?> otherState : other.states.keySet()) {
+      State state = canonicalize(State.createState(dict, otherState.getWords(other.dict)));
+      for (Map.Entry<?, Number> transition : otherState.getTransitions().entrySet()) {
+        state.addTransition(other.dict.decode(transition.getKey()), transition.getValue().intValue(), dict);
+      }
     }
-    state.addTransition(next, dict);
   }
 
   public String generateRandomText(int maxLength) {
@@ -174,6 +204,33 @@ public class MarkovChain implements Serializable {
     return new ArrayList<State>(states.keySet());
   }
 
+  /**
+   * Receives the transition counts of a trained chain.
+   * @see #visitTransitions(TransitionVisitor)
+   */
+  public interface TransitionVisitor {
+    /**
+     * @param stateWords the words that make up the state (an empty array for the starting state)
+     * @param nextWord a word that followed this state in the training data
+     * @param count the number of times that {@code nextWord} followed this state in the training data
+     */
+    void visit(String[] stateWords, String nextWord, int count);
+  }
+
+  /**
+   * Passes every transition of this chain to the given visitor, with the states visited in the order they were
+   * created.  Can be used to export the trained chain into a different representation.
+   */
+  public void visitTransitions(TransitionVisitor visitor) {
+    State startState = State.createState(dict);
+    for (State<?> state : states.keySet()) {
+      String[] stateWords = state.equals(startState) ? new String[0] : state.getWords(dict);
+      for (Map.Entry<?, Number> transition : state.getTransitions().entrySet()) {
+        visitor.visit(stateWords, dict.decode(transition.getKey()), transition.getValue().intValue());
+      }
+    }
+  }
+
   /** Exposed with package visibility for unit testing */
   CodingDictionary<Short> getCodingDictionary() {
     return dict;
@@ -51,15 +51,20 @@ public abstract class TransitionTable<V> {
 
   /** Adds another transition to this table */
   public void add(V next) {
+    add(next, 1);
+  }
+
+  /** Adds the given number of transitions to this table (e.g. when merging the counts of another table) */
+  public void add(V next, int count) {
     // get or create the transition map
     Map<V, Number> map = asMap();
     value = map;
 
     // now add this new mapping
     if (map.containsKey(next))
-      map.put(next, wrap(map.get(next).intValue() + 1));
+      map.put(next, wrap(map.get(next).intValue() + count));
     else
-      map.put(next, 1);
+      map.put(next, count == 1 ? 1 : wrap(count));
   }
 
   /**
@@ -50,6 +50,23 @@ public abstract class State<V> {
       transitionTable.add(encodedWord);
   }
 
+  /**
+   * Same as calling {@link #addTransition(String, CodingDictionary)} {@code count} times.
+   * @throws IllegalArgumentException if {@code count} is not positive
+   */
+  public void addTransition(String nextWord, int count, CodingDictionary<V> dict) {
+    if (count < 1)
+      throw new IllegalArgumentException("count must be positive: " + count);
+    V encodedWord = dict.encode(nextWord);
+    if (transitionTable == null) {
+      transitionTable = createTransitionTable(encodedWord);
+      if (count > 1)
+        transitionTable.add(encodedWord, count - 1);
+    }
+    else
+      transitionTable.add(encodedWord, count);
+  }
+
   protected abstract TransitionTable<V> createTransitionTable(V initalValue);
 
   /** Randomly selects the next word from the possible transitions */
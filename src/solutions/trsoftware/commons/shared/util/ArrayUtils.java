@@ -245,6 +245,56 @@ public class ArrayUtils {
     return array;
   }
 
+  /**
+   * Same as {@link #flexibleArrayAdd(float[], int, float)}, but for {@code int} arrays.
+   * @return the new array after the insertion (may or may not be the same one as was given)
+   */
+  public static int[] flexibleArrayAdd(int[] array, int index, int value) {
+    if (index >= array.length)
+      array = Arrays.copyOf(array, grownCapacity(array.length, index + 1));
+    array[index] = value;
+    return array;
+  }
+
+  /**
+   * Same as {@link #flexibleArrayAdd(float[], int, float)}, but for {@code long} arrays.
+   * @return the new array after the insertion (may or may not be the same one as was given)
+   */
+  public static long[] flexibleArrayAdd(long[] array, int index, long value) {
+    if (index >= array.length)
+      array = Arrays.copyOf(array, grownCapacity(array.length, index + 1));
+    array[index] = value;
+    return array;
+  }
+
+  /**
+   * Same as {@link #flexibleArrayAdd(float[], int, float)}, but for {@code double} arrays.
+   * @return the new array after the insertion (may or may not be the same one as was given)
+   */
+  public static double[] flexibleArrayAdd(double[] array, int index, double value) {
+    if (index >= array.length)
+      array = Arrays.copyOf(array, grownCapacity(array.length, index + 1));
+    array[index] = value;
+    return array;
+  }
+
+  /**
+   * Computes a new length for a growable array (1.5 times the current length), without overflowing
+   * when the array is already very large.
+   *
+   * @param length the current length of the array
+   * @param minCapacity the min length required for the new array
+   * @return the length for the new array, which is at least {@code minCapacity}
+   * @throws OutOfMemoryError if {@code minCapacity} is negative (which indicates that it overflowed)
+   */
+  public static int grownCapacity(int length, int minCapacity) {
+    if (minCapacity < 0)
+      throw new OutOfMemoryError("Required array size too large");
+    // the long arithmetic prevents overflow; we leave some headroom because some VMs reserve header words in an array
+    long newCapacity = Math.min(Math.max(2, (long)length + (length >> 1)), Integer.MAX_VALUE - 8);
+    return (int)Math.max(newCapacity, minCapacity);
+  }
+
   /**
    * Merges the given arrays into one.
    * @return the new array containing all the elements of the given arrays
@@ -374,6 +424,165 @@ public class ArrayUtils {
     return arr;
   }
 
+  public static long[] swap(long[] arr, int i, int j) {
+    long temp = arr[i];
+    arr[i] = arr[j];
+    arr[j] = temp;
+    return arr;
+  }
+
+  public static double[] swap(double[] arr, int i, int j) {
+    double temp = arr[i];
+    arr[i] = arr[j];
+    arr[j] = temp;
+    return arr;
+  }
+
+  /**
+   * Finds the <i>k</i>th smallest element in the range {@code [fromIndex, toIndex)} of the given array, partially
+   * reordering that range, such that the element at index {@code k} is the one that would be there if the range were
+   * sorted, all the elements before it are &le; to it, and all the elements after it are &ge; to it.
+   * <p>
+   * Uses the <a href="https://en.wikipedia.org/wiki/Quickselect">quickselect</a> algorithm with median-of-3 pivots,
+   * which runs in O(n) expected time.  If the partitioning degenerates (which is extremely unlikely), falls back to
+   * sorting the remaining range, which bounds the worst case at O(n log n) time.
+   *
+   * @param k the index of the desired element (in the range {@code [fromIndex, toIndex)})
+   * @return the <i>k</i>th smallest element (i.e. the element at index {@code k} after this method returns)
+   * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+   * @throws ArrayIndexOutOfBoundsException if {@code k} is not in the range {@code [fromIndex, toIndex)} or
+   * {@code toIndex > arr.length}
+   * @see <a href="https://en.wikipedia.org/wiki/Introselect">Introselect</a>
+   */
+  public static int select(int[] arr, int fromIndex, int toIndex, int k) {
+    checkSelectionArgs(arr.length, fromIndex, toIndex, k);
+    int lo = fromIndex, hi = toIndex - 1;
+    int partitionsLeft = 2 * (32 - Integer.numberOfLeadingZeros(toIndex - fromIndex));
+    while (lo < hi) {
+      if (partitionsLeft-- == 0) {
+        Arrays.sort(arr, lo, hi + 1);
+        break;
+      }
+      // move the median of the first, middle, and last elements to the middle, and use it as the pivot
+      int mid = (lo + hi) >>> 1;
+      if (arr[mid] < arr[lo])
+        swap(arr, lo, mid);
+      if (arr[hi] < arr[lo])
+        swap(arr, lo, hi);
+      if (arr[hi] < arr[mid])
+        swap(arr, mid, hi);
+      int pivot = arr[mid];
+      // Hoare partition: afterwards, the elements in [lo, j] are <= pivot, the elements in [i, hi] are >= pivot,
+      // and any elements in between are equal to the pivot
+      int i = lo, j = hi;
+      while (i <= j) {
+        while (arr[i] < pivot)
+          i++;
+        while (arr[j] > pivot)
+          j--;
+        if (i <= j)
+          swap(arr, i++, j--);
+      }
+      if (k <= j)
+        hi = j;
+      else if (k >= i)
+        lo = i;
+      else
+        break;
+    }
+    return arr[k];
+  }
+
+  /**
+   * Same as {@link #select(int[], int, int, int)}, but for {@code long} arrays.
+   */
+  public static long select(long[] arr, int fromIndex, int toIndex, int k) {
+    checkSelectionArgs(arr.length, fromIndex, toIndex, k);
+    int lo = fromIndex, hi = toIndex - 1;
+    int partitionsLeft = 2 * (32 - Integer.numberOfLeadingZeros(toIndex - fromIndex));
+    while (lo < hi) {
+      if (partitionsLeft-- == 0) {
+        Arrays.sort(arr, lo, hi + 1);
+        break;
+      }
+      int mid = (lo + hi) >>> 1;
+      if (arr[mid] < arr[lo])
+        swap(arr, lo, mid);
+      if (arr[hi] < arr[lo])
+        swap(arr, lo, hi);
+      if (arr[hi] < arr[mid])
+        swap(arr, mid, hi);
+      long pivot = arr[mid];
+      int i = lo, j = hi;
+      while (i <= j) {
+        while (arr[i] < pivot)
+          i++;
+        while (arr[j] > pivot)
+          j--;
+        if (i <= j)
+          swap(arr, i++, j--);
+      }
+      if (k <= j)
+        hi = j;
+      else if (k >= i)
+        lo = i;
+      else
+        break;
+    }
+    return arr[k];
+  }
+
+  /**
+   * Same as {@link #select(int[], int, int, int)}, but for {@code double} arrays.
+   * <p>
+   * <em>NOTE</em>: the given range must not contain any {@code NaN} values, and {@code -0.0} is considered equal to
+   * {@code 0.0}.
+   */
+  public static double select(double[] arr, int fromIndex, int toIndex, int k) {
+    checkSelectionArgs(arr.length, fromIndex, toIndex, k);
+    int lo = fromIndex, hi = toIndex - 1;
+    int partitionsLeft = 2 * (32 - Integer.numberOfLeadingZeros(toIndex - fromIndex));
+    while (lo < hi) {
+      if (partitionsLeft-- == 0) {
+        Arrays.sort(arr, lo, hi + 1);
+        break;
+      }
+      int mid = (lo + hi) >>> 1;
+      if (arr[mid] < arr[lo])
+        swap(arr, lo, mid);
+      if (arr[hi] < arr[lo])
+        swap(arr, lo, hi);
+      if (arr[hi] < arr[mid])
+        swap(arr, mid, hi);
+      double pivot = arr[mid];
+      int i = lo, j = hi;
+      while (i <= j) {
+        while (arr[i] < pivot)
+          i++;
+        while (arr[j] > pivot)
+          j--;
+        if (i <= j)
+          swap(arr, i++, j--);
+      }
+      if (k <= j)
+        hi = j;
+      else if (k >= i)
+        lo = i;
+      else
+        break;
+    }
+    return arr[k];
+  }
+
+  private static void checkSelectionArgs(int arrayLength, int fromIndex, int toIndex, int k) {
+    if (fromIndex > toIndex)
+      throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+    if (fromIndex < 0 || toIndex > arrayLength)
+      throw new ArrayIndexOutOfBoundsException(fromIndex < 0 ? fromIndex : toIndex);
+    if (k < fromIndex || k >= toIndex)
+      throw new ArrayIndexOutOfBoundsException(k);
+  }
+
   /** Unwraps every element in the given array */
   public static double[] unbox(Double[] arr) {
     double[] ret = new double[arr.length];
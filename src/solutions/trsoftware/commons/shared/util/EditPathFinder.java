@@ -0,0 +1,296 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util;
+
+import java.util.Arrays;
+
+/**
+ * Finds the same optimal edit path (i.e. the sequence of insertions, deletions, and substitutions transforming
+ * one sequence into another) as the classic dynamic programming algorithm used by
+ * {@link Levenshtein#editSequence(String, String)}, but using only O(m*log(n)) space, where n and m are the lengths
+ * of the inputs, without allocating any objects for the intermediate edit sequences.
+ * <p>
+ * The path chosen by the DP algorithm is the one obtained by tracing back from the bottom-right cell of the matrix,
+ * preferring a match whenever the elements are equal, and otherwise preferring (in this order) an insertion,
+ * a deletion, or a substitution among the predecessors with the smallest distance.  Since reproducing those
+ * tie-breaking rules exactly is what guarantees identical output (which matters for replaying persisted edit logs),
+ * we don't use Hirschberg's algorithm (which would find a different optimal path).  Instead, we use checkpointing:
+ * compute the distances for the middle row of the matrix, recursively trace back the lower half of the path (which
+ * determines where it crosses the middle row), and then the upper half (which needs only the columns to the left
+ * of that crossing).  The subproblems that fit within {@link #MAX_BASE_CASE_CELLS} are traced back using a matrix
+ * of byte-sized back-pointers, which means that small inputs are handled in a single pass.
+ * <p>
+ * The running time is O(n*m) for the inputs that fit within the base case, and O(n*m*log(n)) in general.
+ *
+ * @see Levenshtein#editScript(String, String)
+ * @see solutions.trsoftware.commons.shared.util.collections.EditSequence#create(java.util.List, java.util.List)
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class EditPathFinder {
+
+  /**
+   * Tests the elements of the two inputs for equality.
+   */
+  public interface Matcher {
+    /**
+     * @return {@code true} iff the {@code i}-th element of the source sequence is equal to the {@code j}-th element
+     * of the target sequence.
+     */
+    boolean matches(int i, int j);
+  }
+
+  /**
+   * Receives the operations on the path, in order.  The positions are the same as those of the corresponding
+   * {@link Levenshtein.EditOperation}s (i.e. they refer to the state of the sequence after the prior operations
+   * have been applied).
+   */
+  public interface Visitor {
+    /**
+     * Insert the {@code j}-th element of the target at the given position
+     */
+    void insertion(int pos, int j);
+
+    /**
+     * Delete the element at the given position (which is the {@code i}-th element of the source)
+     */
+    void deletion(int pos, int i);
+
+    /**
+     * Replace the element at the given position with the {@code j}-th element of the target
+     */
+    void substitution(int pos, int j);
+  }
+
+  /** Max size of the back-pointer matrix for a subproblem */
+  static final int MAX_BASE_CASE_CELLS = 1 << 16;
+
+  // back-pointer values
+  private static final byte MATCH = 0;
+  private static final byte INSERTION = 1;
+  private static final byte DELETION = 2;
+  private static final byte SUBSTITUTION = 3;
+
+  private final Matcher matcher;
+  private final int maxBaseCaseCells;
+
+  /** Work buffers for computing the rows of the matrix */
+  private int[] prevRow, curRow;
+  /** The back-pointers of the current base case subproblem */
+  private byte[] backPointers = new byte[0];
+  /**
+   * The operations found so far, in reverse order: {@code ops[2*k]} is the row of the cell, and {@code ops[2*k+1]}
+   * encodes its column in the high-order bits and the operation in the 2 low-order bits.
+   */
+  private int[] ops = new int[16];
+  private int nOps;
+
+  private EditPathFinder(Matcher matcher, int maxBaseCaseCells) {
+    this.matcher = matcher;
+    this.maxBaseCaseCells = maxBaseCaseCells;
+  }
+
+  /**
+   * Finds the edit path that transforms a source sequence of length {@code n} into a target sequence of
+   * length {@code m}.
+   *
+   * @param n length of the source sequence
+   * @param m length of the target sequence
+   * @param matcher tests the elements of the source and target for equality
+   * @param trimAffixes whether the common suffix and then the common prefix of the inputs should be skipped before
+   * computing the path (this produces the same path as {@link Levenshtein#editSequence(String, String, boolean, boolean)}
+   * with both optimizations enabled, which is not necessarily the same path as without this optimization)
+   * @param visitor will receive the operations on the path, in order
+   */
+  public static void findPath(int n, int m, Matcher matcher, boolean trimAffixes, Visitor visitor) {
+    findPath(n, m, matcher, trimAffixes, visitor, MAX_BASE_CASE_CELLS);
+  }
+
+  /**
+   * Same as {@link #findPath(int, int, Matcher, boolean, Visitor)}, but allows overriding the size of the
+   * base case (exposed for unit testing)
+   */
+  static void findPath(int n, int m, Matcher matcher, boolean trimAffixes, Visitor visitor, int maxBaseCaseCells) {
+    int offset = 0;  // the length of the common prefix
+    if (trimAffixes) {
+      while (n > 0 && m > 0 && matcher.matches(n - 1, m - 1)) {
+        n--;
+        m--;
+      }
+      while (offset < n && offset < m && matcher.matches(offset, offset))
+        offset++;
+      n -= offset;
+      m -= offset;
+    }
+    // base case optimizations
+    if (n == 0) {
+      for (int j = 0; j < m; j++)
+        visitor.insertion(offset + j, offset + j);
+    }
+    else if (m == 0) {
+      for (int i = 0; i < n; i++)
+        visitor.deletion(offset, offset + i);
+    }
+    else {
+      if (offset > 0)
+        matcher = new OffsetMatcher(matcher, offset);
+      new EditPathFinder(matcher, Math.max(maxBaseCaseCells, 1)).run(n, m, offset, visitor);
+    }
+  }
+
+  private void run(int n, int m, int offset, Visitor visitor) {
+    prevRow = new int[m + 1];
+    curRow = new int[m + 1];
+    int[] row0 = new int[m + 1];
+    for (int j = 0; j <= m; j++)
+      row0[j] = j;
+    int j = traceBack(0, n, m, row0);
+    // the rest of the path runs along the first row, which consists of insertions
+    for (; j > 0; j--)
+      addOp(0, j, INSERTION);
+    // now emit the operations in the right order
+    for (int k = nOps - 1; k >= 0; k--) {
+      int i = ops[2 * k];
+      int cell = ops[2 * k + 1];
+      j = cell >>> 2;
+      switch (cell & 3) {
+        case INSERTION:
+          visitor.insertion(offset + j - 1, offset + j - 1);
+          break;
+        case DELETION:
+          visitor.deletion(offset + j, offset + i - 1);
+          break;
+        default:
+          visitor.substitution(offset + j - 1, offset + j - 1);
+      }
+    }
+  }
+
+  /**
+   * Traces back the path from cell {@code (b, jEnd)} until it reaches row {@code a}.
+   *
+   * @param rowA the distances in row {@code a}, for the columns {@code [0, jEnd]}
+   * @return the column where the path reaches row {@code a}
+   */
+  private int traceBack(int a, int b, int jEnd, int[] rowA) {
+    if (b - a == 1 || (long)(b - a) * (jEnd + 1) <= maxBaseCaseCells)
+      return traceBackBaseCase(a, b, jEnd, rowA);
+    int c = (a + b) >>> 1;
+    computeRows(a, c, jEnd, rowA, null);
+    int[] rowC = Arrays.copyOf(prevRow, jEnd + 1);
+    // the lower half of the path determines where it crosses row c
+    int jc = traceBack(c, b, jEnd, rowC);
+    return traceBack(a, c, jc, rowA);
+  }
+
+  private int traceBackBaseCase(int a, int b, int jEnd, int[] rowA) {
+    int width = jEnd + 1;
+    int size = (b - a) * width;
+    if (backPointers.length < size)
+      backPointers = new byte[size];
+    computeRows(a, b, jEnd, rowA, backPointers);
+    int i = b, j = jEnd;
+    while (i > a) {
+      byte op = backPointers[(i - a - 1) * width + j];
+      if (op != MATCH)
+        addOp(i, j, op);
+      if (op != INSERTION)
+        i--;
+      if (op != DELETION)
+        j--;
+    }
+    return j;
+  }
+
+  /**
+   * Computes the distances in rows {@code (a, b]} for the columns {@code [0, jEnd]}, optionally recording the
+   * back-pointers for each cell.
+   *
+   * @param rowA the distances in row {@code a}
+   * @param backPointers if not {@code null}, will receive the back-pointers for the cells in rows {@code (a, b]}
+   * (upon return, {@link #prevRow} will contain the distances in row {@code b})
+   */
+  private void computeRows(int a, int b, int jEnd, int[] rowA, byte[] backPointers) {
+    int width = jEnd + 1;
+    int[] prev = prevRow, cur = curRow;
+    System.arraycopy(rowA, 0, prev, 0, width);
+    for (int i = a + 1; i <= b; i++) {
+      int rowStart = (i - a - 1) * width;
+      cur[0] = i;  // the first column consists of deletions
+      if (backPointers != null)
+        backPointers[rowStart] = DELETION;
+      for (int j = 1; j <= jEnd; j++) {
+        byte op;
+        if (matcher.matches(i - 1, j - 1)) {
+          cur[j] = prev[j - 1];
+          op = MATCH;
+        }
+        else {
+          // NOTE: these tie-breaking rules must remain consistent with Levenshtein.editSequenceDP
+          int ins = cur[j - 1];
+          int del = prev[j];
+          int sub = prev[j - 1];
+          if (ins <= del && ins <= sub) {
+            cur[j] = ins + 1;
+            op = INSERTION;
+          }
+          else if (del <= ins && del <= sub) {
+            cur[j] = del + 1;
+            op = DELETION;
+          }
+          else {
+            cur[j] = sub + 1;
+            op = SUBSTITUTION;
+          }
+        }
+        if (backPointers != null)
+          backPointers[rowStart + j] = op;
+      }
+      int[] tmp = prev;
+      prev = cur;
+      cur = tmp;
+    }
+    prevRow = prev;
+    curRow = cur;
+  }
+
+  private void addOp(int i, int j, byte op) {
+    if (2 * nOps + 2 > ops.length)
+      ops = Arrays.copyOf(ops, ops.length * 2);
+    ops[2 * nOps] = i;
+    ops[2 * nOps + 1] = (j << 2) | op;
+    nOps++;
+  }
+
+  /**
+   * Decorates a {@link Matcher} to skip a common prefix of the inputs.
+   */
+  private static class OffsetMatcher implements Matcher {
+    private final Matcher delegate;
+    private final int offset;
+
+    private OffsetMatcher(Matcher delegate, int offset) {
+      this.delegate = delegate;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean matches(int i, int j) {
+      return delegate.matches(offset + i, offset + j);
+    }
+  }
+}
@@ -18,16 +18,15 @@ package solutions.trsoftware.commons.shared.util;
 
 import solutions.trsoftware.commons.shared.util.stats.ArgMax;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 
 import static solutions.trsoftware.commons.shared.util.ListUtils.arrayList;
 
 /**
  * Two algorithms for calculating the Levenshtein distance between two strings.
  * A slower algorithm that returns the edit sequence along with the distance,
- * and a faster algorithm (by a constant factor) that returns just the distance.
+ * and a much faster bit-parallel algorithm that returns just the distance
+ * (optionally capped at a given threshold).
  *
  * Mar 14, 2011
  *
@@ -331,6 +330,297 @@ public class Levenshtein {
   /**
    * Computes the Levenshtein distance between two strings as well as the
    * corresponding edit sequence.
+   * <p>
+   * Uses {@link EditPathFinder}, which finds the same edit sequence as the classic dynamic programming
+   * algorithm ({@link #editSequenceDP(String, String)}), but in O(m*log(n)) space.
+   *
+   * @return The shortest edit sequence to transform s into t (which also
+   * gives the Levenshtein distance).
+   * @throws NullPointerException if either string is null
+   * @see #editScript(String, String)
+   * @see <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">Wikipedia article on Levenshtein distance</a>
+   */
+  public static EditSequence editSequence(final String s, final String t) {
+    int n = s.length();
+    int m = t.length();
+    // base case optimizations
+    if (n == 0)
+      return new InsertionSequence(t);
+    if (m == 0)
+      return new DeletionSequence(s);
+    final ArrayList<EditOperation> operations = new ArrayList<EditOperation>();
+    EditPathFinder.findPath(n, m, new StringMatcher(s, t), false, new EditPathFinder.Visitor() {
+      @Override
+      public void insertion(int pos, int j) {
+        operations.add(new Insertion(pos, t.charAt(j)));
+      }
+      @Override
+      public void deletion(int pos, int i) {
+        operations.add(new Deletion(pos, s.charAt(i)));
+      }
+      @Override
+      public void substitution(int pos, int j) {
+        operations.add(new Substitution(pos, t.charAt(j)));
+      }
+    });
+    return new ArrayListEditSequence(operations);
+  }
+
+  /**
+   * Compares the chars of two strings for {@link EditPathFinder}.
+   */
+  private static class StringMatcher implements EditPathFinder.Matcher {
+    private final String s, t;
+
+    private StringMatcher(String s, String t) {
+      this.s = s;
+      this.t = t;
+    }
+
+    @Override
+    public boolean matches(int i, int j) {
+      return s.charAt(i) == t.charAt(j);
+    }
+  }
+
+  /**
+   * Computes the same edit sequence as {@link #editSequence(String, String, boolean, boolean)} (with both
+   * optimizations enabled), but stores the operations in a compact {@link EditScript} instead of a list of objects.
+   *
+   * @return The shortest edit sequence to transform s into t (which also gives the Levenshtein distance).
+   * @throws NullPointerException if either string is null
+   */
+  public static EditScript editScript(String s, String t) {
+    return editScript(s, t, new EditScript());
+  }
+
+  /**
+   * Same as {@link #editScript(String, String)}, but reuses the given buffer (which is cleared first).
+   *
+   * @return the given buffer
+   */
+  public static EditScript editScript(final String s, final String t, final EditScript buffer) {
+    buffer.clear();
+    EditPathFinder.findPath(s.length(), t.length(), new StringMatcher(s, t), true, new EditPathFinder.Visitor() {
+      @Override
+      public void insertion(int pos, int j) {
+        buffer.add(EditScript.INSERTION, pos, t.charAt(j));
+      }
+      @Override
+      public void deletion(int pos, int i) {
+        buffer.add(EditScript.DELETION, pos, s.charAt(i));
+      }
+      @Override
+      public void substitution(int pos, int j) {
+        buffer.add(EditScript.SUBSTITUTION, pos, t.charAt(j));
+      }
+    });
+    return buffer;
+  }
+
+  /**
+   * A compact representation of an edit sequence, which stores each operation as a primitive {@code int}
+   * (its position and type) and a {@code char}, rather than as an {@link EditOperation} object.
+   * Can be reused by passing it to {@link #editScript(String, String, EditScript)}.
+   */
+  public static class EditScript {
+    // operation types
+    public static final int INSERTION = 0;
+    public static final int DELETION = 1;
+    public static final int SUBSTITUTION = 2;
+
+    /** The position of each operation (shifted left by 2 bits) combined with its type (in the 2 low-order bits) */
+    private int[] ops;
+    /** The char of each operation */
+    private char[] chars;
+    private int size;
+
+    public EditScript() {
+      this(8);
+    }
+
+    public EditScript(int initialCapacity) {
+      ops = new int[initialCapacity];
+      chars = new char[initialCapacity];
+    }
+
+    /**
+     * @return a new script containing the same operations as the given list
+     * @throws IllegalArgumentException if the list contains an unrecognized type of {@link EditOperation}
+     */
+    public static EditScript fromOperations(List<? extends EditOperation> operations) {
+      EditScript ret = new EditScript(operations.size());
+      for (EditOperation op : operations) {
+        int type;
+        if (op instanceof Insertion)
+          type = INSERTION;
+        else if (op instanceof Deletion)
+          type = DELETION;
+        else if (op instanceof Substitution)
+          type = SUBSTITUTION;
+        else
+          throw new IllegalArgumentException("Unrecognized EditOperation: " + op);
+        ret.add(type, op.getPosition(), op.getChar());
+      }
+      return ret;
+    }
+
+    /**
+     * @return a copy of this script whose capacity is trimmed to its size (e.g. for retaining the result after
+     * reusing this instance as a buffer)
+     */
+    public EditScript copy() {
+      EditScript ret = new EditScript(0);
+      ret.ops = Arrays.copyOf(ops, size);
+      ret.chars = Arrays.copyOf(chars, size);
+      ret.size = size;
+      return ret;
+    }
+
+    void add(int type, int pos, char c) {
+      if (size == ops.length) {
+        int newCapacity = Math.max(8, size * 2);
+        ops = Arrays.copyOf(ops, newCapacity);
+        chars = Arrays.copyOf(chars, newCapacity);
+      }
+      ops[size] = (pos << 2) | type;
+      chars[size] = c;
+      size++;
+    }
+
+    /** Removes all the operations, but retains the allocated capacity */
+    public void clear() {
+      size = 0;
+    }
+
+    /** The length of the edit sequence (number of operations) */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * @return one of {@link #INSERTION}, {@link #DELETION}, {@link #SUBSTITUTION}
+     */
+    public int getType(int index) {
+      checkIndex(index);
+      return ops[index] & 3;
+    }
+
+    public int getPosition(int index) {
+      checkIndex(index);
+      return ops[index] >>> 2;
+    }
+
+    public char getChar(int index) {
+      checkIndex(index);
+      return chars[index];
+    }
+
+    private void checkIndex(int index) {
+      if (index < 0 || index >= size)
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * @return the operation at the given index, as an {@link EditOperation}
+     */
+    public EditOperation getOperation(int index) {
+      int pos = getPosition(index);
+      char c = chars[index];
+      switch (getType(index)) {
+        case INSERTION:
+          return new Insertion(pos, c);
+        case DELETION:
+          return new Deletion(pos, c);
+        default:
+          return new Substitution(pos, c);
+      }
+    }
+
+    /**
+     * @return the operations of this script, as a list of {@link EditOperation}s
+     */
+    public List<EditOperation> toOperations() {
+      ArrayList<EditOperation> ret = new ArrayList<EditOperation>(size);
+      for (int i = 0; i < size; i++) {
+        ret.add(getOperation(i));
+      }
+      return ret;
+    }
+
+    /**
+     * Applies the operations represented by this instance to the given string.
+     * @param s The string to transform using this script.
+     * @return the result after the transformations were applied.
+     * @see EditSequence#apply(String)
+     */
+    public String apply(String s) {
+      StringBuilder buf = new StringBuilder(s);
+      for (int i = 0; i < size; i++) {
+        apply(i, buf, 0);
+      }
+      return buf.toString();
+    }
+
+    /**
+     * Applies the operation at the given index to the given buffer (same as calling
+     * {@link EditOperation#apply(StringBuilder)} on the result of {@link #getOperation(int)}).
+     *
+     * @param offset will be added to the position of the operation
+     * @return the given buffer
+     */
+    public StringBuilder apply(int index, StringBuilder buf, int offset) {
+      checkIndex(index);
+      int pos = (ops[index] >>> 2) + offset;
+      switch (ops[index] & 3) {
+        case INSERTION:
+          buf.insert(pos, chars[index]);
+          break;
+        case DELETION:
+          buf.deleteCharAt(pos);
+          break;
+        default:
+          buf.setCharAt(pos, chars[index]);
+      }
+      return buf;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      EditScript that = (EditScript)o;
+      if (size != that.size)
+        return false;
+      for (int i = 0; i < size; i++) {
+        if (ops[i] != that.ops[i] || chars[i] != that.chars[i])
+          return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = size;
+      for (int i = 0; i < size; i++) {
+        result = 31 * (31 * result + ops[i]) + chars[i];
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return toOperations().toString();
+    }
+  }
+
+  /**
+   * Computes the Levenshtein distance between two strings as well as the
+   * corresponding edit sequence, using the classic dynamic programming algorithm, which
+   * was the implementation of {@link #editSequence(String, String)} prior to {@link EditPathFinder}.
+   * Still used as the reference implementation in unit tests and benchmarks.
    *
    * @return The shortest edit sequence to transform s into t (which also
    * gives the Levenshtein distance).
@@ -339,7 +629,7 @@ public class Levenshtein {
    * @see <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">Wikipedia article on Levenshtein distance</a>
    * @author Alex Epshteyn
    */
-  public static EditSequence editSequence(String s, String t) {
+  static EditSequence editSequenceDP(String s, String t) {
     // NOTE: see http://en.wikipedia.org/wiki/Levenshtein_distance to learn how the algorithm works
     // this implementation differs from the simple implementaion given by Wikipedia in 2 ways:
     // 1) only the first two rows of the matrix are kept in memory (to use O(md) <= O(n^2) space instead of O(mdn) <= O(n^3) space, where n is the length of the longest input string, m is the length of the shortest input, and d is the edit distance)
@@ -421,8 +711,317 @@ public class Levenshtein {
 
   /**
    * Finds the Levenshtein distance between two Strings without reconstructing
-   * the edit sequence.  This is faster than editSequence(s,t) by a constant factor
-   * (approximately 25x).
+   * the edit sequence, using the bit-parallel algorithm of Myers (as reformulated by Hyyr&ouml;),
+   * which encodes each column of the dynamic programming table as a pair of bit vectors
+   * (the positive and negative vertical deltas) and advances an entire column with a handful of word operations.
+   *
+   * <p>
+   * The time complexity is O(&lceil;m/64&rceil;*n), where m is the length of the shorter string and
+   * n is the length of the longer string, which makes this method substantially faster than
+   * the classic dynamic programming algorithm ({@link #editDistanceDP(String, String)}), and it doesn't
+   * allocate any arrays proportional to the input length (other than the pattern bitmasks) when the shorter
+   * string is no longer than 64 chars.  Strings longer than that are handled by splitting the bit vectors
+   * into multiple 64-bit blocks.
+   * </p>
+   * <p>
+   * <b>NOTE</b>: GWT emulates {@code long} arithmetic in JavaScript, so client-side code should not expect
+   * the same speedup as on the JVM.
+   * </p>
+   *
+   * @param s  the first String, must not be null
+   * @param t  the second String, must not be null
+   * @return result distance
+   * @throws NullPointerException if either String input <code>null</code>
+   * @see #editDistance(String, String, int)
+   * @see <a href="https://doi.org/10.1145/316542.316550">
+   *   G. Myers, "A Fast Bit-Vector Algorithm for Approximate String Matching Based on Dynamic Programming" (J. ACM, 1999)</a>
+   * @see <a href="http://www.dcc.uchile.cl/~gnavarro/ps/jda04.pdf">
+   *   H. Hyyr&ouml;, "A Bit-Vector Algorithm for Computing Levenshtein and Damerau Edit Distances" (2003)</a>
+   */
+  public static int editDistance(String s, String t) {
+    int n = s.length();
+    int m = t.length();
+    // base case optimizations
+    if (n == 0)
+      return m;
+    if (m == 0)
+      return n;
+    // the shorter string is encoded as the bit vectors (the "pattern"), and the longer one is scanned char-by-char
+    return (m <= n)
+        ? bitParallelDistance(t, s, Integer.MAX_VALUE)
+        : bitParallelDistance(s, t, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Banded version of {@link #editDistance(String, String)}, which is useful when only the strings within a
+   * certain distance of each other are of interest (e.g. finding the closest matches for a misspelled word).
+   * <p>
+   * Returns immediately if the lengths of the strings differ by more than {@code maxDistance}, and otherwise
+   * computes only the 64-bit blocks of the dynamic programming table that intersect the diagonal band of
+   * width {@code 2*maxDistance+1} (no alignment with cost &le; {@code maxDistance} can leave that band),
+   * stopping as soon as the cell on the final diagonal exceeds {@code maxDistance} (since the values along
+   * any diagonal are non-decreasing).
+   *
+   * @param s  the first String, must not be null
+   * @param t  the second String, must not be null
+   * @param maxDistance the largest distance of interest (must not be negative)
+   * @return the edit distance between {@code s} and {@code t} if it's at most {@code maxDistance};
+   *   otherwise {@code maxDistance + 1}
+   * @throws NullPointerException if either String input <code>null</code>
+   * @throws IllegalArgumentException if {@code maxDistance} is negative
+   */
+  public static int editDistance(String s, String t, int maxDistance) {
+    if (maxDistance < 0)
+      throw new IllegalArgumentException("maxDistance < 0: " + maxDistance);
+    int n = s.length();
+    int m = t.length();
+    if (Math.abs(n - m) > maxDistance)
+      return maxDistance + 1;
+    // base case optimizations (at this point the length of the non-empty string can't exceed maxDistance)
+    if (n == 0)
+      return m;
+    if (m == 0)
+      return n;
+    // avoid overflowing maxDistance + 1 below (no distance can exceed the length of the longer string)
+    maxDistance = Math.min(maxDistance, Math.max(n, m));
+    return (m <= n)
+        ? bitParallelDistance(t, s, maxDistance)
+        : bitParallelDistance(s, t, maxDistance);
+  }
+
+  /** Number of bits in the words used by the bit-parallel algorithm */
+  private static final int WORD_SIZE = 64;
+
+  /** The highest bit of a word (corresponds to the last row of a full block) */
+  private static final long HIGH_BIT = 1L << (WORD_SIZE - 1);
+
+  /**
+   * The "Peq" table of the bit-parallel algorithm: for each char c, a bit vector whose i-th bit is set
+   * iff the i-th char of the pattern is c (split into 64-bit blocks).  The chars within a range starting at the
+   * smallest char of the pattern (which typically covers the entire pattern) are looked up in an array,
+   * and any other chars in a map (which is created only if the pattern contains any such chars).
+   */
+  private static class PatternBitmasks {
+    /** Max size of the char range covered by the array */
+    private static final int MAX_RANGE = 256;
+
+    /** Number of 64-bit blocks needed to encode the pattern */
+    private final int nBlocks;
+    /** The smallest char of the pattern */
+    private final char minChar;
+    /** The number of chars starting with {@link #minChar} whose bitmasks are stored in {@link #masks} */
+    private final int range;
+    /** The bitmasks for the chars in the range, with the blocks for char c stored starting at {@code (c-minChar)*nBlocks} */
+    private final long[] masks;
+    /** The bitmasks for the chars outside the range (lazy init) */
+    private Map<Character, long[]> other;
+
+    private PatternBitmasks(String pattern) {
+      int m = pattern.length();
+      nBlocks = (m + WORD_SIZE - 1) / WORD_SIZE;
+      char min = Character.MAX_VALUE, max = Character.MIN_VALUE;
+      for (int i = 0; i < m; i++) {
+        char c = pattern.charAt(i);
+        min = (char)Math.min(min, c);
+        max = (char)Math.max(max, c);
+      }
+      minChar = min;
+      range = Math.min(max - min + 1, MAX_RANGE);
+      masks = new long[range * nBlocks];
+      for (int i = 0; i < m; i++) {
+        int offset = pattern.charAt(i) - minChar;
+        long bit = 1L << (i % WORD_SIZE);
+        int block = i / WORD_SIZE;
+        if (offset < range)
+          masks[offset * nBlocks + block] |= bit;
+        else {
+          if (other == null)
+            other = new HashMap<Character, long[]>();
+          long[] charMasks = other.get(pattern.charAt(i));
+          if (charMasks == null)
+            other.put(pattern.charAt(i), charMasks = new long[nBlocks]);
+          charMasks[block] |= bit;
+        }
+      }
+    }
+
+    /**
+     * @return the bitmask of the positions of char {@code c} in the given block of the pattern
+     */
+    private long get(char c, int block) {
+      int offset = c - minChar;
+      if (offset >= 0 && offset < range)
+        return masks[offset * nBlocks + block];
+      if (other != null) {
+        long[] charMasks = other.get(c);
+        if (charMasks != null)
+          return charMasks[block];
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Computes the edit distance using the bit-parallel algorithm, with the bit vectors representing the
+   * columns of the dynamic programming table for transforming the pattern into the text.
+   *
+   * @param pattern a non-empty string (preferably the shorter of the two)
+   * @param text a non-empty string whose length differs from the pattern's by at most {@code maxDistance}
+   * @param maxDistance the banding threshold ({@link Integer#MAX_VALUE} for the exact distance)
+   * @return the edit distance, or {@code maxDistance + 1} if it exceeds {@code maxDistance}
+   */
+  private static int bitParallelDistance(String pattern, String text, int maxDistance) {
+    PatternBitmasks peq = new PatternBitmasks(pattern);
+    if (peq.nBlocks == 1)
+      return bitParallelDistanceSingleWord(peq, pattern.length(), text, maxDistance);
+    return bitParallelDistanceMultiWord(peq, pattern.length(), text, maxDistance);
+  }
+
+  /**
+   * The bit-parallel algorithm for a pattern that fits into a single 64-bit word.
+   */
+  private static int bitParallelDistanceSingleWord(PatternBitmasks peq, int m, String text, int maxDistance) {
+    int n = text.length();
+    long lastRow = 1L << (m - 1);
+    long pv = -1;  // positive vertical deltas (initially D[i,0] = i)
+    long mv = 0;   // negative vertical deltas
+    int score = m;  // the value in the last row: D[m,j]
+    // the final diagonal (the one that contains D[m,n]) crosses column j at row j+m-n
+    int diagOffset = m - n;
+    for (int j = 0; j < n; j++) {
+      long eq = peq.get(text.charAt(j), 0);
+      long xv = eq | mv;
+      long xh = (((eq & pv) + pv) ^ pv) | eq;
+      long ph = mv | ~(xh | pv);
+      long mh = pv & xh;
+      if ((ph & lastRow) != 0)
+        score++;
+      else if ((mh & lastRow) != 0)
+        score--;
+      // the horizontal delta entering the first row is always +1, because D[0,j] = j
+      ph = (ph << 1) | 1;
+      mh <<= 1;
+      pv = mh | ~(xv | ph);
+      mv = ph & xv;
+      if (maxDistance != Integer.MAX_VALUE) {
+        int row = j + 1 + diagOffset;
+        if (row > 0 && valueInRow(score, pv, mv, row - 1, m - 1) > maxDistance)
+          return maxDistance + 1;
+      }
+    }
+    return score <= maxDistance ? score : maxDistance + 1;
+  }
+
+  /**
+   * The bit-parallel algorithm for a pattern that spans multiple 64-bit blocks, computing only the blocks that
+   * intersect the diagonal band of width {@code 2*maxDistance+1}.
+   * <p>
+   * The skipped cells above the band are treated as if their values were increasing by 1 in each column
+   * (i.e. the horizontal delta entering the first computed block is always +1), and the cells of a block
+   * entering the band from below are initialized by counting up from the last row of the block above it
+   * (i.e. all of its vertical deltas are +1: {@code pv = -1, mv = 0}).  Both are
+   * overestimates of the actual values, which means that every computed value is either exact or greater
+   * than {@code maxDistance} (because an alignment path with cost &le; {@code maxDistance} never leaves the band).
+   */
+  private static int bitParallelDistanceMultiWord(PatternBitmasks peq, int m, String text, int maxDistance) {
+    int n = text.length();
+    int nBlocks = peq.nBlocks;
+    int lastBlock = nBlocks - 1;
+    long lastRow = 1L << ((m - 1) % WORD_SIZE);  // the last row of the last block
+    long[] pv = new long[nBlocks];
+    long[] mv = new long[nBlocks];
+    int[] score = new int[nBlocks];  // the value in the last row of each block
+    // column 0: D[i,0] = i
+    for (int b = 0; b < nBlocks; b++) {
+      pv[b] = -1;
+      score[b] = Math.min((b + 1) * WORD_SIZE, m);
+    }
+    boolean banded = maxDistance < m;
+    int firstActive = 0;
+    int lastActive = banded ? blockOfRow(maxDistance) : lastBlock;
+    int diagOffset = m - n;
+    for (int j = 1; j <= n; j++) {
+      if (banded) {
+        // the band covers the rows [j-maxDistance, j+maxDistance] in column j
+        firstActive = blockOfRow(Math.max(1, j - maxDistance));
+        int newLastActive = blockOfRow(Math.min(m, j + maxDistance));
+        while (lastActive < newLastActive) {
+          // the next block is entering the band: initialize its values in the prior column as D[top,j-1] + i
+          int b = ++lastActive;
+          pv[b] = -1;
+          mv[b] = 0;
+          score[b] = score[b - 1] + (b == lastBlock ? m - b * WORD_SIZE : WORD_SIZE);
+        }
+      }
+      char c = text.charAt(j - 1);
+      int hin = 1;  // the horizontal delta entering the first row (D[0,j] - D[0,j-1] = 1)
+      for (int b = firstActive; b <= lastActive; b++) {
+        long eq = peq.get(c, b);
+        long pvb = pv[b];
+        long mvb = mv[b];
+        long xv = eq | mvb;
+        if (hin < 0)
+          eq |= 1;
+        long xh = (((eq & pvb) + pvb) ^ pvb) | eq;
+        long ph = mvb | ~(xh | pvb);
+        long mh = pvb & xh;
+        long blockLastRow = (b == lastBlock) ? lastRow : HIGH_BIT;
+        int hout = (ph & blockLastRow) != 0 ? 1 : ((mh & blockLastRow) != 0 ? -1 : 0);
+        ph <<= 1;
+        mh <<= 1;
+        if (hin < 0)
+          mh |= 1;
+        else if (hin > 0)
+          ph |= 1;
+        pv[b] = mh | ~(xv | ph);
+        mv[b] = ph & xv;
+        score[b] += hout;
+        hin = hout;
+      }
+      if (banded) {
+        int row = j + diagOffset;
+        if (row > 0) {
+          int b = blockOfRow(row);
+          int lastBit = (b == lastBlock) ? (m - 1) % WORD_SIZE : WORD_SIZE - 1;
+          if (valueInRow(score[b], pv[b], mv[b], (row - 1) % WORD_SIZE, lastBit) > maxDistance)
+            return maxDistance + 1;
+        }
+      }
+    }
+    return score[lastBlock] <= maxDistance ? score[lastBlock] : maxDistance + 1;
+  }
+
+  /**
+   * @param row a 1-based row index of the dynamic programming table (i.e. a 1-based index in the pattern)
+   * @return the index of the 64-bit block that contains the given row
+   */
+  private static int blockOfRow(int row) {
+    return (row - 1) / WORD_SIZE;
+  }
+
+  /**
+   * Uses the vertical deltas encoded by a block to compute the value in one of its rows, given the value in its
+   * last row.
+   *
+   * @param lastValue the value in the row corresponding to bit {@code lastBit}
+   * @param pv the positive vertical deltas of the block
+   * @param mv the negative vertical deltas of the block
+   * @param bit the bit corresponding to the desired row
+   * @param lastBit the bit corresponding to the last row of the block
+   * @return the value in the row corresponding to {@code bit}
+   */
+  private static int valueInRow(int lastValue, long pv, long mv, int bit, int lastBit) {
+    if (bit == lastBit)
+      return lastValue;
+    // the deltas of the rows (bit, lastBit] lead from the desired value to the last value
+    long mask = (lastBit == WORD_SIZE - 1 ? -1L : (1L << (lastBit + 1)) - 1) & ~((1L << (bit + 1)) - 1);
+    return lastValue - Long.bitCount(pv & mask) + Long.bitCount(mv & mask);
+  }
+
+  /**
+   * Finds the Levenshtein distance between two Strings using the classic dynamic programming algorithm, which
+   * was the implementation of {@link #editDistance(String, String)} prior to the bit-parallel algorithm.
+   * Still used as the reference implementation in unit tests and benchmarks.
    *
    * <p>
    * NOTES(Alex E):
@@ -439,10 +1038,9 @@ public class Levenshtein {
    * @param s  the first String, must not be null
    * @param t  the second String, must not be null
    * @return result distance
-   * @throws IllegalArgumentException if either String input <code>null</code>
-   * @see <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">Levenshtein Distance (Wikipedia)</a>
+   * @throws NullPointerException if either String input <code>null</code>
    */
-  public static int editDistance(String s, String t) {
+  static int editDistanceDP(String s, String t) {
     int n = s.length();
     int m = t.length();
     // base case optimizations
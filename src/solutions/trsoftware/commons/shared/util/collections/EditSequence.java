@@ -17,6 +17,7 @@
 package solutions.trsoftware.commons.shared.util.collections;
 
 import solutions.trsoftware.commons.shared.util.CollectionUtils;
+import solutions.trsoftware.commons.shared.util.EditPathFinder;
 import solutions.trsoftware.commons.shared.util.Levenshtein;
 import solutions.trsoftware.commons.shared.util.ListUtils;
 import solutions.trsoftware.commons.shared.util.LogicUtils;
@@ -335,13 +336,58 @@ public abstract class EditSequence<T> implements Iterable<EditSequence.EditOpera
   /**
    * Computes the edit sequence that transforms the first list into the second list, corresponding to the Levenshtein
    * distance between the two.
+   * <p>
+   * Uses {@link EditPathFinder}, which finds the same edit sequence as the classic dynamic programming
+   * algorithm ({@link #createDP(List, List)}), but in O(m*log(n)) space.
+   *
+   * @return The shortest edit sequence to transform s into t (the length of this edit sequence is the Levenshtein distance
+   * between the two inputs).
+   * @throws NullPointerException if either list is null
+   * @see <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">Wikipedia article on Levenshtein distance</a>
+   */
+  public static <T> EditSequence<T> create(final List<T> s, final List<T> t) {
+    int n = s.size();
+    int m = t.size();
+    // base case optimizations
+    if (n == 0)
+      return new InsertionSequence<T>(t);
+    if (m == 0)
+      return new DeletionSequence<T>(s);
+    final ArrayList<EditOperation<T>> operations = new ArrayList<EditOperation<T>>();
+    EditPathFinder.findPath(n, m, new EditPathFinder.Matcher() {
+      @Override
+      public boolean matches(int i, int j) {
+        return equal(s.get(i), t.get(j));
+      }
+    }, false, new EditPathFinder.Visitor() {
+      @Override
+      public void insertion(int pos, int j) {
+        operations.add(new Insertion<T>(pos, t.get(j)));
+      }
+      @Override
+      public void deletion(int pos, int i) {
+        operations.add(new Deletion<T>(pos, s.get(i)));
+      }
+      @Override
+      public void substitution(int pos, int j) {
+        operations.add(new Substitution<T>(pos, t.get(j)));
+      }
+    });
+    return new ArrayListEditSequence<T>(operations);
+  }
+
+  /**
+   * Computes the edit sequence that transforms the first list into the second list using the classic dynamic
+   * programming algorithm, which was the implementation of {@link #create(List, List)} prior to
+   * {@link EditPathFinder}.  Still used as the reference implementation in unit tests.
+   *
    * @return The shortest edit sequence to transform s into t (the length of this edit sequence is the Levenshtein distance
    * between the two inputs).
    * @throws NullPointerException if either list is null
    * @throws OutOfMemoryError if the lists are too long (this method uses O(n^2) memory)
    * @see <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">Wikipedia article on Levenshtein distance</a>
    */
-  public static <T> EditSequence<T> create(List<T> s, List<T> t) {
+  static <T> EditSequence<T> createDP(List<T> s, List<T> t) {
     // NOTE: see http://en.wikipedia.org/wiki/Levenshtein_distance to learn how the algorithm works
     // this implementation differs from the simple implementation given by Wikipedia in 2 ways:
     // 1) only the first two rows of the matrix are kept in memory (to use O(md) <= O(n^2) space instead of O(mdn) <= O(n^3) space, where n is the length of the longest input string, m is the length of the shortest input, and d is the edit distance)
@@ -35,6 +35,8 @@ import java.util.stream.Stream;
  * <span style="color: #0073BF; font-weight: bold;">
  *   TODO: might want to also provide an unsynchronized version, for faster performance in single-threaded contexts.
  * </span>
+ * For counting keys from many threads concurrently (with {@code long} counts), see
+ * {@link solutions.trsoftware.commons.server.stats.ConcurrentHashCounter}.
  *
  * @param <K> type of the objects being counted
  * @author Alex
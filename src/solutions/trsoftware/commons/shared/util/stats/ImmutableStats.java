@@ -17,10 +17,15 @@
 package solutions.trsoftware.commons.shared.util.stats;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Encapsulates the statistics for a sample of numbers without the overhead
  * of storing each number in the sample (in contrast to NumberSample)
+ * <p>
+ * Can optionally carry a set of percentiles (e.g. the p50/p90/p99/p999 computed by a {@link QuantileSketch}).
  *
  * @author Alex
  */
@@ -33,6 +38,8 @@ public class ImmutableStats<N extends Number> implements SampleStatistics<N>, Se
   private final double sum;
   private final double mean;
   private final double variance;
+  /** The values of the percentiles (0..100) included in this summary, if any */
+  private final TreeMap<Double, N> percentiles;
 
   /**
    * Default constructor to satisfy the contract of {@link Serializable}
@@ -42,6 +49,15 @@ public class ImmutableStats<N extends Number> implements SampleStatistics<N>, Se
   }
 
   public ImmutableStats(int size, N min, N max, N median, double sum, double mean, double variance) {
+    this(size, min, max, median, sum, mean, variance, null);
+  }
+
+  /**
+   * @param percentiles the values of some percentiles of the sample, keyed by percentile (in the range 0..100);
+   * can be {@code null}
+   */
+  public ImmutableStats(int size, N min, N max, N median, double sum, double mean, double variance,
+                        SortedMap<Double, N> percentiles) {
     this.size = size;
     this.min = min;
     this.max = max;
@@ -49,6 +65,7 @@ public class ImmutableStats<N extends Number> implements SampleStatistics<N>, Se
     this.sum = sum;
     this.mean = mean;
     this.variance = variance;
+    this.percentiles = percentiles != null ? new TreeMap<Double, N>(percentiles) : new TreeMap<Double, N>();
   }
 
   @Override
@@ -85,6 +102,22 @@ public class ImmutableStats<N extends Number> implements SampleStatistics<N>, Se
     return variance;
   }
 
+  /**
+   * @return the values of the percentiles included in this summary, keyed by percentile (in the range 0..100);
+   * empty if this summary doesn't have any percentiles.
+   */
+  public SortedMap<Double, N> getPercentiles() {
+    return Collections.unmodifiableSortedMap(percentiles);
+  }
+
+  /**
+   * @param p the desired percentile (0..100)
+   * @return the value of the given percentile, or {@code null} if it's not included in this summary
+   */
+  public N percentile(double p) {
+    return percentiles.get(p);
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder();
@@ -96,6 +129,8 @@ public class ImmutableStats<N extends Number> implements SampleStatistics<N>, Se
     sb.append(", max=").append(max);
     sb.append(", stdev=").append(stdev());
     sb.append(", variance=").append(variance);
+    if (!percentiles.isEmpty())
+      sb.append(", percentiles=").append(percentiles);
     sb.append(')');
     return sb.toString();
   }
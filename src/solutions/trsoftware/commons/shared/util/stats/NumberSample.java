@@ -36,6 +36,8 @@ import java.util.stream.Stream;
  * <span style="color: #0073BF; font-weight: bold;">
  *   TODO: might want to also provide an unsynchronized version, for faster performance in single-threaded contexts.
  * </span>
+ * The primitive-specialized versions of this class ({@link NumberSampleInt}, {@link NumberSampleLong},
+ * and {@link NumberSampleDouble}) are unsynchronized, and use much less memory.
  *
  * @author Alex
  * @see NumberSampleOnline
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import solutions.trsoftware.commons.shared.util.ArrayUtils;
+import solutions.trsoftware.commons.shared.util.NumberRange;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A version of {@link NumberSample} specialized for {@code int} values, which stores the sample in a growable
+ * {@code int[]} array rather than a list of boxed {@link Integer} objects (which take up about 4 times as much memory).
+ * <p>
+ * The {@link #median()}, {@link #percentile(int) percentiles}, and other order statistics are computed with
+ * {@link ArrayUtils#select(int[], int, int, int) quickselect} in O(n) expected time, instead of re-sorting the sample
+ * after it's been modified (the sample is sorted only if it's already in order or {@link #getData()} is called).
+ * The {@link #min()}, {@link #max()}, and {@link #sum()} are maintained on every update.
+ * <p>
+ * <em>NOTE</em>: unlike {@link NumberSample}, this class is not synchronized: an instance should be updated and
+ * queried by a single thread (the queries are not read-only, since they partially reorder the backing array).
+ * To collect samples from multiple threads, give each thread its own instance, and then {@link #merge} them.
+ * This is also how the {@link #getCollector() collector} handles parallel streams.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ * @see NumberSampleLong
+ * @see NumberSampleDouble
+ */
+public class NumberSampleInt implements SampleStatistics<Integer>, CollectableStats<Integer, NumberSampleInt>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The values in the sample, stored in the range {@code [0, size)} */
+  private int[] data;
+  private int size;
+  /** True if the values in {@link #data} are known to be in sorted order */
+  private boolean sorted = true;
+
+  private int min = Integer.MAX_VALUE;
+  private int max = Integer.MIN_VALUE;
+  /** Since the values are ints, we can maintain an exact sum */
+  private long sum;
+
+  public NumberSampleInt() {
+    this(16);
+  }
+
+  /**
+   * @param initialCapacity the estimated number of values that will be added to the sample
+   */
+  public NumberSampleInt(int initialCapacity) {
+    data = new int[initialCapacity];
+  }
+
+  public void update(int x) {
+    if (sorted && size > 0 && x < data[size - 1])
+      sorted = false;
+    data = ArrayUtils.flexibleArrayAdd(data, size, x);
+    size++;
+    if (x < min)
+      min = x;
+    if (x > max)
+      max = x;
+    sum += x;
+  }
+
+  @Override
+  public void update(Integer x) {
+    update(x.intValue());
+  }
+
+  /**
+   * Adds all the given values to the sample.
+   */
+  public void addAll(int... values) {
+    for (int x : values) {
+      update(x);
+    }
+  }
+
+  @Override
+  public void merge(NumberSampleInt other) {
+    if (other.size == 0)
+      return;
+    if (data.length < size + other.size)
+      data = Arrays.copyOf(data, ArrayUtils.grownCapacity(data.length, size + other.size));
+    System.arraycopy(other.data, 0, data, size, other.size);
+    sorted = sorted && other.sorted && (size == 0 || data[size - 1] <= other.data[0]);
+    size += other.size;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sum += other.sum;
+  }
+
+  /**
+   * Can be called after data collection is finished to free up some memory.
+   */
+  public void trimToSize() {
+    if (data.length > size)
+      data = Arrays.copyOf(data, size);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @throws NoSuchElementException if the sample is empty
+   */
+  @Override
+  public Integer min() {
+    checkNotEmpty();
+    return min;
+  }
+
+  /**
+   * @throws NoSuchElementException if the sample is empty
+   */
+  @Override
+  public Integer max() {
+    checkNotEmpty();
+    return max;
+  }
+
+  @Override
+  public double sum() {
+    return sum;
+  }
+
+  @Override
+  public double mean() {
+    return (double)sum / size;
+  }
+
+  @Override
+  public double variance() {
+    double mean = mean();
+    double sumSquaredDiffs = 0;
+    for (int i = 0; i < size; i++) {
+      double diff = data[i] - mean;
+      sumSquaredDiffs += diff * diff;
+    }
+    return sumSquaredDiffs / size;
+  }
+
+  /**
+   * @return the median element of the sample if the sample size is odd, otherwise the {@link Median#getUpper() upper}
+   * median (same as {@link NumberSample#median()})
+   * @throws NoSuchElementException if the sample is empty
+   */
+  @Override
+  public Integer median() {
+    checkNotEmpty();
+    return select(size / 2);
+  }
+
+  /**
+   * @return a wrapper for the two middle values in the sample, or {@code null} if the sample is empty
+   * @see NumberSample#getMedian()
+   */
+  public Median<Integer> getMedian() {
+    if (size == 0)
+      return null;
+    int mid = size / 2;
+    if (sorted)
+      return size % 2 == 1 ? new Median<>(data[mid]) : new Median<>(data[mid - 1], data[mid]);
+    int upper = ArrayUtils.select(data, 0, size, mid);
+    if (size % 2 == 1)
+      return new Median<>(upper);
+    // the lower median is the largest value that precedes the upper median after the selection
+    int lower = data[0];
+    for (int i = 1; i < mid; i++) {
+      if (data[i] > lower)
+        lower = data[i];
+    }
+    return new Median<>(lower, upper);
+  }
+
+  /**
+   * Selects the <i>k</i>th smallest value in the sample, with the same semantics as {@link NumberSample#orderStatistic(int)}.
+   *
+   * @param k the rank ordinal of the desired element (1-indexed), or a negative value in the range -N..-1 to select
+   * the <i>-k</i>th biggest value.
+   * @throws IllegalArgumentException if {@code k} is out of range
+   */
+  public int orderStatistic(int k) {
+    int i;
+    if (NumberRange.inRange(1, size, k))
+      i = k - 1;
+    else if (NumberRange.inRange(-size, -1, k))
+      i = size + k;
+    else
+      throw new IllegalArgumentException(
+          Strings.lenientFormat("k (%s) should be a positive or negative ordinal between 1 and %s", k, size));
+    return select(i);
+  }
+
+  /**
+   * Returns the element at index {@code floor(kPct * N)} of the sorted sample, with the same semantics as
+   * {@link NumberSample#orderStatistic(double)}.
+   *
+   * @param kPct a fraction of the total number of elements that are &le; the desired element (in the range [0,1])
+   * @throws IllegalArgumentException if the argument is not a finite value in the range 0..1
+   * @throws NoSuchElementException if the sample is empty
+   */
+  public int orderStatistic(double kPct) {
+    Preconditions.checkArgument(Double.isFinite(kPct) && NumberRange.inRange(0d, 1d, kPct),
+        "Percentage must be a finite value in the range 0..1, given: %s", kPct
+    );
+    checkNotEmpty();
+    return select(Math.min((int)Math.floor(size * kPct), size - 1));
+  }
+
+  /**
+   * Computes a percentile using the nearest-rank method, with the same semantics as {@link NumberSample#percentile(int)}.
+   *
+   * @param p the desired percentile (0..100)
+   * @return the smallest element in the sample that is greater than {@code p} percent of the elements
+   * @throws IllegalArgumentException if the argument is not in the range 0..100
+   * @throws NoSuchElementException if the sample is empty
+   */
+  public int percentile(int p) {
+    Preconditions.checkArgument(NumberRange.inRange(0, 100, p),
+        "Percentile must be an integer in the range 0..100, given: %s", p
+    );
+    checkNotEmpty();
+    // NOTE: since the ordinal rank is 1-indexed, we have to subtract 1 to map it to an array index
+    return select(p > 0 ? (int)Math.ceil(p / 100d * size) - 1 : 0);
+  }
+
+  /**
+   * @return the value that would be at the given index if the sample were sorted
+   */
+  private int select(int index) {
+    if (index == 0)
+      return min;
+    if (index == size - 1)
+      return max;
+    if (sorted)
+      return data[index];
+    return ArrayUtils.select(data, 0, size, index);
+  }
+
+  private void sort() {
+    if (!sorted) {
+      Arrays.sort(data, 0, size);
+      sorted = true;
+    }
+  }
+
+  private void checkNotEmpty() {
+    if (size == 0)
+      throw new NoSuchElementException("The sample is empty");
+  }
+
+  /**
+   * @return a sorted copy of the values in this sample
+   */
+  public int[] getData() {
+    sort();
+    return Arrays.copyOf(data, size);
+  }
+
+  /**
+   * Returns a summary of the sample, which contains all the statistics without actually storing all the numbers in
+   * the sample.
+   */
+  @Override
+  public ImmutableStats<Integer> summarize() {
+    if (size == 0)
+      return new ImmutableStats<Integer>();
+    return new ImmutableStats<Integer>(size, min(), max(), median(), sum(), mean(), variance());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    NumberSampleInt that = (NumberSampleInt)o;
+    if (size != that.size)
+      return false;
+    // NOTE: we sort the samples prior to performing the comparison because the order is not important
+    sort();
+    that.sort();
+    for (int i = 0; i < size; i++) {
+      if (data[i] != that.data[i])
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    // NOTE: we sort the samples prior to getting their hashCode because the order is not important
+    sort();
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + data[i];
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "NumberSampleInt{" + summarize() + '}';
+  }
+
+  @Override
+  public java.util.stream.Collector<Integer, ?, NumberSampleInt> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * Collects an {@link IntStream} into an instance of this class.
+   */
+  public static NumberSampleInt collectIntStream(IntStream intStream) {
+    return intStream.collect(NumberSampleInt::new, NumberSampleInt::update, NumberSampleInt::merge);
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link Stream#collect}
+   * to collect the stream elements into an instance of {@link NumberSampleInt}.
+   * <p>
+   * Since {@link NumberSampleInt} is not thread-safe, this collector is not
+   * {@link java.util.stream.Collector.Characteristics#CONCURRENT CONCURRENT}: a parallel stream will fill a separate
+   * instance for each thread and then {@linkplain #merge merge} them.
+   *
+   * @see #getInstance()
+   */
+  public static class Collector extends CollectableStats.Collector<Integer, NumberSampleInt> {
+
+    /**
+     * NOTE: static fields are automatically lazy-init for singletons and safer to use than double-checked locking.
+     * @see <a href="https://en.wikipedia.org/wiki/Initialization-on-demand_holder_idiom">Initialization-on-demand holder idiom</a>
+     */
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @return the cached instance of this {@link Collector}
+     */
+    public static Collector getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<NumberSampleInt> supplier() {
+      return NumberSampleInt::new;
+    }
+  }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+
+/**
+ * Estimates the percentiles of a sample of numbers in bounded memory, without storing the individual numbers
+ * (unlike {@link NumberSample}) and with a configurable error bound.
+ * <p>
+ * The numbers are counted in logarithmically-sized buckets, such that every number in the bucket with index {@code i}
+ * is in the range {@code (γ^(i-1), γ^i]}, where {@code γ = (1 + α) / (1 - α)} and {@code α} is the
+ * {@linkplain #getRelativeAccuracy() relative accuracy}.  Therefore, the value estimated for any percentile
+ * is within {@code α * x} of the actual value {@code x} of that percentile (as defined by
+ * {@link NumberSample#percentile(int)}), which makes this data structure well-suited for estimating the tail
+ * percentiles of a latency distribution (e.g. p99 or p999).  Negative numbers are counted in a separate set of
+ * buckets (by magnitude), and numbers very close to {@code 0} are counted as {@code 0}.
+ * <p>
+ * The buckets are stored in an array that grows as needed, up to {@link #getMaxBuckets()} for the positive numbers
+ * (and the same for negative numbers).  If a sample spans more buckets than that, the buckets of the smallest
+ * magnitudes are collapsed into one, which means that the accuracy guarantee will no longer hold for the lowest
+ * percentiles (the default limit accommodates a ratio of {@code 10^17} between the largest and the smallest
+ * magnitudes with the default accuracy of 1%).
+ * <p>
+ * Two instances with the same relative accuracy can be {@linkplain #merge(QuantileSketch) merged} without any loss
+ * of accuracy (e.g. to combine the samples collected by different threads or servers).
+ * The {@link #sum()}, {@link #mean()}, {@link #variance()}, {@link #min()}, and {@link #max()} are computed exactly.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ * @see <a href="https://arxiv.org/abs/1908.10693">Masson et al., "DDSketch: A Fast and Fully-Mergeable Quantile Sketch
+ *     with Relative-Error Guarantees"</a>
+ */
+public class QuantileSketch implements SampleStatistics<Double>, UpdatableDouble, CollectableStats<Double, QuantileSketch>, Serializable {
+
+  /** The percentiles included in the {@link #summarize() summary} */
+  public static final double[] DEFAULT_PERCENTILES = {50, 90, 99, 99.9};
+
+  public static final double DEFAULT_RELATIVE_ACCURACY = .01;
+
+  public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+  /** Numbers whose magnitude is smaller than this are counted as {@code 0} */
+  private static final double MIN_INDEXABLE_VALUE = Double.MIN_NORMAL;
+
+  private double relativeAccuracy;
+  private int maxBuckets;
+  /** The base of the logarithmic bucket boundaries: {@code (1 + α) / (1 - α)} */
+  private double gamma;
+  private double logGamma;
+
+  private Buckets positive;
+  private Buckets negative;
+  private int zeroCount;
+
+  private MeanAndVariance meanAndVariance = new MeanAndVariance();
+  private MinDouble min = new MinDouble();
+  private MaxDouble max = new MaxDouble();
+
+  /**
+   * Creates a sketch with the {@linkplain #DEFAULT_RELATIVE_ACCURACY default relative accuracy} (1%).
+   */
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY);
+  }
+
+  /**
+   * @param relativeAccuracy the max relative error of the estimated percentiles, in the range {@code (0, 1)}
+   */
+  public QuantileSketch(double relativeAccuracy) {
+    this(relativeAccuracy, DEFAULT_MAX_BUCKETS);
+  }
+
+  /**
+   * @param relativeAccuracy the max relative error of the estimated percentiles, in the range {@code (0, 1)}
+   * @param maxBuckets the max number of buckets for each sign, which limits the memory usage
+   */
+  public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+    if (!(relativeAccuracy > 0 && relativeAccuracy < 1))
+      throw new IllegalArgumentException("relativeAccuracy must be in the range (0, 1): " + relativeAccuracy);
+    if (maxBuckets < 1)
+      throw new IllegalArgumentException("maxBuckets must be positive: " + maxBuckets);
+    this.relativeAccuracy = relativeAccuracy;
+    this.maxBuckets = maxBuckets;
+    gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    logGamma = Math.log(gamma);
+    positive = new Buckets(maxBuckets);
+    negative = new Buckets(maxBuckets);
+  }
+
+  public double getRelativeAccuracy() {
+    return relativeAccuracy;
+  }
+
+  public int getMaxBuckets() {
+    return maxBuckets;
+  }
+
+  @Override
+  public void update(Double x) {
+    update(x.doubleValue());
+  }
+
+  @Override
+  public synchronized void update(double x) {
+    if (!Double.isFinite(x)) {
+      // allow only finite values, otherwise a single bad input can destroy what we have (e.g. make everything NaN)
+      System.err.println("WARNING: " + getClass().getSimpleName() + " ignoring bad input: " + x);
+      return;
+    }
+    if (x >= MIN_INDEXABLE_VALUE)
+      positive.add(index(x), 1);
+    else if (x <= -MIN_INDEXABLE_VALUE)
+      negative.add(index(-x), 1);
+    else
+      zeroCount++;
+    meanAndVariance.update(x);
+    min.update(x);
+    max.update(x);
+  }
+
+  /**
+   * Merges in the data from another sketch, which must have the same relative accuracy.
+   * @throws IllegalArgumentException if the other sketch has a different relative accuracy
+   */
+  @Override
+  public void merge(QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy)
+      throw new IllegalArgumentException("Can't merge sketches with different relative accuracies: "
+          + relativeAccuracy + " and " + other.relativeAccuracy);
+    // take a snapshot of the other sketch before locking this one (holding both locks at the same time would
+    // cause a deadlock if the other sketch was being merged with this one concurrently)
+    Buckets otherPositive, otherNegative;
+    int otherZeroCount;
+    MeanAndVariance otherMeanAndVariance = new MeanAndVariance();
+    MinDouble otherMin = new MinDouble();
+    MaxDouble otherMax = new MaxDouble();
+    synchronized (other) {
+      if (other.size() == 0)
+        return;
+      otherPositive = other.positive.copy();
+      otherNegative = other.negative.copy();
+      otherZeroCount = other.zeroCount;
+      otherMeanAndVariance.merge(other.meanAndVariance);
+      otherMin.merge(other.min);
+      otherMax.merge(other.max);
+    }
+    synchronized (this) {
+      positive.addAll(otherPositive);
+      negative.addAll(otherNegative);
+      zeroCount += otherZeroCount;
+      meanAndVariance.merge(otherMeanAndVariance);
+      min.merge(otherMin);
+      max.merge(otherMax);
+    }
+  }
+
+  /**
+   * @return the index of the bucket for the given positive number
+   */
+  private int index(double x) {
+    return (int)Math.ceil(Math.log(x) / logGamma);
+  }
+
+  /**
+   * @return the estimated value of the numbers in the bucket with the given index (the value whose relative
+   * distance from both bounds of the bucket is {@link #relativeAccuracy})
+   */
+  private double value(int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+
+  @Override
+  public synchronized int size() {
+    return meanAndVariance.size();
+  }
+
+  /**
+   * @return the smallest number in the sample, or {@code null} if the sample is empty
+   */
+  @Override
+  public synchronized Double min() {
+    return size() > 0 ? min.get() : null;
+  }
+
+  /**
+   * @return the largest number in the sample, or {@code null} if the sample is empty
+   */
+  @Override
+  public synchronized Double max() {
+    return size() > 0 ? max.get() : null;
+  }
+
+  @Override
+  public synchronized double sum() {
+    return meanAndVariance.sum();
+  }
+
+  @Override
+  public synchronized double mean() {
+    return meanAndVariance.mean();
+  }
+
+  @Override
+  public synchronized double variance() {
+    // NOTE: NumberSample uses the Population variance, so we use the same here
+    return meanAndVariance.variance();
+  }
+
+  /**
+   * @return an estimate of the upper median of the sample (if there are 2 medians),
+   * or {@code null} if the sample is empty
+   */
+  @Override
+  public synchronized Double median() {
+    int n = size();
+    return n > 0 ? valueAtRank(n / 2) : null;
+  }
+
+  /**
+   * Estimates the given percentile according to the same definition as {@link NumberSample#percentile(int)}
+   * (the nearest-rank method).
+   *
+   * @param p the desired percentile (0..100)
+   * @return an estimate of the given percentile, or {@code null} if the sample is empty
+   */
+  public synchronized Double percentile(double p) {
+    if (!(p >= 0 && p <= 100))
+      throw new IllegalArgumentException("Percentile must be in the range 0..100, given: " + p);
+    int n = size();
+    if (n == 0)
+      return null;
+    // NOTE: since the ordinal rank is 1-indexed, we have to subtract 1 to map it to a 0-indexed rank
+    return valueAtRank(Math.max(0, (int)Math.ceil(p / 100d * n) - 1));
+  }
+
+  /**
+   * @param rank the 0-indexed rank of a number in the sorted sample
+   * @return the estimated value of the number with the given rank
+   */
+  private double valueAtRank(int rank) {
+    // the min and max are known exactly
+    if (rank == 0)
+      return min.get();
+    if (rank == size() - 1)
+      return max.get();
+    double ret;
+    if (rank < negative.total)
+      ret = -value(negative.indexOfRank(negative.total - 1 - rank));  // the negative numbers are sorted by magnitude
+    else if (rank < negative.total + zeroCount)
+      ret = 0;
+    else
+      ret = value(positive.indexOfRank(rank - negative.total - zeroCount));
+    return Math.max(min.get(), Math.min(max.get(), ret));
+  }
+
+  /**
+   * Returns a summary of the sample, which includes the {@link #DEFAULT_PERCENTILES}.
+   */
+  @Override
+  public ImmutableStats<Double> summarize() {
+    return summarize(DEFAULT_PERCENTILES);
+  }
+
+  /**
+   * Returns a summary of the sample, which includes the given percentiles.
+   * @param percentiles the desired percentiles (0..100)
+   */
+  public synchronized ImmutableStats<Double> summarize(double... percentiles) {
+    SortedMap<Double, Double> percentileValues = new TreeMap<Double, Double>();
+    if (size() > 0) {
+      for (double p : percentiles)
+        percentileValues.put(p, percentile(p));
+    }
+    return new ImmutableStats<Double>(size(), min(), max(), median(), sum(), mean(), variance(), percentileValues);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "QuantileSketch(relativeAccuracy=" + relativeAccuracy + ", " + summarize() + ")";
+  }
+
+  @Override
+  public java.util.stream.Collector<Double, ?, QuantileSketch> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * Collects a {@link DoubleStream} into a new instance of {@link QuantileSketch} with the default relative accuracy.
+   */
+  public static QuantileSketch collectDoubleStream(DoubleStream doubleStream) {
+    return doubleStream.collect(QuantileSketch::new,
+        (sketch, value) -> sketch.update(value),
+        QuantileSketch::merge);
+  }
+
+  /**
+   * The counts of the numbers in a contiguous range of bucket indices.
+   */
+  private static class Buckets implements Serializable {
+    private static final int INITIAL_LENGTH = 64;
+
+    private int maxBuckets;
+    /** The counts of the buckets, starting with the bucket whose index is {@link #offset} */
+    private int[] counts;
+    private int offset;
+    /** The range of the indices of the non-empty buckets */
+    private int minIndex;
+    private int maxIndex;
+    /** The sum of the counts */
+    private int total;
+
+    /**
+     * Default constructor to satisfy the contract of {@link Serializable}
+     */
+    private Buckets() {
+    }
+
+    private Buckets(int maxBuckets) {
+      this.maxBuckets = maxBuckets;
+    }
+
+    private void add(int index, int count) {
+      if (total == 0) {
+        counts = new int[Math.min(INITIAL_LENGTH, maxBuckets)];
+        offset = index - counts.length / 2;
+        minIndex = maxIndex = index;
+      }
+      else if (index < minIndex) {
+        // if the range would be too large, we add the count to the lowest bucket we can keep
+        index = Math.max(index, maxIndex - maxBuckets + 1);
+        ensureRange(index, maxIndex);
+        minIndex = Math.min(minIndex, index);
+      }
+      else if (index > maxIndex) {
+        int newMinIndex = Math.max(minIndex, index - maxBuckets + 1);
+        // if the range would be too large, we collapse the lowest buckets into the lowest bucket we can keep
+        int collapsedCount = 0;
+        for (int i = minIndex; i < newMinIndex && i <= maxIndex; i++) {
+          collapsedCount += counts[i - offset];
+          counts[i - offset] = 0;
+        }
+        if (newMinIndex > maxIndex)
+          maxIndex = minIndex = newMinIndex;  // all the buckets were collapsed
+        else
+          minIndex = newMinIndex;
+        ensureRange(minIndex, index);
+        counts[minIndex - offset] += collapsedCount;
+        maxIndex = index;
+      }
+      counts[index - offset] += count;
+      total += count;
+    }
+
+    /**
+     * Makes sure that the {@link #counts} array covers the given range of indices, reallocating it if needed.
+     */
+    private void ensureRange(int newMinIndex, int newMaxIndex) {
+      if (newMinIndex >= offset && newMaxIndex < offset + counts.length)
+        return;
+      int needed = newMaxIndex - newMinIndex + 1;
+      int newLength = Math.max(needed, Math.min(counts.length * 2, maxBuckets));
+      int[] newCounts = new int[newLength];
+      int newOffset = newMinIndex - (newLength - needed) / 2;
+      // copy the buckets that overlap the new range
+      int from = Math.max(offset, newMinIndex);
+      int to = Math.min(offset + counts.length - 1, newMaxIndex);
+      for (int i = from; i <= to; i++)
+        newCounts[i - newOffset] = counts[i - offset];
+      counts = newCounts;
+      offset = newOffset;
+    }
+
+    private Buckets copy() {
+      Buckets ret = new Buckets(maxBuckets);
+      if (counts != null)
+        ret.counts = Arrays.copyOf(counts, counts.length);
+      ret.offset = offset;
+      ret.minIndex = minIndex;
+      ret.maxIndex = maxIndex;
+      ret.total = total;
+      return ret;
+    }
+
+    private void addAll(Buckets other) {
+      if (other.total == 0)
+        return;
+      for (int i = other.minIndex; i <= other.maxIndex; i++) {
+        int count = other.counts[i - other.offset];
+        if (count != 0)
+          add(i, count);
+      }
+    }
+
+    /**
+     * @param rank a 0-indexed rank in the range {@code [0, total)}
+     * @return the index of the bucket that contains the number with the given rank
+     */
+    private int indexOfRank(int rank) {
+      int cumulativeCount = 0;
+      for (int i = minIndex; i < maxIndex; i++) {
+        cumulativeCount += counts[i - offset];
+        if (cumulativeCount > rank)
+          return i;
+      }
+      return maxIndex;
+    }
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link Stream#collect}
+   * to collect the stream elements into an instance of {@link QuantileSketch} with the default relative accuracy.
+   *
+   * @see #getInstance()
+   */
+  public static class Collector extends CollectableStats.Collector<Double, QuantileSketch> {
+
+    /**
+     * NOTE: static fields are automatically lazy-init for singletons and safer to use than double-checked locking.
+     * @see <a href="https://en.wikipedia.org/wiki/Initialization-on-demand_holder_idiom">Initialization-on-demand holder idiom</a>
+     */
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @return the cached instance of this {@link Collector}
+     */
+    public static Collector getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<QuantileSketch> supplier() {
+      return QuantileSketch::new;
+    }
+
+    /**
+     * Since all the methods in {@link QuantileSketch} are synchronized, we can include
+     * {@link java.util.stream.Collector.Characteristics#CONCURRENT CONCURRENT} characteristic.
+     * @see #CH_CONCURRENT_ID
+     */
+    @Override
+    public Set<Characteristics> characteristics() {
+      return CH_CONCURRENT_ID;
+    }
+  }
+}
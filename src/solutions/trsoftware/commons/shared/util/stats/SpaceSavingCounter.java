@@ -0,0 +1,487 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import solutions.trsoftware.commons.shared.util.JsonBuilder;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Counts the occurrences of the most frequent keys (the "heavy hitters") in an unbounded stream of keys, using
+ * a bounded amount of memory (unlike {@link HashCounter}, which remembers every key).
+ * <p>
+ * Implements the <a href="https://doi.org/10.1007/978-3-540-30570-5_27">Space-Saving</a> algorithm
+ * (Metwally et al.): at most {@link #getCapacity() capacity} keys are monitored at any time, and when a new key
+ * arrives after the counter is full, it replaces the monitored key with the lowest count, inheriting that count as
+ * its {@linkplain Estimate#getError() error}.  This provides the following guarantees for a stream of {@code N} keys:
+ * <ul>
+ *   <li>The estimated count of a monitored key is never less than its true count, and overestimates it by no more
+ *   than its {@linkplain Estimate#getError() error}, which is at most {@link #getMaxError()}.</li>
+ *   <li>The true count of a key that's not monitored is at most {@link #getMaxError()}.</li>
+ *   <li>{@link #getMaxError()} is at most {@code N / capacity}, so every key that occurs more than
+ *   {@code N / capacity} times is guaranteed to be monitored.</li>
+ * </ul>
+ * Two counters can be {@linkplain #merge(SpaceSavingCounter) merged} (e.g. to combine the counts collected by
+ * different servers), in which case the errors are combined such that the first two guarantees still hold.
+ * <p>
+ * The monitored keys are kept in a min-heap ordered by count, so every update takes O(log capacity) time.
+ * <p>
+ * NOTE: this implementation is fully {@code synchronized}.
+ *
+ * @param <K> type of the objects being counted
+ * @author Alex
+ * @since 10/17/2026
+ * @see HashCounter
+ * @see <a href="https://doi.org/10.1145/2500128">Agarwal et al., "Mergeable Summaries"</a>
+ */
+public class SpaceSavingCounter<K> implements CollectableStats<K, SpaceSavingCounter<K>>, Serializable {
+
+  /** The capacity used by the {@linkplain #SpaceSavingCounter() default constructor} and the {@link Collector} */
+  public static final int DEFAULT_CAPACITY = 1000;
+
+  private int capacity;
+  /** The monitored keys */
+  private HashMap<K, Node<K>> map;
+  /** The monitored keys, as a min-heap ordered by count */
+  private ArrayList<Node<K>> heap;
+  /** The sum of all the counts that were added (i.e. the length of the stream) */
+  private long total;
+  /**
+   * The max possible count of a key that's not monitored because it was dropped by a {@link #merge}
+   * (the Space-Saving algorithm itself bounds this by the lowest count of the monitored keys, when the counter is full)
+   */
+  private long maxDroppedCount;
+
+  /**
+   * Creates a counter with the {@link #DEFAULT_CAPACITY}.
+   */
+  public SpaceSavingCounter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the max number of keys to monitor: the counts of the monitored keys will be overestimated
+   * by no more than {@code N / capacity} (where {@code N} is the sum of all the counts)
+   */
+  public SpaceSavingCounter(int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    this.capacity = capacity;
+    map = new HashMap<>();
+    heap = new ArrayList<>();
+  }
+
+  /**
+   * Creates a counter with enough capacity to guarantee that the count of each key will be overestimated by no more
+   * than {@code maxErrorRate * N} (where {@code N} is the sum of all the counts).
+   *
+   * @param maxErrorRate a number in the range {@code (0, 1]}
+   */
+  public static <K> SpaceSavingCounter<K> withMaxErrorRate(double maxErrorRate) {
+    if (!(maxErrorRate > 0 && maxErrorRate <= 1))
+      throw new IllegalArgumentException("maxErrorRate must be in the range (0, 1]: " + maxErrorRate);
+    return new SpaceSavingCounter<>((int)Math.min(Integer.MAX_VALUE, Math.ceil(1 / maxErrorRate)));
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Increments the counter for the given key */
+  public void increment(K key) {
+    add(key, 1);
+  }
+
+  /**
+   * Adds the given delta to the counter for the given key.
+   * @param delta must be positive
+   */
+  public synchronized void add(K key, long delta) {
+    if (delta <= 0)
+      throw new IllegalArgumentException("delta must be positive: " + delta);
+    total += delta;
+    Node<K> node = map.get(key);
+    if (node != null) {
+      node.count += delta;
+      siftDown(node.heapIndex);
+    }
+    else if (heap.size() < capacity) {
+      node = new Node<>(key, delta, 0);
+      map.put(key, node);
+      node.heapIndex = heap.size();
+      heap.add(node);
+      siftUp(node.heapIndex);
+    }
+    else {
+      // replace the key with the lowest count
+      node = heap.get(0);
+      map.remove(node.key);
+      node.key = key;
+      node.error = node.count;
+      node.count += delta;
+      map.put(key, node);
+      siftDown(0);
+    }
+  }
+
+  /**
+   * @return the estimated count of the given key if it's monitored (which is an upper bound of its true count),
+   * otherwise {@code 0}
+   * @see #getUpperBound(Object)
+   * @see #getLowerBound(Object)
+   */
+  public synchronized long get(K key) {
+    Node<K> node = map.get(key);
+    return node != null ? node.count : 0;
+  }
+
+  /**
+   * @return the max possible true count of the given key
+   */
+  public synchronized long getUpperBound(K key) {
+    Node<K> node = map.get(key);
+    return node != null ? node.count : getMaxError();
+  }
+
+  /**
+   * @return the min possible true count of the given key
+   */
+  public synchronized long getLowerBound(K key) {
+    Node<K> node = map.get(key);
+    return node != null ? node.count - node.error : 0;
+  }
+
+  /**
+   * @return the max amount by which the count of any key could be overestimated, which is also the max possible
+   * true count of any key that's not monitored: this is the lowest count of the monitored keys if the
+   * {@linkplain #getCapacity() capacity} is exhausted, and {@code 0} otherwise (in which case all the counts are exact),
+   * unless some keys were dropped by a {@link #merge}.
+   */
+  public synchronized long getMaxError() {
+    return heap.size() < capacity ? maxDroppedCount : Math.max(maxDroppedCount, heap.get(0).count);
+  }
+
+  /**
+   * @return the number of keys being monitored
+   */
+  public synchronized int size() {
+    return heap.size();
+  }
+
+  /**
+   * @return the sum of all the counts that were added
+   */
+  public synchronized long sumOfAllEntries() {
+    return total;
+  }
+
+  /**
+   * @return immutable set of the monitored keys
+   */
+  public synchronized Set<K> keySet() {
+    return Collections.unmodifiableSet(new LinkedHashSet<>(map.keySet()));
+  }
+
+  /**
+   * @param n the max number of entries to return
+   * @return the estimates of the {@code n} monitored keys with the highest counts, sorted by count in descending order
+   */
+  public synchronized List<Estimate<K>> topK(int n) {
+    if (n < 0)
+      throw new IllegalArgumentException("n must not be negative: " + n);
+    List<Estimate<K>> ret = estimates();
+    return new ArrayList<>(ret.subList(0, Math.min(n, ret.size())));
+  }
+
+  /**
+   * Finds the keys that could occur more than {@code phi * N} times (where {@code N} is the sum of all the counts).
+   * The result will include every key whose true count exceeds that threshold, but it could also include some keys
+   * whose count was overestimated (this can be checked by comparing the {@linkplain Estimate#getLowerBound()
+   * lower bound} of their count with the threshold).
+   *
+   * @param phi the threshold, as a fraction of the total count (should be greater than {@code 1 / capacity} to
+   * guarantee that no heavy hitters are missed)
+   * @return the estimates for the keys whose estimated count exceeds the threshold, sorted by count in descending order
+   */
+  public synchronized List<Estimate<K>> heavyHitters(double phi) {
+    double threshold = phi * total;
+    List<Estimate<K>> ret = new ArrayList<>();
+    for (Estimate<K> estimate : estimates()) {
+      if (estimate.getCount() <= threshold)
+        break;
+      ret.add(estimate);
+    }
+    return ret;
+  }
+
+  /**
+   * @return the estimates for all the monitored keys, sorted by count in descending order
+   */
+  private List<Estimate<K>> estimates() {
+    List<Estimate<K>> ret = new ArrayList<>(heap.size());
+    for (Node<K> node : heap) {
+      ret.add(new Estimate<>(node.key, node.count, node.error));
+    }
+    ret.sort(Collections.reverseOrder());
+    return ret;
+  }
+
+  @Override
+  public void update(K x) {
+    increment(x);
+  }
+
+  /**
+   * Merges the counts from another counter (which could have a different capacity) into this one:
+   * the count of each key is the sum of its counts in both counters, where the missing count of a key that's
+   * not monitored by one of the counters is replaced by the {@linkplain #getMaxError() max error} of that counter.
+   * Then only the keys with the highest counts are retained, up to the capacity of this counter.
+   */
+  @Override
+  public void merge(SpaceSavingCounter<K> other) {
+    List<Estimate<K>> otherEstimates;
+    long otherMaxError;
+    long otherTotal;
+    synchronized (other) {
+      otherEstimates = other.estimates();
+      otherMaxError = other.getMaxError();
+      otherTotal = other.total;
+    }
+    synchronized (this) {
+      long maxError = getMaxError();
+      Map<K, Node<K>> merged = new HashMap<>();
+      for (Node<K> node : heap) {
+        merged.put(node.key, new Node<>(node.key, node.count + otherMaxError, node.error + otherMaxError));
+      }
+      for (Estimate<K> estimate : otherEstimates) {
+        Node<K> node = merged.get(estimate.key);
+        if (node != null) {
+          // replace the max error of the other counter with the actual estimate
+          node.count += estimate.count - otherMaxError;
+          node.error += estimate.error - otherMaxError;
+        }
+        else
+          merged.put(estimate.key, new Node<>(estimate.key, estimate.count + maxError, estimate.error + maxError));
+      }
+      // a key that's not monitored by either counter occurred at most maxError + otherMaxError times
+      maxDroppedCount = Math.max(maxDroppedCount, maxError + otherMaxError);
+      List<Node<K>> nodes = new ArrayList<>(merged.values());
+      if (nodes.size() > capacity) {
+        nodes.sort((a, b) -> Long.compare(b.count, a.count));
+        maxDroppedCount = Math.max(maxDroppedCount, nodes.get(capacity).count);
+        nodes = nodes.subList(0, capacity);
+      }
+      map = new HashMap<>();
+      heap = new ArrayList<>(nodes);
+      for (int i = 0; i < heap.size(); i++) {
+        Node<K> node = heap.get(i);
+        node.heapIndex = i;
+        map.put(node.key, node);
+      }
+      for (int i = heap.size() / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+      total += otherTotal;
+    }
+  }
+
+  private void siftUp(int i) {
+    Node<K> node = heap.get(i);
+    while (i > 0) {
+      int parentIndex = (i - 1) / 2;
+      Node<K> parent = heap.get(parentIndex);
+      if (parent.count <= node.count)
+        break;
+      set(i, parent);
+      i = parentIndex;
+    }
+    set(i, node);
+  }
+
+  private void siftDown(int i) {
+    Node<K> node = heap.get(i);
+    int size = heap.size();
+    while (true) {
+      int childIndex = 2 * i + 1;
+      if (childIndex >= size)
+        break;
+      Node<K> child = heap.get(childIndex);
+      if (childIndex + 1 < size && heap.get(childIndex + 1).count < child.count)
+        child = heap.get(++childIndex);
+      if (node.count <= child.count)
+        break;
+      set(i, child);
+      i = childIndex;
+    }
+    set(i, node);
+  }
+
+  private void set(int i, Node<K> node) {
+    heap.set(i, node);
+    node.heapIndex = i;
+  }
+
+  @Override
+  public synchronized String toString() {
+    Map<K, Long> counts = new LinkedHashMap<>();
+    for (Estimate<K> estimate : estimates()) {
+      counts.put(estimate.key, estimate.count);
+    }
+    return JsonBuilder.mapToJson(counts);
+  }
+
+  @Override
+  public java.util.stream.Collector<K, ?, SpaceSavingCounter<K>> getCollector() {
+    return Collector.getInstance();
+  }
+
+  /**
+   * A monitored key.
+   */
+  private static class Node<K> implements Serializable {
+    private K key;
+    private long count;
+    private long error;
+    /** The index of this node in {@link #heap} */
+    private int heapIndex;
+
+    /**
+     * Default constructor to satisfy the contract of {@link Serializable}
+     */
+    private Node() {
+    }
+
+    private Node(K key, long count, long error) {
+      this.key = key;
+      this.count = count;
+      this.error = error;
+    }
+  }
+
+  /**
+   * The estimated count of a key.  The true count of the key is in the range
+   * {@code [}{@link #getLowerBound()}{@code , }{@link #getCount()}{@code ]}.
+   *
+   * @param <K> type of the objects being counted
+   */
+  public static class Estimate<K> implements Comparable<Estimate<K>> {
+    private final K key;
+    private final long count;
+    private final long error;
+
+    public Estimate(K key, long count, long error) {
+      this.key = key;
+      this.count = count;
+      this.error = error;
+    }
+
+    public K getKey() {
+      return key;
+    }
+
+    /**
+     * @return the estimated count of the key, which is an upper bound of its true count
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return the max amount by which the count of the key could be overestimated
+     */
+    public long getError() {
+      return error;
+    }
+
+    /**
+     * @return the min possible true count of the key
+     */
+    public long getLowerBound() {
+      return count - error;
+    }
+
+    /**
+     * Orders the estimates by count.
+     */
+    @Override
+    public int compareTo(Estimate<K> o) {
+      return Long.compare(count, o.count);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Estimate<?> estimate = (Estimate<?>)o;
+      return count == estimate.count && error == estimate.error && Objects.equals(key, estimate.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(key, count, error);
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + count + (error != 0 ? "±" + error : "");
+    }
+  }
+
+  /**
+   * Provides a cached collector descriptor that can be passed to {@link Stream#collect}
+   * to collect the stream elements into an instance of {@link SpaceSavingCounter} with the {@link #DEFAULT_CAPACITY}.
+   *
+   * @param <K> the input element type
+   * @see #getInstance()
+   */
+  public static class Collector<K> extends CollectableStats.Collector<K, SpaceSavingCounter<K>> {
+
+    /**
+     * NOTE: static fields are automatically lazy-init for singletons and safer to use than double-checked locking.
+     * @see <a href="https://en.wikipedia.org/wiki/Initialization-on-demand_holder_idiom">Initialization-on-demand holder idiom</a>
+     */
+    private static final Collector INSTANCE = new Collector();
+
+    /**
+     * @param <K> the input element type
+     * @return the cached instance of this {@link Collector}
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> Collector<K> getInstance() {
+      return INSTANCE;
+    }
+
+    @Override
+    public Supplier<SpaceSavingCounter<K>> supplier() {
+      return SpaceSavingCounter::new;
+    }
+
+    /**
+     * Since all the methods in {@link SpaceSavingCounter} are synchronized, we can include
+     * {@link java.util.stream.Collector.Characteristics#CONCURRENT CONCURRENT} characteristic.
+     * @see #CH_CONCURRENT_ID
+     */
+    @Override
+    public Set<Characteristics> characteristics() {
+      return CH_CONCURRENT_ID;
+    }
+  }
+}
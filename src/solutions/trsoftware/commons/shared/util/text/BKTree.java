@@ -0,0 +1,351 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.text;
+
+import solutions.trsoftware.commons.shared.util.Levenshtein;
+
+import java.util.*;
+
+/**
+ * A Burkhard-Keller tree: an index over a dictionary of strings that supports fuzzy searches by edit distance
+ * (i.e. finding all the strings within {@code k} edits of a query, or the {@code n} strings closest to it)
+ * without computing the distance to every string in the dictionary.
+ * <p>
+ * Each child of a node is labeled with its distance from the node, and since the edit distance is a metric,
+ * the triangle inequality allows a search with radius {@code k} to skip every subtree whose label is not within
+ * {@code k} of the distance between the query and the node.  Furthermore, the distance to each node is computed
+ * with the banded algorithm ({@link Levenshtein#editDistance(String, String, int)}), capped at the smallest value
+ * that still determines which of its subtrees need to be searched.
+ * <p>
+ * The tree supports incremental inserts (which don't require rebalancing), but not removals.
+ * <p>
+ * <b>NOTE</b>: this class is not thread-safe; concurrent access must be synchronized externally
+ * (e.g. with a {@code ReadWriteLock}, since the search methods don't modify the tree).
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/BK-tree">BK-tree (Wikipedia)</a>
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class BKTree {
+
+  private Node root;
+
+  private int size;
+
+  public BKTree() {
+  }
+
+  public BKTree(Iterable<String> strings) {
+    addAll(strings);
+  }
+
+  /**
+   * Adds a string to the dictionary.
+   *
+   * @return {@code true} if the string was added, or {@code false} if the dictionary already contains it
+   * @throws NullPointerException if the string is {@code null}
+   */
+  public boolean add(String str) {
+    if (str == null)
+      throw new NullPointerException();
+    if (root == null) {
+      root = new Node(str);
+      size++;
+      return true;
+    }
+    Node node = root;
+    while (true) {
+      int d = distance(str, node.value, Integer.MAX_VALUE);
+      if (d == 0)
+        return false;  // duplicate
+      Node child = node.getChild(d);
+      if (child == null) {
+        node.addChild(d, new Node(str));
+        size++;
+        return true;
+      }
+      node = child;
+    }
+  }
+
+  /**
+   * Adds all the given strings to the dictionary.
+   *
+   * @return the number of strings that were added (i.e. weren't already in the dictionary)
+   */
+  public int addAll(Iterable<String> strings) {
+    int added = 0;
+    for (String str : strings) {
+      if (add(str))
+        added++;
+    }
+    return added;
+  }
+
+  /**
+   * @return {@code true} iff the dictionary contains the given string
+   */
+  public boolean contains(String str) {
+    return !search(str, 0).isEmpty();
+  }
+
+  /**
+   * @return the number of strings in the dictionary
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Finds all the strings within the given edit distance of the query.
+   *
+   * @param query the string to search for
+   * @param maxDistance the search radius
+   * @return the matching strings, sorted by their distance from the query (ties are broken by the natural ordering
+   * of the strings)
+   * @throws IllegalArgumentException if {@code maxDistance} is negative
+   */
+  public List<Match> search(String query, int maxDistance) {
+    if (maxDistance < 0)
+      throw new IllegalArgumentException("maxDistance < 0: " + maxDistance);
+    if (query == null)
+      throw new NullPointerException();
+    List<Match> results = new ArrayList<Match>();
+    if (root == null)
+      return results;
+    ArrayList<Node> stack = new ArrayList<Node>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      // the children within [d-maxDistance, d+maxDistance] must be searched, so it suffices to know whether
+      // d exceeds maxDistance + node.maxChildDistance (in which case none of the children need to be searched)
+      int d = distance(query, node.value, saturatedAdd(maxDistance, node.maxChildDistance));
+      if (d <= maxDistance)
+        results.add(new Match(node.value, d));
+      for (int i = 0; i < node.childCount; i++) {
+        if (Math.abs(node.childDistances[i] - d) <= maxDistance)
+          stack.add(node.children[i]);
+      }
+    }
+    Collections.sort(results);
+    return results;
+  }
+
+  /**
+   * Finds the {@code n} strings closest to the query.
+   *
+   * @param query the string to search for
+   * @param n the max number of results
+   * @return at most {@code n} strings, sorted by their distance from the query (ties are broken by the natural
+   * ordering of the strings, which also determines which of the strings at the same distance are included
+   * in the results)
+   * @throws IllegalArgumentException if {@code n} is negative
+   */
+  public List<Match> nearest(String query, int n) {
+    return nearest(query, n, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Finds the {@code n} strings closest to the query that are within the given edit distance of it.
+   *
+   * @param query the string to search for
+   * @param n the max number of results
+   * @param maxDistance the search radius
+   * @return at most {@code n} strings, sorted by their distance from the query (ties are broken by the natural
+   * ordering of the strings, which also determines which of the strings at the same distance are included
+   * in the results)
+   * @throws IllegalArgumentException if {@code n} or {@code maxDistance} is negative
+   */
+  public List<Match> nearest(String query, int n, int maxDistance) {
+    if (n < 0)
+      throw new IllegalArgumentException("n < 0: " + n);
+    if (maxDistance < 0)
+      throw new IllegalArgumentException("maxDistance < 0: " + maxDistance);
+    if (query == null)
+      throw new NullPointerException();
+    if (root == null || n == 0)
+      return new ArrayList<Match>();
+    // the worst of the best n matches found so far is at the head of this queue
+    PriorityQueue<Match> best = new PriorityQueue<Match>(n + 1, Collections.<Match>reverseOrder());
+    int radius = maxDistance;
+    ArrayList<Node> stack = new ArrayList<Node>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      int d = distance(query, node.value, saturatedAdd(radius, node.maxChildDistance));
+      if (d <= radius) {
+        Match match = new Match(node.value, d);
+        if (best.size() < n)
+          best.add(match);
+        else if (match.compareTo(best.peek()) < 0) {
+          best.poll();
+          best.add(match);
+        }
+        if (best.size() == n)
+          radius = best.peek().distance;  // only the matches at least as close as the worst one can improve the results
+      }
+      // push the children in descending order of |childDistance - d|, so that the most promising ones (those
+      // more likely to be close to the query) are searched first and shrink the radius sooner
+      int start = stack.size();
+      for (int i = 0; i < node.childCount; i++) {
+        if (Math.abs(node.childDistances[i] - d) <= radius)
+          stack.add(node.children[i]);
+      }
+      if (stack.size() - start > 1)
+        sortByLabelDistance(stack, start, node, d);
+    }
+    ArrayList<Match> results = new ArrayList<Match>(best);
+    Collections.sort(results);
+    return results;
+  }
+
+  /**
+   * Sorts the children of the given node that were pushed onto the stack starting at the given index, in
+   * descending order of the difference between their label and the given distance.
+   */
+  private static void sortByLabelDistance(ArrayList<Node> stack, int start, final Node parent, final int d) {
+    Collections.sort(stack.subList(start, stack.size()), new Comparator<Node>() {
+      @Override
+      public int compare(Node a, Node b) {
+        return Math.abs(parent.getChildDistance(b) - d) - Math.abs(parent.getChildDistance(a) - d);
+      }
+    });
+  }
+
+  /**
+   * Computes the distance between two strings, capped at {@code maxDistance + 1}.  The default implementation uses
+   * {@link Levenshtein#editDistance(String, String, int)}, and subclasses may override it to use another metric
+   * (which must satisfy the triangle inequality).
+   *
+   * @param maxDistance the largest distance of interest ({@link Integer#MAX_VALUE} if the exact distance is needed)
+   * @return the distance between {@code a} and {@code b} if it's at most {@code maxDistance};
+   *   otherwise any value greater than {@code maxDistance}
+   */
+  protected int distance(String a, String b, int maxDistance) {
+    return maxDistance == Integer.MAX_VALUE
+        ? Levenshtein.editDistance(a, b)
+        : Levenshtein.editDistance(a, b, maxDistance);
+  }
+
+  /**
+   * @return {@code a + b}, or {@link Integer#MAX_VALUE} if the sum overflows (both args must be non-negative)
+   */
+  private static int saturatedAdd(int a, int b) {
+    int sum = a + b;
+    return sum < 0 ? Integer.MAX_VALUE : sum;
+  }
+
+  /**
+   * A string in the dictionary, with its children stored in parallel arrays (which takes a lot less memory than
+   * a map, and the number of children is bounded by the length of the longest string in the dictionary).
+   */
+  private static class Node {
+    private final String value;
+    private int[] childDistances;
+    private Node[] children;
+    private int childCount;
+    /** The max value in {@link #childDistances} */
+    private int maxChildDistance;
+
+    private Node(String value) {
+      this.value = value;
+    }
+
+    private Node getChild(int distance) {
+      for (int i = 0; i < childCount; i++) {
+        if (childDistances[i] == distance)
+          return children[i];
+      }
+      return null;
+    }
+
+    private int getChildDistance(Node child) {
+      for (int i = 0; i < childCount; i++) {
+        if (children[i] == child)
+          return childDistances[i];
+      }
+      throw new IllegalArgumentException();
+    }
+
+    private void addChild(int distance, Node child) {
+      if (children == null) {
+        childDistances = new int[2];
+        children = new Node[2];
+      }
+      else if (childCount == children.length) {
+        childDistances = Arrays.copyOf(childDistances, childCount * 2);
+        children = Arrays.copyOf(children, childCount * 2);
+      }
+      childDistances[childCount] = distance;
+      children[childCount] = child;
+      childCount++;
+      maxChildDistance = Math.max(maxChildDistance, distance);
+    }
+  }
+
+  /**
+   * A result of a search: a string from the dictionary and its distance from the query.
+   * Matches are ordered by distance, and then by the natural ordering of the strings.
+   */
+  public static class Match implements Comparable<Match> {
+    private final String value;
+    private final int distance;
+
+    public Match(String value, int distance) {
+      this.value = value;
+      this.distance = distance;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public int getDistance() {
+      return distance;
+    }
+
+    @Override
+    public int compareTo(Match o) {
+      int cmp = Integer.compare(distance, o.distance);
+      return cmp != 0 ? cmp : value.compareTo(o.value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Match match = (Match)o;
+      return distance == match.distance && value.equals(match.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * value.hashCode() + distance;
+    }
+
+    @Override
+    public String toString() {
+      return value + "(" + distance + ")";
+    }
+  }
+}
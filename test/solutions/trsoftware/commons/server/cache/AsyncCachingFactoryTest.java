@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import solutions.trsoftware.commons.server.TestCaseCanStopClock;
+import solutions.trsoftware.commons.server.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class AsyncCachingFactoryTest extends TestCaseCanStopClock {
+
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    executor = null;
+    super.tearDown();
+  }
+
+  /**
+   * Returns {@code "<key>_<n>"}, where {@code n} is the number of times {@link #_compute} was invoked,
+   * and fails for negative keys.
+   */
+  private static class Mock extends AsyncCachingFactory<Integer, String> {
+    private final AtomicInteger computeCount = new AtomicInteger();
+    /** The computations will wait for this latch */
+    private volatile CountDownLatch latch = new CountDownLatch(0);
+    private volatile boolean fail;
+
+    private Mock(int sizeLimit, Executor executor, long refreshAfterWrite) {
+      super(sizeLimit, executor, refreshAfterWrite);
+    }
+
+    @Override
+    protected String _compute(Integer key) {
+      try {
+        latch.await();
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      int n = computeCount.incrementAndGet();
+      if (key < 0 || fail)
+        throw new IllegalArgumentException(String.valueOf(key));
+      return key + "_" + n;
+    }
+  }
+
+  public void testCompute() throws Exception {
+    Mock factory = new Mock(16, executor, 0);
+    assertEquals(16, factory.getSizeLimit());
+    assertEquals(0, factory.getRefreshAfterWrite());
+    String result = factory.compute(1);
+    assertEquals("1_1", result);
+    assertSame(result, factory.compute(1));
+    assertEquals("2_2", factory.computeAsync(2).get());
+    assertEquals(2, factory.getCacheSize());
+    assertEquals(3, factory.getAccessCount());
+    assertEquals(1, factory.getHits());
+    assertEquals(2, factory.getMisses());
+    assertTrue(factory.printStats().startsWith(" access count: 3\n hit rate: " + (1d/3)));
+    // a failed computation should be propagated to the caller and not cached
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> factory.compute(-1));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> factory.compute(-1));
+    assertEquals(4, factory.getMisses());
+    assertEquals(2, factory.getCacheSize());
+  }
+
+  public void testSizeLimit() throws Exception {
+    Mock factory = new Mock(4, executor, 0);
+    for (int i = 0; i < 10; i++)
+      factory.compute(i);
+    assertEquals(4, factory.getCacheSize());
+    assertEquals(10, factory.getMisses());
+  }
+
+  /**
+   * Concurrent requests for the same key should wait for a single computation.
+   */
+  public void testCoalescing() throws Exception {
+    Mock factory = new Mock(16, executor, 0);
+    factory.latch = new CountDownLatch(1);
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++)
+      futures.add(factory.computeAsync(1));
+    for (CompletableFuture<String> future : futures) {
+      assertSame(futures.get(0), future);
+      assertFalse(future.isDone());  // the caller doesn't have to wait for the result
+    }
+    factory.latch.countDown();
+    assertEquals("1_1", futures.get(0).get(1, TimeUnit.SECONDS));
+    assertEquals(1, factory.computeCount.get());
+    assertEquals(1, factory.getMisses());
+    assertEquals(9, factory.getHits());
+  }
+
+  public void testRefreshAfterWrite() throws Exception {
+    Clock.stop();
+    long refreshAfterWrite = 1000;
+    // use a direct executor, to make the background refresh deterministic
+    Mock factory = new Mock(16, Runnable::run, refreshAfterWrite);
+    assertEquals("1_1", factory.compute(1));
+    Clock.advance(refreshAfterWrite - 1);
+    assertEquals("1_1", factory.compute(1));
+    assertEquals(1, factory.computeCount.get());
+    Clock.advance(1);
+    // the stale value should still be returned, while the new value is computed in the background
+    assertEquals("1_1", factory.compute(1));
+    assertEquals(2, factory.computeCount.get());
+    assertEquals(1, factory.getRefreshes());
+    assertEquals("1_2", factory.compute(1));
+    assertEquals(2, factory.computeCount.get());
+    // if the refresh fails, the old value should be kept until the next refresh interval
+    factory.fail = true;
+    Clock.advance(refreshAfterWrite);
+    assertEquals("1_2", factory.compute(1));
+    assertEquals(3, factory.computeCount.get());
+    assertEquals("1_2", factory.compute(1));
+    assertEquals(3, factory.computeCount.get());
+    factory.fail = false;
+    Clock.advance(refreshAfterWrite);
+    assertEquals("1_2", factory.compute(1));
+    assertEquals("1_4", factory.compute(1));
+    assertEquals(2, factory.getRefreshes());
+  }
+
+  /**
+   * A slow background refresh should not block the callers, and should be started only once.
+   */
+  public void testRefreshInBackground() throws Exception {
+    Clock.stop();
+    Mock factory = new Mock(16, executor, 1000);
+    assertEquals("1_1", factory.compute(1));
+    Clock.advance(1000);
+    factory.latch = new CountDownLatch(1);
+    for (int i = 0; i < 10; i++)
+      assertEquals("1_1", factory.computeAsync(1).get(1, TimeUnit.SECONDS));
+    factory.latch.countDown();
+    // wait for the refresh to complete
+    long deadline = System.currentTimeMillis() + 5000;
+    while (factory.getRefreshes() == 0 && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    assertEquals("1_2", factory.compute(1));
+    assertEquals(2, factory.computeCount.get());
+  }
+}
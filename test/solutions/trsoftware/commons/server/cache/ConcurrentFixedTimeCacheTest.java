@@ -0,0 +1,227 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import solutions.trsoftware.commons.server.TestCaseCanStopClock;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.server.util.Clock;
+import solutions.trsoftware.commons.shared.util.SetUtils;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ConcurrentFixedTimeCacheTest extends TestCaseCanStopClock {
+
+  public void testFixedTimeBehavior() throws Exception {
+    long maxAge = TimeUnit.MINUTES.toMillis(1);
+    Clock.stop();
+    ConcurrentFixedTimeCache<Integer, String> cache = new ConcurrentFixedTimeCache<>(maxAge);
+    assertEquals(maxAge, cache.getMaxAge());
+    assertTrue(cache.isEmpty());
+    assertNull(cache.put(11, "1_1"));
+    Clock.advance(10);
+    assertNull(cache.put(12, "1_2"));
+    assertEquals(2, cache.size());
+    assertEquals("1_1", cache.get(11));
+    assertEquals(Clock.currentTimeMillis() - 10 + maxAge, cache.getWithExpirationTime(11).getExpirationTime());
+    assertEquals(SetUtils.newSet(11, 12), cache.keySet());
+    // replacing a value resets its expiration time
+    Clock.advance(10);
+    assertEquals("1_1", cache.put(11, "1_1b"));
+    assertEquals(maxAge, cache.getWithExpirationTime(11).getExpirationTimeDelta());
+    // age = maxAge is acceptable
+    Clock.advance(maxAge - 10);
+    assertEquals("1_2", cache.get(12));
+    assertEquals(2, cache.size());
+    Clock.advance(1);
+    assertNull(cache.get(12));
+    assertFalse(cache.containsKey(12));
+    assertEquals(1, cache.size());
+    assertEquals(Collections.singletonMap(11, "1_1b"), new HashMap<>(cache));
+    Clock.advance(10);
+    assertNull(cache.get(11));
+    assertEquals(0, cache.size());
+    assertTrue(cache.isEmpty());
+  }
+
+  public void testConcurrentMapOperations() throws Exception {
+    long maxAge = 100;
+    Clock.stop();
+    ConcurrentFixedTimeCache<String, Integer> cache = new ConcurrentFixedTimeCache<>(maxAge);
+    assertNull(cache.putIfAbsent("a", 1));
+    assertEquals((Integer)1, cache.putIfAbsent("a", 2));
+    assertNull(cache.replace("b", 1));
+    assertFalse(cache.containsKey("b"));
+    assertEquals((Integer)1, cache.replace("a", 2));
+    assertFalse(cache.replace("a", 1, 3));
+    assertTrue(cache.replace("a", 2, 3));
+    assertFalse(cache.remove("a", 2));
+    assertTrue(cache.remove("a", 3));
+    assertNull(cache.get("a"));
+    assertEquals((Integer)5, cache.computeIfAbsent("a", k -> 5));
+    assertEquals((Integer)5, cache.computeIfAbsent("a", k -> 6));
+    assertEquals((Integer)6, cache.merge("a", 1, Integer::sum));
+    assertEquals((Integer)6, cache.remove("a"));
+    assertNull(cache.remove("a"));
+    // an expired entry should be treated as absent by all the operations
+    cache.put("x", 1);
+    Clock.advance(maxAge + 1);
+    assertNull(cache.replace("x", 2));
+    assertFalse(cache.replace("x", 1, 2));
+    assertFalse(cache.remove("x", 1));
+    assertNull(cache.putIfAbsent("x", 3));
+    assertEquals((Integer)3, cache.get("x"));
+    cache.put("y", 1);
+    Clock.advance(maxAge + 1);
+    assertNull(cache.remove("y"));
+    assertNull(cache.put("y", 2));
+    assertEquals((Integer)2, cache.get("y"));
+    // nulls are not allowed
+    assertThrows(NullPointerException.class, (Runnable)() -> cache.put(null, 1));
+    assertThrows(NullPointerException.class, (Runnable)() -> cache.put("a", null));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> cache.put("a", 1, -1));
+    cache.clear();
+    assertTrue(cache.isEmpty());
+    assertNull(cache.get("x"));
+  }
+
+  /**
+   * Puts entries with time-to-live values spanning all the levels of the timer wheel, and checks that
+   * each one is removed exactly when it expires, while advancing the clock by random increments.
+   */
+  public void testPerEntryTimeToLive() throws Exception {
+    Random rnd = new Random(1);
+    long startTime = Clock.stop();
+    ConcurrentFixedTimeCache<Integer, Long> cache = new ConcurrentFixedTimeCache<>(1000);
+    long[] ttls = {0, 1, 500, 1023, 1024, 2000, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(2),
+        TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(5), TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(4),
+        TimeUnit.DAYS.toMillis(30), Long.MAX_VALUE};
+    // the expected expiration times of the keys
+    TreeMap<Integer, Long> expected = new TreeMap<>();
+    int key = 0;
+    for (long ttl : ttls) {
+      cache.put(key, ttl, ttl);
+      expected.put(key++, ttl == Long.MAX_VALUE ? Long.MAX_VALUE : startTime + ttl);
+    }
+    for (int i = 0; i < 2000; i++) {
+      // put entries with random TTLs between a few millis and a few days
+      long ttl = (long)Math.pow(2, rnd.nextDouble() * 30);
+      cache.put(key, ttl, ttl);
+      expected.put(key++, Clock.currentTimeMillis() + ttl);
+      Clock.advance((long)Math.pow(2, rnd.nextDouble() * 22));
+      if (i % 10 == 0)
+        checkContents(cache, expected);
+    }
+    // now just advance the clock until everything except the entry with an infinite TTL expires
+    while (cache.size() > 1) {
+      Clock.advance((long)Math.pow(2, rnd.nextDouble() * 28));
+      checkContents(cache, expected);
+    }
+    assertEquals((Long)Long.MAX_VALUE, cache.get(ttls.length - 1));
+  }
+
+  private static void checkContents(ConcurrentFixedTimeCache<Integer, Long> cache, Map<Integer, Long> expectedExpirationTimes) {
+    long now = Clock.currentTimeMillis();
+    Set<Integer> expectedKeys = new HashSet<>();
+    expectedExpirationTimes.forEach((k, expirationTime) -> {
+      if (expirationTime >= now)
+        expectedKeys.add(k);
+    });
+    // the size of the cache is the size of the underlying map after the cleanup, so this verifies that
+    // the timer wheel has removed all the expired entries
+    assertEquals(expectedKeys.size(), cache.size());
+    assertEquals(expectedKeys, cache.keySet());
+    for (Integer k : expectedKeys)
+      assertEquals((long)expectedExpirationTimes.get(k), cache.getWithExpirationTime(k).getExpirationTime());
+  }
+
+  /** Test how iteration over the collection views deals with expired and modified entries */
+  public void testIterators() throws Exception {
+    Clock.stop();
+    ConcurrentFixedTimeCache<Integer, String> cache = new ConcurrentFixedTimeCache<>(100);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, "v" + i, i < 5 ? 50 : 100);
+    }
+    Iterator<Map.Entry<Integer, String>> it = cache.entrySet().iterator();
+    // the iterator should skip the entries that expired after it was created
+    Clock.advance(51);
+    Set<Integer> keys = new HashSet<>();
+    while (it.hasNext()) {
+      Map.Entry<Integer, String> entry = it.next();
+      if (entry.getKey() >= 100)
+        continue;  // the iterator may or may not reflect the entries added after it was created
+      assertEquals("v" + entry.getKey(), entry.getValue());
+      keys.add(entry.getKey());
+      // modifying the cache during iteration shouldn't throw ConcurrentModificationException
+      cache.put(entry.getKey() + 100, "x");
+      if (entry.getKey() == 5)
+        it.remove();
+    }
+    assertTrue(keys.containsAll(Arrays.asList(5, 6, 7, 8, 9)));
+    for (int i = 0; i < 5; i++)
+      assertFalse(keys.contains(i));
+    assertFalse(cache.containsKey(5));
+    assertTrue(cache.containsKey(6));
+    // the values view and the key set are derived from the entry set
+    cache.keySet().removeIf(k -> k >= 100);
+    assertEquals(SetUtils.newSet(6, 7, 8, 9), cache.keySet());
+    assertEquals(SetUtils.newSet("v6", "v7", "v8", "v9"), new HashSet<>(cache.values()));
+    assertTrue(cache.entrySet().contains(new AbstractMap.SimpleEntry<>(6, "v6")));
+    assertFalse(cache.entrySet().contains(new AbstractMap.SimpleEntry<>(6, "v7")));
+  }
+
+  public void testMultithreaded() throws Exception {
+    Clock.stop();
+    int nKeys = 1000;
+    ConcurrentFixedTimeCache<Integer, Integer> cache = new ConcurrentFixedTimeCache<>(TimeUnit.MINUTES.toMillis(1));
+    Collection<Throwable> errors = new MultithreadedTestHarness(() -> {
+      ThreadLocalRandom rnd = ThreadLocalRandom.current();
+      Integer key = rnd.nextInt(nKeys);
+      switch (rnd.nextInt(4)) {
+        case 0:
+          cache.put(key, key, rnd.nextInt(10_000));
+          break;
+        case 1:
+          cache.putIfAbsent(key, key);
+          break;
+        case 2:
+          cache.remove(key);
+          break;
+        default:
+          Integer value = cache.get(key);
+          assertTrue(value == null || value.equals(key));
+      }
+      if (rnd.nextInt(1000) == 0)
+        Clock.advance(rnd.nextInt(1000));
+    }).run(8, 20_000);
+    assertTrue(errors.toString(), errors.isEmpty());
+    for (Map.Entry<Integer, Integer> entry : cache.entrySet())
+      assertEquals(entry.getKey(), entry.getValue());
+    assertTrue(cache.size() <= nKeys);
+    // all the entries should be removed after they expire
+    Clock.advance(TimeUnit.MINUTES.toMillis(1) + 1);
+    assertEquals(0, cache.size());
+  }
+}
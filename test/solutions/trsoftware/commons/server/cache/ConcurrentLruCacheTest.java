@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.cache;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+import solutions.trsoftware.commons.shared.util.RandomUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ConcurrentLruCacheTest extends TestCase {
+
+  public void testSizeLimit() throws Exception {
+    ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(3);
+    assertEquals(3, cache.getSizeLimit());
+    for (int i = 0; i < 3; i++) {
+      assertNull(cache.put(i, "v" + i));
+      assertEquals(i + 1, cache.size());
+    }
+    assertEquals(0, cache.getEvictions());
+    // the entries that were read recently should survive the eviction
+    assertEquals("v0", cache.get(0));
+    assertEquals("v2", cache.get(2));
+    cache.put(3, "v3");
+    assertEquals(3, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertFalse(cache.containsKey(1));
+    assertEquals(new HashSet<>(Arrays.asList(0, 2, 3)), cache.keySet());
+    // replacing the value of an existing key shouldn't evict anything
+    assertEquals("v3", cache.put(3, "x"));
+    assertEquals("x", cache.get(3));
+    assertEquals(1, cache.getEvictions());
+    // removing a key should free up a slot
+    assertEquals("v0", cache.remove(0));
+    cache.put(4, "v4");
+    assertEquals(3, cache.size());
+    assertEquals(1, cache.getEvictions());
+    // each of these puts should evict one entry
+    for (int i = 5; i < 20; i++) {
+      cache.put(i, "v" + i);
+      assertEquals(3, cache.size());
+    }
+    assertEquals(16, cache.getEvictions());
+    cache.setSizeLimit(2);
+    assertEquals(2, cache.size());
+    cache.setSizeLimit(5);
+    for (int i = 20; i < 23; i++)
+      cache.put(i, "v" + i);
+    assertEquals(5, cache.size());
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> new ConcurrentLruCache<>(0));
+    assertThrows(NullPointerException.class, (Runnable)() -> cache.put(1, null));
+  }
+
+  public void testStats() throws Exception {
+    ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(10);
+    assertEquals("v1", cache.computeIfAbsent(1, k -> "v" + k));
+    assertEquals("v1", cache.computeIfAbsent(1, k -> "foo"));
+    assertEquals("v1", cache.get(1));
+    assertNull(cache.get(2));
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertEquals(4, cache.getAccessCount());
+    assertTrue(cache.printStats().contains("hit rate: 0.5"));
+    // a null value should not be cached
+    assertNull(cache.computeIfAbsent(3, k -> null));
+    assertFalse(cache.containsKey(3));
+  }
+
+  public void testComputeIfAbsentSingleFlight() throws Exception {
+    ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(10);
+    AtomicInteger loadCount = new AtomicInteger();
+    CountDownLatch loaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoader = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(9);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      results.add(executor.submit(() -> cache.computeIfAbsent(1, k -> {
+        loadCount.incrementAndGet();
+        loaderStarted.countDown();
+        try {
+          releaseLoader.await();
+        }
+        catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return 123;
+      })));
+      loaderStarted.await();
+      for (int i = 0; i < 7; i++) {
+        results.add(executor.submit(() -> cache.computeIfAbsent(1, k -> {
+          loadCount.incrementAndGet();
+          return -1;
+        })));
+      }
+      // loading a different key shouldn't be blocked
+      assertEquals(2, (int)executor.submit(() -> cache.computeIfAbsent(2, k -> 2)).get(5, TimeUnit.SECONDS));
+      releaseLoader.countDown();
+      for (Future<Integer> result : results)
+        assertEquals(123, (int)result.get(5, TimeUnit.SECONDS));
+      assertEquals(1, loadCount.get());
+    }
+    finally {
+      executor.shutdown();
+    }
+    // an exception thrown by the loader should be propagated, and the key should not be cached
+    assertThrows(IllegalStateException.class, (Runnable)() -> cache.computeIfAbsent(3, k -> {
+      throw new IllegalStateException();
+    }));
+    assertFalse(cache.containsKey(3));
+    assertEquals(3, (int)cache.computeIfAbsent(3, k -> 3));
+  }
+
+  @Slow
+  public void testCacheMultithreaded() throws Exception {
+    checkCacheMultithreading(3, 32, 10000);
+    checkCacheMultithreading(1000, 32, 10000);
+  }
+
+  private static void checkCacheMultithreading(int sizeLimit, int nThreads, int iterationsPerThread) throws Exception {
+    ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(sizeLimit);
+    int nKeys = sizeLimit * 2;
+    assertTrue(
+        new MultithreadedTestHarness(() -> {
+          int key = RandomUtils.rnd.nextInt(nKeys);
+          if (RandomUtils.rnd.nextBoolean())
+            cache.put(key, key);
+          else {
+            Integer value = cache.computeIfAbsent(key, k -> k);
+            assertEquals(key, (int)value);
+          }
+          assertTrue(cache.size() <= sizeLimit);
+        }).run(nThreads, iterationsPerThread).isEmpty());
+    assertEquals(sizeLimit, cache.size());
+    for (Map.Entry<Integer, Integer> entry : cache.entrySet())
+      assertEquals(entry.getKey(), entry.getValue());
+  }
+}
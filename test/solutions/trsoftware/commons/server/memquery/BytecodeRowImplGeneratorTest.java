@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.schema.ColSpec;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class BytecodeRowImplGeneratorTest extends TestCase {
+
+  public void testGenerateClass() throws Exception {
+    RelationSchema schema = new RelationSchema(getClass().getSimpleName(), Arrays.asList(
+        new NameAccessorColSpec<>("foo", int.class),
+        new NameAccessorColSpec<>("bar", Double.class),
+        new NameAccessorColSpec<>("str", String.class)
+    ));
+    MutableRow row = newRow(schema);
+    // all attrs should be null until we set some values
+    List<String> colNames = schema.getColNames();
+    for (int i = 0; i < colNames.size(); i++) {
+      String attr = colNames.get(i);
+      assertNull(row.getValue(attr));
+      assertNull(row.getValue(i));
+    }
+    assertEquals("DynamicRowImpl{foo=null, bar=null, str=null}", row.toString());
+    // set some values
+    row.setValue(0, 1);
+    assertEquals((Object)1, row.getValue(0));
+    assertEquals((Object)1, row.getValue("foo"));
+    row.setValue("foo", 2);
+    assertEquals((Object)2, row.getValue(0));
+    assertEquals((Object)2, row.getValue("foo"));
+    // the col names don't have to be the same instances as those in the schema
+    assertEquals((Object)2, row.getValue(new String("foo")));
+    row.setValue(new String("bar"), 1.5);
+    assertEquals(1.5, row.getValue(1));
+    assertEquals("DynamicRowImpl{foo=2, bar=1.5, str=null}", row.toString());
+    // test setting primitive value back to null
+    row.setValue(0, null);
+    assertNull(row.getValue("foo"));
+    row.setValue("str", "Hello");
+    assertEquals("DynamicRowImpl{foo=null, bar=1.5, str=Hello}", row.toString());
+    // test invalid args
+    assertThrows(IllegalArgumentException.class, () -> row.getValue(3));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> row.setValue(-1, 1));
+    assertThrows(IllegalArgumentException.class, () -> row.getValue("x"));
+    assertThrows(ClassCastException.class, (Runnable)() -> row.setValue("foo", "x"));
+  }
+
+  public void testAllTypes() throws Exception {
+    List<Object> values = Arrays.asList(true, (byte)1, 'c', (short)2, 3, 4L, 5f, 6d,
+        Boolean.FALSE, (byte)-1, 'x', (short)-2, -3, Long.MIN_VALUE, Float.NaN, Double.MAX_VALUE,
+        "str", new Date(1), new int[]{1, 2});
+    List<ColSpec> colSpecs = new ArrayList<>();
+    for (int i = 0; i < values.size(); i++) {
+      Class type = values.get(i).getClass();
+      if (i < 8)
+        type = com.google.common.primitives.Primitives.unwrap(type);
+      colSpecs.add(new NameAccessorColSpec<>("col" + i, type));
+    }
+    checkValues(new RelationSchema("AllTypes", colSpecs), values);
+  }
+
+  /**
+   * The generated classes use an {@code int} field for the null flags of up to 32 primitive fields,
+   * a {@code long} field for up to 64, and wrapper fields for the remaining primitive cols.
+   */
+  public void testManyColumns() throws Exception {
+    for (int nCols : new int[]{0, 1, 32, 33, 64, 65, 100}) {
+      List<ColSpec> colSpecs = new ArrayList<>();
+      List<Object> values = new ArrayList<>();
+      for (int i = 0; i < nCols; i++) {
+        colSpecs.add(new NameAccessorColSpec<>("col" + i, i % 2 == 0 ? (Class)int.class : Long.class));
+        values.add(i % 2 == 0 ? (Object)i : (Object)(long)-i);
+      }
+      checkValues(new RelationSchema("Cols" + nCols, colSpecs), values);
+    }
+  }
+
+  private static void checkValues(RelationSchema schema, List<Object> values) {
+    MutableRow row = newRow(schema);
+    for (int i = 0; i < values.size(); i++) {
+      assertNull(row.getValue(i));
+      row.setValue(i, values.get(i));
+    }
+    for (int i = 0; i < values.size(); i++) {
+      Object expected = values.get(i);
+      if (expected instanceof int[])
+        assertSame(expected, row.getValue(i));
+      else
+        assertEquals(expected, row.getValue(i));
+      assertEquals(expected, row.getValue(schema.get(i).getName()));
+    }
+    // setting a value to null should not affect the other values
+    for (int i = 0; i < values.size(); i += 2)
+      row.setValue(schema.get(i).getName(), null);
+    for (int i = 0; i < values.size(); i++)
+      assertEquals(i % 2 == 0 ? null : values.get(i), row.getValue(i));
+  }
+
+  private static MutableRow newRow(RelationSchema schema) {
+    try {
+      return new BytecodeRowImplGenerator(schema).generateClass().getConstructor(RelationSchema.class).newInstance(schema);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  public void testGenerateFactory() throws Exception {
+    RelationSchema schema = new RelationSchema(getClass().getSimpleName(), Arrays.asList(
+        new NameAccessorColSpec<>("foo", long.class),
+        new NameAccessorColSpec<>("str", String.class)
+    ));
+    BytecodeRowImplGenerator generator = new BytecodeRowImplGenerator(schema);
+    Function<RelationSchema, MutableRow> factory = generator.generateFactory();
+    assertEquals(generator.getClassName() + "$Factory", factory.getClass().getName());
+    MutableRow row1 = factory.apply(schema);
+    MutableRow row2 = factory.apply(schema);
+    assertNotSame(row1, row2);
+    assertSame(row1.getClass(), row2.getClass());
+    assertEquals(generator.getClassName(), row1.getClass().getName());
+    assertSame(schema, row1.getSchema());
+    row1.setValue("foo", 5L);
+    row1.setValue("str", "x");
+    assertEquals("DynamicRowImpl{foo=5, str=x}", row1.toString());
+    assertEquals("DynamicRowImpl{foo=null, str=null}", row2.toString());
+  }
+
+  /**
+   * The classes generated by {@link RowFactory} should depend only on the types of the schema's cols, and their
+   * instances should read the col names from their own schema.
+   */
+  public void testRowFactory() throws Exception {
+    RowFactory rowFactory = new RowFactory(true, false, false);
+    RelationSchema schema1 = new RelationSchema("Foo", Arrays.asList(
+        new NameAccessorColSpec<>("x", int.class), new NameAccessorColSpec<>("y", int.class)));
+    RelationSchema schema2 = new RelationSchema("Bar", Arrays.asList(
+        new NameAccessorColSpec<>("y", int.class), new NameAccessorColSpec<>("x", int.class)));
+    MutableRow row1 = rowFactory.newRow(schema1);
+    MutableRow row2 = rowFactory.newRow(schema2);
+    assertSame(row1.getClass(), row2.getClass());
+    assertSame(row1.getClass(), rowFactory.newRow(schema1).getClass());
+    row1.setValue("x", 1);
+    row2.setValue("x", 1);
+    assertEquals((Object)1, row1.getValue(0));
+    assertEquals((Object)1, row2.getValue(1));
+    assertEquals((Object)1, row2.getValue("x"));
+    assertNull(row2.getValue("y"));
+    assertEquals("DynamicRowImpl{y=null, x=1}", row2.toString());
+    // a schema with different col types requires a different class
+    RelationSchema schema3 = new RelationSchema("Baz", Arrays.asList(
+        new NameAccessorColSpec<>("x", int.class), new NameAccessorColSpec<>("y", long.class)));
+    assertNotSame(row1.getClass(), rowFactory.newRow(schema3).getClass());
+  }
+}
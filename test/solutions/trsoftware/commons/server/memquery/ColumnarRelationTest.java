@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.aggregations.*;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+import solutions.trsoftware.commons.shared.util.stats.NumberSampleOnlineDouble;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ColumnarRelationTest extends TestCase {
+
+  private ArrayListRelation rowRelation;
+  private ColumnarRelation columnarRelation;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    RelationSchema schema = new RelationSchema("Foo", Arrays.asList(
+        new NameAccessorColSpec<>("i", Integer.class),
+        new NameAccessorColSpec<>("l", long.class),
+        new NameAccessorColSpec<>("d", Double.class),
+        new NameAccessorColSpec<>("f", Float.class),
+        new NameAccessorColSpec<>("s", String.class),
+        new NameAccessorColSpec<>("o", Date.class)
+    ));
+    Random rnd = new Random(1);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, rnd.nextInt(5));
+      row.setValue(1, (long)i * Integer.MAX_VALUE);
+      row.setValue(2, rnd.nextInt(10) == 0 ? null : rnd.nextDouble());
+      row.setValue(3, rnd.nextInt(10) == 0 ? null : rnd.nextFloat());
+      row.setValue(4, rnd.nextInt(10) == 0 ? null : "s" + rnd.nextInt(3));
+      row.setValue(5, rnd.nextInt(10) == 0 ? null : new Date(rnd.nextInt()));
+      rows.add(row);
+    }
+    rowRelation = new ArrayListRelation(schema, rows.iterator());
+    columnarRelation = new ColumnarRelation(rowRelation);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rowRelation = null;
+    columnarRelation = null;
+    super.tearDown();
+  }
+
+  public void testValues() throws Exception {
+    assertEquals(rowRelation.size(), columnarRelation.size());
+    assertEquals(rowRelation.getSchema().getColNames(), columnarRelation.getSchema().getColNames());
+    List<Row> expectedRows = rowRelation.getRows();
+    List<Row> actualRows = columnarRelation.getRows();
+    assertEquals(expectedRows.size(), actualRows.size());
+    for (int r = 0; r < expectedRows.size(); r++) {
+      Row expected = expectedRows.get(r);
+      ColumnarRelation.ColumnarRow actual = (ColumnarRelation.ColumnarRow)actualRows.get(r);
+      assertEquals(r, actual.getIndex());
+      for (int c = 0; c < expected.size(); c++) {
+        Object expectedValue = expected.getValue(c);
+        assertEquals(expectedValue, actual.getValue(c));
+        assertEquals(expectedValue, actual.getValue(expected.getSchema().get(c).getName()));
+        assertEquals(expectedValue == null, actual.isNull(c));
+        if (expectedValue instanceof Number)
+          assertEquals(((Number)expectedValue).doubleValue(), actual.getDouble(c));
+      }
+    }
+    // check the column types
+    for (String name : Arrays.asList("i", "l", "d", "f"))
+      assertTrue(columnarRelation.getColumn(name).isNumeric());
+    for (String name : Arrays.asList("s", "o"))
+      assertFalse(columnarRelation.getColumn(name).isNumeric());
+    // the strings should be dictionary-encoded: "s0", "s1", "s2"
+    assertEquals(3, ((ColumnarRelation.StringColumn)columnarRelation.getColumn("s")).getDictionarySize());
+  }
+
+  public void testScanColumn() throws Exception {
+    NumberSampleOnlineDouble expected = new NumberSampleOnlineDouble();
+    for (Row row : rowRelation) {
+      Double value = row.getValue("d");
+      if (value != null)
+        expected.update(value);
+    }
+    NumberSampleOnlineDouble actual = new NumberSampleOnlineDouble();
+    columnarRelation.scanColumn("d", actual::update);
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.sum(), actual.sum());
+    try {
+      columnarRelation.scanColumn("s", actual::update);
+      fail("should have thrown an exception for a non-numeric column");
+    }
+    catch (UnsupportedOperationException expectedException) {
+      // expected
+    }
+  }
+
+  public void testWithSchema() throws Exception {
+    RelationSchema newSchema = new RelationSchema("Bar", columnarRelation.getSchema());
+    ColumnarRelation renamed = columnarRelation.withSchema(newSchema);
+    assertSame(newSchema, renamed.getSchema());
+    assertEquals(columnarRelation.size(), renamed.size());
+    assertSame(columnarRelation.getColumn(0), renamed.getColumn(0));
+  }
+
+  /**
+   * The results of queries over a {@link ColumnarRelation} should be the same as over an equivalent {@link ArrayListRelation}.
+   */
+  public void testQuery() throws Exception {
+    checkQuery(new QueryBuilder().from(rowRelation).select("i", "s").where(
+        new ColValueComparison<>("l", ComparisonOperator.GT, 1000L)));
+    // aggregations over the numeric columns should be computed without boxing the values
+    checkQuery(new QueryBuilder().from(rowRelation).select("s")
+        .selectAggregatedCol(Count.class, "*").selectAggregatedCol(Sum.class, "l")
+        .selectAggregatedCol(Avg.class, "i").selectAggregatedCol(Max.class, "i")
+        .groupBy("s").sortBy("s"));
+    checkQuery(new QueryBuilder().from(rowRelation)
+        .selectAggregatedCol(Min.class, "i").selectAggregatedCol(StDev.class, "l").groupBy());
+  }
+
+  private void checkQuery(QueryBuilder queryBuilder) {
+    MemQuery query = queryBuilder.query();
+    List<String> expected = toStrings(query.eval(rowRelation));
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, toStrings(query.eval(columnarRelation)));
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertEquals(expected, toStrings(query.eval(pool, columnarRelation)));
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  private static List<String> toStrings(ResultSet resultSet) {
+    List<String> ret = new ArrayList<>();
+    for (Row row : resultSet) {
+      ret.add(row.getValues(row.getNames()).toString());
+    }
+    return ret;
+  }
+}
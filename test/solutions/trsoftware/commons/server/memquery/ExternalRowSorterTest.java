@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.io.file.TempFileRegistry;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ExternalRowSorterTest extends TestCase {
+
+  private RelationSchema schema;
+  private List<Row> rows;
+  private Comparator<Row> comparator;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    schema = new RelationSchema("Foo", Arrays.asList(
+        new NameAccessorColSpec<>("key", Integer.class),
+        new NameAccessorColSpec<>("name", String.class),
+        new NameAccessorColSpec<>("seq", Integer.class)
+    ));
+    Random rnd = new Random(1);
+    rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, rnd.nextInt(20));
+      row.setValue(1, rnd.nextInt(5) == 0 ? null : "name" + rnd.nextInt(10));
+      row.setValue(2, i);
+      rows.add(row);
+    }
+    comparator = MemQuery.makeComparator(Arrays.asList(new SortOrder("key", true), new SortOrder("name", false)), schema);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    schema = null;
+    rows = null;
+    comparator = null;
+    super.tearDown();
+  }
+
+  public void testSort() throws Exception {
+    List<String> expected = toStrings(rows.stream().sorted(comparator).iterator());
+    for (int maxRowsInMemory : new int[]{1, 7, 100, 999, 1000, 5000}) {
+      Set<Path> tempFilesBefore = listSortTempDirs();
+      ExternalRowSorter sorter = new ExternalRowSorter(schema, comparator, maxRowsInMemory);
+      // the sort should be stable (the rows with equal keys should remain in the same order)
+      assertEquals(String.valueOf(maxRowsInMemory), expected, toStrings(sorter.sort(rows.iterator())));
+      // the temp files should have been deleted after the output was fully iterated
+      assertEquals(tempFilesBefore, listSortTempDirs());
+    }
+  }
+
+  /**
+   * Checks that the runs are merged in multiple passes when there are more of them than the max merge fan-in.
+   */
+  public void testMultiPassMerge() throws Exception {
+    List<String> expected = toStrings(rows.stream().sorted(comparator).iterator());
+    // 1000 rows with maxRowsInMemory=7 will produce 142 run files (the last run is kept in memory)
+    for (int maxMergeFanIn : new int[]{2, 3, 10, 141, 142, 143}) {
+      Set<Path> tempFilesBefore = listSortTempDirs();
+      ExternalRowSorter sorter = new ExternalRowSorter(schema, comparator, 7, maxMergeFanIn);
+      assertEquals(String.valueOf(maxMergeFanIn), expected, toStrings(sorter.sort(rows.iterator())));
+      assertEquals(Math.min(142, maxMergeFanIn), sorter.maxOpenRunFiles);
+      assertEquals(tempFilesBefore, listSortTempDirs());
+    }
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> new ExternalRowSorter(schema, comparator, 7, 1));
+  }
+
+  public void testSortEmpty() throws Exception {
+    assertFalse(new ExternalRowSorter(schema, comparator, 10).sort(Collections.emptyIterator()).hasNext());
+  }
+
+  private static Set<Path> listSortTempDirs() throws IOException {
+    try (Stream<Path> files = Files.list(TempFileRegistry.SYSTEM_TEMP_DIR)) {
+      return files.filter(p -> p.getFileName().toString().startsWith(ExternalRowSorter.class.getSimpleName()))
+          .collect(Collectors.toSet());
+    }
+  }
+
+  private static List<String> toStrings(Iterator<Row> it) {
+    List<String> ret = new ArrayList<>();
+    while (it.hasNext()) {
+      Row row = it.next();
+      ret.add(row.getValues(row.getNames()).toString());
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static solutions.trsoftware.commons.shared.util.compare.ComparisonOperator.*;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class IndexedRelationTest extends TestCase {
+
+  private ArrayListRelation rowRelation;
+  private IndexedRelation indexedRelation;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    RelationSchema schema = new RelationSchema("Foo", Arrays.asList(
+        new NameAccessorColSpec<>("id", Integer.class),
+        new NameAccessorColSpec<>("i", Integer.class),
+        new NameAccessorColSpec<>("s", String.class),
+        new NameAccessorColSpec<>("d", Double.class)
+    ));
+    Random rnd = new Random(1);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, i);
+      row.setValue(1, rnd.nextInt(100));
+      row.setValue(2, rnd.nextInt(10) == 0 ? null : String.valueOf((char)('a' + rnd.nextInt(10))));
+      row.setValue(3, rnd.nextDouble());
+      rows.add(row);
+    }
+    rowRelation = new ArrayListRelation(schema, rows.iterator());
+    indexedRelation = new IndexedRelation(rowRelation);
+    indexedRelation.createHashIndex("id");
+    indexedRelation.createSortedIndex("i");
+    indexedRelation.createHashIndex("s");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rowRelation = null;
+    indexedRelation = null;
+    super.tearDown();
+  }
+
+  public void testIndexes() throws Exception {
+    IndexedRelation.Index idIndex = indexedRelation.getIndex("id");
+    IndexedRelation.Index iIndex = indexedRelation.getIndex("i");
+    IndexedRelation.Index sIndex = indexedRelation.getIndex("s");
+    assertNull(indexedRelation.getIndex("d"));
+    assertNull(indexedRelation.getIndex("foo"));
+    assertFalse(idIndex.isSorted());
+    assertTrue(iIndex.isSorted());
+    assertFalse(iIndex.hasNulls());
+    assertTrue(sIndex.hasNulls());
+    assertEquals(filter(row -> row.getValue("id").equals(123)), find(idIndex, 123));
+    assertEquals(Collections.emptyList(), find(idIndex, 1234));
+    assertEquals(Collections.emptyList(), find(idIndex, 123L));  // not equal to an Integer
+    assertEquals(filter(row -> row.getValue("i").equals(5)), find(iIndex, 5));
+    assertEquals(Collections.emptyList(), find(iIndex, 5L));
+    assertEquals(filter(row -> "c".equals(row.getValue("s"))), find(sIndex, "c"));
+    assertEquals(filter(row -> row.getValue("s") == null), find(sIndex, null));
+    // range lookups
+    BitSet positions = new BitSet();
+    iIndex.findRange(10, true, 20, false, positions);
+    assertEquals(filter(row -> row.<Integer>getValue("i") >= 10 && row.<Integer>getValue("i") < 20), indexedRelation.getRows(positions));
+    positions.clear();
+    iIndex.findRange(null, false, 20, true, positions);
+    assertEquals(filter(row -> row.<Integer>getValue("i") <= 20), indexedRelation.getRows(positions));
+    positions.clear();
+    iIndex.findRange(90, false, null, false, positions);
+    assertEquals(filter(row -> row.<Integer>getValue("i") > 90), indexedRelation.getRows(positions));
+    try {
+      idIndex.findRange(1, true, 2, true, new BitSet());
+      fail("a hash index should not support range lookups");
+    }
+    catch (UnsupportedOperationException expected) {
+      // expected
+    }
+  }
+
+  public void testModifications() throws Exception {
+    IndexedRelation.Index idIndex = indexedRelation.getIndex("id");
+    MutableRow row = RowFactory.getInstance().newRow(indexedRelation.getSchema());
+    row.setValue("id", 5000);
+    row.setValue("i", 5);
+    indexedRelation.add(row);
+    assertEquals(1001, indexedRelation.size());
+    assertEquals(Collections.singletonList(row), find(idIndex, 5000));
+    assertTrue(find(indexedRelation.getIndex("s"), null).contains(row));
+    // removing rows should update the positions of the remaining rows
+    assertTrue(indexedRelation.removeIf(r -> r.<Integer>getValue("id") < 500));
+    assertFalse(indexedRelation.removeIf(r -> r.<Integer>getValue("id") < 500));
+    assertEquals(501, indexedRelation.size());
+    assertEquals(Collections.emptyList(), find(idIndex, 123));
+    assertEquals(Collections.singletonList(row), find(idIndex, 5000));
+    List<Row> matches = find(idIndex, 600);
+    assertEquals(1, matches.size());
+    assertEquals(600, (int)matches.get(0).getValue("id"));
+    List<Row> expected = new ArrayList<>();
+    for (Row r : indexedRelation) {
+      if (r.getValue("i").equals(5))
+        expected.add(r);
+    }
+    assertEquals(expected, find(indexedRelation.getIndex("i"), 5));
+    indexedRelation.dropIndex("id");
+    assertNull(indexedRelation.getIndex("id"));
+  }
+
+  private List<Row> find(IndexedRelation.Index index, Object value) {
+    BitSet positions = new BitSet();
+    index.findEqual(value, positions);
+    return indexedRelation.getRows(positions);
+  }
+
+  private List<Row> filter(java.util.function.Predicate<Row> predicate) {
+    List<Row> ret = new ArrayList<>();
+    for (Row row : indexedRelation) {
+      if (predicate.test(row))
+        ret.add(row);
+    }
+    return ret;
+  }
+
+  /**
+   * The results of queries over an {@link IndexedRelation} should be the same as over an equivalent {@link ArrayListRelation}.
+   */
+  public void testQuery() throws Exception {
+    checkQuery(new ColValueComparison<>("id", EQ, 10));
+    checkQuery(new ColValueComparison<>("i", GE, 90));
+    checkQuery(new ColValueComparison<>("i", LT, 5));
+    checkQuery(RowPredicate.and(new ColValueComparison<>("i", GT, 50), new ColValueComparison<>("d", LT, .5)));
+    checkQuery(new ColValueIn<>("s", Arrays.asList("a", "b", null)));
+    checkQuery(ColValuePredicate.isNull("s"));
+    checkQuery(new Or(new ColValueComparison<>("id", EQ, 7), new ColValueIn<>("i", Arrays.asList(1, 2))));
+    checkQuery(RowPredicate.and(new IsNotNull("s"), new ColValueComparison<>("s", ComparisonOperator.LE, "b")));
+  }
+
+  private void checkQuery(RowPredicate filter) {
+    MemQuery query = new QueryBuilder().from(rowRelation).select("id", "i", "s").where(filter).query();
+    List<String> expected = toStrings(query.eval(rowRelation));
+    assertFalse(filter.toString(), expected.isEmpty());
+    assertEquals(filter.toString(), expected, toStrings(query.eval(indexedRelation)));
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertEquals(filter.toString(), expected, toStrings(query.eval(pool, indexedRelation)));
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testJoin() throws Exception {
+    RelationSchema schema = new RelationSchema("Bar", Arrays.asList(
+        new NameAccessorColSpec<>("i", Integer.class),
+        new NameAccessorColSpec<>("s", String.class),
+        new NameAccessorColSpec<>("x", Integer.class)
+    ));
+    Random rnd = new Random(2);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, rnd.nextInt(120));
+      row.setValue(1, rnd.nextInt(5) == 0 ? null : String.valueOf((char)('a' + rnd.nextInt(10))));
+      row.setValue(2, i);
+      rows.add(row);
+    }
+    ArrayListRelation bar = new ArrayListRelation(schema, rows.iterator());
+    for (Join.Type joinType : Join.Type.values()) {
+      MemQuery query = new QueryBuilder().from(rowRelation).naturalJoin(joinType).from(bar).select("id", "i", "s", "x").query();
+      List<String> expected = toSortedStrings(query.eval(rowRelation, bar));
+      assertFalse(expected.isEmpty());
+      // the indexed relation can be on either side of the join
+      assertEquals(joinType.toString(), expected, toSortedStrings(query.eval(indexedRelation, bar)));
+      IndexedRelation indexedBar = new IndexedRelation(bar);
+      indexedBar.createHashIndex("s");
+      assertEquals(joinType.toString(), expected, toSortedStrings(query.eval(rowRelation, indexedBar)));
+      assertEquals(joinType.toString(), expected, toSortedStrings(query.eval(indexedRelation, indexedBar)));
+    }
+  }
+
+  private static List<String> toStrings(ResultSet resultSet) {
+    List<String> ret = new ArrayList<>();
+    for (Row row : resultSet) {
+      ret.add(row.getValues(row.getNames()).toString());
+    }
+    return ret;
+  }
+
+  private static List<String> toSortedStrings(ResultSet resultSet) {
+    List<String> ret = toStrings(resultSet);
+    Collections.sort(ret);
+    return ret;
+  }
+}
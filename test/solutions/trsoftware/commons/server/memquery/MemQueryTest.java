@@ -143,6 +143,81 @@ public class MemQueryTest extends MemQueryTestCase {
     ));
   }
 
+  /**
+   * Checks that a sorted query with a limit returns the same rows as the first rows of the fully-sorted result set
+   * (these are selected with {@link solutions.trsoftware.commons.server.memquery.util.SortUtils#topK}).
+   */
+  public void testSortingWithLimit() throws Exception {
+    assertResultSetEquals(
+        runAndPrint(fromScore()
+            .selectAll()
+            .sortBy("gameNumber", "-uid", "modelId")
+            .setLimit(5)
+        ),
+        joinCsvRows(
+            "c,bar,1,82",
+            "c,baz,1,83",
+            "c,foo,1,81",
+            "b,bar,1,71",
+            "b,foo,1,50"
+        )
+    );
+    // the rows that are equal according to the sort order should be in the same order as the input
+    assertResultSetEquals(
+        runAndPrint(fromScore()
+            .select("uid", "gameNumber")
+            .sortBy("gameNumber")
+            .setLimit(4)
+        ),
+        joinCsvRows(
+            "a,1",
+            "a,1",
+            "b,1",
+            "b,1"
+        )
+    );
+  }
+
+  /**
+   * Checks that the results are sorted correctly when the number of rows exceeds the sort buffer size
+   * (which means they will be sorted using {@link ExternalRowSorter}).
+   */
+  public void testExternalSorting() throws Exception {
+    String oldValue = System.getProperty(MemQuery.SYS_PROP_SORT_BUFFER_SIZE);
+    System.setProperty(MemQuery.SYS_PROP_SORT_BUFFER_SIZE, "4");
+    try {
+      assertResultSetEquals(
+          runAndPrint(fromScore()
+              .selectAll()
+              .sortBy("gameNumber", "-uid")
+          ),
+          joinCsvRows(
+              "c,foo,1,81",
+              "c,bar,1,82",
+              "c,baz,1,83",
+              "b,foo,1,50",
+              "b,bar,1,71",
+              "a,foo,1,20",
+              "a,bar,1,40",
+              "b,foo,2,60",
+              "b,bar,2,72",
+              "a,foo,2,30",
+              "a,bar,2,60",
+              "b,bar,3,73",
+              "a,foo,3,38",
+              "b,bar,4,74",
+              "b,bar,5,75"
+          )
+      );
+    }
+    finally {
+      if (oldValue == null)
+        System.clearProperty(MemQuery.SYS_PROP_SORT_BUFFER_SIZE);
+      else
+        System.setProperty(MemQuery.SYS_PROP_SORT_BUFFER_SIZE, oldValue);
+    }
+  }
+
   /**
    * Checks the results of some simple selection (i.e. filtering) queries.
    */
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery;
+
+/**
+ * Tests the same functionality as {@link MemQueryTest} with a {@link RowFactory} instance that uses
+ * {@link BytecodeRowImplGenerator}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class MemQueryWithBytecodeRowImplTest extends MemQueryTest {
+
+  private RowFactory defaultRowFactory;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    defaultRowFactory = RowFactory.getInstance();  // back up the original instance
+    RowFactory.setInstance(new RowFactory(true, false, false));
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    RowFactory.setInstance(defaultRowFactory);  // restore the original instance
+    super.tearDown();
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.algebra;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import solutions.trsoftware.commons.server.memquery.MemQueryTestCase;
+import solutions.trsoftware.commons.server.memquery.Relation;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.memquery.eval.EvalPipelineBuilder;
+import solutions.trsoftware.commons.server.memquery.eval.RelationalEvaluator;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.*;
+
+import static java.util.Arrays.asList;
+import static solutions.trsoftware.commons.server.memquery.util.NameUtils.mapByName;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class QueryOptimizerTest extends MemQueryTestCase {
+
+  private RelationalValue scores;
+  private RelationalValue users;
+  private QueryOptimizer optimizer;
+
+  public void setUp() throws Exception {
+    super.setUp();
+    scores = new RelationalValue(scoreRelation.getSchema());
+    users = new RelationalValue(userRelation.getSchema());
+    optimizer = new QueryOptimizer();
+  }
+
+  public void tearDown() throws Exception {
+    scores = users = null;
+    optimizer = null;
+    super.tearDown();
+  }
+
+  public void testSelectionPushedBelowJoin() throws Exception {
+    // using predicates that can handle the null values produced by outer joins
+    ColValueIn<Integer> firstGames = new ColValueIn<>("gameNumber", asList(1, 2));
+    ColValueIn<String> nameNotAmy = new ColValueIn<>("name", asList("Ben", "Dick"));
+    ColValueIn<String> uidNotC = new ColValueIn<>("uid", asList("a", "b", "d"));
+    for (Join.Type type : Join.Type.values()) {
+      Selection expr = new Selection(new NaturalJoin(scores, users, type),
+          RowPredicate.and(RowPredicate.and(firstGames, nameNotAmy), uidNotC));
+      RelationalExpression optimized = checkOptimize(expr);
+      switch (type) {
+        case INNER:
+          // each conjunct is pushed to the input that provides its column (the LHS, for the "uid" join column)
+          assertPlanEquals(new NaturalJoin(
+              new Selection(scores, RowPredicate.and(firstGames, uidNotC)),
+              new Selection(users, nameNotAmy), type), optimized);
+          break;
+        case LEFT_OUTER:
+          // the conjunct on the RHS column must be evaluated after the join (because the RHS is null-supplying)
+          assertPlanEquals(new Selection(new NaturalJoin(
+              new Selection(scores, RowPredicate.and(firstGames, uidNotC)), users, type), nameNotAmy), optimized);
+          break;
+        case RIGHT_OUTER:
+          // the "uid" join column comes from the RHS of a right outer join
+          assertPlanEquals(new Selection(new NaturalJoin(
+              scores, new Selection(users, RowPredicate.and(nameNotAmy, uidNotC)), type), firstGames), optimized);
+          break;
+        case FULL_OUTER:
+          // nothing can be pushed below a full outer join
+          assertPlanEquals(expr, optimized);
+          break;
+      }
+    }
+  }
+
+  public void testCrossJoinReplacedWithEquiJoin() throws Exception {
+    Rename renamedUsers = new Rename(users, "U", ImmutableMap.of("uid", "User.uid"));
+    ColValueComparison<String> nameNotAmy = new ColValueComparison<>("name", ComparisonOperator.NE, "Amy");
+    Selection expr = new Selection(new CrossJoin(scores, renamedUsers),
+        RowPredicate.and(new ColValuesEqual("User.uid", "uid"), nameNotAmy));
+    RelationalExpression optimized = checkOptimize(expr);
+    // the conjunct on the "name" column is pushed all the way down to the input relation
+    assertPlanEquals(new EquiJoin(scores,
+            new Rename(new Selection(users, nameNotAmy), "U", ImmutableMap.of("uid", "User.uid")),
+            new EquiJoin.Params(Join.Type.INNER, ImmutableBiMap.of("uid", "User.uid"))),
+        optimized);
+    assertFalse(checkEval(expr, optimized).isEmpty());
+  }
+
+  /**
+   * A {@link ColValuesEqual} conjunct whose columns both come from the same input of a cross join can't be used
+   * as an equi-join key.
+   */
+  public void testCrossJoinWithSameSideColValuesEqual() throws Exception {
+    Rename renamedUsers = new Rename(users, "U", ImmutableMap.of("uid", "User.uid"));
+    ColValuesEqual uidEqModelId = new ColValuesEqual("uid", "modelId");
+    ColValuesEqual nameEqName = new ColValuesEqual("name", "name");
+    Selection expr = new Selection(new CrossJoin(scores, renamedUsers), RowPredicate.and(uidEqModelId, nameEqName));
+    // each conjunct is just a filter on one of the inputs, so the cross join remains
+    assertPlanEquals(new CrossJoin(new Selection(scores, uidEqModelId),
+            new Rename(new Selection(users, nameEqName), "U", ImmutableMap.of("uid", "User.uid"))),
+        checkOptimize(expr));
+    // a conjunct linking the two inputs can still become the equi-join key
+    ColValuesEqual uidEq = new ColValuesEqual("uid", "User.uid");
+    expr = new Selection(new CrossJoin(scores, renamedUsers), RowPredicate.and(uidEqModelId, uidEq));
+    assertPlanEquals(new EquiJoin(new Selection(scores, uidEqModelId), renamedUsers,
+            new EquiJoin.Params(Join.Type.INNER, ImmutableBiMap.of("uid", "User.uid"))),
+        checkOptimize(expr));
+  }
+
+  public void testSelectionPushedBelowRename() throws Exception {
+    ColValueComparison<Double> pointsGt50 = new ColValueComparison<>("points", ComparisonOperator.GT, 50.0);
+    ColValueComparison<String> modelIdFoo = new ColValueComparison<>("modelId", ComparisonOperator.EQ, "foo");
+    Map<String, String> renaming = ImmutableMap.of("score", "points");
+    Selection expr = new Selection(new Rename(scores, "S", renaming), RowPredicate.and(pointsGt50, modelIdFoo));
+    // only the conjunct on the column that's not being renamed can be pushed below the rename
+    assertPlanEquals(new Selection(new Rename(new Selection(scores, modelIdFoo), "S", renaming), pointsGt50),
+        checkOptimize(expr));
+  }
+
+  public void testOpaquePredicateNotMoved() throws Exception {
+    RowPredicate opaque = new RowPredicate() {
+      @Override
+      public Boolean apply(Row row) {
+        return !row.getValue("uid").equals(row.getValue("name"));
+      }
+      @Override
+      public String toString() {
+        return "opaque";
+      }
+    };
+    ColValueComparison<Double> scoreGt50 = new ColValueComparison<>("score", ComparisonOperator.GT, 50.0);
+    Selection expr = new Selection(new NaturalJoin(scores, users, Join.Type.INNER), RowPredicate.and(opaque, scoreGt50));
+    assertPlanEquals(new Selection(new NaturalJoin(new Selection(scores, scoreGt50), users, Join.Type.INNER), opaque),
+        checkOptimize(expr));
+  }
+
+  public void testMergeProjections() throws Exception {
+    Map<String, Expression<Row, ?>> namedExpressions = new LinkedHashMap<>();
+    namedExpressions.put("uid", null);
+    namedExpressions.put("gt50", new ColValueComparison<>("score", ComparisonOperator.GT, 50.0));
+    Projection expr = new Projection(new ExtendedProjection(scores, namedExpressions), asList("gt50"));
+    assertPlanEquals(new ExtendedProjection(scores, Collections.singletonMap("gt50", namedExpressions.get("gt50"))),
+        checkOptimize(expr));
+    // a simple projection under an extended projection
+    ExtendedProjection expr2 = new ExtendedProjection(new Projection(scores, asList("uid", "score")), namedExpressions);
+    assertPlanEquals(new ExtendedProjection(scores, namedExpressions), checkOptimize(expr2));
+  }
+
+  public void testMergeRenames() throws Exception {
+    Rename expr = new Rename(new Rename(scores, "A", ImmutableMap.of("score", "s1", "uid", "u")), "B",
+        ImmutableMap.of("s1", "s2", "modelId", "m"));
+    RelationalExpression optimized = checkOptimize(expr);
+    assertPlanEquals(new Rename(scores, "B", ImmutableMap.of("uid", "u", "modelId", "m", "score", "s2")), optimized);
+    assertEquals(expr.getOutputSchema().getName(), optimized.getOutputSchema().getName());
+    assertEquals(expr.getOutputSchema().getColNames(), optimized.getOutputSchema().getColNames());
+  }
+
+  /**
+   * Optimizes the given expression and checks that the result produces the same output as the original.
+   * @return the optimized expression
+   */
+  private RelationalExpression checkOptimize(RelationalExpression expr) throws Exception {
+    RelationalExpression optimized = optimizer.optimize(expr);
+    assertEquals(expr.getOutputSchema().getColNames(), optimized.getOutputSchema().getColNames());
+    checkEval(expr, optimized);
+    return optimized;
+  }
+
+  /**
+   * Checks that the given expressions produce the same rows (ignoring their order).
+   * @return the rows produced by the expressions
+   */
+  private List<String> checkEval(RelationalExpression expected, RelationalExpression actual) throws Exception {
+    List<String> expectedRows = eval(expected);
+    assertEquals(expectedRows, eval(actual));
+    return expectedRows;
+  }
+
+  private List<String> eval(RelationalExpression expr) throws Exception {
+    Map<String, Relation> inputs = mapByName(Arrays.<Relation>asList(scoreRelation, userRelation));
+    RelationalEvaluator<Relation> evaluator = new EvalPipelineBuilder(null, inputs).visit(expr);
+    Relation result = evaluator.call();
+    List<String> ret = new ArrayList<>();
+    for (Row row : result) {
+      ret.add(row.getValues(row.getNames()).toString());
+    }
+    Collections.sort(ret);
+    return ret;
+  }
+
+  /**
+   * Compares the structure of the given query plans.
+   */
+  private static void assertPlanEquals(RelationalExpression expected, RelationalExpression actual) {
+    assertEquals(toPlanString(expected), toPlanString(actual));
+  }
+
+  private static String toPlanString(RelationalExpression expr) {
+    if (expr instanceof UnaryOperation) {
+      UnaryOperation op = (UnaryOperation)expr;
+      return String.format("%s[%s](%s)", op.getClass().getSimpleName(), op.getParams(), toPlanString(op.getInput()));
+    }
+    if (expr instanceof BinaryOperation) {
+      BinaryOperation op = (BinaryOperation)expr;
+      return String.format("%s[%s](%s, %s)", op.getClass().getSimpleName(), op.getParams(),
+          toPlanString(op.getLHS()), toPlanString(op.getRHS()));
+    }
+    return expr.getOutputSchema().getName();
+  }
+}
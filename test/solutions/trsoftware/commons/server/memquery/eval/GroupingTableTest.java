@@ -0,0 +1,192 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.*;
+import solutions.trsoftware.commons.server.memquery.algebra.AggregationOperation;
+import solutions.trsoftware.commons.server.memquery.algebra.RelationalValue;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.SetUtils;
+
+import java.util.*;
+
+/**
+ * Checks the results of {@link GroupingTable} against those of grouping the rows with a {@link LinkedHashMap}
+ * (which is how {@link AggregationEvaluator} used to do it).
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class GroupingTableTest extends TestCase {
+
+  private ArrayListRelation relation;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    RelationSchema schema = new RelationSchema("R", Arrays.asList(
+        new NameAccessorColSpec<>("g1", Integer.class),
+        new NameAccessorColSpec<>("g2", String.class),
+        new NameAccessorColSpec<>("g3", Double.class),
+        new NameAccessorColSpec<>("x", Double.class),
+        new NameAccessorColSpec<>("y", Integer.class)
+    ));
+    Random rnd = new Random(1);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, rnd.nextInt(10) == 0 ? null : rnd.nextInt(50));
+      row.setValue(1, rnd.nextInt(10) == 0 ? null : String.valueOf((char)('a' + rnd.nextInt(4))));
+      row.setValue(2, rnd.nextInt(3) / 2.0);
+      row.setValue(3, rnd.nextGaussian() * 100);
+      row.setValue(4, rnd.nextInt(1000));
+      rows.add(row);
+    }
+    relation = new ArrayListRelation(schema, rows.iterator());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    relation = null;
+    super.tearDown();
+  }
+
+  public void testGrouping() throws Exception {
+    List<AggregationSpec> aggSpecs = Arrays.asList(
+        new AggregationSpec(Count.class, "*"),
+        new AggregationSpec(Sum.class, "x"),
+        new AggregationSpec(Avg.class, "x"),
+        new AggregationSpec(Min.class, "x"),
+        new AggregationSpec(Max.class, "y"),
+        new AggregationSpec(Variance.class, "x"),
+        new AggregationSpec(StDev.class, "y"),
+        new AggregationSpec(MaxInteger.class, "y")  // not one of the aggregations computed in primitive arrays
+    );
+    ColumnarRelation columnarRelation = new ColumnarRelation(relation);
+    for (Set<String> groupingAttrs : Arrays.<Set<String>>asList(
+        Collections.emptySet(),
+        SetUtils.newSet("g1"),
+        SetUtils.newSet("g2"),
+        SetUtils.newSet("g3"),
+        SetUtils.newSet("g2", "g1"),
+        SetUtils.newSet("g1", "g2", "g3"))) {
+      AggregationOperation op = new AggregationOperation(new RelationalValue(relation.getSchema()),
+          new AggregationOperation.Params(groupingAttrs, aggSpecs));
+      List<String> expected = aggregateWithMap(op, relation.getRows());
+      assertEquals(expected, aggregate(op, relation, relation.getRows()));
+      assertEquals(expected, aggregate(op, columnarRelation, columnarRelation.getRows()));
+      // merging the partial aggregates of the chunks of the input should produce the same groups in the same order
+      for (MaterializedRelation input : Arrays.asList(relation, columnarRelation)) {
+        List<Row> rows = input.getRows();
+        GroupingTable merged = new GroupingTable(op, input);
+        for (int start = 0; start < rows.size(); start += 700) {
+          GroupingTable chunk = new GroupingTable(op, input);
+          for (Row row : rows.subList(start, Math.min(rows.size(), start + 700)))
+            chunk.update(row);
+          merged.merge(chunk);
+        }
+        assertEquals(expected.size(), merged.size());
+        List<String> actual = toStrings(merged.outputRows(op.getOutputSchema()));
+        for (int i = 0; i < expected.size(); i++) {
+          // the merged floating-point values might differ slightly due to rounding, so we only compare the keys and counts
+          assertEquals(keyAndCount(expected.get(i), groupingAttrs.size()), keyAndCount(actual.get(i), groupingAttrs.size()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Merging a group whose stats haven't accepted any values (because all its inputs were ignored as non-finite)
+   * should not corrupt the stats of the other group.
+   */
+  public void testMergeEmptyStats() throws Exception {
+    RelationSchema schema = new RelationSchema("S", Arrays.asList(
+        new NameAccessorColSpec<>("g", Integer.class),
+        new NameAccessorColSpec<>("x", Double.class)
+    ));
+    List<Row> rows = new ArrayList<>();
+    double[][] data = {{1, Double.NaN}, {1, Double.NaN}, {2, 1}, {2, Double.POSITIVE_INFINITY}, {2, 3}, {3, Double.NaN}, {3, 5}};
+    for (double[] values : data) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, (int)values[0]);
+      row.setValue(1, values[1]);
+      rows.add(row);
+    }
+    ArrayListRelation input = new ArrayListRelation(schema, rows.iterator());
+    AggregationOperation op = new AggregationOperation(new RelationalValue(schema),
+        new AggregationOperation.Params(SetUtils.newSet("g"), Arrays.asList(
+            new AggregationSpec(Avg.class, "x"),
+            new AggregationSpec(Sum.class, "x"),
+            new AggregationSpec(Variance.class, "x"))));
+    List<String> expected = aggregate(op, input, rows);
+    // merge a separate chunk for each row
+    GroupingTable merged = new GroupingTable(op, input);
+    for (Row row : rows) {
+      GroupingTable chunk = new GroupingTable(op, input);
+      chunk.update(row);
+      merged.merge(chunk);
+    }
+    assertEquals(expected, toStrings(merged.outputRows(op.getOutputSchema())));
+  }
+
+  private static String keyAndCount(String row, int nKeys) {
+    String[] values = row.substring(1, row.length() - 1).split(", ");
+    return Arrays.asList(values).subList(0, nKeys + 1).toString();
+  }
+
+  private static List<String> aggregate(AggregationOperation op, Relation input, List<Row> rows) {
+    GroupingTable table = new GroupingTable(op, input);
+    for (Row row : rows)
+      table.update(row);
+    return toStrings(table.outputRows(op.getOutputSchema()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<String> aggregateWithMap(AggregationOperation op, List<Row> rows) {
+    List<String> groupingAttrs = new ArrayList<>(op.getParams().getGroupingAttrs());
+    LinkedHashMap<List<Object>, Map<AggregationSpec, Aggregation>> groups = new LinkedHashMap<>();
+    for (Row row : rows) {
+      Map<AggregationSpec, Aggregation> aggs = groups.computeIfAbsent(row.getValues(groupingAttrs), k -> op.createAggregations());
+      for (Map.Entry<AggregationSpec, Aggregation> ae : aggs.entrySet()) {
+        if (ae.getValue() instanceof RowAggregation)
+          ae.getValue().update(row);
+        else
+          ae.getValue().update(row.getValue(ae.getKey().getInputAttrName()));
+      }
+    }
+    List<String> ret = new ArrayList<>();
+    for (Map.Entry<List<Object>, Map<AggregationSpec, Aggregation>> group : groups.entrySet()) {
+      List<Object> values = new ArrayList<>(group.getKey());
+      for (Aggregation agg : group.getValue().values())
+        values.add(agg.get());
+      ret.add(values.toString());
+    }
+    return ret;
+  }
+
+  private static List<String> toStrings(Iterator<Row> rows) {
+    List<String> ret = new ArrayList<>();
+    while (rows.hasNext()) {
+      Row row = rows.next();
+      ret.add(row.getValues(row.getNames()).toString());
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import com.google.common.collect.ImmutableBiMap;
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.algebra.EquiJoin;
+import solutions.trsoftware.commons.server.memquery.algebra.Join;
+import solutions.trsoftware.commons.server.memquery.algebra.NaturalJoin;
+import solutions.trsoftware.commons.server.memquery.algebra.RelationalValue;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.*;
+
+/**
+ * Checks the results of {@link HashJoinIterator} against those of the brute-force {@link NestedLoopJoinIteratorImpl}.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class HashJoinEvaluatorTest extends TestCase {
+
+  private ArrayListRelation left;
+  private ArrayListRelation right;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    Random rnd = new Random(1);
+    left = randomRelation(rnd, "L", "a", 50);
+    right = randomRelation(rnd, "R", "b", 80);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    left = right = null;
+    super.tearDown();
+  }
+
+  /**
+   * @return a relation with the columns {@code k1}, {@code k2}, and {@code valueColName}, where the join columns
+   * ({@code k1} and {@code k2}) have many duplicate and {@code null} values.
+   */
+  private static ArrayListRelation randomRelation(Random rnd, String name, String valueColName, int nRows) {
+    RelationSchema schema = new RelationSchema(name, Arrays.asList(
+        new NameAccessorColSpec<>("k1", Integer.class),
+        new NameAccessorColSpec<>("k2", String.class),
+        new NameAccessorColSpec<>(valueColName, Integer.class)
+    ));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < nRows; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, rnd.nextInt(10) == 0 ? null : rnd.nextInt(8));
+      row.setValue(1, rnd.nextInt(10) == 0 ? null : String.valueOf((char)('a' + rnd.nextInt(3))));
+      row.setValue(2, i);
+      rows.add(row);
+    }
+    return new ArrayListRelation(schema, rows.iterator());
+  }
+
+  public void testNaturalJoin() throws Exception {
+    for (Join.Type type : Join.Type.values()) {
+      checkJoin(new NaturalJoin(new RelationalValue(left.getSchema()), new RelationalValue(right.getSchema()), type));
+      checkJoin(new NaturalJoin(new RelationalValue(right.getSchema()), new RelationalValue(left.getSchema()), type));
+    }
+  }
+
+  public void testEquiJoin() throws Exception {
+    for (Join.Type type : Join.Type.values()) {
+      checkJoin(new EquiJoin(new RelationalValue(left.getSchema()), new RelationalValue(right.getSchema()),
+          new EquiJoin.Params(type, ImmutableBiMap.of("k1", "k1"))));
+      checkJoin(new EquiJoin(new RelationalValue(right.getSchema()), new RelationalValue(left.getSchema()),
+          new EquiJoin.Params(type, ImmutableBiMap.of("k2", "k2"))));
+    }
+  }
+
+  private void checkJoin(EquiJoin join) {
+    MaterializedRelation lhs = join.getLeftName().equals(left.getName()) ? left : right;
+    MaterializedRelation rhs = lhs == left ? right : left;
+    List<String> expected = toSortedStrings(new NestedLoopJoinIteratorImpl<>(join, lhs, rhs));
+    assertFalse(expected.isEmpty());
+    // the result should be the same regardless of which input is used as the build side
+    assertEquals(join.toString(), expected, toSortedStrings(new HashJoinIterator<>(join, lhs, rhs, false)));
+    assertEquals(join.toString(), expected, toSortedStrings(new HashJoinIterator<>(join, lhs, rhs, true)));
+    // and the probe side input doesn't have to be materialized
+    assertEquals(join.toString(), expected, toSortedStrings(new HashJoinIterator<>(join,
+        new StreamingRelation(lhs.getSchema(), lhs.iterator()), new StreamingRelation(rhs.getSchema(), rhs.iterator()), false)));
+  }
+
+  private static List<String> toSortedStrings(Iterator<Row> rows) {
+    List<String> ret = new ArrayList<>();
+    while (rows.hasNext()) {
+      Row row = rows.next();
+      ret.add(row.getValues(row.getNames()).toString());
+    }
+    Collections.sort(ret);
+    return ret;
+  }
+
+  public void testShouldBuildLeft() throws Exception {
+    StreamingRelation streamingLeft = new StreamingRelation(left.getSchema(), left.iterator());
+    // left is smaller than right
+    assertTrue(HashJoinEvaluator.shouldBuildLeft(Join.Type.INNER, left, right));
+    assertTrue(HashJoinEvaluator.shouldBuildLeft(Join.Type.RIGHT_OUTER, left, right));
+    // the unmatched LHS rows have to be emitted for these join types
+    assertFalse(HashJoinEvaluator.shouldBuildLeft(Join.Type.LEFT_OUTER, left, right));
+    assertFalse(HashJoinEvaluator.shouldBuildLeft(Join.Type.FULL_OUTER, left, right));
+    // the RHS is the default build side when the LHS is not smaller or its size is not known
+    assertFalse(HashJoinEvaluator.shouldBuildLeft(Join.Type.INNER, right, left));
+    assertFalse(HashJoinEvaluator.shouldBuildLeft(Join.Type.INNER, left, left));
+    assertFalse(HashJoinEvaluator.shouldBuildLeft(Join.Type.INNER, streamingLeft, right));
+  }
+}
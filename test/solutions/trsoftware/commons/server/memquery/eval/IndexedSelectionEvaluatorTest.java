@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.expressions.*;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.testutil.AssertUtils;
+
+import java.util.*;
+
+import static solutions.trsoftware.commons.shared.util.compare.ComparisonOperator.*;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class IndexedSelectionEvaluatorTest extends TestCase {
+
+  private IndexedRelation relation;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    RelationSchema schema = new RelationSchema("R", Arrays.asList(
+        new NameAccessorColSpec<>("a", Integer.class),
+        new NameAccessorColSpec<>("b", Integer.class),
+        new NameAccessorColSpec<>("c", Integer.class)
+    ));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, i);
+      row.setValue(1, i % 10 == 0 ? null : i % 10);
+      row.setValue(2, i % 3);
+      rows.add(row);
+    }
+    relation = new IndexedRelation(schema, rows.iterator());
+    relation.createSortedIndex("a");
+    relation.createSortedIndex("b");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    relation = null;
+    super.tearDown();
+  }
+
+  public void testLookup() throws Exception {
+    assertEquals(positions(5), lookup(new ColValueComparison<>("a", EQ, 5)));
+    assertEquals(positions(97, 98, 99), lookup(new ColValueComparison<>("a", GT, 96)));
+    assertEquals(positions(98, 99), lookup(new And(new ColValueComparison<>("a", GT, 96), new ColValueIn<>("a", Arrays.asList(98, 99, 100)))));
+    assertEquals(positions(0, 1, 97, 98, 99), lookup(new Or(new ColValueComparison<>("a", LE, 1), new ColValueComparison<>("a", GE, 97))));
+    // the unindexed conjuncts are evaluated later
+    assertEquals(positions(97, 98, 99), lookup(new And(new ColValueComparison<>("a", GT, 96), new ColValueComparison<>("c", EQ, 0))));
+    assertEquals(positions(97, 98, 99), lookup(new And(new ColValueIn<>("c", Arrays.asList(0, 1)), new ColValueComparison<>("a", GT, 96))));
+    assertNull(lookup(new ColValueComparison<>("c", EQ, 0)));
+    assertNull(lookup(new Or(new ColValueComparison<>("c", EQ, 0), new ColValueComparison<>("a", GT, 96))));
+    // these can't be evaluated with the index
+    assertNull(lookup(new ColValueComparison<>("a", NE, 5)));
+    assertNull(lookup(new ColValueComparison<>("a", EQ, 5L)));
+    // comparisons on a column that contains null values would throw an exception, unless guarded by an IS NOT NULL
+    assertEquals(positions(0, 10, 20, 30, 40, 50, 60, 70, 80, 90), lookup(new IsNull("b")));
+    assertNull(lookup(new ColValueComparison<>("b", EQ, 5)));
+    assertNull(lookup(new And(new ColValueComparison<>("b", EQ, 5), new IsNotNull("b"))));
+    assertEquals(positions(5, 15, 25, 35, 45, 55, 65, 75, 85, 95),
+        lookup(new And(new IsNotNull("b"), new ColValueComparison<>("b", EQ, 5))));
+  }
+
+  /**
+   * The rows shouldn't be pruned with a conjunct that follows a conjunct whose evaluation might throw an exception,
+   * since that would suppress the exception thrown by scanning the relation.
+   */
+  public void testLookupPreservesExceptions() throws Exception {
+    // row 0 contains b = null, so comparing b throws an exception
+    RowPredicate predicate = new And(new ColValueComparison<>("b", GT, 5), new ColValueComparison<>("a", EQ, 1));
+    AssertUtils.assertThrows(NullPointerException.class, (Runnable)() -> {
+      for (Row row : relation.getRows())
+        predicate.apply(row);
+    });
+    assertNull(lookup(predicate));
+    // the same applies to a comparison on a column without an index (which might contain null values)
+    assertNull(lookup(new And(new ColValueComparison<>("c", EQ, 0), new ColValueComparison<>("a", GT, 96))));
+    // the conjuncts that precede it can still be used
+    assertEquals(positions(1), lookup(new And(new ColValueComparison<>("a", EQ, 1),
+        new And(new ColValueComparison<>("b", GT, 5), new ColValueComparison<>("a", LT, 50)))));
+    // and the operands of an AND nested in an OR
+    assertNull(lookup(new Or(new And(new ColValueComparison<>("c", EQ, 0), new ColValueComparison<>("a", EQ, 1)),
+        new ColValueComparison<>("a", EQ, 2))));
+    assertEquals(positions(1, 2), lookup(new Or(new And(new ColValueComparison<>("a", EQ, 1), new ColValueComparison<>("c", EQ, 0)),
+        new ColValueComparison<>("a", EQ, 2))));
+  }
+
+  private BitSet lookup(RowPredicate predicate) {
+    return IndexedSelectionEvaluator.lookup(relation, predicate);
+  }
+
+  private static BitSet positions(int... positions) {
+    BitSet ret = new BitSet();
+    for (int i : positions)
+      ret.set(i);
+    return ret;
+  }
+}
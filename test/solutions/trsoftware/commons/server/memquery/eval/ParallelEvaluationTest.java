@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.eval;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.aggregations.Avg;
+import solutions.trsoftware.commons.server.memquery.aggregations.Count;
+import solutions.trsoftware.commons.server.memquery.aggregations.Max;
+import solutions.trsoftware.commons.server.memquery.aggregations.Sum;
+import solutions.trsoftware.commons.server.memquery.expressions.ColValueComparison;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+import solutions.trsoftware.commons.shared.util.compare.ComparisonOperator;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that evaluating a query in parallel produces the same results (in the same order) as evaluating it
+ * on a single thread.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ParallelEvaluationTest extends TestCase {
+
+  /** Large enough to be split into several chunks of {@link OperationEvaluator#DEFAULT_MIN_CHUNK_SIZE} rows */
+  private static final int N_ROWS = 50_000;
+
+  private ForkJoinPool pool;
+  private ArrayListRelation events;
+  private ArrayListRelation users;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    pool = new ForkJoinPool(4);
+    Random rnd = new Random(1);
+    RelationSchema eventSchema = new RelationSchema("Event", Arrays.asList(
+        new NameAccessorColSpec<>("uid", Integer.class),
+        new NameAccessorColSpec<>("type", String.class),
+        new NameAccessorColSpec<>("value", Double.class)
+    ));
+    List<Row> eventRows = new ArrayList<>();
+    for (int i = 0; i < N_ROWS; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(eventSchema);
+      row.setValue(0, rnd.nextInt(100));
+      row.setValue(1, String.valueOf((char)('a' + rnd.nextInt(5))));
+      row.setValue(2, (double)rnd.nextInt(1000));
+      eventRows.add(row);
+    }
+    events = new ArrayListRelation(eventSchema, eventRows.iterator());
+    RelationSchema userSchema = new RelationSchema("User", Arrays.asList(
+        new NameAccessorColSpec<>("uid", Integer.class),
+        new NameAccessorColSpec<>("name", String.class)
+    ));
+    List<Row> userRows = new ArrayList<>();
+    for (int i = 0; i < 100; i += 2) {
+      MutableRow row = RowFactory.getInstance().newRow(userSchema);
+      row.setValue(0, i);
+      row.setValue(1, "user" + i);
+      userRows.add(row);
+    }
+    users = new ArrayListRelation(userSchema, userRows.iterator());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    pool.shutdown();
+    pool = null;
+    events = users = null;
+    super.tearDown();
+  }
+
+  public void testSelectionAndProjection() throws Exception {
+    checkParallelEval(new QueryBuilder().from(events)
+        .select("uid", "type").selectExprAs(new ColValueComparison<>("value", ComparisonOperator.GE, 500.0), "isLarge")
+        .where(new ColValueComparison<>("type", ComparisonOperator.NE, "c")));
+  }
+
+  public void testAggregation() throws Exception {
+    checkParallelEval(new QueryBuilder().from(events)
+        .select("uid", "type")
+        .selectAggregatedCol(Count.class, "*").selectAggregatedCol(Avg.class, "value")
+        .selectAggregatedCol(Sum.class, "value").selectAggregatedCol(Max.class, "value")
+        .groupBy("uid", "type"));
+    // without grouping attributes
+    checkParallelEval(new QueryBuilder().from(events)
+        .selectAggregatedCol(Count.class, "*").selectAggregatedCol(Avg.class, "value").groupBy());
+  }
+
+  public void testJoin() throws Exception {
+    checkParallelEval(new QueryBuilder().from(events).naturalJoin().from(users)
+        .select("uid", "name", "type", "value")
+        .where(new ColValueComparison<>("value", ComparisonOperator.LT, 100.0)));
+    checkParallelEval(new QueryBuilder().from(events).naturalJoin().from(users)
+        .select("name").selectAggregatedCol(Count.class, "*").groupBy("name").sortBy("-Count(*)", "name"));
+  }
+
+  private void checkParallelEval(QueryBuilder queryBuilder) {
+    BoundQuery query = queryBuilder.boundQuery();
+    List<String> expected = toStrings(query.eval());
+    assertFalse(expected.isEmpty());
+    assertEquals(query.toString(), expected, toStrings(query.eval(pool)));
+  }
+
+  private static List<String> toStrings(ResultSet resultSet) {
+    List<String> ret = new ArrayList<>();
+    for (Row row : resultSet) {
+      StringBuilder str = new StringBuilder();
+      for (Object value : row.getValues(row.getNames())) {
+        // the floating-point aggregates computed by merging partial results might differ in the last few digits
+        str.append(value instanceof Double ? String.format("%.6f", value) : value).append(',');
+      }
+      ret.add(str.toString());
+    }
+    return ret;
+  }
+
+  public void testSplitting() throws Exception {
+    MemQuery query = new QueryBuilder().from(events)
+        .selectAll().where(new ColValueComparison<>("type", ComparisonOperator.NE, "a")).query();
+    Map<String, Relation> inputs = Collections.singletonMap(events.getName(), events);
+    // a large materialized input should be processed in chunks to produce a materialized output
+    assertTrue(query.evalAsUnsortedStream(pool, inputs) instanceof MaterializedRelation);
+    // but the evaluation should be streaming when a pool is not provided
+    assertTrue(query.evalAsUnsortedStream(inputs) instanceof StreamingRelation);
+  }
+
+  public void testRowChunkTask() throws Exception {
+    List<Row> rows = events.getRows();
+    Set<Integer> chunkSizes = Collections.synchronizedSet(new HashSet<>());
+    List<Row> result = pool.invoke(new RowChunkTask<>(rows, 1000,
+        chunk -> {
+          chunkSizes.add(chunk.size());
+          return new ArrayList<>(chunk);
+        },
+        (left, right) -> {
+          left.addAll(right);
+          return left;
+        }));
+    // the chunks should be combined in the same order as the input
+    assertEquals(rows, result);
+    for (Integer size : chunkSizes) {
+      assertTrue(size <= 1000);
+      assertTrue(size >= 500);
+    }
+  }
+}
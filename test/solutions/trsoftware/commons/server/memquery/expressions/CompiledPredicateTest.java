@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.memquery.expressions;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.*;
+import solutions.trsoftware.commons.server.memquery.schema.NameAccessorColSpec;
+
+import java.util.*;
+
+import static solutions.trsoftware.commons.shared.util.compare.ComparisonOperator.*;
+
+/**
+ * Checks the results of {@link CompiledPredicate} against those of the interpreted expressions.
+ *
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class CompiledPredicateTest extends TestCase {
+
+  private ArrayListRelation relation;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    RelationSchema schema = new RelationSchema("R", Arrays.asList(
+        new NameAccessorColSpec<>("i", Integer.class),
+        new NameAccessorColSpec<>("d", Double.class),
+        new NameAccessorColSpec<>("l", Long.class),
+        new NameAccessorColSpec<>("s", String.class),
+        new NameAccessorColSpec<>("n", Integer.class)  // nullable
+    ));
+    Random rnd = new Random(1);
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      MutableRow row = RowFactory.getInstance().newRow(schema);
+      row.setValue(0, rnd.nextInt(20));
+      row.setValue(1, rnd.nextDouble() * 20);
+      row.setValue(2, (long)rnd.nextInt(20));
+      row.setValue(3, String.valueOf((char)('a' + rnd.nextInt(5))));
+      row.setValue(4, rnd.nextInt(4) == 0 ? null : rnd.nextInt(10));
+      rows.add(row);
+    }
+    relation = new ArrayListRelation(schema, rows.iterator());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    relation = null;
+    super.tearDown();
+  }
+
+  public void testCompile() throws Exception {
+    List<RowPredicate> predicates = Arrays.asList(
+        new ColValueComparison<>("i", GT, 10),
+        new ColValueComparison<>("i", EQ, 3),
+        new ColValueComparison<>("d", LE, 5.5),
+        new ColValueComparison<>("l", NE, 7L),
+        new ColValueComparison<>("s", EQ, "c"),
+        new ColValueComparison<>("s", LT, "c"),
+        new ColValueIn<>("s", Arrays.asList("a", "e")),
+        new IsNull("n"),
+        new IsNotNull("n"),
+        new ColValuesEqual("i", "n"),
+        new And(new ColValueComparison<>("i", GT, 3), new Or(new IsNull("n"), new ColValueComparison<>("d", LT, 10.0))),
+        new Or(new And(new ColValueComparison<>("i", LT, 3), new ColValueComparison<>("s", EQ, "a")),
+            new Or(new ColValueIn<>("n", Arrays.asList(1, 2)), new ColValueComparison<>("l", GE, 18L))),
+        // the RHS of this expression would throw an NPE if evaluated first, so it must not be reordered
+        new And(new IsNotNull("n"), new ColValueComparison<>("n", GT, 5))
+    );
+    ColumnarRelation columnarRelation = new ColumnarRelation(relation);
+    for (RowPredicate predicate : predicates) {
+      checkCompiled(predicate, relation);
+      checkCompiled(predicate, columnarRelation);
+    }
+  }
+
+  private static void checkCompiled(RowPredicate expr, MaterializedRelation relation) {
+    List<Row> rows = relation.getRows();
+    BitSet expected = new BitSet();
+    for (int i = 0; i < rows.size(); i++) {
+      if (expr.apply(rows.get(i)))
+        expected.set(i);
+    }
+    assertFalse(expr.toString(), expected.isEmpty());
+    CompiledPredicate compiled = CompiledPredicate.compile(expr, relation.getSchema());
+    for (int i = 0; i < rows.size(); i++) {
+      assertEquals(expr.toString(), expected.get(i), compiled.test(rows.get(i)));
+    }
+    // filter the rows in blocks, which gives the compiled predicate a chance to reorder its operands
+    int blockSize = 100;
+    BitSet actual = new BitSet();
+    for (int start = 0; start < rows.size(); start += blockSize) {
+      List<Row> block = rows.subList(start, Math.min(rows.size(), start + blockSize));
+      BitSet selection = new BitSet();
+      selection.set(0, block.size());
+      compiled.filter(block, selection);
+      for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1))
+        actual.set(start + i);
+    }
+    assertEquals(expr.toString(), expected, actual);
+  }
+
+  public void testReorder() throws Exception {
+    // these operands can't throw an exception, and the second one is much more selective than the first
+    RowPredicate notNull = new IsNotNull("n");
+    RowPredicate inA = new ColValueIn<>("s", Collections.singleton("a"));
+    CompiledPredicate compiled = CompiledPredicate.compile(new And(notNull, inA), relation.getSchema());
+    assertEquals(String.format("(%s AND %s)", notNull, inA), compiled.toString());
+    filterAll(compiled);
+    assertEquals(String.format("(%s AND %s)", inA, notNull), compiled.toString());
+    // an OR should evaluate the operand most likely to be satisfied first
+    compiled = CompiledPredicate.compile(new Or(inA, notNull), relation.getSchema());
+    filterAll(compiled);
+    assertEquals(String.format("(%s OR %s)", notNull, inA), compiled.toString());
+    // but operands that could throw an exception should never be reordered
+    RowPredicate gt = new ColValueComparison<>("n", GT, 8);
+    compiled = CompiledPredicate.compile(new And(notNull, gt), relation.getSchema());
+    filterAll(compiled);
+    assertEquals(String.format("(%s AND %s)", notNull, gt), compiled.toString());
+  }
+
+  private void filterAll(CompiledPredicate compiled) {
+    BitSet selection = new BitSet();
+    selection.set(0, relation.size());
+    compiled.filter(relation.getRows(), selection);
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.schema;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.memquery.ObjectRow;
+import solutions.trsoftware.commons.server.memquery.QueryBuilder;
+import solutions.trsoftware.commons.server.memquery.RelationSchema;
+import solutions.trsoftware.commons.server.memquery.Row;
+import solutions.trsoftware.commons.server.testutil.BenchmarkRunner;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class ReflectionAccessorColSpecTest extends TestCase {
+
+  public static class Foo {
+    private int x;
+    public String str;
+    private Double d;
+
+    public Foo(int x, String str, Double d) {
+      this.x = x;
+      this.str = str;
+      this.d = d;
+    }
+
+    public int getX() {
+      return x;
+    }
+
+    public String getStr() {
+      return str;
+    }
+
+    private Double getD() {
+      return d;
+    }
+
+    private String privateMethod() {
+      return str + x;
+    }
+
+    public double fail() {
+      throw new IllegalStateException("fail");
+    }
+
+    public static String staticMethod() {
+      return "static";
+    }
+  }
+
+  private static class PrivateFoo {
+    private final long y;
+
+    private PrivateFoo(long y) {
+      this.y = y;
+    }
+
+    public long getY() {
+      return y;
+    }
+  }
+
+  public void testGetValue() throws Exception {
+    RelationSchema schema = QueryBuilder.createORMSchema(Foo.class,
+        Foo.class.getMethod("getX"), Foo.class.getDeclaredMethod("privateMethod"),
+        Foo.class.getMethod("fail"), Foo.class.getMethod("staticMethod"));
+    Foo foo = new Foo(1, "a", null);
+    ObjectRow row = new ObjectRow(schema, foo);
+    // the compiled accessors should produce the same values as reflection
+    List<String> names = Arrays.asList("x", "str", "d", "getX", "privateMethod", "staticMethod");
+    List<Object> expected = Arrays.asList(1, "a", null, 1, "a1", "static");
+    for (int i = 0; i < names.size(); i++) {
+      ReflectionAccessorColSpec colSpec = (ReflectionAccessorColSpec)schema.get(names.get(i));
+      assertEquals(expected.get(i), colSpec.getValue(row));
+      assertEquals(expected.get(i), colSpec.getValueByReflection(foo));
+    }
+    // the exceptions thrown by a method should be wrapped
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, (Runnable)() -> row.getValue("fail"));
+    assertTrue(ex.getCause() instanceof IllegalStateException);
+  }
+
+  public void testNonPublicClass() throws Exception {
+    RelationSchema schema = QueryBuilder.createORMSchema(PrivateFoo.class, PrivateFoo.class.getMethod("getY"));
+    ObjectRow row = new ObjectRow(schema, new PrivateFoo(5));
+    assertEquals(5L, (long)row.getValue("getY"));
+  }
+
+  /**
+   * Compares the performance of the compiled method accessors against reflection.
+   */
+  @Slow
+  public void testBenchmark() throws Exception {
+    ReflectionAccessorColSpec[] colSpecs = {
+        new MethodAccessorColSpec<>(Foo.class.getMethod("getX")),
+        new MethodAccessorColSpec<>(Foo.class.getMethod("getStr")),
+        new MethodAccessorColSpec<>(Foo.class.getDeclaredMethod("getD"))
+    };
+    RelationSchema schema = new RelationSchema("Foo", Arrays.asList(colSpecs));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+      rows.add(new ObjectRow(schema, new Foo(i, "str" + i, (double)i)));
+    List<BenchmarkRunner.Task> tasks = Arrays.asList(
+        new BenchmarkRunner.Task() {
+          @Override
+          public String getName() {
+            return "Reflection";
+          }
+
+          @Override
+          public void run() {
+            try {
+              for (Row row : rows) {
+                for (ReflectionAccessorColSpec colSpec : colSpecs)
+                  colSpec.getValueByReflection(((ObjectRow)row).getObject());
+              }
+            }
+            catch (ReflectiveOperationException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        },
+        new BenchmarkRunner.Task() {
+          @Override
+          public String getName() {
+            return "Compiled accessors";
+          }
+
+          @Override
+          public void run() {
+            for (Row row : rows) {
+              for (ReflectionAccessorColSpec colSpec : colSpecs)
+                colSpec.getValue(row);
+            }
+          }
+        }
+    );
+    BenchmarkRunner benchmarkRunner = new BenchmarkRunner();
+    for (int i = 0; i < 3; i++)  // the first run serves as warm-up
+      benchmarkRunner.runCpuBenchmarks(tasks).printResults();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.memquery.util;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.Pair;
+
+import java.util.*;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/16/2026
+ */
+public class SortUtilsTest extends TestCase {
+
+  public void testTopK() throws Exception {
+    Random rnd = new Random(1);
+    // elements with many duplicate keys, to make sure that ties are resolved in the same way as a stable sort
+    List<Pair<Integer, Integer>> input = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      input.add(new Pair<>(rnd.nextInt(50), i));
+    }
+    Comparator<Pair<Integer, Integer>> comparator = Comparator.comparing(Pair::first);
+    List<Pair<Integer, Integer>> sorted = new ArrayList<>(input);
+    sorted.sort(comparator);
+    for (int k : new int[]{0, 1, 2, 10, 99, 500, 999, 1000, 1001, 5000}) {
+      List<Pair<Integer, Integer>> expected = sorted.subList(0, Math.min(k, sorted.size()));
+      assertEquals(expected, SortUtils.topK(input.iterator(), comparator, k));
+      // same thing with the reverse order
+      assertEquals(reverseStableSort(input, comparator).subList(0, Math.min(k, sorted.size())),
+          SortUtils.topK(input.iterator(), comparator.reversed(), k));
+    }
+    assertEquals(Collections.emptyList(), SortUtils.topK(Collections.<Integer>emptyIterator(), Comparator.naturalOrder(), 5));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> SortUtils.topK(input.iterator(), comparator, -1));
+  }
+
+  private static <T> List<T> reverseStableSort(List<T> input, Comparator<T> comparator) {
+    List<T> ret = new ArrayList<>(input);
+    ret.sort(comparator.reversed());
+    return ret;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import com.google.common.collect.ImmutableMap;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.util.stats.HashCounter;
+import solutions.trsoftware.commons.shared.util.stats.HashCounterTable;
+import solutions.trsoftware.commons.shared.util.stats.CollectableStatsTestCase;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ConcurrentHashCounterTest extends CollectableStatsTestCase {
+
+  public void testCounting() throws Exception {
+    ConcurrentHashCounter<String> counter = new ConcurrentHashCounter<>();
+    assertEquals(0, counter.size());
+    assertEquals(0, counter.get("a"));
+    counter.increment("a");
+    counter.increment("b");
+    counter.add("a", 5);
+    counter.add("c", 3L * Integer.MAX_VALUE);
+    assertEquals(6, counter.get("a"));
+    assertEquals(1, counter.get("b"));
+    assertEquals(3L * Integer.MAX_VALUE, counter.get("c"));
+    assertEquals(3, counter.size());
+    assertEquals(7 + 3L * Integer.MAX_VALUE, counter.sumOfAllEntries());
+    assertEquals(ImmutableMap.of("a", 6L, "b", 1L, "c", 3L * Integer.MAX_VALUE), counter.asMap());
+    assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), counter.keySet());
+    assertEquals(6d / counter.sumOfAllEntries(), counter.probabilityOf("a"));
+    counter.clear();
+    assertEquals(0, counter.size());
+    assertEquals(0, counter.sumOfAllEntries());
+  }
+
+  public void testTopK() throws Exception {
+    ConcurrentHashCounter<Integer> counter = new ConcurrentHashCounter<>();
+    HashCounter<Integer> expected = new HashCounter<>();
+    Random rnd = new Random(1);
+    for (int i = 0; i < 10_000; i++) {
+      // a skewed distribution, so that the top counts are distinct
+      int key = (int)Math.floor(Math.pow(rnd.nextDouble(), 3) * 1000);
+      counter.increment(key);
+      expected.increment(key);
+    }
+    List<Map.Entry<Integer, Integer>> expectedEntries = new ArrayList<>(expected.entriesSortedByValueDescending());
+    for (int n : new int[]{1, 2, 10, 50}) {
+      List<Map.Entry<Integer, Long>> top = counter.topK(n);
+      assertEquals(n, top.size());
+      for (int i = 0; i < n; i++) {
+        // the counts should match exactly; the keys could be in a different order if some counts are equal
+        assertEquals(expectedEntries.get(i).getValue().longValue(), (long)top.get(i).getValue());
+        assertEquals(expected.get(top.get(i).getKey()), (long)top.get(i).getValue());
+      }
+    }
+    // asking for more entries than there are keys
+    assertEquals(counter.size(), counter.topK(counter.size() + 10).size());
+    assertEquals(Collections.emptyList(), counter.topK(0));
+    assertEquals(Collections.emptyList(), new ConcurrentHashCounter<>().topK(5));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> counter.topK(-1));
+  }
+
+  public void testMultithreaded() throws Exception {
+    ConcurrentHashCounter<Integer> counter = new ConcurrentHashCounter<>();
+    int nKeys = 20;
+    Collection<Throwable> errors = new MultithreadedTestHarness(
+        () -> counter.increment(ThreadLocalRandom.current().nextInt(nKeys))).run(16, 10_000);
+    assertTrue(errors.isEmpty());
+    assertEquals(160_000, counter.sumOfAllEntries());
+    assertEquals(nKeys, counter.size());
+    assertEquals(160_000, counter.asMap().values().stream().mapToLong(Long::longValue).sum());
+  }
+
+  public void testMerge() throws Exception {
+    ConcurrentHashCounter<String> a = new ConcurrentHashCounter<>();
+    a.add("x", 1);
+    a.add("y", 2);
+    ConcurrentHashCounter<String> b = new ConcurrentHashCounter<>();
+    b.add("y", 3);
+    b.add("z", 4);
+    a.merge(b);
+    assertEquals(ImmutableMap.of("x", 1L, "y", 5L, "z", 4L), a.asMap());
+    assertEquals(10, a.sumOfAllEntries());
+    // merging a HashCounter
+    HashCounter<String> hashCounter = new HashCounter<>();
+    hashCounter.add("x", 10);
+    hashCounter.add("w", 1);
+    a.merge(hashCounter);
+    assertEquals(ImmutableMap.of("x", 11L, "y", 5L, "z", 4L, "w", 1L), a.asMap());
+    assertEquals(21, a.sumOfAllEntries());
+  }
+
+  public void testMergeWithHashCounterTable() throws Exception {
+    HashCounterTable<String, String> table = new HashCounterTable<>();
+    table.add("row1", "a", 1);
+    // collect the counts for each row concurrently, then merge them into the table
+    Map<String, ConcurrentHashCounter<String>> rowCounters = new LinkedHashMap<>();
+    rowCounters.put("row1", new ConcurrentHashCounter<>());
+    rowCounters.put("row2", new ConcurrentHashCounter<>());
+    AtomicInteger i = new AtomicInteger();
+    Collection<Throwable> errors = new MultithreadedTestHarness(() -> {
+      int n = i.getAndIncrement();
+      rowCounters.get(n % 2 == 0 ? "row1" : "row2").increment(n % 3 == 0 ? "a" : "b");
+    }).run(4, 3000);
+    assertTrue(errors.isEmpty());
+    for (Map.Entry<String, ConcurrentHashCounter<String>> entry : rowCounters.entrySet()) {
+      entry.getValue().mergeInto(table, entry.getKey());
+    }
+    // 12000 increments: the even numbers go to row1 and the odd numbers to row2
+    assertEquals(ImmutableMap.of(
+        "row1", ImmutableMap.of("a", 2001, "b", 4000),
+        "row2", ImmutableMap.of("a", 2000, "b", 4000)),
+        table.asMap());
+    // and back
+    ConcurrentHashCounter<String> row1 = ConcurrentHashCounter.fromRow(table, "row1");
+    assertEquals(ImmutableMap.of("a", 2001L, "b", 4000L), row1.asMap());
+    assertEquals(0, ConcurrentHashCounter.fromRow(table, "foo").size());
+    // counts that don't fit in an int can't be merged into a table
+    ConcurrentHashCounter<String> tooBig = new ConcurrentHashCounter<>();
+    tooBig.add("a", 1);
+    tooBig.add("b", Integer.MAX_VALUE + 1L);
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> tooBig.mergeInto(table, "row3"));
+    assertNull(table.asMap().get("row3"));
+    // the sums of the counts with those already in the table must also fit in an int
+    ConcurrentHashCounter<String> overflow = new ConcurrentHashCounter<>();
+    overflow.add("a", 1);
+    overflow.add("b", Integer.MAX_VALUE - 3999L);
+    Map<String, Map<String, Integer>> expected = table.asMap();
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> overflow.mergeInto(table, "row1"));
+    assertEquals(expected, table.asMap());
+    overflow.add("b", -1);
+    overflow.mergeInto(table, "row1");
+    assertEquals(ImmutableMap.of("a", 2002, "b", Integer.MAX_VALUE), table.asMap().get("row1"));
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    doTestAsCollector(new ConcurrentHashCounter<>(), (expected, actual) -> assertEquals(expected.asMap(), actual.asMap()),
+        "a", "b", "c", "a", "b", "a", "d");
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.util.stats.SpaceSavingCounter;
+import solutions.trsoftware.commons.shared.util.stats.SpaceSavingCounter.Estimate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class HeavyHittersCounterTest extends TestCase {
+
+  public void testCounting() throws Exception {
+    HeavyHittersCounter counter = new HeavyHittersCounter("uris", 10, 2);
+    assertEquals("uris", counter.getName());
+    counter.incr("/a");
+    counter.add("/b", 3);
+    counter.incr("/a");
+    assertEquals(5, counter.getTotalCount());
+    List<Estimate<String>> top = counter.topK(5);
+    assertEquals(2, top.size());
+    assertEquals("/b", top.get(0).getKey());
+    assertEquals(3, top.get(0).getCount());
+    assertEquals("{\"uris\": {\"/b\": 3, \"/a\": 2}}", counter.toString());
+  }
+
+  public void testMultithreaded() throws Exception {
+    int capacity = 20;
+    HeavyHittersCounter counter = new HeavyHittersCounter("uris", capacity, 4);
+    // 90% of the requests are for 3 URIs, the rest are for a large number of distinct URIs
+    Collection<Throwable> errors = new MultithreadedTestHarness(() -> {
+      ThreadLocalRandom rnd = ThreadLocalRandom.current();
+      counter.incr(rnd.nextInt(10) < 9 ? "/hot" + rnd.nextInt(3) : "/cold" + rnd.nextInt(100_000));
+    }).run(8, 10_000);
+    assertTrue(errors.isEmpty());
+    assertEquals(80_000, counter.getTotalCount());
+    SpaceSavingCounter<String> snapshot = counter.snapshot();
+    assertEquals(80_000, snapshot.sumOfAllEntries());
+    assertTrue(snapshot.size() <= capacity);
+    assertTrue(snapshot.getMaxError() <= 80_000 / capacity);
+    List<Estimate<String>> top = snapshot.topK(3);
+    for (Estimate<String> estimate : top) {
+      assertTrue(estimate.getKey(), estimate.getKey().startsWith("/hot"));
+      // each hot URI should get about 24,000 requests
+      assertTrue(estimate.toString(), estimate.getLowerBound() > 20_000);
+    }
+  }
+
+  public void testMerge() throws Exception {
+    HeavyHittersCounter node1 = new HeavyHittersCounter("uris", 10, 2);
+    HeavyHittersCounter node2 = new HeavyHittersCounter("uris", 10, 2);
+    node1.add("/a", 5);
+    node2.add("/a", 2);
+    node2.add("/b", 4);
+    node1.merge(node2.snapshot());
+    assertEquals(11, node1.getTotalCount());
+    SpaceSavingCounter<String> snapshot = node1.snapshot();
+    assertEquals(7, snapshot.get("/a"));
+    assertEquals(4, snapshot.get("/b"));
+  }
+}
@@ -18,6 +18,7 @@
 package solutions.trsoftware.commons.server.stats;
 
 import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.testutil.AssertUtils;
 import solutions.trsoftware.commons.shared.util.StringUtils;
 import solutions.trsoftware.commons.shared.util.trees.AbstractVisitor;
 import solutions.trsoftware.commons.shared.util.trees.Node;
@@ -105,6 +106,47 @@ public class HierarchicalCounterTest extends TestCase {
     assertEquals(0, c2_2.getCount());
   }
 
+  public void testAggregateOnRead() throws Exception {
+    HierarchicalCounter root = new HierarchicalCounter(new StripedCounter("root"), null, true);
+    assertTrue(root.isAggregateOnRead());
+    HierarchicalCounter c1 = new HierarchicalCounter(new StripedCounter("c1"), root);
+    assertTrue(c1.isAggregateOnRead());  // inherited from the parent
+    HierarchicalCounter c1_1 = new HierarchicalCounter(new StripedCounter("c1_1"), c1);
+    HierarchicalCounter c2 = root.getOrCreateChild("c2", StripedCounter::new);
+    assertSame(c2, root.getOrCreateChild("c2", StripedCounter::new));
+    assertSame(c2, root.getChild("c2"));
+    assertTrue(c2.isAggregateOnRead());
+    // a child must use the same mode as its parent
+    AssertUtils.assertThrows(IllegalArgumentException.class,
+        (Runnable)() -> new HierarchicalCounter(new StripedCounter("c3"), root, false));
+
+    root.incr();
+    c1.incr();
+    c1_1.add(5);
+    c2.decr();
+    printCounters(root, "aggregateOnRead");
+    assertEquals(6, c1.getCount());
+    assertEquals(5, c1_1.getCount());
+    assertEquals(-1, c2.getCount());
+    assertEquals(6, root.getCount());
+    assertEquals(6, root.getLongCount());
+    // the delegates only contain the counts of their own nodes
+    assertEquals(1, root.getData().getCount());
+    assertEquals(1, c1.getData().getCount());
+    // the counts should be the same as in the default mode
+    HierarchicalCounter eagerRoot = new HierarchicalCounter(new SimpleCounter("root"), null);
+    assertFalse(eagerRoot.isAggregateOnRead());
+    HierarchicalCounter eagerC1 = eagerRoot.getOrCreateChild("c1", SimpleCounter::new);
+    HierarchicalCounter eagerC1_1 = eagerC1.getOrCreateChild("c1_1", SimpleCounter::new);
+    HierarchicalCounter eagerC2 = eagerRoot.getOrCreateChild("c2", SimpleCounter::new);
+    eagerRoot.incr();
+    eagerC1.incr();
+    eagerC1_1.add(5);
+    eagerC2.decr();
+    assertEquals(root.getCount(), eagerRoot.getCount());
+    assertEquals(c1.getCount(), eagerC1.getCount());
+    assertEquals(c2.getCount(), eagerC2.getCount());
+  }
 
   public static void printCounters(HierarchicalCounter root, String headerMsg) {
     if (headerMsg == null)
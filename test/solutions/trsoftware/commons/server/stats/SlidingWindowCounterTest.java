@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import solutions.trsoftware.commons.server.TestCaseCanStopClock;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.server.util.Clock;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+import solutions.trsoftware.commons.shared.testutil.AssertUtils;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class SlidingWindowCounterTest extends TestCaseCanStopClock {
+  private final long maxAgeMillis = TimeUnit.MINUTES.toMillis(1);
+
+  public void testSlidingWindowCounter() throws Exception {
+    long startTime = Clock.stop();
+    SlidingWindowCounter counter = new SlidingWindowCounter(maxAgeMillis);
+    // count a few things
+    counter.incr();
+    Clock.advance(1);
+    counter.incr();
+    assertEquals(2, counter.getCount());
+    Clock.advance(1);
+    counter.add(5);
+    Clock.advance(1);
+    assertEquals(7, counter.getCount());
+    counter.add(-3);
+    final int sum1 = counter.getCount();
+    assertEquals(4, sum1);
+    assertEquals(4, counter.size());  // the default granularity is 1 ms
+
+    // add some values later in time
+    Clock.advance(TimeUnit.SECONDS.toMillis(5));
+    counter.incr();
+    counter.add(-2);
+    final int sum2 = -1;
+    assertEquals(sum1+sum2, counter.getCount());
+    assertEquals(5, counter.size());
+
+    // advance the clock so that each value in the first batch of entries expires
+    Clock.set(startTime + maxAgeMillis + 1);
+    assertEquals(sum1+sum2-1, counter.getCount());
+    assertEquals(4, counter.size());
+    Clock.advance(1);
+    assertEquals(sum1+sum2-1-1, counter.getCount());
+    assertEquals(3, counter.size());
+    Clock.advance(1);
+    assertEquals(sum1+sum2-1-1-5, counter.getCount());
+    assertEquals(2, counter.size());
+    Clock.advance(1);
+    assertEquals(sum1+sum2-1-1-5+3, counter.getCount());
+    assertEquals(1, counter.size());
+
+    // now advance the clock so that everything expires
+    Clock.advance(TimeUnit.SECONDS.toMillis(5));
+    assertEquals(0, counter.getCount());
+    assertEquals(0, counter.size());
+    // the buckets should be reused after the time wraps around the array
+    counter.add(3);
+    assertEquals(3, counter.getCount());
+    Clock.advance(maxAgeMillis * 1000 + 1);
+    assertEquals(0, counter.getCount());
+    counter.add(4);
+    assertEquals(4, counter.getCount());
+    assertEquals(1, counter.size());
+  }
+
+  public void testGranularity() throws Exception {
+    doGranularityTest(TimeUnit.SECONDS.toMillis(1));
+    doGranularityTest(TimeUnit.SECONDS.toMillis(2));
+    doGranularityTest(TimeUnit.SECONDS.toMillis(30));
+    doGranularityTest(1);
+    doGranularityTest(2);
+    doGranularityTest(15);
+    assertInvalidGranularity(7); // 7 ms doesn't evenly divide 1 minute
+    assertInvalidGranularity(-1); // negative and zero values not allowed
+    assertInvalidGranularity(0);
+    assertInvalidGranularity(maxAgeMillis); // granularity must be smaller than maxAgeMillis
+    assertInvalidGranularity(maxAgeMillis + 1);
+  }
+
+  private void assertInvalidGranularity(final long granularity) {
+    AssertUtils.assertThrows(IllegalArgumentException.class, (Runnable)() -> new SlidingWindowCounter("Test", maxAgeMillis, granularity));
+  }
+
+  private void doGranularityTest(final long granularity) throws Exception {
+    Clock.stop();
+    SlidingWindowCounter counter = new SlidingWindowCounter("Test", maxAgeMillis, granularity);
+    // align the clock to the next granularity boundary
+    while (Clock.currentTimeMillis() % granularity != 0)
+      Clock.advance(1);
+    long startTime = Clock.currentTimeMillis();
+
+    // count a few things
+    counter.incr();
+    counter.incr();
+    assertEquals(2, counter.getCount());
+    Clock.advance(granularity / 5);
+    counter.add(5);
+    assertEquals(7, counter.getCount());
+    Clock.advance(granularity / 2);
+    counter.add(-3);
+    final int sum1 = counter.getCount();
+    assertEquals(4, sum1);
+    assertEquals(1, counter.size());  // they're all contained in one bucket
+
+    // add some values later in time
+    Clock.set(startTime + granularity + 1);
+    counter.incr();
+    Clock.advance(granularity / 3);
+    counter.add(-2);
+    final int sum2 = -1;
+    assertEquals(sum1+sum2, counter.getCount());
+    assertEquals(2, counter.size());
+
+    // advance the clock so that the first batch of entries expires
+    Clock.set(startTime + maxAgeMillis + 1);
+    assertEquals(sum2, counter.getCount());
+    assertEquals(1, counter.size());
+
+    // now advance the clock so that everything expires
+    Clock.advance(granularity + 1);
+    assertEquals(0, counter.getCount());
+    assertEquals(0, counter.size());
+  }
+
+  /**
+   * Checks the counter against a {@link TimeWindowCounter} with the same parameters, while advancing the clock
+   * by random increments.
+   */
+  public void testSameAsTimeWindowCounter() throws Exception {
+    Random rnd = new Random(1);
+    Clock.stop();
+    for (long granularity : new long[]{1, 10, 1000}) {
+      SlidingWindowCounter counter = new SlidingWindowCounter("Test", maxAgeMillis, granularity);
+      TimeWindowCounter expected = new TimeWindowCounter("Test", maxAgeMillis, granularity);
+      // the first update in each bucket should happen at the start of its interval, because TimeWindowCounter
+      // expires its buckets relative to the time of their first update
+      while (Clock.currentTimeMillis() % granularity != 0)
+        Clock.advance(1);
+      for (int i = 0; i < 5000; i++) {
+        int delta = rnd.nextInt(10) - 2;
+        counter.add(delta);
+        expected.add(delta);
+        assertEquals(expected.getCount(), counter.getCount());
+        assertEquals(expected.size(), counter.size());
+        Clock.advance(granularity * (rnd.nextInt(10) == 0 ? rnd.nextInt(100) : rnd.nextInt(3)));
+      }
+    }
+  }
+
+  public void testToString() throws Exception {
+    Clock.stop();
+    SlidingWindowCounter counter = new SlidingWindowCounter("TestCounter", 3);
+    assertEquals("{\"TestCounter\": 0}", counter.toString());
+    counter.incr();
+    counter.incr();
+    assertEquals("{\"TestCounter\": 2}", counter.toString());
+    Clock.advance(1);
+    counter.incr();
+    assertEquals("{\"TestCounter\": 3}", counter.toString());
+    Clock.advance(3);
+    assertEquals("{\"TestCounter\": 1}", counter.toString());
+  }
+
+  @Slow
+  public void testMultithreaded() throws Exception {
+    for (long granularity : new long[]{1, 2, TimeUnit.SECONDS.toMillis(1), TimeUnit.SECONDS.toMillis(30)}) {
+      SlidingWindowCounter counter = new SlidingWindowCounter("Test", TimeUnit.HOURS.toMillis(1), granularity);
+      AtomicInteger ourCounter = new AtomicInteger();
+      Collection<Throwable> errors = new MultithreadedTestHarness(() -> {
+        ourCounter.incrementAndGet();
+        counter.incr();
+      }).run(100, 10000);
+      // verify that our reference counter matches the SlidingWindowCounter value
+      assertEquals(ourCounter.get(), counter.getCount());
+      assertTrue(errors.isEmpty());
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.server.stats;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.server.testutil.MultithreadedTestHarness;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class StripedCounterTest extends TestCase {
+
+  public void testCounting() throws Exception {
+    StripedCounter counter = new StripedCounter("foo");
+    assertEquals("foo", counter.getName());
+    assertEquals(0, counter.getCount());
+    counter.incr();
+    counter.add(5);
+    counter.decr();
+    assertEquals(5, counter.getCount());
+    assertEquals(5, counter.getLongCount());
+    assertEquals("{\"foo\": 5}", counter.toString());
+  }
+
+  public void testLongTotal() throws Exception {
+    StripedCounter counter = new StripedCounter("foo");
+    counter.add(Integer.MAX_VALUE);
+    counter.add(Integer.MAX_VALUE);
+    assertEquals(2L * Integer.MAX_VALUE, counter.getLongCount());
+    assertEquals(Integer.MAX_VALUE, counter.getCount());  // saturated
+    assertEquals("{\"foo\": " + 2L * Integer.MAX_VALUE + "}", counter.toString());
+    for (int i = 0; i < 5; i++)
+      counter.add(Integer.MIN_VALUE);
+    assertEquals(Integer.MIN_VALUE, counter.getCount());  // saturated
+  }
+
+  public void testMultithreaded() throws Exception {
+    StripedCounter counter = new StripedCounter("foo");
+    Collection<Throwable> errors = new MultithreadedTestHarness(counter::incr).run(16, 10_000);
+    assertTrue(errors.isEmpty());
+    assertEquals(160_000, counter.getCount());
+  }
+
+  /**
+   * Compares the throughput of the counter implementations when incremented by 1, 8, and 32 threads: both a single
+   * counter and a hierarchy of request counters (like the one used by
+   * {@link solutions.trsoftware.commons.server.servlet.filters.RequestStatsFilter}) in both of its modes.
+   */
+  @Slow
+  public void testThroughput() throws Exception {
+    int nChildren = 16;
+    Map<String, Supplier<Counter>> counterFactories = new LinkedHashMap<>();
+    counterFactories.put("SimpleCounter", () -> new SimpleCounter("root"));
+    counterFactories.put("StripedCounter", () -> new StripedCounter("root"));
+    Map<String, Supplier<HierarchicalCounter>> hierarchyFactories = new LinkedHashMap<>();
+    hierarchyFactories.put("HierarchicalCounter(SimpleCounter)",
+        () -> new HierarchicalCounter(new SimpleCounter("root"), null));
+    hierarchyFactories.put("HierarchicalCounter(StripedCounter, aggregateOnRead)",
+        () -> new HierarchicalCounter(new StripedCounter("root"), null, true));
+    for (int nThreads : new int[]{1, 8, 32}) {
+      int iterations = 8_000_000 / nThreads;
+      System.out.printf("----- %d thread(s) -----%n", nThreads);
+      for (Map.Entry<String, Supplier<Counter>> entry : counterFactories.entrySet()) {
+        Counter counter = entry.getValue().get();
+        measureThroughput(entry.getKey(), nThreads, iterations, counter::incr);
+        assertEquals(nThreads * iterations, counter.getCount());
+      }
+      for (Map.Entry<String, Supplier<HierarchicalCounter>> entry : hierarchyFactories.entrySet()) {
+        HierarchicalCounter root = entry.getValue().get();
+        Function<String, Counter> delegateFactory = root.getData() instanceof StripedCounter
+            ? StripedCounter::new : SimpleCounter::new;
+        HierarchicalCounter[] children = new HierarchicalCounter[nChildren];
+        for (int i = 0; i < nChildren; i++)
+          children[i] = root.getOrCreateChild("/uri" + i, delegateFactory);
+        measureThroughput(entry.getKey(), nThreads, iterations,
+            () -> children[ThreadLocalRandom.current().nextInt(nChildren)].incr());
+        assertEquals(nThreads * iterations, root.getCount());
+      }
+    }
+  }
+
+  private static void measureThroughput(String name, int nThreads, int iterations, Runnable task) throws Exception {
+    long start = System.nanoTime();
+    Collection<Throwable> errors = new MultithreadedTestHarness(task).run(nThreads, iterations);
+    long elapsed = System.nanoTime() - start;
+    assertTrue(errors.isEmpty());
+    System.out.printf("  %-55s %8.2f million ops/sec%n", name, (double)nThreads * iterations / elapsed * 1000);
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.text.markovchain;
+
+import solutions.trsoftware.commons.server.testutil.TempFileTestCase;
+import solutions.trsoftware.commons.shared.text.markovchain.MarkovChain;
+import solutions.trsoftware.commons.shared.text.markovchain.dict.ShortHashArrayCodingDictionary;
+import solutions.trsoftware.commons.shared.util.MapUtils;
+import solutions.trsoftware.commons.shared.util.callables.Function0_t;
+import solutions.trsoftware.commons.shared.util.text.WhitespaceTokenizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class FrozenMarkovChainTest extends TempFileTestCase {
+
+  private MarkovChain mc;
+  private FrozenMarkovChain frozen;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // the same corpus as in MarkovChainTest
+    mc = new MarkovChain(2, new WhitespaceTokenizer(), new ShortHashArrayCodingDictionary(), new Random(0));
+    mc.train("This is foo.");
+    mc.train("This is bar.");
+    mc.train("This is baz.");
+    mc.train("Poshel ti na huy.");
+    mc.train("Poshel na huy.");
+    mc.train("Poshel ti na huy.");
+    mc.train("Poshel ti v zhopu.");
+    mc.train("Poshel ti v zad.");
+    mc.train("Poshel ti v pizdu.");
+    frozen = FrozenMarkovChain.freeze(mc);
+  }
+
+  @Override
+  protected String getFilenameSuffix() {
+    return ".fmkc";
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    mc = null;
+    frozen = null;
+    super.tearDown();
+  }
+
+  public void testStructure() throws Exception {
+    checkStructure(frozen);
+  }
+
+  private static void checkStructure(FrozenMarkovChain frozen) {
+    assertEquals(2, frozen.getOrder());
+    assertEquals(" ", frozen.getDelimiter());
+    assertEquals(8, frozen.countStates());
+    assertEquals(15, frozen.countTransitions());
+    assertEquals(13, frozen.getVocabularySize());
+    assertEquals(MapUtils.hashMap("This", 3, "Poshel", 6), frozen.getTransitions(frozen.findState()));
+    assertEquals(MapUtils.hashMap("is", 3), frozen.getTransitions(frozen.findState("This")));
+    assertEquals(MapUtils.hashMap("foo.", 1, "bar.", 1, "baz.", 1), frozen.getTransitions(frozen.findState("This", "is")));
+    assertEquals(MapUtils.hashMap("ti", 5, "na", 1), frozen.getTransitions(frozen.findState("Poshel")));
+    assertEquals(MapUtils.hashMap("na", 2, "v", 3), frozen.getTransitions(frozen.findState("Poshel", "ti")));
+    assertEquals(MapUtils.hashMap("huy.", 2), frozen.getTransitions(frozen.findState("ti", "na")));
+    assertEquals(MapUtils.hashMap("huy.", 1), frozen.getTransitions(frozen.findState("Poshel", "na")));
+    assertEquals(MapUtils.hashMap("zhopu.", 1, "zad.", 1, "pizdu.", 1), frozen.getTransitions(frozen.findState("ti", "v")));
+    // these states don't exist
+    assertEquals(-1, frozen.findState("is"));
+    assertEquals(-1, frozen.findState("This", "foo."));
+    assertEquals(-1, frozen.findState("blah"));
+  }
+
+  /**
+   * Checks that every word in the generated text could have followed the words preceding it.
+   */
+  public void testGenerateRandomText() throws Exception {
+    Random rnd = new Random(1);
+    for (int i = 0; i < 100; i++) {
+      String text = frozen.generateRandomText(500, rnd);
+      assertTrue(text.length() >= 500);
+      String[] words = text.split(" ");
+      for (int j = 0; j < words.length; j++) {
+        String[] context = Arrays.copyOfRange(words, Math.max(0, j - 2), j);
+        int state = frozen.findState(context);
+        while (state < 0) {
+          // back off to a shorter context, just like the chain does
+          context = context.length > 1 ? Arrays.copyOfRange(context, 1, context.length) : new String[0];
+          state = frozen.findState(context);
+        }
+        assertTrue(Arrays.toString(context) + " -> " + words[j], frozen.getTransitions(state).containsKey(words[j]));
+      }
+    }
+    // the output should be deterministic for a given seed
+    assertEquals(frozen.generateRandomText(200, new Random(123)), frozen.generateRandomText(200, new Random(123)));
+  }
+
+  /**
+   * Checks that the words are chosen with the expected probabilities.
+   */
+  public void testSamplingDistribution() throws Exception {
+    Random rnd = new Random(1);
+    int n = 30000;
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (int i = 0; i < n; i++) {
+      String text = frozen.generateRandomText(1, rnd);
+      Integer count = counts.get(text);
+      counts.put(text, count == null ? 1 : count + 1);
+    }
+    assertEquals(2, counts.size());
+    assertEquals(1/3d, (double)counts.get("This") / n, .01);
+    assertEquals(2/3d, (double)counts.get("Poshel") / n, .01);
+  }
+
+  public void testStreamRoundTrip() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    frozen.writeTo(out);
+    assertEquals(frozen.sizeInBytes(), out.size());
+    FrozenMarkovChain copy = FrozenMarkovChain.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    checkStructure(copy);
+    assertEquals(frozen.generateRandomText(500, new Random(5)), copy.generateRandomText(500, new Random(5)));
+  }
+
+  public void testMap() throws Exception {
+    frozen.writeTo(tempFile);
+    assertEquals(frozen.sizeInBytes(), tempFile.length());
+    FrozenMarkovChain mapped = FrozenMarkovChain.map(tempFile);
+    checkStructure(mapped);
+    assertEquals(frozen.generateRandomText(500, new Random(5)), mapped.generateRandomText(500, new Random(5)));
+    // writing a mapped chain should produce the same bytes
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    frozen.writeTo(expected);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    mapped.writeTo(actual);
+    assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+  }
+
+  public void testInvalidInput() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    frozen.writeTo(out);
+    byte[] bytes = out.toByteArray();
+    // truncated
+    assertThrows(IOException.class, (Function0_t<IOException>)() -> FrozenMarkovChain.readFrom(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+    // bad magic number
+    bytes[0]++;
+    assertThrows(IOException.class, (Function0_t<IOException>)() -> FrozenMarkovChain.readFrom(new ByteArrayInputStream(bytes)));
+    assertThrows(IOException.class, (Function0_t<IOException>)() -> FrozenMarkovChain.readFrom(new ByteArrayInputStream(new byte[0])));
+  }
+
+  public void testFreezeUntrainedChain() throws Exception {
+    assertThrows(IllegalStateException.class, (Runnable)() -> FrozenMarkovChain.freeze(new MarkovChain(2, new WhitespaceTokenizer())));
+  }
+
+  /**
+   * Checks that a chain trained on a larger corpus survives the round trip.
+   */
+  public void testLargerCorpus() throws Exception {
+    MarkovChain mc = new MarkovChain(3, new WhitespaceTokenizer());
+    Random rnd = new Random(2);
+    String[] words = new String[300];
+    for (int i = 0; i < words.length; i++)
+      words[i] = "w" + i;
+    for (int i = 0; i < 500; i++) {
+      StringBuilder line = new StringBuilder();
+      for (int j = 0; j < 20; j++)
+        line.append(words[(int)Math.abs(rnd.nextGaussian() * 40) % words.length]).append(' ');
+      mc.train(line.toString());
+    }
+    FrozenMarkovChain frozen = FrozenMarkovChain.freeze(mc);
+    assertEquals(mc.listStates().size(), frozen.countStates());
+    frozen.writeTo(tempFile);
+    FrozenMarkovChain mapped = FrozenMarkovChain.map(tempFile);
+    assertEquals(frozen.countStates(), mapped.countStates());
+    assertEquals(frozen.countTransitions(), mapped.countTransitions());
+    assertEquals(frozen.generateRandomText(5000, new Random(7)), mapped.generateRandomText(5000, new Random(7)));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.server.text.markovchain;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.testutil.TestData;
+import solutions.trsoftware.commons.shared.text.markovchain.MarkovChain;
+import solutions.trsoftware.commons.shared.text.markovchain.dict.ShortArrayCodingDictionary;
+import solutions.trsoftware.commons.shared.text.markovchain.dict.ShortHashArrayCodingDictionary;
+import solutions.trsoftware.commons.shared.util.callables.Function0_t;
+import solutions.trsoftware.commons.shared.util.text.WhitespaceTokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+import static solutions.trsoftware.commons.shared.text.markovchain.MarkovChainTest.assertEqualChains;
+import static solutions.trsoftware.commons.shared.text.markovchain.MarkovChainTest.transitionsByState;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class ParallelMarkovChainTrainerTest extends TestCase {
+
+  /**
+   * Checks that training in parallel produces the same chain as training sequentially (with the states in the same
+   * order if using a single thread).
+   */
+  public void testTrain() throws Exception {
+    List<String> lines = TestData.getAliceInWonderlandTextLines();
+    String corpus = String.join("\n", lines);
+    for (int order = 1; order <= 3; order++) {
+      MarkovChain expected = new MarkovChain(order, new WhitespaceTokenizer());
+      for (String line : lines) {
+        expected.train(line);
+      }
+      // try various batch sizes (including batches consisting of a single line and a single batch for the whole corpus)
+      for (int batchSize : new int[]{1, 1000, 20000, corpus.length() + 1}) {
+        for (int nThreads : new int[]{1, 4}) {
+          MarkovChain actual = new MarkovChain(order, new WhitespaceTokenizer());
+          new ParallelMarkovChainTrainer(nThreads, batchSize, ShortHashArrayCodingDictionary::new)
+              .train(actual, new StringReader(corpus));
+          if (nThreads == 1)
+            assertEqualChains(expected, actual);
+          else
+            assertEquals(transitionsByState(expected), transitionsByState(actual));
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that the partial chains can use a different type of dictionary than the target chain, and
+   * that the target chain can already contain some states.
+   */
+  public void testTrainExistingChain() throws Exception {
+    MarkovChain expected = new MarkovChain(2, new WhitespaceTokenizer());
+    expected.train("This is foo.");
+    expected.train("Poshel ti na huy.");
+    expected.train("This is bar.");
+    expected.train("Poshel ti v zad.");
+    MarkovChain actual = new MarkovChain(2, new WhitespaceTokenizer());
+    actual.train("This is foo.");
+    new ParallelMarkovChainTrainer(2, 10, ShortArrayCodingDictionary::new)
+        .train(actual, new StringReader("Poshel ti na huy.\nThis is bar.\r\nPoshel ti v zad."));
+    assertEquals(transitionsByState(expected), transitionsByState(actual));
+    // an empty corpus shouldn't change anything
+    Map<List<String>, Map<String, Integer>> transitions = transitionsByState(actual);
+    new ParallelMarkovChainTrainer(3, 10, ShortArrayCodingDictionary::new).train(actual, new StringReader(""));
+    assertEquals(transitions, transitionsByState(actual));
+  }
+
+  public void testExceptions() throws Exception {
+    // the exceptions thrown by the reader should be propagated
+    Reader brokenReader = new Reader() {
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        throw new IOException("test");
+      }
+      @Override
+      public void close() { }
+    };
+    assertThrows(IOException.class, (Function0_t<IOException>)() ->
+        new ParallelMarkovChainTrainer().train(new MarkovChain(2, new WhitespaceTokenizer()), brokenReader));
+    // as well as the exceptions thrown by the worker threads
+    MarkovChain chain = new MarkovChain(2, new WhitespaceTokenizer() {
+      @Override
+      public String[] tokenize(String text) {
+        if (text.equals("bad line"))
+          throw new IllegalArgumentException(text);
+        return super.tokenize(text);
+      }
+    });
+    assertThrows(IllegalArgumentException.class, (Function0_t<IOException>)() ->
+        new ParallelMarkovChainTrainer(2, 5, ShortHashArrayCodingDictionary::new)
+            .train(chain, new StringReader("good line\nbad line\ngood line")));
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Replays key streams ("traces") through different cache implementations and compares their hit ratios.
+ * <p>
+ * Usage: {@code CacheHitRatioBenchmark <cacheSize> [traceFile...]}, where each trace file contains one key per line
+ * (e.g. the keys logged by a production cache).  If no trace files are given, the benchmark uses synthetic traces
+ * (see {@link #zipfTrace} and {@link #zipfWithScansTrace}).
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class CacheHitRatioBenchmark {
+
+  /** The cache implementations being compared, by name */
+  static final Map<String, IntFunction<Map<String, String>>> CACHES = new LinkedHashMap<>();
+  static {
+    CACHES.put("LRU", FixedSizeLruCache::new);
+    CACHES.put("W-TinyLFU", WTinyLfuCache::new);
+  }
+
+  /**
+   * Replays the given trace through the given cache: looks up each key, and puts it into the cache if it was missing.
+   * @return the fraction of lookups that were hits
+   */
+  static double hitRatio(Map<String, String> cache, List<String> trace) {
+    int hits = 0;
+    for (String key : trace) {
+      if (cache.get(key) != null)
+        hits++;
+      else
+        cache.put(key, key);
+    }
+    return (double)hits / trace.size();
+  }
+
+  /**
+   * @return the hit ratio of each of the {@link #CACHES} for the given trace
+   */
+  static Map<String, Double> compare(int cacheSize, List<String> trace) {
+    Map<String, Double> ret = new LinkedHashMap<>();
+    for (Map.Entry<String, IntFunction<Map<String, String>>> entry : CACHES.entrySet()) {
+      ret.put(entry.getKey(), hitRatio(entry.getValue().apply(cacheSize), trace));
+    }
+    return ret;
+  }
+
+  /**
+   * @return a trace of keys drawn from a Zipf distribution with the given exponent
+   */
+  static List<String> zipfTrace(Random rnd, int length, int nKeys, double exponent) {
+    double[] cdf = new double[nKeys];
+    double sum = 0;
+    for (int i = 0; i < nKeys; i++) {
+      sum += 1 / Math.pow(i + 1, exponent);
+      cdf[i] = sum;
+    }
+    List<String> ret = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      int k = Arrays.binarySearch(cdf, rnd.nextDouble() * sum);
+      ret.add("k" + (k < 0 ? -k - 1 : k));
+    }
+    return ret;
+  }
+
+  /**
+   * @return a {@linkplain #zipfTrace Zipf trace} interrupted every {@code scanInterval} keys by a scan of
+   * {@code scanLength} unique keys that are never requested again
+   */
+  static List<String> zipfWithScansTrace(Random rnd, int length, int nKeys, double exponent, int scanInterval, int scanLength) {
+    List<String> zipf = zipfTrace(rnd, length, nKeys, exponent);
+    List<String> ret = new ArrayList<>();
+    int scanKey = 0;
+    for (int i = 0; i < zipf.size(); i++) {
+      if (i > 0 && i % scanInterval == 0) {
+        for (int j = 0; j < scanLength; j++)
+          ret.add("scan" + scanKey++);
+      }
+      ret.add(zipf.get(i));
+    }
+    return ret;
+  }
+
+  static void printComparison(String traceName, int cacheSize, List<String> trace) {
+    System.out.printf("%-30s size=%,-8d", traceName, cacheSize);
+    for (Map.Entry<String, Double> entry : compare(cacheSize, trace).entrySet())
+      System.out.printf("  %s: %6.2f%%", entry.getKey(), entry.getValue() * 100);
+    System.out.println();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: CacheHitRatioBenchmark <cacheSize> [traceFile...]");
+      System.exit(1);
+    }
+    int cacheSize = Integer.parseInt(args[0]);
+    if (args.length > 1) {
+      for (int i = 1; i < args.length; i++)
+        printComparison(args[i], cacheSize, Files.readAllLines(Paths.get(args[i]), StandardCharsets.UTF_8));
+    }
+    else {
+      Random rnd = new Random(1);
+      int nKeys = cacheSize * 20;
+      printComparison("zipf(0.8)", cacheSize, zipfTrace(rnd, 500_000, nKeys, .8));
+      printComparison("zipf(1.0)", cacheSize, zipfTrace(rnd, 500_000, nKeys, 1));
+      printComparison("zipf(0.8) with scans", cacheSize,
+          zipfWithScansTrace(rnd, 500_000, nKeys, .8, 10_000, cacheSize * 2));
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.cache;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.annotations.Slow;
+
+import java.util.*;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class WTinyLfuCacheTest extends TestCase {
+
+  public void testMapOperations() throws Exception {
+    WTinyLfuCache<String, Integer> cache = new WTinyLfuCache<>(200);
+    assertEquals(200, cache.getSizeLimit());
+    for (int i = 0; i < 200; i++)
+      assertNull(cache.put("k" + i, i));
+    assertEquals(200, cache.size());
+    assertEquals(0, cache.getEvictions());
+    assertEquals(0, cache.getRejections());
+    for (int i = 0; i < 200; i++) {
+      assertTrue(cache.containsKey("k" + i));
+      assertEquals((Integer)i, cache.get("k" + i));
+    }
+    assertEquals(200, cache.getHits());
+    assertNull(cache.get("foo"));
+    assertEquals(1, cache.getMisses());
+    assertEquals(201, cache.getAccessCount());
+    // update the values in all regions
+    for (int i = 0; i < 200; i++)
+      assertEquals((Integer)i, cache.put("k" + i, -i));
+    for (int i = 0; i < 200; i++)
+      assertEquals((Integer)(-i), cache.get("k" + i));
+    assertEquals(200, cache.size());
+    Map<String, Integer> copy = new HashMap<>(cache);
+    assertEquals(200, copy.size());
+    assertEquals((Integer)(-5), copy.get("k5"));
+    assertEquals((Integer)(-5), cache.remove("k5"));
+    assertFalse(cache.containsKey("k5"));
+    assertEquals(199, cache.size());
+    cache.clear();
+    assertTrue(cache.isEmpty());
+  }
+
+  public void testSizeLimit() throws Exception {
+    for (int sizeLimit : new int[]{1, 2, 10, 1000}) {
+      WTinyLfuCache<Integer, Integer> cache = new WTinyLfuCache<>(sizeLimit);
+      Random rnd = new Random(sizeLimit);
+      for (int i = 0; i < sizeLimit * 50; i++) {
+        int key = rnd.nextInt(sizeLimit * 3);
+        if (cache.get(key) == null)
+          cache.put(key, key);
+        assertTrue(cache.size() <= sizeLimit);
+      }
+      assertEquals(sizeLimit, cache.size());
+      // every entry that was removed from the cache was either evicted or rejected
+      assertEquals(cache.getMisses() - sizeLimit, cache.getEvictions() + cache.getRejections());
+      for (Map.Entry<Integer, Integer> entry : cache.entrySet())
+        assertEquals(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * A scan of keys that are accessed only once shouldn't flush the frequently-accessed keys from the cache.
+   */
+  public void testScanResistance() throws Exception {
+    WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(100);
+    FixedSizeLruCache<String, String> lru = new FixedSizeLruCache<>(100);
+    for (Map<String, String> c : Arrays.<Map<String, String>>asList(cache, lru)) {
+      for (int i = 0; i < 10; i++) {
+        for (int j = 0; j < 50; j++) {
+          String key = "hot" + j;
+          if (c.get(key) == null)
+            c.put(key, key);
+        }
+      }
+      for (int i = 0; i < 1000; i++) {
+        String key = "scan" + i;
+        if (c.get(key) == null)
+          c.put(key, key);
+      }
+    }
+    for (int j = 0; j < 50; j++)
+      assertTrue(cache.containsKey("hot" + j));
+    assertFalse(lru.containsKey("hot0"));
+  }
+
+  public void testFrequencySketch() throws Exception {
+    WTinyLfuCache.FrequencySketch sketch = new WTinyLfuCache.FrequencySketch(100);
+    for (int i = 0; i < 5; i++)
+      sketch.increment("a");
+    sketch.increment("b");
+    assertEquals(5, sketch.frequency("a"));
+    assertTrue(sketch.frequency("b") >= 1);
+    assertTrue(sketch.frequency("c") <= 1);
+    for (int i = 0; i < 100; i++)
+      sketch.increment("a");
+    assertEquals(WTinyLfuCache.FrequencySketch.MAX_COUNT, sketch.frequency("a"));
+    // the counters should be halved after the sample size is reached
+    for (int i = 0; i < 2000; i++)
+      sketch.increment("x" + i);
+    assertTrue(sketch.frequency("a") < WTinyLfuCache.FrequencySketch.MAX_COUNT);
+  }
+
+  @Slow
+  public void testHitRatio() throws Exception {
+    Random rnd = new Random(1);
+    int cacheSize = 500;
+    checkHitRatio("zipf", cacheSize, CacheHitRatioBenchmark.zipfTrace(rnd, 200_000, cacheSize * 20, .8));
+    checkHitRatio("zipf with scans", cacheSize,
+        CacheHitRatioBenchmark.zipfWithScansTrace(rnd, 200_000, cacheSize * 20, .8, 5_000, cacheSize * 2));
+  }
+
+  private static void checkHitRatio(String traceName, int cacheSize, List<String> trace) {
+    CacheHitRatioBenchmark.printComparison(traceName, cacheSize, trace);
+    Map<String, Double> hitRatios = CacheHitRatioBenchmark.compare(cacheSize, trace);
+    assertTrue(hitRatios.toString(), hitRatios.get("W-TinyLFU") > hitRatios.get("LRU"));
+  }
+}
@@ -23,14 +23,15 @@ import solutions.trsoftware.commons.shared.testutil.TestData;
 import solutions.trsoftware.commons.shared.text.markovchain.dict.CodingDictionary;
 import solutions.trsoftware.commons.shared.text.markovchain.dict.ShortHashArrayCodingDictionary;
 import solutions.trsoftware.commons.shared.text.markovchain.state.State;
+import solutions.trsoftware.commons.shared.util.MapUtils;
 import solutions.trsoftware.commons.shared.util.stats.HashCounter;
 import solutions.trsoftware.commons.shared.util.text.TextTokenizer;
 import solutions.trsoftware.commons.shared.util.text.WhitespaceTokenizer;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.util.*;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
 
 /**
  * Date: May 12, 2008 Time: 7:46:45 PM
@@ -159,6 +160,60 @@ public class MarkovChainTest extends TestCase {
         mc.generateRandomText(500));
   }
 
+  public void testMerge() throws Exception {
+    List<String> lines = TestData.getAliceInWonderlandTextLines();
+    MarkovChain expected = new MarkovChain(2, new WhitespaceTokenizer());
+    for (String line : lines) {
+      expected.train(line);
+    }
+    // train separate chains on 3 parts of the corpus, and merge them (in order) into an empty chain
+    MarkovChain merged = new MarkovChain(2, new WhitespaceTokenizer());
+    int partSize = lines.size() / 3 + 1;
+    for (int start = 0; start < lines.size(); start += partSize) {
+      MarkovChain part = new MarkovChain(2, new WhitespaceTokenizer());
+      for (String line : lines.subList(start, Math.min(start + partSize, lines.size()))) {
+        part.train(line);
+      }
+      merged.merge(part);
+    }
+    assertEqualChains(expected, merged);
+
+    // merging a chain into a trained chain should add up the transition counts
+    MarkovChain copy = new MarkovChain(2, new WhitespaceTokenizer());
+    copy.train("This is foo.");
+    copy.train("Poshel ti v zad.");
+    mc.merge(copy);
+    Map<List<String>, Map<String, Integer>> transitions = transitionsByState(mc);
+    assertEquals(8, transitions.size());
+    assertEquals(MapUtils.hashMap("This", 4, "Poshel", 7), transitions.get(Collections.<String>emptyList()));
+    assertEquals(MapUtils.hashMap("foo.", 2, "bar.", 1, "baz.", 1), transitions.get(Arrays.asList("This", "is")));
+    assertEquals(MapUtils.hashMap("zhopu.", 1, "zad.", 2, "pizdu.", 1), transitions.get(Arrays.asList("ti", "v")));
+
+    // can't merge chains of different orders
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> mc.merge(new MarkovChain(3, new WhitespaceTokenizer())));
+  }
+
+  /**
+   * Asserts that the given chains have the same states (in the same order) and transition counts.
+   */
+  public static void assertEqualChains(MarkovChain expected, MarkovChain actual) {
+    Map<List<String>, Map<String, Integer>> expectedTransitions = transitionsByState(expected);
+    Map<List<String>, Map<String, Integer>> actualTransitions = transitionsByState(actual);
+    assertEquals(new ArrayList<List<String>>(expectedTransitions.keySet()), new ArrayList<List<String>>(actualTransitions.keySet()));
+    assertEquals(expectedTransitions, actualTransitions);
+  }
+
+  /**
+   * @return the transition counts of each state in the given chain (keyed by the words in the state), with the states
+   * listed in the order they were created
+   */
+  public static Map<List<String>, Map<String, Integer>> transitionsByState(MarkovChain mc) {
+    Map<List<String>, Map<String, Integer>> ret = new LinkedHashMap<List<String>, Map<String, Integer>>();
+    mc.visitTransitions((stateWords, nextWord, count) ->
+        MapUtils.getOrInsert(ret, Arrays.asList(stateWords), new HashMap<String, Integer>()).put(nextWord, count));
+    return ret;
+  }
+
   private void generate10Texts(MarkovChain mc) {
     int len = 500;
     for (int i = 0; i < 10; i++) {
@@ -20,6 +20,7 @@ package solutions.trsoftware.commons.shared.util;
 import junit.framework.TestCase;
 
 import java.util.Arrays;
+import java.util.Random;
 import java.util.function.Supplier;
 
 import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertArraysEqual;
@@ -102,6 +103,77 @@ public class ArrayUtilsTest extends TestCase {
         swap(new String[]{"baz", "bar", "foo"}, 0, 2)));
   }
 
+  public void testFlexibleArrayAddPrimitives() throws Exception {
+    int[] ints = new int[0];
+    long[] longs = new long[0];
+    double[] doubles = new double[0];
+    for (int i = 0; i < 100; i++) {
+      ints = flexibleArrayAdd(ints, i, i);
+      longs = flexibleArrayAdd(longs, i, i);
+      doubles = flexibleArrayAdd(doubles, i, i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, ints[i]);
+      assertEquals(i, longs[i]);
+      assertEquals(i, doubles[i], 0);
+    }
+    // the arrays should grow by a constant factor
+    assertTrue(ints.length < 150);
+  }
+
+  public void testGrownCapacity() throws Exception {
+    assertEquals(2, grownCapacity(0, 1));
+    assertEquals(15, grownCapacity(10, 11));
+    assertEquals(100, grownCapacity(10, 100));
+    // shouldn't overflow for very large arrays
+    assertEquals(Integer.MAX_VALUE - 8, grownCapacity(Integer.MAX_VALUE - 100, Integer.MAX_VALUE - 99));
+    assertEquals(Integer.MAX_VALUE - 1, grownCapacity(Integer.MAX_VALUE - 10, Integer.MAX_VALUE - 1));
+    assertThrows(OutOfMemoryError.class, (Runnable)() -> grownCapacity(Integer.MAX_VALUE, Integer.MAX_VALUE + 1));
+  }
+
+  public void testSelect() throws Exception {
+    Random rnd = new Random(1);
+    for (int n : new int[]{1, 2, 3, 10, 101, 1000}) {
+      for (int bound : new int[]{2, 10, Integer.MAX_VALUE}) {  // test with and without many duplicates
+        int[] ints = new int[n];
+        for (int i = 0; i < n; i++) {
+          ints[i] = rnd.nextInt(bound);
+        }
+        long[] longs = Arrays.stream(ints).asLongStream().toArray();
+        double[] doubles = Arrays.stream(ints).asDoubleStream().toArray();
+        int[] sorted = ints.clone();
+        Arrays.sort(sorted);
+        for (int k = 0; k < n; k += Math.max(1, n / 20)) {
+          assertEquals(sorted[k], select(ints, 0, n, k));
+          assertEquals(sorted[k], select(longs, 0, n, k));
+          assertEquals(sorted[k], select(doubles, 0, n, k), 0);
+          // the array should be partitioned around k
+          for (int i = 0; i < n; i++) {
+            assertTrue(i < k ? ints[i] <= ints[k] : ints[i] >= ints[k]);
+          }
+        }
+      }
+    }
+    // should be able to select from a sub-range
+    int[] arr = {9, 5, 3, 4, 1, 0};
+    assertEquals(4, select(arr, 1, 4, 2));
+    assertEquals(9, arr[0]);
+    assertEquals(0, arr[5]);
+    // sorted and reverse-sorted inputs
+    int[] ascending = new int[1000];
+    int[] descending = new int[1000];
+    for (int i = 0; i < 1000; i++) {
+      ascending[i] = i;
+      descending[i] = 999 - i;
+    }
+    assertEquals(123, select(ascending, 0, 1000, 123));
+    assertEquals(123, select(descending, 0, 1000, 123));
+    // invalid args
+    assertThrows(ArrayIndexOutOfBoundsException.class, (Runnable)() -> select(new int[3], 0, 3, 3));
+    assertThrows(ArrayIndexOutOfBoundsException.class, (Runnable)() -> select(new int[3], 0, 4, 1));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> select(new int[3], 2, 1, 1));
+  }
+
   public void testConcat() throws Exception {
     String[] result = concat(
         new String[]{"a"},
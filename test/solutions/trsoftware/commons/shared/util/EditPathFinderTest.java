@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that {@link EditPathFinder} finds exactly the same edit sequences as the classic DP algorithm
+ * ({@link Levenshtein#editSequenceDP(String, String)}).
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class EditPathFinderTest extends TestCase {
+
+  /** Base case sizes to test, including tiny ones, which force the checkpointing recursion even for short inputs */
+  private static final int[] BASE_CASE_SIZES = {1, 2, 7, 64, EditPathFinder.MAX_BASE_CASE_CELLS};
+
+  public void testFindPath() throws Exception {
+    String[] examples = {"", "a", "frog", "fog", "fly", "ant", "elephant", "hippo", "zzzzzzzz", "hello", "hallo", "aaapppp"};
+    for (String s : examples) {
+      for (String t : examples) {
+        checkFindPath(s, t);
+      }
+    }
+  }
+
+  public void testRandomStrings() throws Exception {
+    // small alphabets produce lots of ties between the possible paths
+    for (String alphabet : new String[]{"ab", "abc", StringUtils.ASCII_LETTERS}) {
+      for (int i = 0; i < 200; i++) {
+        checkFindPath(RandomUtils.randString(alphabet, 0, 30), RandomUtils.randString(alphabet, 0, 30));
+      }
+    }
+    // strings long enough to exceed the default base case
+    for (int i = 0; i < 3; i++) {
+      String s = RandomUtils.randString(RandomUtils.nextIntInRange(250, 400), "abcd");
+      checkFindPath(s, RandomUtils.randString(RandomUtils.nextIntInRange(250, 400), "abcd"));
+      // similar strings
+      checkFindPath(s, s.substring(10, 200) + "dcba" + s.substring(200));
+    }
+  }
+
+  private static void checkFindPath(String s, String t) {
+    String msg = StringUtils.methodCallToString("findPath", s, t);
+    List<Levenshtein.EditOperation> expected = Levenshtein.editSequenceDP(s, t).getOperations();
+    // with the common prefix/suffix optimization, the DP algorithm might choose a different path
+    List<Levenshtein.EditOperation> expectedTrimmed = editSequenceDPTrimmed(s, t);
+    for (int baseCaseSize : BASE_CASE_SIZES) {
+      assertEquals(msg, expected, findPath(s, t, false, baseCaseSize));
+      assertEquals(msg, expectedTrimmed, findPath(s, t, true, baseCaseSize));
+    }
+  }
+
+  /**
+   * Replicates {@link Levenshtein#editSequence(String, String, boolean, boolean)} using the DP algorithm.
+   */
+  private static List<Levenshtein.EditOperation> editSequenceDPTrimmed(String s, String t) {
+    String[] strings = {s, t};
+    Levenshtein.stripCommonSuffix(strings);
+    int prefixLen = Levenshtein.stripCommonPrefix(strings);
+    return Levenshtein.editSequenceDP(strings[0], strings[1]).shift(prefixLen).getOperations();
+  }
+
+  private static List<Levenshtein.EditOperation> findPath(final String s, final String t, boolean trimAffixes, int baseCaseSize) {
+    final List<Levenshtein.EditOperation> ops = new ArrayList<Levenshtein.EditOperation>();
+    EditPathFinder.findPath(s.length(), t.length(), new EditPathFinder.Matcher() {
+      @Override
+      public boolean matches(int i, int j) {
+        return s.charAt(i) == t.charAt(j);
+      }
+    }, trimAffixes, new EditPathFinder.Visitor() {
+      @Override
+      public void insertion(int pos, int j) {
+        ops.add(new Levenshtein.Insertion(pos, t.charAt(j)));
+      }
+      @Override
+      public void deletion(int pos, int i) {
+        ops.add(new Levenshtein.Deletion(pos, s.charAt(i)));
+      }
+      @Override
+      public void substitution(int pos, int j) {
+        ops.add(new Levenshtein.Substitution(pos, t.charAt(j)));
+      }
+    }, baseCaseSize);
+    return ops;
+  }
+}
@@ -46,6 +46,14 @@ public class LevenshteinGwtTest extends CommonsGwtTestCase {
     delegate.testEditDistance();
   }
 
+  public void testEditDistanceBitParallel() throws Exception {
+    delegate.testEditDistanceBitParallel();
+  }
+
+  public void testEditDistanceWithMaxDistance() throws Exception {
+    delegate.testEditDistanceWithMaxDistance();
+  }
+
   public void testEditDistanceIncremental() throws Exception {
     delegate.testEditDistanceIncremental();
   }
@@ -68,6 +76,14 @@ public class LevenshteinGwtTest extends CommonsGwtTestCase {
     delegate.testEditDistanceVsSequenceVsDiffs();
   }
 
+  public void testEditScript() throws Exception {
+    delegate.testEditScript();
+  }
+
+  public void testEditSequenceMatchesDP() throws Exception {
+    delegate.testEditSequenceMatchesDP();
+  }
+
   public void testEditSequence() throws Exception {
     delegate.testEditSequence();
   }
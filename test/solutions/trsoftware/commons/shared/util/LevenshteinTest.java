@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import static solutions.trsoftware.commons.shared.util.Levenshtein.*;
+import static solutions.trsoftware.commons.shared.util.ListUtils.arrayList;
 import static solutions.trsoftware.commons.shared.util.StringUtils.methodCallToString;
 
 /**
@@ -204,12 +205,13 @@ public class LevenshteinTest extends TestCase {
     IncrementalEditDistanceResult partialResult = editDistanceIncremental(s0, t0, null);
     // validate the partial result just in case
     assertEquals(editDistance(s0, t0), partialResult.editDistance);
-    // now time both the incremental and the full computation
+    // now time both the incremental and the full computation (using the same DP algorithm, since the bit-parallel
+    // algorithm used by editDistance is much faster than either of them)
     int fullDistance;
     long fullElapsed;
     {
-      Duration fullDuration = BridgeTypeFactory.newDuration(StringUtils.methodCallToString("editDistance", s.length(), t.length()));
-      fullDistance = editDistance(s, t);
+      Duration fullDuration = BridgeTypeFactory.newDuration(StringUtils.methodCallToString("editDistanceDP", s.length(), t.length()));
+      fullDistance = editDistanceDP(s, t);
       fullElapsed = (long)fullDuration.elapsedMillis();
       System.out.println(fullDuration);
     }
@@ -529,6 +531,143 @@ public class LevenshteinTest extends TestCase {
     assertTrue(isSubsequence("abc", "abc"));
   }
 
+  public void testEditScript() throws Exception {
+    String[][] examples = {{"", ""}, {"", "a"}, {"aaapppp", ""}, {"frog", "fog"}, {"fly", "ant"}, {"elephant", "hippo"},
+        {"hippo", "zzzzzzzz"}, {"hello", "hallo"}, {"Hello W", "Hello World"}, {"Hellr Wozni", "Hello World"}, {"ab", "abab"}};
+    EditScript buffer = new EditScript(1);
+    for (String[] example : examples) {
+      for (int i = 0; i < 2; i++) {
+        String s = example[i], t = example[1 - i];
+        // should produce the same operations as the optimized editSequence method used for TypingEdit logs
+        EditSequence expected = editSequence(s, t, true, true);
+        EditScript script = editScript(s, t);
+        assertEquals(expected.getOperations(), script.toOperations());
+        assertEquals(expected.length(), script.size());
+        assertEquals(expected.toString(), script.toString());
+        assertEquals(t, script.apply(s));
+        for (int j = 0; j < script.size(); j++) {
+          EditOperation op = script.getOperation(j);
+          assertEquals(op.getPosition(), script.getPosition(j));
+          assertEquals(op.getChar(), script.getChar(j));
+          assertEquals(op instanceof Insertion ? EditScript.INSERTION : op instanceof Deletion ? EditScript.DELETION : EditScript.SUBSTITUTION,
+              script.getType(j));
+        }
+        // reusing a buffer should produce the same result
+        assertSame(buffer, editScript(s, t, buffer));
+        assertEquals(script, buffer);
+        assertEquals(script.hashCode(), buffer.hashCode());
+        // a copy shouldn't be affected by subsequent reuse of the buffer
+        EditScript copy = buffer.copy();
+        assertEquals(script, copy);
+        editScript(t + "x", s, buffer);
+        assertEquals(script, copy);
+        // converting to and from EditOperations should produce an equal script
+        assertEquals(script, EditScript.fromOperations(script.toOperations()));
+        // applying the ops one at a time (with an offset) should produce the same result
+        StringBuilder buf = new StringBuilder("<<" + s);
+        for (int j = 0; j < script.size(); j++) {
+          assertSame(buf, script.apply(j, buf, 2));
+        }
+        assertEquals("<<" + t, buf.toString());
+      }
+    }
+    EditScript script = editScript("frog", "fog");
+    assertEquals(arrayList(new Deletion(1, 'r')), script.toOperations());
+    AssertUtils.assertThrows(IndexOutOfBoundsException.class, (Runnable)() -> script.getPosition(1));
+    AssertUtils.assertThrows(IndexOutOfBoundsException.class, (Runnable)() -> script.getChar(-1));
+    script.clear();
+    assertEquals(0, script.size());
+    assertEquals(new EditScript(), script);
+    assertThrowsNPE(new Runnable() {
+      public void run() {
+        editScript("a", null);
+      }
+    });
+  }
+
+  public void testEditSequenceMatchesDP() throws Exception {
+    // the linear-space algorithm used by editSequence should produce exactly the same sequences as the DP algorithm
+    for (String alphabet : new String[]{"ab", "abcd", StringUtils.ASCII_LETTERS}) {
+      for (int i = 0; i < 100; i++) {
+        String s = RandomUtils.randString(alphabet, 0, 40);
+        String t = RandomUtils.randString(alphabet, 0, 40);
+        assertEquals(methodCallToString("editSequence", s, t),
+            editSequenceDP(s, t).getOperations(), editSequence(s, t).getOperations());
+      }
+    }
+  }
+
+  public void testEditDistanceBitParallel() throws Exception {
+    // the bit-parallel algorithm used by editDistance(s, t) should produce the same results as the classic DP algorithm;
+    // we test lengths around the 64-bit block boundaries, and alphabets that include non-ASCII chars
+    String[] alphabets = {"ab", "abcd", StringUtils.ASCII_LETTERS, "aé€b"};
+    int[] lengths = {1, 2, 5, 63, 64, 65, 100, 127, 128, 129, 200};
+    for (String alphabet : alphabets) {
+      for (int len : lengths) {
+        String s = RandomUtils.randString(len, alphabet);
+        // compare against strings that are both similar and dissimilar to s
+        String[] others = {s, mutate(s, alphabet, 1), mutate(s, alphabet, len / 10 + 1), mutate(s, alphabet, len),
+            RandomUtils.randString(RandomUtils.nextIntInRange(1, 2 * len + 1), alphabet)};
+        for (String t : others) {
+          int expected = editDistanceDP(s, t);
+          assertEquals(methodCallToString("editDistance", s, t), expected, editDistance(s, t));
+          assertEquals(methodCallToString("editDistance", t, s), expected, editDistance(t, s));
+        }
+      }
+    }
+  }
+
+  public void testEditDistanceWithMaxDistance() throws Exception {
+    assertEquals(7, editDistance("hippo", "elephant", 7));
+    assertEquals(7, editDistance("hippo", "elephant", 100));
+    assertEquals(7, editDistance("hippo", "elephant", Integer.MAX_VALUE));
+    assertEquals(7, editDistance("hippo", "elephant", 6));  // capped at maxDistance + 1
+    assertEquals(4, editDistance("hippo", "elephant", 3));  // the lengths differ by more than maxDistance
+    assertEquals(1, editDistance("hippo", "elephant", 0));
+    assertEquals(1, editDistance("frog", "fog", 1));
+    assertEquals(1, editDistance("frog", "fog", 0));
+    assertEquals(0, editDistance("frog", "frog", 0));
+    assertEquals(0, editDistance("", "", 0));
+    assertEquals(3, editDistance("", "abc", 5));
+    assertEquals(3, editDistance("abc", "", 2));
+    AssertUtils.assertThrows(IllegalArgumentException.class, (Runnable)() -> editDistance("a", "b", -1));
+    // cross-check the banded algorithm with the DP algorithm for a variety of thresholds
+    String alphabet = "abcd";
+    int[] lengths = {1, 10, 63, 64, 65, 130, 300};
+    int[] thresholds = {0, 1, 2, 5, 10, 40, 64, 70, 150, 1000};
+    for (int len : lengths) {
+      String s = RandomUtils.randString(len, alphabet);
+      String[] others = {s, mutate(s, alphabet, 1), mutate(s, alphabet, 3), mutate(s, alphabet, len / 10 + 1),
+          mutate(s, alphabet, len / 3 + 1), RandomUtils.randString(len, alphabet)};
+      for (String t : others) {
+        int distance = editDistanceDP(s, t);
+        for (int k : thresholds) {
+          int expected = Math.min(distance, k + 1);
+          assertEquals(methodCallToString("editDistance", s, t, k), expected, editDistance(s, t, k));
+          assertEquals(methodCallToString("editDistance", t, s, k), expected, editDistance(t, s, k));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the result of applying the given number of random insertions, deletions, and substitutions to the given string
+   */
+  private static String mutate(String s, String alphabet, int nEdits) {
+    StringBuilder str = new StringBuilder(s);
+    for (int i = 0; i < nEdits; i++) {
+      char c = alphabet.charAt(RandomUtils.rnd.nextInt(alphabet.length()));
+      int op = RandomUtils.rnd.nextInt(3);
+      if (op == 0 || str.length() == 0)
+        str.insert(RandomUtils.rnd.nextInt(str.length() + 1), c);
+      else if (op == 1)
+        str.deleteCharAt(RandomUtils.rnd.nextInt(str.length()));
+      else
+        str.setCharAt(RandomUtils.rnd.nextInt(str.length()), c);
+    }
+    return str.toString();
+  }
+
   // The slowest tests should be at the end so they run last
   @Slow
   public void testRandomStrings() throws Exception {
@@ -549,4 +688,52 @@ public class LevenshteinTest extends TestCase {
     System.out.println();  // empty line
   }
 
-}
\ No newline at end of file
+  /**
+   * Benchmarks the bit-parallel algorithm used by {@link Levenshtein#editDistance(String, String)} against
+   * the classic DP algorithm ({@link Levenshtein#editDistanceDP(String, String)}).
+   */
+  @Slow
+  public void testBitParallelPerformance() throws Exception {
+    checkBitParallelPerformance(20, 30, 20000);  // typical word-length strings (single-word bit vectors)
+    checkBitParallelPerformance(500, 600, 100);  // multi-word bit vectors
+  }
+
+  void checkBitParallelPerformance(int minLength, int maxLength, int iterations) throws Exception {
+    String[] strings = new String[iterations + 1];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = StringUtils.randString(RandomUtils.nextIntInRange(minLength, maxLength));
+    }
+    int dpSum = 0;
+    long dpElapsed;
+    {
+      Duration duration = BridgeTypeFactory.newDuration(StringUtils.methodCallToString("editDistanceDP", minLength, maxLength) + " x " + iterations);
+      for (int i = 0; i < iterations; i++) {
+        dpSum += editDistanceDP(strings[i], strings[i + 1]);
+      }
+      dpElapsed = (long)duration.elapsedMillis();
+      System.out.println(duration);
+    }
+    int bpSum = 0;
+    long bpElapsed;
+    {
+      Duration duration = BridgeTypeFactory.newDuration(StringUtils.methodCallToString("editDistance", minLength, maxLength) + " x " + iterations);
+      for (int i = 0; i < iterations; i++) {
+        bpSum += editDistance(strings[i], strings[i + 1]);
+      }
+      bpElapsed = (long)duration.elapsedMillis();
+      System.out.println(duration);
+    }
+    {
+      int maxDistance = minLength / 4;
+      Duration duration = BridgeTypeFactory.newDuration(StringUtils.methodCallToString("editDistance", minLength, maxLength, maxDistance) + " x " + iterations);
+      for (int i = 0; i < iterations; i++) {
+        assertEquals(maxDistance + 1, editDistance(strings[i], strings[i + 1], maxDistance));
+      }
+      System.out.println(duration);
+    }
+    assertEquals(dpSum, bpSum);
+    if (!GWT.isClient())  // long arithmetic is emulated in JavaScript
+      assertTrue(bpElapsed < dpElapsed);
+  }
+
+}
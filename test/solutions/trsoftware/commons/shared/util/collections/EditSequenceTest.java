@@ -19,6 +19,7 @@ package solutions.trsoftware.commons.shared.util.collections;
 
 import junit.framework.TestCase;
 import solutions.trsoftware.commons.shared.testutil.AssertUtils;
+import solutions.trsoftware.commons.shared.util.RandomUtils;
 import solutions.trsoftware.commons.shared.util.StringUtils;
 
 import java.util.List;
@@ -45,6 +46,19 @@ public class EditSequenceTest extends TestCase {
     checkSequence(1, "hello", "hallo");
   }
 
+  public void testCreateMatchesDP() throws Exception {
+    // the linear-space algorithm used by create should produce exactly the same sequences as the DP algorithm
+    for (String alphabet : new String[]{"ab", "abcd", StringUtils.ASCII_LETTERS}) {
+      for (int i = 0; i < 100; i++) {
+        List<Character> s = StringUtils.asList(RandomUtils.randString(alphabet, 0, 40));
+        List<Character> t = StringUtils.asList(RandomUtils.randString(alphabet, 0, 40));
+        EditSequence<Character> editSequence = EditSequence.create(s, t);
+        assertEquals(EditSequence.createDP(s, t).getOperations(), editSequence.getOperations());
+        assertEquals(t, editSequence.transformCopy(s));
+      }
+    }
+  }
+
   private static void checkSequence(int expectedDistance, String s, String t) {
     List<Character> sList = StringUtils.asList(s);
     List<Character> tList = StringUtils.asList(t);
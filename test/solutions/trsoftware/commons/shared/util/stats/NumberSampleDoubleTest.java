@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.Random;
+
+import static solutions.trsoftware.commons.shared.util.MathUtils.EPSILON;
+
+/**
+ * Checks the results of {@link NumberSampleDouble} against those of {@link NumberSample}.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class NumberSampleDoubleTest extends CollectableStatsTestCase {
+
+  private Random rnd;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // use the same random seed for all test runs (to ensure repeatable results)
+    rnd = new Random(1234);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rnd = null;
+    super.tearDown();
+  }
+
+  public void testStatsMatchNumberSample() throws Exception {
+    for (int n : new int[]{1, 2, 10, 11, 1001}) {
+      NumberSampleDouble sample = new NumberSampleDouble(4);
+      NumberSample<Double> expected = new NumberSample<Double>();
+      for (int i = 0; i < n; i++) {
+        double x = rnd.nextInt(4) == 0 ? 0 : rnd.nextGaussian() * 1000;
+        sample.update(x);
+        expected.update(x);
+      }
+      assertEquals(expected.size(), sample.size());
+      assertEquals(expected.min(), sample.min());
+      assertEquals(expected.max(), sample.max());
+      assertEquals(expected.sum(), sample.sum(), EPSILON * Math.max(1, Math.abs(expected.sum())));
+      assertEquals(expected.mean(), sample.mean(), EPSILON * Math.max(1, Math.abs(expected.mean())));
+      assertEquals(expected.variance(), sample.variance(), EPSILON * Math.max(1, expected.variance()));
+      assertEquals(expected.median(), sample.median());
+      assertEquals(expected.getMedian(), sample.getMedian());
+      for (int p = 0; p <= 100; p++) {
+        assertEquals(expected.percentile(p), sample.percentile(p));
+      }
+      for (double kPct = 0; kPct <= 1; kPct += .1) {
+        assertEquals(expected.orderStatistic(kPct), sample.orderStatistic(kPct));
+      }
+    }
+  }
+
+  public void testNonFiniteValuesIgnored() throws Exception {
+    NumberSampleDouble sample = new NumberSampleDouble();
+    sample.addAll(1, Double.NaN, 2, Double.POSITIVE_INFINITY, 3, Double.NEGATIVE_INFINITY);
+    assertEquals(3, sample.size());
+    assertEquals(1d, sample.min());
+    assertEquals(3d, sample.max());
+    assertEquals(2d, sample.median());
+    assertEquals(6d, sample.sum());
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    double[] inputs = rnd.doubles(1000).toArray();
+    doTestAsDoubleStreamCollector(new NumberSampleDouble(), NumberSampleDouble::collectDoubleStream, NumberSampleDoubleTest::assertEquals, inputs);
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+import static solutions.trsoftware.commons.shared.util.MathUtils.EPSILON;
+
+/**
+ * Checks the results of {@link NumberSampleInt} against those of {@link NumberSample}.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class NumberSampleIntTest extends CollectableStatsTestCase {
+
+  private Random rnd;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // use the same random seed for all test runs (to ensure repeatable results)
+    rnd = new Random(1234);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rnd = null;
+    super.tearDown();
+  }
+
+  public void testStatsMatchNumberSample() throws Exception {
+    for (int n : new int[]{1, 2, 3, 10, 11, 100, 1001}) {
+      for (int bound : new int[]{3, 1000, Integer.MAX_VALUE}) {
+        NumberSampleInt sample = new NumberSampleInt(4);
+        NumberSample<Integer> expected = new NumberSample<Integer>();
+        for (int i = 0; i < n; i++) {
+          int x = rnd.nextInt(bound) - bound / 2;
+          sample.update(x);
+          expected.update(x);
+        }
+        assertSameStats(expected, sample);
+        // adding more values after some stats have been computed should work correctly
+        for (int i = 0; i < n; i++) {
+          int x = rnd.nextInt(bound) - bound / 2;
+          sample.update(x);
+          expected.update(x);
+        }
+        assertSameStats(expected, sample);
+      }
+    }
+  }
+
+  private static void assertSameStats(NumberSample<Integer> expected, NumberSampleInt actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.min(), actual.min());
+    assertEquals(expected.max(), actual.max());
+    assertEquals(expected.sum(), actual.sum());
+    assertEquals(expected.mean(), actual.mean(), EPSILON * Math.max(1, Math.abs(expected.mean())));
+    assertEquals(expected.variance(), actual.variance(), EPSILON * Math.max(1, expected.variance()));
+    assertEquals(expected.median(), actual.median());
+    assertEquals(expected.getMedian(), actual.getMedian());
+    for (int p = 0; p <= 100; p++) {
+      assertEquals((int)expected.percentile(p), actual.percentile(p));
+    }
+    for (int k = 1; k <= expected.size(); k++) {
+      assertEquals((int)expected.orderStatistic(k), actual.orderStatistic(k));
+      assertEquals((int)expected.orderStatistic(-k), actual.orderStatistic(-k));
+    }
+    for (double kPct = 0; kPct <= 1; kPct += .05) {
+      assertEquals((int)expected.orderStatistic(kPct), actual.orderStatistic(kPct));
+    }
+    int[] data = actual.getData();
+    assertEquals(expected.size(), data.length);
+    for (int i = 0; i < data.length; i++) {
+      assertEquals((int)expected.getData().get(i), data[i]);
+    }
+    ImmutableStats<Integer> expectedSummary = expected.summarize();
+    ImmutableStats<Integer> summary = actual.summarize();
+    assertEquals(expectedSummary.size(), summary.size());
+    assertEquals(expectedSummary.min(), summary.min());
+    assertEquals(expectedSummary.max(), summary.max());
+    assertEquals(expectedSummary.median(), summary.median());
+  }
+
+  public void testEmpty() throws Exception {
+    NumberSampleInt sample = new NumberSampleInt();
+    assertEquals(0, sample.size());
+    assertEquals(0d, sample.sum());
+    assertNull(sample.getMedian());
+    assertThrows(NoSuchElementException.class, sample::min);
+    assertThrows(NoSuchElementException.class, sample::max);
+    assertThrows(NoSuchElementException.class, sample::median);
+    assertThrows(NoSuchElementException.class, (Runnable)() -> sample.percentile(50));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.orderStatistic(1));
+    assertEquals(0, sample.summarize().size());
+    assertEquals(0, sample.getData().length);
+  }
+
+  public void testInvalidArgs() throws Exception {
+    NumberSampleInt sample = new NumberSampleInt();
+    sample.addAll(1, 2, 3);
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.percentile(-1));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.percentile(101));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.orderStatistic(0));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.orderStatistic(4));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.orderStatistic(-4));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.orderStatistic(1.1));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> sample.orderStatistic(Double.NaN));
+  }
+
+  public void testSumDoesNotOverflow() throws Exception {
+    NumberSampleInt sample = new NumberSampleInt();
+    sample.addAll(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    assertEquals(3d * Integer.MAX_VALUE, sample.sum());
+    assertEquals((double)Integer.MAX_VALUE, sample.mean());
+  }
+
+  public void testMerge() throws Exception {
+    NumberSampleInt expected = new NumberSampleInt();
+    NumberSampleInt a = new NumberSampleInt();
+    NumberSampleInt b = new NumberSampleInt();
+    for (int i = 0; i < 1000; i++) {
+      int x = rnd.nextInt(100);
+      expected.update(x);
+      (i % 3 == 0 ? a : b).update(x);
+    }
+    a.merge(b);
+    assertEquals(expected, a);
+    assertEquals(expected.hashCode(), a.hashCode());
+    assertEquals(expected.summarize().toString(), a.summarize().toString());
+    // merging sorted samples whose ranges don't overlap
+    NumberSampleInt lower = new NumberSampleInt();
+    NumberSampleInt upper = new NumberSampleInt();
+    lower.addAll(1, 2, 3);
+    upper.addAll(4, 5, 6);
+    lower.merge(upper);
+    lower.merge(new NumberSampleInt());
+    assertEquals(3, lower.percentile(50));
+    assertEquals(4, (int)lower.median());
+    assertEquals(new Median<>(3, 4), lower.getMedian());
+    assertEquals(6, lower.orderStatistic(-1));
+    assertEquals(21d, lower.sum());
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    Integer[] inputs = rnd.ints(1000, -100, 100).boxed().toArray(Integer[]::new);
+    NumberSampleInt expected = doTestAsCollector(new NumberSampleInt(), null, inputs);
+    assertEquals(expected, NumberSampleInt.collectIntStream(IntStream.of(expected.getData()).parallel()));
+  }
+}
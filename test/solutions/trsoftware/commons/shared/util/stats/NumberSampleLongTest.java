@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static solutions.trsoftware.commons.shared.util.MathUtils.EPSILON;
+
+/**
+ * Checks the results of {@link NumberSampleLong} against those of {@link NumberSample}.
+ *
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class NumberSampleLongTest extends CollectableStatsTestCase {
+
+  private Random rnd;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // use the same random seed for all test runs (to ensure repeatable results)
+    rnd = new Random(1234);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rnd = null;
+    super.tearDown();
+  }
+
+  public void testStatsMatchNumberSample() throws Exception {
+    for (int n : new int[]{1, 2, 10, 11, 1001}) {
+      NumberSampleLong sample = new NumberSampleLong(4);
+      NumberSample<Long> expected = new NumberSample<Long>();
+      for (int i = 0; i < n; i++) {
+        // values outside the int range, with some duplicates
+        long x = rnd.nextInt(3) == 0 ? Long.MIN_VALUE / 2 : rnd.nextLong() / 4;
+        sample.update(x);
+        expected.update(x);
+      }
+      assertEquals(expected.size(), sample.size());
+      assertEquals(expected.min(), sample.min());
+      assertEquals(expected.max(), sample.max());
+      assertEquals(expected.sum(), sample.sum(), EPSILON * Math.abs(expected.sum()));
+      assertEquals(expected.mean(), sample.mean(), EPSILON * Math.abs(expected.mean()));
+      assertEquals(expected.median(), sample.median());
+      assertEquals(expected.getMedian(), sample.getMedian());
+      for (int p = 0; p <= 100; p++) {
+        assertEquals((long)expected.percentile(p), sample.percentile(p));
+      }
+      for (int k = 1; k <= n; k++) {
+        assertEquals((long)expected.orderStatistic(k), sample.orderStatistic(k));
+      }
+      assertEquals(expected.getData().get(n - 1).longValue(), sample.getData()[n - 1]);
+    }
+  }
+
+  public void testMerge() throws Exception {
+    NumberSampleLong a = new NumberSampleLong();
+    NumberSampleLong b = new NumberSampleLong();
+    a.addAll(5, 1, 3);
+    b.addAll(2, 4, Long.MAX_VALUE);
+    a.merge(b);
+    assertEquals(6, a.size());
+    assertEquals(1L, (long)a.min());
+    assertEquals(Long.MAX_VALUE, (long)a.max());
+    assertEquals(3, a.percentile(50));
+    assertEquals(4L, (long)a.median());
+    NumberSampleLong expected = new NumberSampleLong();
+    expected.addAll(1, 2, 3, 4, 5, Long.MAX_VALUE);
+    assertEquals(expected, a);
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    Long[] inputs = rnd.longs(1000).boxed().toArray(Long[]::new);
+    NumberSampleLong expected = doTestAsCollector(new NumberSampleLong(), null, inputs);
+    assertEquals(expected, NumberSampleLong.collectLongStream(LongStream.of(expected.getData()).parallel()));
+  }
+}
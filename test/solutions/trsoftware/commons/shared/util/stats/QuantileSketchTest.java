@@ -0,0 +1,267 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import java.util.Random;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+import static solutions.trsoftware.commons.shared.util.MathUtils.EPSILON;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class QuantileSketchTest extends CollectableStatsTestCase {
+
+  private Random rnd;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // use the same random seed for all test runs (to ensure repeatable results)
+    rnd = new Random(1234);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rnd = null;
+    super.tearDown();
+  }
+
+  public void testEmpty() throws Exception {
+    QuantileSketch sketch = new QuantileSketch();
+    assertEquals(0, sketch.size());
+    assertNull(sketch.min());
+    assertNull(sketch.max());
+    assertNull(sketch.median());
+    assertNull(sketch.percentile(99));
+    ImmutableStats<Double> stats = sketch.summarize();
+    assertEquals(0, stats.size());
+    assertTrue(stats.getPercentiles().isEmpty());
+  }
+
+  public void testConstructorValidation() throws Exception {
+    assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0));
+    assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(1));
+    assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(-.1));
+    assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(.01, 0));
+  }
+
+  /**
+   * Checks the estimated percentiles against the exact values computed by {@link NumberSample#percentile(int)}
+   * for several distributions.
+   */
+  public void testPercentiles() throws Exception {
+    for (double relativeAccuracy : new double[]{.005, .01, .05}) {
+      // uniform
+      checkPercentiles(relativeAccuracy, i -> rnd.nextDouble() * 1000);
+      // exponential (like request latencies)
+      checkPercentiles(relativeAccuracy, i -> -Math.log(1 - rnd.nextDouble()) * 50);
+      // log-normal, with a long tail
+      checkPercentiles(relativeAccuracy, i -> Math.exp(rnd.nextGaussian() * 2));
+      // normal, with negative values
+      checkPercentiles(relativeAccuracy, i -> rnd.nextGaussian() * 100);
+      // integers, with many duplicates and zeros
+      checkPercentiles(relativeAccuracy, i -> (double)(rnd.nextInt(21) - 10));
+    }
+  }
+
+  private void checkPercentiles(double relativeAccuracy, java.util.function.IntToDoubleFunction generator) {
+    for (int n : new int[]{1, 2, 10, 1000, 20_000}) {
+      QuantileSketch sketch = new QuantileSketch(relativeAccuracy);
+      NumberSample<Double> sample = new NumberSample<Double>();
+      for (int i = 0; i < n; i++) {
+        double x = generator.applyAsDouble(i);
+        sketch.update(x);
+        sample.update(x);
+      }
+      assertEquals(n, sketch.size());
+      // the following stats should be exact
+      assertEquals(sample.min(), sketch.min());
+      assertEquals(sample.max(), sketch.max());
+      assertEquals(sample.mean(), sketch.mean(), EPSILON * Math.max(1, Math.abs(sample.mean())));
+      assertEquals(sample.variance(), sketch.variance(), EPSILON * Math.max(1, sample.variance()));
+      // the percentiles should be within the relative error bound
+      for (int p = 0; p <= 100; p++) {
+        assertApproxEquals(relativeAccuracy, sample.percentile(p), sketch.percentile(p));
+      }
+      assertApproxEquals(relativeAccuracy, sample.median(), sketch.median());
+    }
+  }
+
+  private static void assertApproxEquals(double relativeAccuracy, double expected, double actual) {
+    // allow a tiny bit of extra slack for floating point rounding errors
+    double delta = relativeAccuracy * Math.abs(expected) * (1 + 1e-9);
+    assertEquals(expected, actual, delta);
+  }
+
+  public void testMerge() throws Exception {
+    QuantileSketch expected = new QuantileSketch();
+    QuantileSketch[] parts = new QuantileSketch[4];
+    for (int i = 0; i < parts.length; i++) {
+      parts[i] = new QuantileSketch();
+    }
+    for (int i = 0; i < 10_000; i++) {
+      // each part gets a different range of values, to make sure the buckets are combined properly
+      int part = rnd.nextInt(parts.length);
+      double x = (rnd.nextDouble() - .2) * Math.pow(100, part);
+      expected.update(x);
+      parts[part].update(x);
+    }
+    QuantileSketch merged = new QuantileSketch();
+    for (QuantileSketch part : parts) {
+      merged.merge(part);
+    }
+    assertEqualSketches(expected, merged);
+    // can't merge sketches with different error bounds
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> merged.merge(new QuantileSketch(.02)));
+  }
+
+  /**
+   * Merging two sketches into each other concurrently should not cause a deadlock.
+   */
+  public void testConcurrentMerge() throws Exception {
+    // the sketches are empty, so that we can merge them many times without overflowing their counts
+    QuantileSketch a = new QuantileSketch();
+    QuantileSketch b = new QuantileSketch();
+    int iterations = 1_000_000;
+    Thread t1 = new Thread(() -> {
+      for (int i = 0; i < iterations; i++)
+        a.merge(b);
+    });
+    Thread t2 = new Thread(() -> {
+      for (int i = 0; i < iterations; i++)
+        b.merge(a);
+    });
+    // daemon threads won't prevent the JVM from exiting if they're deadlocked
+    t1.setDaemon(true);
+    t2.setDaemon(true);
+    t1.start();
+    t2.start();
+    t1.join(30_000);
+    t2.join(30_000);
+    assertFalse("deadlock", t1.isAlive() || t2.isAlive());
+    assertEquals(0, a.size());
+    // merging an empty sketch shouldn't change anything
+    for (int i = 0; i < 100; i++)
+      a.update(rnd.nextGaussian());
+    QuantileSketch expected = new QuantileSketch();
+    expected.merge(a);
+    assertEqualSketches(a, expected);
+    a.merge(b);
+    assertEqualSketches(expected, a);
+  }
+
+  private static void assertEqualSketches(QuantileSketch expected, QuantileSketch actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.min(), actual.min());
+    assertEquals(expected.max(), actual.max());
+    assertEquals(expected.mean(), actual.mean(), EPSILON);
+    assertEquals(expected.variance(), actual.variance(), EPSILON * Math.max(1, expected.variance()));
+    assertEquals(expected.median(), actual.median());
+    for (int p = 0; p <= 100; p++) {
+      assertEquals(expected.percentile(p), actual.percentile(p));
+    }
+    assertEquals(expected.percentile(99.9), actual.percentile(99.9));
+  }
+
+  /**
+   * Checks that the number of buckets is bounded when the sample spans a very wide range of magnitudes,
+   * and that the collapsed buckets only affect the accuracy of the lowest percentiles.
+   */
+  public void testMaxBuckets() throws Exception {
+    double relativeAccuracy = .01;
+    int maxBuckets = 100;
+    QuantileSketch sketch = new QuantileSketch(relativeAccuracy, maxBuckets);
+    NumberSample<Double> sample = new NumberSample<Double>();
+    for (int i = 0; i < 10_000; i++) {
+      // with 1% accuracy, the values 1..1e10 span more than 1000 buckets
+      double x = Math.pow(10, rnd.nextDouble() * 10);
+      sketch.update(x);
+      sample.update(x);
+    }
+    // 100 buckets with γ = 1.01/.99 cover a ratio of about 7.4x (the top 8.7% of this log-uniform sample),
+    // so the highest percentiles should still be accurate, but the lower ones were collapsed into the lowest bucket
+    for (int p = 93; p <= 100; p++) {
+      assertApproxEquals(relativeAccuracy, sample.percentile(p), sketch.percentile(p));
+    }
+    assertTrue(sketch.percentile(50) > 1e9);
+    // the min and max are still exact
+    assertEquals(sample.min(), sketch.min());
+    assertEquals(sample.max(), sketch.max());
+    // adding a smaller number after the buckets have been collapsed puts it into the lowest bucket
+    sketch.update(1e-5);
+    assertEquals(1e-5, sketch.percentile(0));
+    assertEquals(sample.size() + 1, sketch.size());
+  }
+
+  public void testZerosAndNegatives() throws Exception {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.updateAll(new double[]{-5, -5, -1, 0, 0, Double.MIN_VALUE, 1, 10});
+    assertEquals(8, sketch.size());
+    assertEquals(-5d, sketch.percentile(0));
+    assertEquals(-5d, sketch.percentile(25));
+    assertApproxEquals(.01, -1, sketch.percentile(30));
+    assertEquals(0d, sketch.percentile(40));
+    // MIN_VALUE is a subnormal number, which is counted as 0
+    assertEquals(0d, sketch.percentile(75));
+    assertApproxEquals(.01, 1, sketch.percentile(80));
+    assertEquals(10d, sketch.percentile(100));
+    assertEquals(0d, sketch.median());
+    // non-finite numbers are ignored
+    sketch.update(Double.NaN);
+    sketch.update(Double.POSITIVE_INFINITY);
+    assertEquals(8, sketch.size());
+    assertEquals(10d, sketch.max());
+  }
+
+  public void testSummarize() throws Exception {
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 1; i <= 1000; i++) {
+      sketch.update(i);
+    }
+    ImmutableStats<Double> stats = sketch.summarize();
+    assertEquals(1000, stats.size());
+    assertEquals(1d, stats.min());
+    assertEquals(1000d, stats.max());
+    assertEquals(500.5, stats.mean(), EPSILON);
+    assertEquals(QuantileSketch.DEFAULT_PERCENTILES.length, stats.getPercentiles().size());
+    assertApproxEquals(.01, 500, stats.percentile(50));
+    assertApproxEquals(.01, 900, stats.percentile(90));
+    assertApproxEquals(.01, 990, stats.percentile(99));
+    assertApproxEquals(.01, 999, stats.percentile(99.9));
+    assertNull(stats.percentile(75));
+    assertTrue(stats.toString(), stats.toString().contains("percentiles="));
+    // custom percentiles
+    stats = sketch.summarize(25, 75);
+    assertEquals(2, stats.getPercentiles().size());
+    assertApproxEquals(.01, 250, stats.percentile(25));
+    assertApproxEquals(.01, 750, stats.percentile(75));
+    assertThrows(UnsupportedOperationException.class, (Runnable)() -> sketch.summarize().getPercentiles().put(1d, 1d));
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    double[] inputs = new double[1000];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = rnd.nextGaussian() * 100;
+    }
+    doTestAsDoubleStreamCollector(new QuantileSketch(), QuantileSketch::collectDoubleStream,
+        QuantileSketchTest::assertEqualSketches, inputs);
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package solutions.trsoftware.commons.shared.util.stats;
+
+import solutions.trsoftware.commons.shared.util.stats.SpaceSavingCounter.Estimate;
+
+import java.util.*;
+
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class SpaceSavingCounterTest extends CollectableStatsTestCase {
+
+  private Random rnd;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // use the same random seed for all test runs (to ensure repeatable results)
+    rnd = new Random(1234);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    rnd = null;
+    super.tearDown();
+  }
+
+  /**
+   * @return a key from a Zipf-like distribution over {@code nKeys} keys
+   */
+  private int nextKey(int nKeys) {
+    return (int)Math.floor(Math.pow(nKeys + 1, rnd.nextDouble())) - 1;
+  }
+
+  public void testExactWhenUnderCapacity() throws Exception {
+    SpaceSavingCounter<String> counter = new SpaceSavingCounter<>(3);
+    counter.increment("a");
+    counter.add("b", 5);
+    counter.increment("a");
+    assertEquals(2, counter.size());
+    assertEquals(2, counter.get("a"));
+    assertEquals(5, counter.get("b"));
+    assertEquals(0, counter.get("c"));
+    assertEquals(0, counter.getMaxError());
+    assertEquals(7, counter.sumOfAllEntries());
+    assertEquals(Arrays.asList(new Estimate<>("b", 5, 0), new Estimate<>("a", 2, 0)), counter.topK(5));
+    assertEquals(Collections.singletonList(new Estimate<>("b", 5, 0)), counter.topK(1));
+    assertEquals("{\"b\": 5, \"a\": 2}", counter.toString());
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> counter.add("a", 0));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> counter.add("a", -1));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> new SpaceSavingCounter<>(0));
+  }
+
+  public void testReplacement() throws Exception {
+    SpaceSavingCounter<String> counter = new SpaceSavingCounter<>(2);
+    counter.add("a", 3);
+    counter.add("b", 1);
+    // "c" replaces "b", inheriting its count as the error
+    counter.add("c", 1);
+    assertEquals(new HashSet<>(Arrays.asList("a", "c")), counter.keySet());
+    assertEquals(2, counter.get("c"));
+    assertEquals(1, counter.getLowerBound("c"));
+    assertEquals(2, counter.getUpperBound("c"));
+    assertEquals(0, counter.get("b"));
+    assertEquals(0, counter.getLowerBound("b"));
+    assertEquals(2, counter.getUpperBound("b"));
+    assertEquals(2, counter.getMaxError());
+    assertEquals(5, counter.sumOfAllEntries());
+  }
+
+  /**
+   * Checks the guarantees of the algorithm against the exact counts of a skewed stream of keys.
+   */
+  public void testErrorBounds() throws Exception {
+    for (int capacity : new int[]{10, 100}) {
+      SpaceSavingCounter<Integer> counter = new SpaceSavingCounter<>(capacity);
+      HashCounter<Integer> exact = new HashCounter<>();
+      int n = 50_000;
+      for (int i = 0; i < n; i++) {
+        int key = nextKey(10_000);
+        counter.increment(key);
+        exact.increment(key);
+      }
+      assertEquals(capacity, counter.size());
+      assertEquals(n, counter.sumOfAllEntries());
+      assertErrorBounds(exact, counter);
+    }
+  }
+
+  private static void assertErrorBounds(HashCounter<Integer> exact, SpaceSavingCounter<Integer> counter) {
+    long n = exact.sumOfAllEntries();
+    assertEquals(n, counter.sumOfAllEntries());
+    long maxError = counter.getMaxError();
+    assertTrue(maxError <= n / counter.getCapacity());
+    for (Integer key : exact.keySet()) {
+      int trueCount = exact.get(key);
+      assertTrue(counter.getLowerBound(key) <= trueCount);
+      assertTrue(counter.getUpperBound(key) >= trueCount);
+      assertTrue(counter.getUpperBound(key) - trueCount <= maxError);
+      // every key whose count exceeds N / capacity must be monitored
+      if (trueCount > n / counter.getCapacity())
+        assertTrue(counter.keySet().contains(key));
+    }
+    for (Estimate<Integer> estimate : counter.topK(counter.size())) {
+      assertTrue(estimate.getError() <= maxError);
+    }
+    // the heavy hitters must include all the keys whose true count exceeds the threshold
+    double phi = 2d / counter.getCapacity();
+    Set<Integer> heavyHitters = new HashSet<>();
+    for (Estimate<Integer> estimate : counter.heavyHitters(phi)) {
+      heavyHitters.add(estimate.getKey());
+    }
+    for (Integer key : exact.keySet()) {
+      if (exact.get(key) > phi * n)
+        assertTrue(heavyHitters.contains(key));
+    }
+  }
+
+  public void testTopK() throws Exception {
+    SpaceSavingCounter<Integer> counter = new SpaceSavingCounter<>(100);
+    HashCounter<Integer> exact = new HashCounter<>();
+    for (int i = 0; i < 100_000; i++) {
+      int key = nextKey(100_000);
+      counter.increment(key);
+      exact.increment(key);
+    }
+    // the most frequent keys in a skewed distribution should be identified correctly
+    List<Estimate<Integer>> top = counter.topK(5);
+    Iterator<Map.Entry<Integer, Integer>> expected = exact.entriesSortedByValueDescending().iterator();
+    for (Estimate<Integer> estimate : top) {
+      assertEquals(expected.next().getKey(), estimate.getKey());
+    }
+    for (int i = 1; i < top.size(); i++) {
+      assertTrue(top.get(i - 1).getCount() >= top.get(i).getCount());
+    }
+  }
+
+  public void testMerge() throws Exception {
+    int capacity = 50;
+    HashCounter<Integer> exact = new HashCounter<>();
+    List<SpaceSavingCounter<Integer>> parts = new ArrayList<>();
+    for (int p = 0; p < 4; p++) {
+      SpaceSavingCounter<Integer> part = new SpaceSavingCounter<>(capacity);
+      for (int i = 0; i < 20_000; i++) {
+        // each part has a different distribution
+        int key = p == 3 ? rnd.nextInt(30) : nextKey(5_000) + p;
+        part.increment(key);
+        exact.increment(key);
+      }
+      parts.add(part);
+    }
+    SpaceSavingCounter<Integer> merged = new SpaceSavingCounter<>(capacity);
+    for (SpaceSavingCounter<Integer> part : parts) {
+      merged.merge(part);
+    }
+    assertEquals(capacity, merged.size());
+    assertErrorBounds(exact, merged);
+    // merging into a counter with a larger capacity
+    SpaceSavingCounter<Integer> large = new SpaceSavingCounter<>(1000);
+    for (SpaceSavingCounter<Integer> part : parts) {
+      large.merge(part);
+    }
+    assertTrue(large.size() > capacity && large.size() <= 4 * capacity);
+    for (Integer key : exact.keySet()) {
+      assertTrue(large.getLowerBound(key) <= exact.get(key));
+      assertTrue(large.getUpperBound(key) >= exact.get(key));
+    }
+  }
+
+  public void testMergeSmallerCapacity() throws Exception {
+    // a key dropped by a counter that was merged should still be bounded by the max error
+    SpaceSavingCounter<String> small = new SpaceSavingCounter<>(1);
+    small.add("a", 5);
+    small.add("b", 1);  // replaces "a"
+    SpaceSavingCounter<String> large = new SpaceSavingCounter<>(10);
+    large.merge(small);
+    assertEquals(1, large.size());
+    assertEquals(6, large.get("b"));
+    assertEquals(6, large.getMaxError());
+    assertEquals(6, large.getUpperBound("a"));
+    assertEquals(6, large.sumOfAllEntries());
+  }
+
+  public void testWithMaxErrorRate() throws Exception {
+    assertEquals(100, SpaceSavingCounter.withMaxErrorRate(.01).getCapacity());
+    assertEquals(4, SpaceSavingCounter.withMaxErrorRate(.3).getCapacity());
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> SpaceSavingCounter.withMaxErrorRate(0));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> SpaceSavingCounter.withMaxErrorRate(1.5));
+  }
+
+  @Override
+  public void testAsCollector() throws Exception {
+    // since the default capacity isn't exceeded, the counts should be exact
+    doTestAsCollector(new SpaceSavingCounter<>(), (expected, actual) -> {
+      assertEquals(expected.keySet(), actual.keySet());
+      for (String key : expected.keySet()) {
+        assertEquals(expected.get(key), actual.get(key));
+      }
+    }, "a", "b", "c", "a", "b", "a", "d");
+  }
+}
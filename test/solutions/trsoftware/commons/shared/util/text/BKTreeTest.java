@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 TR Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package solutions.trsoftware.commons.shared.util.text;
+
+import junit.framework.TestCase;
+import solutions.trsoftware.commons.shared.util.Levenshtein;
+import solutions.trsoftware.commons.shared.util.RandomUtils;
+
+import java.util.*;
+
+import static java.util.Arrays.asList;
+import static solutions.trsoftware.commons.shared.testutil.AssertUtils.assertThrows;
+
+/**
+ * @author Alex
+ * @since 10/17/2026
+ */
+public class BKTreeTest extends TestCase {
+
+  private static final List<String> WORDS = asList("foo", "bar", "baz", "foolio", "barrio", "bazzar", "fool", "food", "");
+
+  public void testAdd() throws Exception {
+    BKTree tree = new BKTree();
+    assertTrue(tree.isEmpty());
+    assertEquals(WORDS.size(), tree.addAll(WORDS));
+    assertEquals(WORDS.size(), tree.size());
+    assertFalse(tree.isEmpty());
+    // adding duplicates should have no effect
+    assertFalse(tree.add("foo"));
+    assertFalse(tree.add(""));
+    assertEquals(0, tree.addAll(WORDS));
+    assertEquals(WORDS.size(), tree.size());
+    for (String word : WORDS) {
+      assertTrue(tree.contains(word));
+    }
+    assertFalse(tree.contains("fo"));
+    assertFalse(tree.contains("foolish"));
+    assertThrows(NullPointerException.class, (Runnable)() -> tree.add(null));
+  }
+
+  public void testSearch() throws Exception {
+    BKTree tree = new BKTree(WORDS);
+    assertEquals(asList(m("fool", 0), m("foo", 1), m("food", 1), m("foolio", 2)), tree.search("fool", 2));
+    assertEquals(asList(m("fool", 0), m("foo", 1), m("food", 1)), tree.search("fool", 1));
+    assertEquals(asList(m("fool", 0)), tree.search("fool", 0));
+    assertEquals(asList(m("", 0), m("bar", 3), m("baz", 3), m("foo", 3)), tree.search("", 3));
+    assertEquals(Collections.emptyList(), tree.search("xyzzy", 2));
+    assertEquals(Collections.emptyList(), new BKTree().search("foo", 5));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> tree.search("foo", -1));
+    assertThrows(NullPointerException.class, (Runnable)() -> tree.search(null, 1));
+  }
+
+  public void testNearest() throws Exception {
+    BKTree tree = new BKTree(WORDS);
+    assertEquals(asList(m("fool", 0), m("foo", 1), m("food", 1)), tree.nearest("fool", 3));
+    // ties should be broken by the natural ordering of the strings
+    assertEquals(asList(m("fool", 0), m("foo", 1)), tree.nearest("fool", 2));
+    assertEquals(asList(m("bar", 1), m("baz", 1)), tree.nearest("baa", 2));
+    assertEquals(asList(m("bar", 1)), tree.nearest("baa", 2, 1).subList(0, 1));
+    assertEquals(Collections.emptyList(), tree.nearest("xyzzy", 2, 2));
+    assertEquals(Collections.emptyList(), tree.nearest("foo", 0));
+    assertEquals(WORDS.size(), tree.nearest("foo", 100).size());
+    assertEquals(Collections.emptyList(), new BKTree().nearest("foo", 5));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> tree.nearest("foo", -1));
+    assertThrows(IllegalArgumentException.class, (Runnable)() -> tree.nearest("foo", 1, -1));
+  }
+
+  /**
+   * Checks the results against a brute-force search of a large random dictionary, and makes sure that
+   * the queries don't compute the distance to most of the strings in the dictionary.
+   */
+  public void testRandomDictionary() throws Exception {
+    final int[] distanceComputations = new int[1];
+    BKTree tree = new BKTree() {
+      @Override
+      protected int distance(String a, String b, int maxDistance) {
+        distanceComputations[0]++;
+        return super.distance(a, b, maxDistance);
+      }
+    };
+    Set<String> words = new LinkedHashSet<String>();
+    Random rnd = new Random(1);
+    while (words.size() < 20000) {
+      words.add(RandomUtils.randString(RandomUtils.nextIntInRange(rnd, 3, 12), "abcdefghijklmnop"));
+    }
+    tree.addAll(words);
+    assertEquals(words.size(), tree.size());
+    for (int i = 0; i < 20; i++) {
+      String query = RandomUtils.randString(RandomUtils.nextIntInRange(rnd, 3, 12), "abcdefghijklmnop");
+      for (int k = 0; k <= 2; k++) {
+        List<BKTree.Match> expected = bruteForceSearch(words, query, k);
+        distanceComputations[0] = 0;
+        assertEquals(expected, tree.search(query, k));
+        if (k <= 1)
+          assertTrue(distanceComputations[0] < words.size() / 2);
+      }
+      for (int n : new int[]{1, 5, 20}) {
+        List<BKTree.Match> expected = bruteForceSearch(words, query, Integer.MAX_VALUE).subList(0, n);
+        distanceComputations[0] = 0;
+        assertEquals(expected, tree.nearest(query, n));
+        if (n == 1)
+          assertTrue(distanceComputations[0] < words.size());
+      }
+    }
+  }
+
+  private static List<BKTree.Match> bruteForceSearch(Collection<String> words, String query, int maxDistance) {
+    List<BKTree.Match> results = new ArrayList<BKTree.Match>();
+    for (String word : words) {
+      int d = Levenshtein.editDistance(word, query);
+      if (d <= maxDistance)
+        results.add(m(word, d));
+    }
+    Collections.sort(results);
+    return results;
+  }
+
+  private static BKTree.Match m(String value, int distance) {
+    return new BKTree.Match(value, distance);
+  }
+}